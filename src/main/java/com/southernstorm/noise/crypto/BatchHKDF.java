@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.crypto;
+
+import java.util.Arrays;
+
+import com.southernstorm.noise.protocol.Destroyable;
+
+/**
+ * Computes HMAC-SHA256 and the Noise HKDF function for batches of
+ * independent inputs with SHA256MultiBuffer.
+ * 
+ * The inputs and outputs for a batch are packed one after the other
+ * in single arrays; e.g. the chaining keys for a batch of 20 handshakes
+ * are stored in a 640-byte array.  This allows a batching handshake
+ * processor to perform the key derivations for many sessions at once.
+ * Batches that are larger than SHA256MultiBuffer.LANES are processed
+ * in groups of that size.
+ */
+public class BatchHKDF implements Destroyable {
+
+	/**
+	 * Length of the HMAC-SHA256 output and of each HKDF output.
+	 */
+	public static final int HASH_LEN = 32;
+
+	private static final int BLOCK_LEN = 64;
+
+	private SHA256MultiBuffer sha256;
+	private byte[] pad;
+	private byte[] inner;
+	private byte[] temp;
+	private byte[] output1;
+
+	/**
+	 * Constructs a new batch HKDF object.
+	 */
+	public BatchHKDF() {
+		sha256 = new SHA256MultiBuffer();
+		pad = new byte [BLOCK_LEN];
+		inner = new byte [HASH_LEN * SHA256MultiBuffer.LANES];
+		temp = new byte [HASH_LEN * SHA256MultiBuffer.LANES];
+		output1 = new byte [HASH_LEN * SHA256MultiBuffer.LANES];
+	}
+
+	/**
+	 * Computes HMAC-SHA256 for a batch of keys and data values.
+	 * 
+	 * @param count The number of entries in the batch.
+	 * @param keys The buffer containing the packed keys.
+	 * @param keyOffset The offset of the first key.
+	 * @param keyLength The length of each key, at most 64 bytes.
+	 * @param data The buffer containing the packed data values.
+	 * @param dataOffset The offset of the first data value.
+	 * @param dataLength The length of each data value.
+	 * @param output The buffer to write the packed HMAC values to.
+	 * @param outputOffset The offset to write the first HMAC value at.
+	 */
+	public void hmac(int count, byte[] keys, int keyOffset, int keyLength,
+					 byte[] data, int dataOffset, int dataLength,
+					 byte[] output, int outputOffset)
+	{
+		if (keyLength < 0 || keyLength > BLOCK_LEN)
+			throw new IllegalArgumentException("HMAC keys must be 64 bytes or less");
+		for (int first = 0; first < count; first += SHA256MultiBuffer.LANES) {
+			int lanes = Math.min(count - first, SHA256MultiBuffer.LANES);
+			hmacLanes(lanes, keys, keyOffset + first * keyLength, keyLength,
+					  data, dataOffset + first * dataLength, dataLength, -1,
+					  output, outputOffset + first * HASH_LEN);
+		}
+	}
+
+	/**
+	 * Computes the Noise HKDF function for a batch of chaining keys and
+	 * input key material values.
+	 * 
+	 * @param count The number of entries in the batch.
+	 * @param chainingKeys The buffer containing the packed 32-byte chaining keys.
+	 * @param chainingKeyOffset The offset of the first chaining key.
+	 * @param ikm The buffer containing the packed input key material.
+	 * @param ikmOffset The offset of the first input key material value.
+	 * @param ikmLength The length of each input key material value.
+	 * @param output1 The buffer to write the packed first outputs to.
+	 * @param offset1 The offset to write the first output for the first entry at.
+	 * @param output2 The buffer to write the packed second outputs to,
+	 * or null if the second outputs are not required.
+	 * @param offset2 The offset to write the second output for the first entry at.
+	 * @param output3 The buffer to write the packed third outputs to,
+	 * or null if the third outputs are not required.
+	 * @param offset3 The offset to write the third output for the first entry at.
+	 * 
+	 * The outputs may not overlap with the chaining keys or the input
+	 * key material.
+	 */
+	public void hkdf(int count, byte[] chainingKeys, int chainingKeyOffset,
+					 byte[] ikm, int ikmOffset, int ikmLength,
+					 byte[] output1, int offset1,
+					 byte[] output2, int offset2,
+					 byte[] output3, int offset3)
+	{
+		for (int first = 0; first < count; first += SHA256MultiBuffer.LANES) {
+			int lanes = Math.min(count - first, SHA256MultiBuffer.LANES);
+			int outOffset = first * HASH_LEN;
+			hmacLanes(lanes, chainingKeys, chainingKeyOffset + outOffset, HASH_LEN,
+					  ikm, ikmOffset + first * ikmLength, ikmLength, -1, temp, 0);
+			hmacLanes(lanes, temp, 0, HASH_LEN, null, 0, 0, 0x01, this.output1, 0);
+			System.arraycopy(this.output1, 0, output1, offset1 + outOffset, lanes * HASH_LEN);
+			if (output2 == null && output3 == null)
+				continue;
+			hmacLanes(lanes, temp, 0, HASH_LEN, this.output1, 0, HASH_LEN, 0x02, inner, 0);
+			if (output2 != null)
+				System.arraycopy(inner, 0, output2, offset2 + outOffset, lanes * HASH_LEN);
+			if (output3 == null)
+				continue;
+			hmacLanes(lanes, temp, 0, HASH_LEN, inner, 0, HASH_LEN, 0x03, this.output1, 0);
+			System.arraycopy(this.output1, 0, output3, offset3 + outOffset, lanes * HASH_LEN);
+		}
+		Arrays.fill(temp, (byte)0);
+		Arrays.fill(inner, (byte)0);
+		Arrays.fill(this.output1, (byte)0);
+	}
+
+	/**
+	 * Computes HMAC-SHA256 for up to LANES entries.
+	 * 
+	 * @param lanes The number of entries.
+	 * @param keys The buffer containing the packed keys.
+	 * @param keyOffset The offset of the first key.
+	 * @param keyLength The length of each key.
+	 * @param data The buffer containing the packed data values, or null.
+	 * @param dataOffset The offset of the first data value.
+	 * @param dataLength The length of each data value.
+	 * @param suffix A byte to append to each data value, or -1 for none.
+	 * @param output The buffer to write the packed HMAC values to.
+	 * @param outputOffset The offset to write the first HMAC value at.
+	 * 
+	 * The output may overlap with the data but not with the keys.
+	 */
+	private void hmacLanes(int lanes, byte[] keys, int keyOffset, int keyLength,
+						   byte[] data, int dataOffset, int dataLength, int suffix,
+						   byte[] output, int outputOffset)
+	{
+		byte[] suffixByte = new byte [] {(byte)suffix};
+		for (int lane = 0; lane < lanes; ++lane) {
+			setPad(keys, keyOffset + lane * keyLength, keyLength, (byte)0x36);
+			sha256.update(lane, pad, 0, BLOCK_LEN);
+			if (data != null)
+				sha256.update(lane, data, dataOffset + lane * dataLength, dataLength);
+			if (suffix >= 0)
+				sha256.update(lane, suffixByte, 0, 1);
+		}
+		sha256.digest(lanes, inner, 0);
+		for (int lane = 0; lane < lanes; ++lane) {
+			setPad(keys, keyOffset + lane * keyLength, keyLength, (byte)0x5C);
+			sha256.update(lane, pad, 0, BLOCK_LEN);
+			sha256.update(lane, inner, lane * HASH_LEN, HASH_LEN);
+		}
+		sha256.digest(lanes, output, outputOffset);
+		Arrays.fill(pad, (byte)0);
+	}
+
+	/**
+	 * Sets up the HMAC pad for a key.
+	 */
+	private void setPad(byte[] key, int offset, int length, byte value)
+	{
+		for (int index = 0; index < length; ++index)
+			pad[index] = (byte)(key[offset + index] ^ value);
+		Arrays.fill(pad, length, BLOCK_LEN, value);
+	}
+
+	@Override
+	public void destroy() {
+		sha256.destroy();
+		Arrays.fill(pad, (byte)0);
+		Arrays.fill(inner, (byte)0);
+		Arrays.fill(temp, (byte)0);
+		Arrays.fill(output1, (byte)0);
+	}
+}
@@ -35,12 +35,11 @@ import com.southernstorm.noise.protocol.Destroyable;
  * length of 64 bytes and a limit of 2^64 - 1 bytes of input.
  * Keyed hashing and variable-length digests are not supported.
  */
-public class Blake2bMessageDigest extends MessageDigest implements Destroyable {
+public class Blake2bMessageDigest extends MessageDigest implements Destroyable, Cloneable {
 
 	private long[] h;
 	private byte[] block;
 	private long[] m;
-	private long[] v;
 	private long length;
 	private int posn;
 
@@ -52,10 +51,28 @@ public class Blake2bMessageDigest extends MessageDigest implements Destroyable {
 		h = new long [8];
 		block = new byte [128];
 		m = new long [16];
-		v = new long [16];
 		engineReset();
 	}
 
+	/**
+	 * Copies the state of another BLAKE2b message digest object into this one.
+	 */
+	public void copyStateFrom(Blake2bMessageDigest other) {
+		System.arraycopy(other.h, 0, h, 0, h.length);
+		System.arraycopy(other.block, 0, block, 0, block.length);
+		length = other.length;
+		posn = other.posn;
+	}
+
+	@Override
+	public Object clone() throws CloneNotSupportedException {
+		Blake2bMessageDigest copy = (Blake2bMessageDigest)super.clone();
+		copy.h = h.clone();
+		copy.block = block.clone();
+		copy.m = new long [16];
+		return copy;
+	}
+
 	@Override
 	protected byte[] engineDigest() {
 		byte[] digest = new byte [64];
@@ -170,37 +187,112 @@ public class Blake2bMessageDigest extends MessageDigest implements Destroyable {
 		}
 		
 		// Format the block to be hashed.
-		for (index = 0; index < 8; ++index)
-			v[index] = h[index];
-		v[8] = 0x6a09e667f3bcc908L;
-		v[9] = 0xbb67ae8584caa73bL;
-		v[10] = 0x3c6ef372fe94f82bL;
-		v[11] = 0xa54ff53a5f1d36f1L;
-		v[12] = 0x510e527fade682d1L ^ length;
-		v[13] = 0x9b05688c2b3e6c1fL;
-		v[14] = 0x1f83d9abfb41bd6bL ^ f0;
-		v[15] = 0x5be0cd19137e2179L;
+		long v0 = h[0];
+		long v1 = h[1];
+		long v2 = h[2];
+		long v3 = h[3];
+		long v4 = h[4];
+		long v5 = h[5];
+		long v6 = h[6];
+		long v7 = h[7];
+		long v8 = 0x6a09e667f3bcc908L;
+		long v9 = 0xbb67ae8584caa73bL;
+		long v10 = 0x3c6ef372fe94f82bL;
+		long v11 = 0xa54ff53a5f1d36f1L;
+		long v12 = 0x510e527fade682d1L ^ length;
+		long v13 = 0x9b05688c2b3e6c1fL;
+		long v14 = 0x1f83d9abfb41bd6bL ^ f0;
+		long v15 = 0x5be0cd19137e2179L;
+		long[] m = this.m;
 		
-		// Perform the 12 BLAKE2b rounds.
+		// Perform the 12 BLAKE2b rounds.  The working state is kept in local
+		// variables so that the JIT can keep it in registers.  The rounds
+		// themselves are not unrolled: a fully unrolled compression function
+		// is larger than the JIT's limit for huge methods and ends up being
+		// interpreted, and even when it is compiled it is slower than this.
 		for (index = 0; index < 12; ++index) {
+			byte[] s = sigma[index];
+
 			// Column round.
-	        quarterRound(0, 4, 8,  12, 0, index);
-	        quarterRound(1, 5, 9,  13, 1, index);
-	        quarterRound(2, 6, 10, 14, 2, index);
-	        quarterRound(3, 7, 11, 15, 3, index);
-
-	        // Diagonal round.
-	        quarterRound(0, 5, 10, 15, 4, index);
-	        quarterRound(1, 6, 11, 12, 5, index);
-	        quarterRound(2, 7, 8,  13, 6, index);
-	        quarterRound(3, 4, 9,  14, 7, index);
+			v0 += v4 + m[s[0]];
+			v12 = rightRotate32(v12 ^ v0);
+			v8 += v12;
+			v4 = rightRotate24(v4 ^ v8);
+			v0 += v4 + m[s[1]];
+			v12 = rightRotate16(v12 ^ v0);
+			v8 += v12;
+			v4 = rightRotate63(v4 ^ v8);
+			v1 += v5 + m[s[2]];
+			v13 = rightRotate32(v13 ^ v1);
+			v9 += v13;
+			v5 = rightRotate24(v5 ^ v9);
+			v1 += v5 + m[s[3]];
+			v13 = rightRotate16(v13 ^ v1);
+			v9 += v13;
+			v5 = rightRotate63(v5 ^ v9);
+			v2 += v6 + m[s[4]];
+			v14 = rightRotate32(v14 ^ v2);
+			v10 += v14;
+			v6 = rightRotate24(v6 ^ v10);
+			v2 += v6 + m[s[5]];
+			v14 = rightRotate16(v14 ^ v2);
+			v10 += v14;
+			v6 = rightRotate63(v6 ^ v10);
+			v3 += v7 + m[s[6]];
+			v15 = rightRotate32(v15 ^ v3);
+			v11 += v15;
+			v7 = rightRotate24(v7 ^ v11);
+			v3 += v7 + m[s[7]];
+			v15 = rightRotate16(v15 ^ v3);
+			v11 += v15;
+			v7 = rightRotate63(v7 ^ v11);
+
+			// Diagonal round.
+			v0 += v5 + m[s[8]];
+			v15 = rightRotate32(v15 ^ v0);
+			v10 += v15;
+			v5 = rightRotate24(v5 ^ v10);
+			v0 += v5 + m[s[9]];
+			v15 = rightRotate16(v15 ^ v0);
+			v10 += v15;
+			v5 = rightRotate63(v5 ^ v10);
+			v1 += v6 + m[s[10]];
+			v12 = rightRotate32(v12 ^ v1);
+			v11 += v12;
+			v6 = rightRotate24(v6 ^ v11);
+			v1 += v6 + m[s[11]];
+			v12 = rightRotate16(v12 ^ v1);
+			v11 += v12;
+			v6 = rightRotate63(v6 ^ v11);
+			v2 += v7 + m[s[12]];
+			v13 = rightRotate32(v13 ^ v2);
+			v8 += v13;
+			v7 = rightRotate24(v7 ^ v8);
+			v2 += v7 + m[s[13]];
+			v13 = rightRotate16(v13 ^ v2);
+			v8 += v13;
+			v7 = rightRotate63(v7 ^ v8);
+			v3 += v4 + m[s[14]];
+			v14 = rightRotate32(v14 ^ v3);
+			v9 += v14;
+			v4 = rightRotate24(v4 ^ v9);
+			v3 += v4 + m[s[15]];
+			v14 = rightRotate16(v14 ^ v3);
+			v9 += v14;
+			v4 = rightRotate63(v4 ^ v9);
 		}
 		
 		// Combine the new and old hash values.
-		for (index = 0; index < 8; ++index)
-			h[index] ^= (v[index] ^ v[index + 8]);
+		h[0] ^= (v0 ^ v8);
+		h[1] ^= (v1 ^ v9);
+		h[2] ^= (v2 ^ v10);
+		h[3] ^= (v3 ^ v11);
+		h[4] ^= (v4 ^ v12);
+		h[5] ^= (v5 ^ v13);
+		h[6] ^= (v6 ^ v14);
+		h[7] ^= (v7 ^ v15);
 	}
-
+	
 	private static long rightRotate32(long v)
 	{
 		return v << 32 | (v >>> 32);
@@ -221,23 +313,10 @@ public class Blake2bMessageDigest extends MessageDigest implements Destroyable {
 		return v << 1 | (v >>> 63);
 	}
 
-	private void quarterRound(int a, int b, int c, int d, int i, int row)
-	{
-		v[a] += v[b] + m[sigma[row][2 * i]];
-		v[d] = rightRotate32(v[d] ^ v[a]);
-		v[c] += v[d];
-		v[b] = rightRotate24(v[b] ^ v[c]);
-		v[a] += v[b] + m[sigma[row][2 * i + 1]];
-		v[d] = rightRotate16(v[d] ^ v[a]);
-		v[c] += v[d];
-		v[b] = rightRotate63(v[b] ^ v[c]);
-	}
-
 	@Override
 	public void destroy() {
 		Arrays.fill(h, (long)0);
 		Arrays.fill(block, (byte)0);
 		Arrays.fill(m, (long)0);
-		Arrays.fill(v, (long)0);
 	}
 }
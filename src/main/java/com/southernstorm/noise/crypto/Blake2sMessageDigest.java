@@ -35,12 +35,11 @@ import com.southernstorm.noise.protocol.Destroyable;
  * length of 32 bytes.  Keyed hashing and variable-length digests are
  * not supported.
  */
-public class Blake2sMessageDigest extends MessageDigest implements Destroyable {
+public class Blake2sMessageDigest extends MessageDigest implements Destroyable, Cloneable {
 	
 	private int[] h;
 	private byte[] block;
 	private int[] m;
-	private int[] v;
 	private long length;
 	private int posn;
 
@@ -52,9 +51,27 @@ public class Blake2sMessageDigest extends MessageDigest implements Destroyable {
 		h = new int [8];
 		block = new byte [64];
 		m = new int [16];
-		v = new int [16];
 		engineReset();
 	}
+
+	/**
+	 * Copies the state of another BLAKE2s message digest object into this one.
+	 */
+	public void copyStateFrom(Blake2sMessageDigest other) {
+		System.arraycopy(other.h, 0, h, 0, h.length);
+		System.arraycopy(other.block, 0, block, 0, block.length);
+		length = other.length;
+		posn = other.posn;
+	}
+
+	@Override
+	public Object clone() throws CloneNotSupportedException {
+		Blake2sMessageDigest copy = (Blake2sMessageDigest)super.clone();
+		copy.h = h.clone();
+		copy.block = block.clone();
+		copy.m = new int [16];
+		return copy;
+	}
 	
 	@Override
 	protected byte[] engineDigest() {
@@ -160,35 +177,110 @@ public class Blake2sMessageDigest extends MessageDigest implements Destroyable {
 		}
 		
 		// Format the block to be hashed.
-		for (index = 0; index < 8; ++index)
-			v[index] = h[index];
-		v[8] = 0x6A09E667;
-		v[9] = 0xBB67AE85;
-		v[10] = 0x3C6EF372;
-		v[11] = 0xA54FF53A;
-		v[12] = 0x510E527F ^ (int)length;
-		v[13] = 0x9B05688C ^ (int)(length >> 32);
-		v[14] = 0x1F83D9AB ^ f0;
-		v[15] = 0x5BE0CD19;
+		int v0 = h[0];
+		int v1 = h[1];
+		int v2 = h[2];
+		int v3 = h[3];
+		int v4 = h[4];
+		int v5 = h[5];
+		int v6 = h[6];
+		int v7 = h[7];
+		int v8 = 0x6A09E667;
+		int v9 = 0xBB67AE85;
+		int v10 = 0x3C6EF372;
+		int v11 = 0xA54FF53A;
+		int v12 = 0x510E527F ^ (int)length;
+		int v13 = 0x9B05688C ^ (int)(length >> 32);
+		int v14 = 0x1F83D9AB ^ f0;
+		int v15 = 0x5BE0CD19;
+		int[] m = this.m;
 		
-		// Perform the 10 BLAKE2s rounds.
+		// Perform the 10 BLAKE2s rounds.  The working state is kept in local
+		// variables so that the JIT can keep it in registers.  The rounds
+		// themselves are not unrolled: a fully unrolled compression function
+		// is larger than the JIT's limit for huge methods and ends up being
+		// interpreted, and even when it is compiled it is slower than this.
 		for (index = 0; index < 10; ++index) {
+			byte[] s = sigma[index];
+
 			// Column round.
-	        quarterRound(0, 4, 8,  12, 0, index);
-	        quarterRound(1, 5, 9,  13, 1, index);
-	        quarterRound(2, 6, 10, 14, 2, index);
-	        quarterRound(3, 7, 11, 15, 3, index);
-
-	        // Diagonal round.
-	        quarterRound(0, 5, 10, 15, 4, index);
-	        quarterRound(1, 6, 11, 12, 5, index);
-	        quarterRound(2, 7, 8,  13, 6, index);
-	        quarterRound(3, 4, 9,  14, 7, index);
+			v0 += v4 + m[s[0]];
+			v12 = rightRotate16(v12 ^ v0);
+			v8 += v12;
+			v4 = rightRotate12(v4 ^ v8);
+			v0 += v4 + m[s[1]];
+			v12 = rightRotate8(v12 ^ v0);
+			v8 += v12;
+			v4 = rightRotate7(v4 ^ v8);
+			v1 += v5 + m[s[2]];
+			v13 = rightRotate16(v13 ^ v1);
+			v9 += v13;
+			v5 = rightRotate12(v5 ^ v9);
+			v1 += v5 + m[s[3]];
+			v13 = rightRotate8(v13 ^ v1);
+			v9 += v13;
+			v5 = rightRotate7(v5 ^ v9);
+			v2 += v6 + m[s[4]];
+			v14 = rightRotate16(v14 ^ v2);
+			v10 += v14;
+			v6 = rightRotate12(v6 ^ v10);
+			v2 += v6 + m[s[5]];
+			v14 = rightRotate8(v14 ^ v2);
+			v10 += v14;
+			v6 = rightRotate7(v6 ^ v10);
+			v3 += v7 + m[s[6]];
+			v15 = rightRotate16(v15 ^ v3);
+			v11 += v15;
+			v7 = rightRotate12(v7 ^ v11);
+			v3 += v7 + m[s[7]];
+			v15 = rightRotate8(v15 ^ v3);
+			v11 += v15;
+			v7 = rightRotate7(v7 ^ v11);
+
+			// Diagonal round.
+			v0 += v5 + m[s[8]];
+			v15 = rightRotate16(v15 ^ v0);
+			v10 += v15;
+			v5 = rightRotate12(v5 ^ v10);
+			v0 += v5 + m[s[9]];
+			v15 = rightRotate8(v15 ^ v0);
+			v10 += v15;
+			v5 = rightRotate7(v5 ^ v10);
+			v1 += v6 + m[s[10]];
+			v12 = rightRotate16(v12 ^ v1);
+			v11 += v12;
+			v6 = rightRotate12(v6 ^ v11);
+			v1 += v6 + m[s[11]];
+			v12 = rightRotate8(v12 ^ v1);
+			v11 += v12;
+			v6 = rightRotate7(v6 ^ v11);
+			v2 += v7 + m[s[12]];
+			v13 = rightRotate16(v13 ^ v2);
+			v8 += v13;
+			v7 = rightRotate12(v7 ^ v8);
+			v2 += v7 + m[s[13]];
+			v13 = rightRotate8(v13 ^ v2);
+			v8 += v13;
+			v7 = rightRotate7(v7 ^ v8);
+			v3 += v4 + m[s[14]];
+			v14 = rightRotate16(v14 ^ v3);
+			v9 += v14;
+			v4 = rightRotate12(v4 ^ v9);
+			v3 += v4 + m[s[15]];
+			v14 = rightRotate8(v14 ^ v3);
+			v9 += v14;
+			v4 = rightRotate7(v4 ^ v9);
 		}
 		
 		// Combine the new and old hash values.
-		for (index = 0; index < 8; ++index)
-			h[index] ^= (v[index] ^ v[index + 8]);
+		h[0] ^= (v0 ^ v8);
+		h[1] ^= (v1 ^ v9);
+		h[2] ^= (v2 ^ v10);
+		h[3] ^= (v3 ^ v11);
+		h[4] ^= (v4 ^ v12);
+		h[5] ^= (v5 ^ v13);
+		h[6] ^= (v6 ^ v14);
+		h[7] ^= (v7 ^ v15);
 	}
 	
 	private static int rightRotate16(int v)
@@ -211,23 +303,10 @@ public class Blake2sMessageDigest extends MessageDigest implements Destroyable {
 		return v << 25 | (v >>> 7);
 	}
 
-	private void quarterRound(int a, int b, int c, int d, int i, int row)
-	{
-		v[a] += v[b] + m[sigma[row][2 * i]];
-		v[d] = rightRotate16(v[d] ^ v[a]);
-		v[c] += v[d];
-		v[b] = rightRotate12(v[b] ^ v[c]);
-		v[a] += v[b] + m[sigma[row][2 * i + 1]];
-		v[d] = rightRotate8(v[d] ^ v[a]);
-		v[c] += v[d];
-		v[b] = rightRotate7(v[b] ^ v[c]);
-	}
-
 	@Override
 	public void destroy() {
 		Arrays.fill(h, (int)0);
 		Arrays.fill(block, (byte)0);
 		Arrays.fill(m, (int)0);
-		Arrays.fill(v, (int)0);
 	}
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.crypto;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import com.southernstorm.noise.protocol.Destroyable;
+
+/**
+ * Deterministic random bit generator based on ChaCha20.
+ *
+ * This generator uses the "fast key erasure" construction: each request
+ * generates a ChaCha20 keystream, the first 32 bytes of which replace the
+ * key before any output is returned.  Previous outputs cannot be recovered
+ * from the state of the generator if it is later compromised.
+ *
+ * The key is periodically reseeded from a SecureRandom instance.  The
+ * generator is not thread-safe; it is intended to be used per-thread.
+ */
+public final class ChaChaDRBG implements Destroyable {
+
+	/**
+	 * Default number of output bytes between reseeds.
+	 */
+	public static final long DEFAULT_RESEED_INTERVAL = 1024 * 1024;
+
+	private SecureRandom seedSource;
+	private long reseedInterval;
+	private long count;
+	private byte[] key;
+	private int[] input;
+	private int[] output;
+
+	/**
+	 * Constructs a new ChaCha20 random bit generator.
+	 *
+	 * @param seedSource The source of seed material.
+	 * @param reseedInterval The number of output bytes between reseeds.
+	 *
+	 * The generator is seeded from seedSource immediately.
+	 */
+	public ChaChaDRBG(SecureRandom seedSource, long reseedInterval)
+	{
+		if (reseedInterval < 1)
+			throw new IllegalArgumentException("Reseed interval must be at least 1");
+		this.seedSource = seedSource;
+		this.reseedInterval = reseedInterval;
+		key = new byte [32];
+		input = new int [16];
+		output = new int [16];
+		reseed();
+	}
+
+	/**
+	 * Reseeds the generator from the SecureRandom seed source.
+	 *
+	 * The new seed is mixed with the existing key, so a weak seed
+	 * cannot reduce the strength of the current state.
+	 */
+	public void reseed()
+	{
+		byte[] seed = new byte [32];
+		try {
+			seedSource.nextBytes(seed);
+			for (int index = 0; index < 32; ++index)
+				key[index] ^= seed[index];
+			rekey();
+			count = 0;
+		} finally {
+			Arrays.fill(seed, (byte)0);
+		}
+	}
+
+	/**
+	 * Generates random bytes.
+	 *
+	 * @param data The buffer to fill with random data.
+	 */
+	public void nextBytes(byte[] data)
+	{
+		nextBytes(data, 0, data.length);
+	}
+
+	/**
+	 * Generates random bytes into part of a buffer.
+	 *
+	 * @param data The buffer to fill with random data.
+	 * @param offset The offset of the first byte to fill.
+	 * @param length The number of bytes to fill.
+	 */
+	public void nextBytes(byte[] data, int offset, int length)
+	{
+		if (offset < 0 || length < 0 || offset > data.length || (data.length - offset) < length)
+			throw new IllegalArgumentException();
+		if (count >= reseedInterval)
+			reseed();
+		count += length;
+
+		// Generate the first block and replace the key with its first half.
+		ChaChaCore.hash(output, input);
+		for (int index = 0; index < 8; ++index)
+			putLittleEndian32(key, index * 4, output[index]);
+		int posn = 8;
+		while (length > 0) {
+			if (posn >= 16) {
+				if (++(input[12]) == 0)
+					++(input[13]);
+				ChaChaCore.hash(output, input);
+				posn = 0;
+			}
+			int value = output[posn++];
+			for (int shift = 0; shift < 32 && length > 0; shift += 8, --length)
+				data[offset++] = (byte)(value >> shift);
+		}
+		rekey();
+	}
+
+	@Override
+	public void destroy() {
+		Arrays.fill(key, (byte)0);
+		Arrays.fill(input, 0);
+		Arrays.fill(output, 0);
+	}
+
+	/**
+	 * Loads the current key into the ChaCha20 input block.
+	 */
+	private void rekey()
+	{
+		ChaChaCore.initKey256(input, key, 0);
+		ChaChaCore.initIV(input, 0, 0);
+		Arrays.fill(output, 0);
+	}
+
+	private static void putLittleEndian32(byte[] output, int offset, int value)
+	{
+		output[offset] = (byte)value;
+		output[offset + 1] = (byte)(value >> 8);
+		output[offset + 2] = (byte)(value >> 16);
+		output[offset + 3] = (byte)(value >> 24);
+	}
+}
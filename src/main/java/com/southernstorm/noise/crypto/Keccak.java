@@ -0,0 +1,549 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.crypto;
+
+import java.util.Arrays;
+
+import com.southernstorm.noise.protocol.Destroyable;
+
+/**
+ * Keccak-f[1600] sponge for SHA3-256, SHA3-512, SHAKE128 and SHAKE256.
+ * 
+ * The 25 lanes of the state are kept in local variables for the
+ * duration of each permutation, and data is absorbed and squeezed
+ * directly to and from the lanes without an intermediate block buffer.
+ * 
+ * Usage is to call one of the reset methods, absorb the input with
+ * update(), and then call squeeze() or squeezeBlocks() as many times
+ * as necessary to generate output.  Absorbing more data after the first
+ * squeeze requires another reset.
+ * 
+ * Reference: FIPS 202, SHA-3 Standard: Permutation-Based Hash and
+ * Extendable-Output Functions.
+ */
+public final class Keccak implements Destroyable {
+
+	/**
+	 * Rate of SHAKE128 in bytes.
+	 */
+	public static final int SHAKE128_RATE = 168;
+
+	/**
+	 * Rate of SHAKE256 in bytes.
+	 */
+	public static final int SHAKE256_RATE = 136;
+
+	/**
+	 * Rate of SHA3-256 in bytes.
+	 */
+	public static final int SHA3_256_RATE = 136;
+
+	/**
+	 * Rate of SHA3-512 in bytes.
+	 */
+	public static final int SHA3_512_RATE = 72;
+
+	long[] A;
+	private int rate;
+	private int posn;
+	private int domain;
+	private boolean squeezing;
+
+	/**
+	 * Constructs a new Keccak sponge, initially set up for SHAKE128.
+	 */
+	public Keccak()
+	{
+		A = new long [25];
+		reset(SHAKE128_RATE, 0x1F);
+	}
+
+	/**
+	 * Resets the sponge for SHA3-256.
+	 */
+	public void resetSHA3_256()
+	{
+		reset(SHA3_256_RATE, 0x06);
+	}
+
+	/**
+	 * Resets the sponge for SHA3-512.
+	 */
+	public void resetSHA3_512()
+	{
+		reset(SHA3_512_RATE, 0x06);
+	}
+
+	/**
+	 * Resets the sponge for SHAKE128.
+	 */
+	public void resetSHAKE128()
+	{
+		reset(SHAKE128_RATE, 0x1F);
+	}
+
+	/**
+	 * Resets the sponge for SHAKE256.
+	 */
+	public void resetSHAKE256()
+	{
+		reset(SHAKE256_RATE, 0x1F);
+	}
+
+	private void reset(int rate, int domain)
+	{
+		Arrays.fill(A, 0L);
+		this.rate = rate;
+		this.domain = domain;
+		posn = 0;
+		squeezing = false;
+	}
+
+	/**
+	 * Gets the rate of the sponge in bytes.
+	 * 
+	 * @return The number of bytes in each block of input or output.
+	 */
+	public int getRate()
+	{
+		return rate;
+	}
+
+	/**
+	 * Absorbs input data into the sponge.
+	 * 
+	 * @param input The buffer containing the input data.
+	 * @param offset The offset of the first input byte.
+	 * @param length The number of input bytes.
+	 * 
+	 * @throws IllegalStateException Output has already been squeezed
+	 * from the sponge since the last reset.
+	 */
+	public void update(byte[] input, int offset, int length)
+	{
+		if (squeezing)
+			throw new IllegalStateException("Cannot absorb after squeezing");
+		while (length > 0) {
+			if (posn == 0 && length >= rate) {
+				// Absorb a whole block directly into the lanes.
+				for (int lane = 0; lane < rate / 8; ++lane, offset += 8)
+					A[lane] ^= load64(input, offset);
+				permute(A);
+				length -= rate;
+			} else {
+				A[posn >> 3] ^= ((long)(input[offset++] & 0xFF)) << ((posn & 7) * 8);
+				--length;
+				if (++posn == rate) {
+					permute(A);
+					posn = 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Squeezes output data from the sponge.
+	 * 
+	 * @param output The buffer to write the output data to.
+	 * @param offset The offset of the first output byte.
+	 * @param length The number of bytes to squeeze.
+	 * 
+	 * The first call after update() pads the input.  Subsequent calls
+	 * continue the output stream from where the previous call left off.
+	 */
+	public void squeeze(byte[] output, int offset, int length)
+	{
+		if (!squeezing)
+			pad();
+		while (length > 0) {
+			if (posn == rate) {
+				permute(A);
+				posn = 0;
+			}
+			if (posn == 0 && length >= rate) {
+				// Extract a whole block directly from the lanes.
+				for (int lane = 0; lane < rate / 8; ++lane, offset += 8)
+					store64(output, offset, A[lane]);
+				posn = rate;
+				length -= rate;
+			} else {
+				output[offset++] = (byte)(A[posn >> 3] >>> ((posn & 7) * 8));
+				++posn;
+				--length;
+			}
+		}
+	}
+
+	/**
+	 * Squeezes whole blocks of output data from the sponge.
+	 * 
+	 * @param output The buffer to write the output data to.
+	 * @param offset The offset of the first output byte.
+	 * @param nblocks The number of blocks to squeeze, each of
+	 * getRate() bytes in length.
+	 */
+	public void squeezeBlocks(byte[] output, int offset, int nblocks)
+	{
+		squeeze(output, offset, nblocks * rate);
+	}
+
+	/**
+	 * Permutes the state to produce the next block of output and
+	 * leaves it in the lanes, for callers in this package that parse
+	 * the output directly from the lanes.
+	 */
+	void nextBlock()
+	{
+		if (!squeezing)
+			pad();
+		permute(A);
+		posn = rate;
+	}
+
+	private void pad()
+	{
+		A[posn >> 3] ^= ((long)domain) << ((posn & 7) * 8);
+		A[(rate - 1) >> 3] ^= 0x80L << (((rate - 1) & 7) * 8);
+		posn = rate;
+		squeezing = true;
+	}
+
+	@Override
+	public void destroy()
+	{
+		Arrays.fill(A, 0L);
+		posn = 0;
+		squeezing = false;
+	}
+
+	private static long load64(byte[] x, int offset)
+	{
+		return (x[offset] & 0xFFL) |
+		       ((x[offset + 1] & 0xFFL) << 8) |
+		       ((x[offset + 2] & 0xFFL) << 16) |
+		       ((x[offset + 3] & 0xFFL) << 24) |
+		       ((x[offset + 4] & 0xFFL) << 32) |
+		       ((x[offset + 5] & 0xFFL) << 40) |
+		       ((x[offset + 6] & 0xFFL) << 48) |
+		       ((x[offset + 7] & 0xFFL) << 56);
+	}
+
+	private static void store64(byte[] x, int offset, long u)
+	{
+		x[offset] = (byte)u;
+		x[offset + 1] = (byte)(u >> 8);
+		x[offset + 2] = (byte)(u >> 16);
+		x[offset + 3] = (byte)(u >> 24);
+		x[offset + 4] = (byte)(u >> 32);
+		x[offset + 5] = (byte)(u >> 40);
+		x[offset + 6] = (byte)(u >> 48);
+		x[offset + 7] = (byte)(u >> 56);
+	}
+
+	private static final long[] RC = {
+		0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL,
+		0x8000000080008000L, 0x000000000000808bL, 0x0000000080000001L,
+		0x8000000080008081L, 0x8000000000008009L, 0x000000000000008aL,
+		0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+		0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L,
+		0x8000000000008003L, 0x8000000000008002L, 0x8000000000000080L,
+		0x000000000000800aL, 0x800000008000000aL, 0x8000000080008081L,
+		0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+	};
+
+	// The permutation is based on the public domain implementation in
+	// crypto_hash/keccakc512/simple/ from http://bench.cr.yp.to/supercop.html
+	// by Ronny Van Keer.  Two rounds are unrolled per loop iteration;
+	// unrolling all 24 rounds makes the method too large for HotSpot
+	// to compile.
+
+	/**
+	 * Applies the Keccak-f[1600] permutation to a state.
+	 * 
+	 * @param A The 25 lanes of the state.
+	 */
+	public static void permute(long[] A)
+	{
+		int round;
+
+		long Aba, Abe, Abi, Abo, Abu;
+		long Aga, Age, Agi, Ago, Agu;
+		long Aka, Ake, Aki, Ako, Aku;
+		long Ama, Ame, Ami, Amo, Amu;
+		long Asa, Ase, Asi, Aso, Asu;
+		long BCa, BCe, BCi, BCo, BCu;
+		long Da, De, Di, Do, Du;
+		long Eba, Ebe, Ebi, Ebo, Ebu;
+		long Ega, Ege, Egi, Ego, Egu;
+		long Eka, Eke, Eki, Eko, Eku;
+		long Ema, Eme, Emi, Emo, Emu;
+		long Esa, Ese, Esi, Eso, Esu;
+
+		// Load the state into local variables.
+		Aba = A[ 0];
+		Abe = A[ 1];
+		Abi = A[ 2];
+		Abo = A[ 3];
+		Abu = A[ 4];
+		Aga = A[ 5];
+		Age = A[ 6];
+		Agi = A[ 7];
+		Ago = A[ 8];
+		Agu = A[ 9];
+		Aka = A[10];
+		Ake = A[11];
+		Aki = A[12];
+		Ako = A[13];
+		Aku = A[14];
+		Ama = A[15];
+		Ame = A[16];
+		Ami = A[17];
+		Amo = A[18];
+		Amu = A[19];
+		Asa = A[20];
+		Ase = A[21];
+		Asi = A[22];
+		Aso = A[23];
+		Asu = A[24];
+
+		// Two rounds per iteration, swapping the roles of A and E.
+		for (round = 0; round < 24; round += 2) {
+			// prepareTheta
+			BCa = Aba^Aga^Aka^Ama^Asa;
+			BCe = Abe^Age^Ake^Ame^Ase;
+			BCi = Abi^Agi^Aki^Ami^Asi;
+			BCo = Abo^Ago^Ako^Amo^Aso;
+			BCu = Abu^Agu^Aku^Amu^Asu;
+
+			// thetaRhoPiChiIotaPrepareTheta(round, A, E)
+			Da = BCu^Long.rotateLeft(BCe, 1);
+			De = BCa^Long.rotateLeft(BCi, 1);
+			Di = BCe^Long.rotateLeft(BCo, 1);
+			Do = BCi^Long.rotateLeft(BCu, 1);
+			Du = BCo^Long.rotateLeft(BCa, 1);
+
+			Aba ^= Da;
+			BCa = Aba;
+			Age ^= De;
+			BCe = Long.rotateLeft(Age, 44);
+			Aki ^= Di;
+			BCi = Long.rotateLeft(Aki, 43);
+			Amo ^= Do;
+			BCo = Long.rotateLeft(Amo, 21);
+			Asu ^= Du;
+			BCu = Long.rotateLeft(Asu, 14);
+			Eba =   BCa ^((~BCe)&  BCi );
+			Eba ^= RC[round];
+			Ebe =   BCe ^((~BCi)&  BCo );
+			Ebi =   BCi ^((~BCo)&  BCu );
+			Ebo =   BCo ^((~BCu)&  BCa );
+			Ebu =   BCu ^((~BCa)&  BCe );
+
+			Abo ^= Do;
+			BCa = Long.rotateLeft(Abo, 28);
+			Agu ^= Du;
+			BCe = Long.rotateLeft(Agu, 20);
+			Aka ^= Da;
+			BCi = Long.rotateLeft(Aka,  3);
+			Ame ^= De;
+			BCo = Long.rotateLeft(Ame, 45);
+			Asi ^= Di;
+			BCu = Long.rotateLeft(Asi, 61);
+			Ega =   BCa ^((~BCe)&  BCi );
+			Ege =   BCe ^((~BCi)&  BCo );
+			Egi =   BCi ^((~BCo)&  BCu );
+			Ego =   BCo ^((~BCu)&  BCa );
+			Egu =   BCu ^((~BCa)&  BCe );
+
+			Abe ^= De;
+			BCa = Long.rotateLeft(Abe,  1);
+			Agi ^= Di;
+			BCe = Long.rotateLeft(Agi,  6);
+			Ako ^= Do;
+			BCi = Long.rotateLeft(Ako, 25);
+			Amu ^= Du;
+			BCo = Long.rotateLeft(Amu,  8);
+			Asa ^= Da;
+			BCu = Long.rotateLeft(Asa, 18);
+			Eka =   BCa ^((~BCe)&  BCi );
+			Eke =   BCe ^((~BCi)&  BCo );
+			Eki =   BCi ^((~BCo)&  BCu );
+			Eko =   BCo ^((~BCu)&  BCa );
+			Eku =   BCu ^((~BCa)&  BCe );
+
+			Abu ^= Du;
+			BCa = Long.rotateLeft(Abu, 27);
+			Aga ^= Da;
+			BCe = Long.rotateLeft(Aga, 36);
+			Ake ^= De;
+			BCi = Long.rotateLeft(Ake, 10);
+			Ami ^= Di;
+			BCo = Long.rotateLeft(Ami, 15);
+			Aso ^= Do;
+			BCu = Long.rotateLeft(Aso, 56);
+			Ema =   BCa ^((~BCe)&  BCi );
+			Eme =   BCe ^((~BCi)&  BCo );
+			Emi =   BCi ^((~BCo)&  BCu );
+			Emo =   BCo ^((~BCu)&  BCa );
+			Emu =   BCu ^((~BCa)&  BCe );
+
+			Abi ^= Di;
+			BCa = Long.rotateLeft(Abi, 62);
+			Ago ^= Do;
+			BCe = Long.rotateLeft(Ago, 55);
+			Aku ^= Du;
+			BCi = Long.rotateLeft(Aku, 39);
+			Ama ^= Da;
+			BCo = Long.rotateLeft(Ama, 41);
+			Ase ^= De;
+			BCu = Long.rotateLeft(Ase,  2);
+			Esa =   BCa ^((~BCe)&  BCi );
+			Ese =   BCe ^((~BCi)&  BCo );
+			Esi =   BCi ^((~BCo)&  BCu );
+			Eso =   BCo ^((~BCu)&  BCa );
+			Esu =   BCu ^((~BCa)&  BCe );
+
+			// prepareTheta
+			BCa = Eba^Ega^Eka^Ema^Esa;
+			BCe = Ebe^Ege^Eke^Eme^Ese;
+			BCi = Ebi^Egi^Eki^Emi^Esi;
+			BCo = Ebo^Ego^Eko^Emo^Eso;
+			BCu = Ebu^Egu^Eku^Emu^Esu;
+
+			// thetaRhoPiChiIotaPrepareTheta(round + 1, E, A)
+			Da = BCu^Long.rotateLeft(BCe, 1);
+			De = BCa^Long.rotateLeft(BCi, 1);
+			Di = BCe^Long.rotateLeft(BCo, 1);
+			Do = BCi^Long.rotateLeft(BCu, 1);
+			Du = BCo^Long.rotateLeft(BCa, 1);
+
+			Eba ^= Da;
+			BCa = Eba;
+			Ege ^= De;
+			BCe = Long.rotateLeft(Ege, 44);
+			Eki ^= Di;
+			BCi = Long.rotateLeft(Eki, 43);
+			Emo ^= Do;
+			BCo = Long.rotateLeft(Emo, 21);
+			Esu ^= Du;
+			BCu = Long.rotateLeft(Esu, 14);
+			Aba =   BCa ^((~BCe)&  BCi );
+			Aba ^= RC[round+1];
+			Abe =   BCe ^((~BCi)&  BCo );
+			Abi =   BCi ^((~BCo)&  BCu );
+			Abo =   BCo ^((~BCu)&  BCa );
+			Abu =   BCu ^((~BCa)&  BCe );
+
+			Ebo ^= Do;
+			BCa = Long.rotateLeft(Ebo, 28);
+			Egu ^= Du;
+			BCe = Long.rotateLeft(Egu, 20);
+			Eka ^= Da;
+			BCi = Long.rotateLeft(Eka, 3);
+			Eme ^= De;
+			BCo = Long.rotateLeft(Eme, 45);
+			Esi ^= Di;
+			BCu = Long.rotateLeft(Esi, 61);
+			Aga =   BCa ^((~BCe)&  BCi );
+			Age =   BCe ^((~BCi)&  BCo );
+			Agi =   BCi ^((~BCo)&  BCu );
+			Ago =   BCo ^((~BCu)&  BCa );
+			Agu =   BCu ^((~BCa)&  BCe );
+
+			Ebe ^= De;
+			BCa = Long.rotateLeft(Ebe, 1);
+			Egi ^= Di;
+			BCe = Long.rotateLeft(Egi, 6);
+			Eko ^= Do;
+			BCi = Long.rotateLeft(Eko, 25);
+			Emu ^= Du;
+			BCo = Long.rotateLeft(Emu, 8);
+			Esa ^= Da;
+			BCu = Long.rotateLeft(Esa, 18);
+			Aka =   BCa ^((~BCe)&  BCi );
+			Ake =   BCe ^((~BCi)&  BCo );
+			Aki =   BCi ^((~BCo)&  BCu );
+			Ako =   BCo ^((~BCu)&  BCa );
+			Aku =   BCu ^((~BCa)&  BCe );
+
+			Ebu ^= Du;
+			BCa = Long.rotateLeft(Ebu, 27);
+			Ega ^= Da;
+			BCe = Long.rotateLeft(Ega, 36);
+			Eke ^= De;
+			BCi = Long.rotateLeft(Eke, 10);
+			Emi ^= Di;
+			BCo = Long.rotateLeft(Emi, 15);
+			Eso ^= Do;
+			BCu = Long.rotateLeft(Eso, 56);
+			Ama =   BCa ^((~BCe)&  BCi );
+			Ame =   BCe ^((~BCi)&  BCo );
+			Ami =   BCi ^((~BCo)&  BCu );
+			Amo =   BCo ^((~BCu)&  BCa );
+			Amu =   BCu ^((~BCa)&  BCe );
+
+			Ebi ^= Di;
+			BCa = Long.rotateLeft(Ebi, 62);
+			Ego ^= Do;
+			BCe = Long.rotateLeft(Ego, 55);
+			Eku ^= Du;
+			BCi = Long.rotateLeft(Eku, 39);
+			Ema ^= Da;
+			BCo = Long.rotateLeft(Ema, 41);
+			Ese ^= De;
+			BCu = Long.rotateLeft(Ese, 2);
+			Asa =   BCa ^((~BCe)&  BCi );
+			Ase =   BCe ^((~BCi)&  BCo );
+			Asi =   BCi ^((~BCo)&  BCu );
+			Aso =   BCo ^((~BCu)&  BCa );
+			Asu =   BCu ^((~BCa)&  BCe );
+		}
+
+		// Store the local variables back into the state.
+		A[ 0] = Aba;
+		A[ 1] = Abe;
+		A[ 2] = Abi;
+		A[ 3] = Abo;
+		A[ 4] = Abu;
+		A[ 5] = Aga;
+		A[ 6] = Age;
+		A[ 7] = Agi;
+		A[ 8] = Ago;
+		A[ 9] = Agu;
+		A[10] = Aka;
+		A[11] = Ake;
+		A[12] = Aki;
+		A[13] = Ako;
+		A[14] = Aku;
+		A[15] = Ama;
+		A[16] = Ame;
+		A[17] = Ami;
+		A[18] = Amo;
+		A[19] = Amu;
+		A[20] = Asa;
+		A[21] = Ase;
+		A[22] = Asi;
+		A[23] = Aso;
+		A[24] = Asu;
+	}
+}
@@ -0,0 +1,567 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.crypto;
+
+import java.util.Arrays;
+
+import com.southernstorm.noise.protocol.Destroyable;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * ML-KEM-768 key encapsulation mechanism from FIPS 203, otherwise
+ * known as Kyber768.
+ * 
+ * Alice calls keygen() to generate a key pair and sends the public
+ * (encapsulation) key to Bob.  Bob calls encaps() to generate the
+ * shared secret and a ciphertext, which he sends back to Alice.  Alice
+ * then calls decaps() to recover the same shared secret.  The private
+ * (decapsulation) key stays inside the object from keygen() until it
+ * is destroyed or replaced.
+ * 
+ * As with NewHope, each object owns a workspace that is allocated once
+ * and reused by every call.  An MLKEM768 object must not be used by
+ * multiple threads at once.
+ * 
+ * Reference: FIPS 203, Module-Lattice-Based Key-Encapsulation Mechanism
+ * Standard.
+ */
+public class MLKEM768 implements Destroyable {
+
+	static final int N = 256;
+	static final int Q = 3329;
+	static final int K = 3;
+	static final int DU = 10;
+	static final int DV = 4;
+	static final int POLYBYTES = 384;
+	static final int POLYVECBYTES = K * POLYBYTES;
+
+	/**
+	 * Number of bytes in the public encapsulation key generated by keygen().
+	 */
+	public static final int PUBLICKEYBYTES = POLYVECBYTES + 32;
+
+	/**
+	 * Number of bytes in the private decapsulation key.
+	 */
+	public static final int SECRETKEYBYTES = POLYVECBYTES + PUBLICKEYBYTES + 64;
+
+	/**
+	 * Number of bytes in the ciphertext generated by encaps().
+	 */
+	public static final int CIPHERTEXTBYTES = K * N * DU / 8 + N * DV / 8;
+
+	/**
+	 * Number of bytes in the shared secret generated by encaps() and decaps().
+	 */
+	public static final int SHAREDBYTES = 32;
+
+	/**
+	 * Number of random bytes that keygen() requests from randombytes().
+	 */
+	public static final int KEYGEN_RANDOMBYTES = 64;
+
+	/**
+	 * Number of random bytes that encaps() requests from randombytes().
+	 */
+	public static final int ENCAPS_RANDOMBYTES = 32;
+
+	private Keccak keccak;
+	private byte[] dk;
+	private boolean haveKey;
+	private int[][] s;
+	private int[][] e;
+	private int[][] t;
+	private int[][] u;
+	private int[] v;
+	private int[] w;
+	private byte[] seed;
+	private byte[] kr;
+	private byte[] msg;
+	private byte[] coins;
+	private byte[] buf;
+	private byte[] nonce;
+	private byte[] cmp;
+
+	/**
+	 * Constructs a new ML-KEM-768 object.
+	 */
+	public MLKEM768()
+	{
+		keccak = new Keccak();
+		dk = new byte [SECRETKEYBYTES];
+		haveKey = false;
+		s = new int [K][N];
+		e = new int [K][N];
+		t = new int [K][N];
+		u = new int [K][N];
+		v = new int [N];
+		w = new int [N];
+		seed = new byte [KEYGEN_RANDOMBYTES];
+		kr = new byte [64];
+		msg = new byte [64];
+		coins = new byte [ENCAPS_RANDOMBYTES];
+		buf = new byte [Keccak.SHAKE128_RATE * 3];
+		nonce = new byte [2];
+		cmp = new byte [CIPHERTEXTBYTES];
+	}
+
+	/**
+	 * Destroys the private key and all temporary values.
+	 */
+	@Override
+	public void destroy()
+	{
+		Arrays.fill(dk, (byte)0);
+		haveKey = false;
+		clean();
+	}
+
+	private void clean()
+	{
+		keccak.destroy();
+		for (int i = 0; i < K; ++i) {
+			Arrays.fill(s[i], 0);
+			Arrays.fill(e[i], 0);
+			Arrays.fill(t[i], 0);
+			Arrays.fill(u[i], 0);
+		}
+		Arrays.fill(v, 0);
+		Arrays.fill(w, 0);
+		Arrays.fill(seed, (byte)0);
+		Arrays.fill(kr, (byte)0);
+		Arrays.fill(msg, (byte)0);
+		Arrays.fill(coins, (byte)0);
+		Arrays.fill(buf, (byte)0);
+		Arrays.fill(cmp, (byte)0);
+	}
+
+	/**
+	 * Generates a key pair for Alice.
+	 * 
+	 * @param publicKey Buffer to place the encapsulation key in, which
+	 * must have space for at least PUBLICKEYBYTES bytes.
+	 * @param offset Offset of the first byte to populate in publicKey.
+	 */
+	public void keygen(byte[] publicKey, int offset)
+	{
+		try {
+			randombytes(seed);
+
+			// (rho, sigma) = G(d || k)
+			keccak.resetSHA3_512();
+			keccak.update(seed, 0, 32);
+			nonce[0] = (byte)K;
+			keccak.update(nonce, 0, 1);
+			keccak.squeeze(kr, 0, 64);
+
+			int n = 0;
+			for (int i = 0; i < K; ++i)
+				prfCbd(s[i], kr, 32, n++);
+			for (int i = 0; i < K; ++i)
+				prfCbd(e[i], kr, 32, n++);
+			for (int i = 0; i < K; ++i) {
+				ntt(s[i]);
+				ntt(e[i]);
+			}
+
+			// t = A * s + e, generating A one entry at a time.
+			for (int i = 0; i < K; ++i) {
+				Arrays.fill(t[i], 0);
+				for (int j = 0; j < K; ++j) {
+					sampleNtt(w, kr, 0, j, i);
+					mulAcc(t[i], w, s[j]);
+				}
+				for (int x = 0; x < N; ++x)
+					t[i][x] = reduce(t[i][x] + e[i][x]);
+			}
+
+			// dk = s || ek || H(ek) || z and ek = t || rho
+			for (int i = 0; i < K; ++i) {
+				encode(dk, i * POLYBYTES, s[i], 12);
+				encode(dk, POLYVECBYTES + i * POLYBYTES, t[i], 12);
+			}
+			System.arraycopy(kr, 0, dk, 2 * POLYVECBYTES, 32);
+			keccak.resetSHA3_256();
+			keccak.update(dk, POLYVECBYTES, PUBLICKEYBYTES);
+			keccak.squeeze(dk, POLYVECBYTES + PUBLICKEYBYTES, 32);
+			System.arraycopy(seed, 32, dk, POLYVECBYTES + PUBLICKEYBYTES + 32, 32);
+			System.arraycopy(dk, POLYVECBYTES, publicKey, offset, PUBLICKEYBYTES);
+			haveKey = true;
+		} finally {
+			clean();
+		}
+	}
+
+	/**
+	 * Generates the shared secret and ciphertext for Bob.
+	 * 
+	 * @param sharedKey Buffer to place the shared secret in, which must
+	 * have space for at least SHAREDBYTES bytes.
+	 * @param sharedKeyOffset Offset of the first byte to populate in sharedKey.
+	 * @param ciphertext Buffer to place the ciphertext in, which must
+	 * have space for at least CIPHERTEXTBYTES bytes.
+	 * @param ciphertextOffset Offset of the first byte to populate in ciphertext.
+	 * @param publicKey Buffer containing Alice's encapsulation key.
+	 * @param publicKeyOffset Offset of the encapsulation key in publicKey.
+	 * 
+	 * @throws IllegalArgumentException The encapsulation key is not
+	 * correctly encoded; i.e. it contains coefficients that are not
+	 * reduced modulo q.
+	 */
+	public void encaps(byte[] sharedKey, int sharedKeyOffset,
+					   byte[] ciphertext, int ciphertextOffset,
+					   byte[] publicKey, int publicKeyOffset)
+	{
+		try {
+			// Modulus check on the encapsulation key.
+			for (int i = 0; i < K; ++i) {
+				if (!decode(t[i], publicKey, publicKeyOffset + i * POLYBYTES, 12))
+					throw new IllegalArgumentException("Invalid ML-KEM encapsulation key");
+			}
+
+			// (K, r) = G(m || H(ek))
+			randombytes(coins);
+			System.arraycopy(coins, 0, msg, 0, ENCAPS_RANDOMBYTES);
+			keccak.resetSHA3_256();
+			keccak.update(publicKey, publicKeyOffset, PUBLICKEYBYTES);
+			keccak.squeeze(msg, 32, 32);
+			keccak.resetSHA3_512();
+			keccak.update(msg, 0, 64);
+			keccak.squeeze(kr, 0, 64);
+
+			encrypt(ciphertext, ciphertextOffset, publicKey, publicKeyOffset, msg, kr, 32);
+			System.arraycopy(kr, 0, sharedKey, sharedKeyOffset, SHAREDBYTES);
+		} finally {
+			clean();
+		}
+	}
+
+	/**
+	 * Recovers the shared secret for Alice.
+	 * 
+	 * @param sharedKey Buffer to place the shared secret in, which must
+	 * have space for at least SHAREDBYTES bytes.
+	 * @param sharedKeyOffset Offset of the first byte to populate in sharedKey.
+	 * @param ciphertext Buffer containing the ciphertext from Bob.
+	 * @param ciphertextOffset Offset of the ciphertext in the buffer.
+	 * 
+	 * @throws IllegalStateException keygen() has not been called.
+	 * 
+	 * If the ciphertext has been tampered with, then the result is a
+	 * pseudorandom value that does not match Bob's shared secret
+	 * ("implicit rejection"), so the failure is detected later when
+	 * the key is used.
+	 */
+	public void decaps(byte[] sharedKey, int sharedKeyOffset,
+					   byte[] ciphertext, int ciphertextOffset)
+	{
+		if (!haveKey)
+			throw new IllegalStateException("No ML-KEM decapsulation key");
+		try {
+			// m' = Decrypt(dk_pke, c)
+			for (int i = 0; i < K; ++i) {
+				decode(u[i], ciphertext, ciphertextOffset + i * N * DU / 8, DU);
+				for (int x = 0; x < N; ++x)
+					u[i][x] = decompress(u[i][x], DU);
+				ntt(u[i]);
+				decode(s[i], dk, i * POLYBYTES, 12);
+			}
+			Arrays.fill(w, 0);
+			for (int i = 0; i < K; ++i)
+				mulAcc(w, s[i], u[i]);
+			invntt(w);
+			decode(v, ciphertext, ciphertextOffset + K * N * DU / 8, DV);
+			for (int x = 0; x < N; ++x)
+				w[x] = compress(csub(decompress(v[x], DV) - w[x] + Q), 1);
+			encode(msg, 0, w, 1);
+
+			// (K', r') = G(m' || h)
+			System.arraycopy(dk, POLYVECBYTES + PUBLICKEYBYTES, msg, 32, 32);
+			keccak.resetSHA3_512();
+			keccak.update(msg, 0, 64);
+			keccak.squeeze(kr, 0, 64);
+
+			// Re-encrypt and compare in constant time.
+			for (int i = 0; i < K; ++i)
+				decode(t[i], dk, POLYVECBYTES + i * POLYBYTES, 12);
+			encrypt(cmp, 0, dk, POLYVECBYTES, msg, kr, 32);
+			int diff = 0;
+			for (int x = 0; x < CIPHERTEXTBYTES; ++x)
+				diff |= cmp[x] ^ ciphertext[ciphertextOffset + x];
+			int mask = ((diff & 0xFF) - 1) >> 31;	// -1 if equal, 0 if not.
+
+			// K_bar = J(z || c)
+			keccak.resetSHAKE256();
+			keccak.update(dk, SECRETKEYBYTES - 32, 32);
+			keccak.update(ciphertext, ciphertextOffset, CIPHERTEXTBYTES);
+			keccak.squeeze(kr, 32, 32);
+			for (int x = 0; x < SHAREDBYTES; ++x)
+				sharedKey[sharedKeyOffset + x] = (byte)((kr[x] & mask) | (kr[32 + x] & ~mask));
+		} finally {
+			clean();
+		}
+	}
+
+	/**
+	 * Generates random bytes for use in the ML-KEM implementation.
+	 * 
+	 * @param buffer The buffer to fill with random bytes.
+	 * 
+	 * The default implementation uses Noise.random().  This function
+	 * may be overridden in subclasses to provide static data for test
+	 * vectors.  keygen() requests KEYGEN_RANDOMBYTES bytes (d and then
+	 * z) and encaps() requests ENCAPS_RANDOMBYTES bytes (m).
+	 */
+	protected void randombytes(byte[] buffer)
+	{
+		Noise.random(buffer);
+	}
+
+	/**
+	 * K-PKE.Encrypt(ek, m, r), with t already decoded from ek.
+	 */
+	private void encrypt(byte[] c, int coffset, byte[] ek, int ekoffset, byte[] m, byte[] r, int roffset)
+	{
+		int n = 0;
+		for (int i = 0; i < K; ++i)
+			prfCbd(s[i], r, roffset, n++);		// y
+		for (int i = 0; i < K; ++i)
+			prfCbd(e[i], r, roffset, n++);		// e1
+		prfCbd(v, r, roffset, n);				// e2
+		for (int i = 0; i < K; ++i)
+			ntt(s[i]);
+
+		// u = NTT^-1(A^T * y) + e1
+		for (int i = 0; i < K; ++i) {
+			Arrays.fill(u[i], 0);
+			for (int j = 0; j < K; ++j) {
+				sampleNtt(w, ek, ekoffset + POLYVECBYTES, i, j);
+				mulAcc(u[i], w, s[j]);
+			}
+			invntt(u[i]);
+			for (int x = 0; x < N; ++x)
+				u[i][x] = compress(csub(u[i][x] + e[i][x]), DU);
+			encode(c, coffset + i * N * DU / 8, u[i], DU);
+		}
+
+		// v = NTT^-1(t^T * y) + e2 + Decompress_1(m)
+		Arrays.fill(w, 0);
+		for (int i = 0; i < K; ++i)
+			mulAcc(w, t[i], s[i]);
+		invntt(w);
+		for (int x = 0; x < N; ++x) {
+			int bit = (m[x >> 3] >> (x & 7)) & 1;
+			w[x] = compress(reduce(w[x] + v[x] + (-bit & ((Q + 1) / 2))), DV);
+		}
+		encode(c, coffset + K * N * DU / 8, w, DV);
+	}
+
+	/**
+	 * Samples a polynomial from the centered binomial distribution with
+	 * eta = 2, using PRF(sigma, n) = SHAKE256(sigma || n) as the source.
+	 */
+	private void prfCbd(int[] r, byte[] sigma, int offset, int n)
+	{
+		keccak.resetSHAKE256();
+		keccak.update(sigma, offset, 32);
+		nonce[0] = (byte)n;
+		keccak.update(nonce, 0, 1);
+		keccak.squeeze(buf, 0, 128);
+		for (int i = 0; i < N / 8; ++i) {
+			int x = (buf[4 * i] & 0xFF) | ((buf[4 * i + 1] & 0xFF) << 8) |
+					((buf[4 * i + 2] & 0xFF) << 16) | ((buf[4 * i + 3] & 0xFF) << 24);
+			int d = (x & 0x55555555) + ((x >>> 1) & 0x55555555);
+			for (int j = 0; j < 8; ++j) {
+				int a = (d >>> (4 * j)) & 3;
+				int b = (d >>> (4 * j + 2)) & 3;
+				r[8 * i + j] = a - b + (Q & ((a - b) >> 31));
+			}
+		}
+	}
+
+	/**
+	 * Samples a polynomial in the NTT domain from SHAKE128(rho || b0 || b1)
+	 * by rejection.  The matrix entry A[i][j] is sampleNtt(rho, j, i).
+	 * This only depends upon public values so it does not need to be
+	 * constant-time.
+	 */
+	private void sampleNtt(int[] r, byte[] rho, int offset, int b0, int b1)
+	{
+		keccak.resetSHAKE128();
+		keccak.update(rho, offset, 32);
+		nonce[0] = (byte)b0;
+		nonce[1] = (byte)b1;
+		keccak.update(nonce, 0, 2);
+		keccak.squeezeBlocks(buf, 0, 3);
+		int ctr = 0;
+		int posn = 0;
+		int end = buf.length;
+		while (ctr < N) {
+			if (posn >= end) {
+				keccak.squeezeBlocks(buf, 0, 1);
+				posn = 0;
+				end = Keccak.SHAKE128_RATE;
+			}
+			int d1 = (buf[posn] & 0xFF) | ((buf[posn + 1] & 0x0F) << 8);
+			int d2 = ((buf[posn + 1] & 0xFF) >> 4) | ((buf[posn + 2] & 0xFF) << 4);
+			posn += 3;
+			if (d1 < Q)
+				r[ctr++] = d1;
+			if (d2 < Q && ctr < N)
+				r[ctr++] = d2;
+		}
+	}
+
+	// Arithmetic modulo q.  All polynomial coefficients are kept fully
+	// reduced in the range [0, q).
+
+	private static final long BARRETT = (1L << 40) / Q;
+	private static final long DIV_Q = (1L << 40) / Q + 1;
+
+	// Reduces 0 <= x < 2^31 to the range [0, q).
+	private static int reduce(int x)
+	{
+		x -= (int)((x * BARRETT) >>> 40) * Q;
+		return csub(x);
+	}
+
+	// Reduces 0 <= x < 2q to the range [0, q).
+	private static int csub(int x)
+	{
+		x -= Q;
+		return x + (Q & (x >> 31));
+	}
+
+	// Computes round((2^d / q) * x) mod 2^d, without a variable-time
+	// division on the secret value.
+	private static int compress(int x, int d)
+	{
+		int q = (int)((((long)x << d) + Q / 2) * DIV_Q >>> 40);
+		return q & ((1 << d) - 1);
+	}
+
+	// Computes round((q / 2^d) * y).
+	private static int decompress(int y, int d)
+	{
+		return (y * Q + (1 << (d - 1))) >> d;
+	}
+
+	private static final int[] zetas = new int [128];
+	private static final int[] gammas = new int [128];
+
+	static {
+		// zetas[i] = 17^BitRev7(i) and gammas[i] = 17^(2 * BitRev7(i) + 1).
+		int[] powers = new int [256];
+		powers[0] = 1;
+		for (int i = 1; i < 256; ++i)
+			powers[i] = (powers[i - 1] * 17) % Q;
+		for (int i = 0; i < 128; ++i) {
+			int rev = Integer.reverse(i) >>> 25;
+			zetas[i] = powers[rev];
+			gammas[i] = powers[2 * rev + 1];
+		}
+	}
+
+	private static void ntt(int[] f)
+	{
+		int k = 1;
+		for (int len = 128; len >= 2; len >>= 1) {
+			for (int start = 0; start < N; start += 2 * len) {
+				int zeta = zetas[k++];
+				for (int j = start; j < start + len; ++j) {
+					int t = reduce(zeta * f[j + len]);
+					f[j + len] = csub(f[j] - t + Q);
+					f[j] = csub(f[j] + t);
+				}
+			}
+		}
+	}
+
+	private static void invntt(int[] f)
+	{
+		int k = 127;
+		for (int len = 2; len <= 128; len <<= 1) {
+			for (int start = 0; start < N; start += 2 * len) {
+				int zeta = zetas[k--];
+				for (int j = start; j < start + len; ++j) {
+					int t = f[j];
+					f[j] = csub(t + f[j + len]);
+					f[j + len] = reduce(zeta * (f[j + len] - t + Q));
+				}
+			}
+		}
+		for (int j = 0; j < N; ++j)
+			f[j] = reduce(f[j] * 3303);	// 3303 = 128^-1 mod q
+	}
+
+	// r += a * b in the NTT domain, using the base case multiplication
+	// of degree one polynomials modulo (X^2 - gamma).
+	private static void mulAcc(int[] r, int[] a, int[] b)
+	{
+		for (int i = 0; i < 128; ++i) {
+			int a0 = a[2 * i], a1 = a[2 * i + 1];
+			int b0 = b[2 * i], b1 = b[2 * i + 1];
+			int c0 = a0 * b0 + reduce(a1 * b1) * gammas[i];
+			int c1 = a0 * b1 + a1 * b0;
+			r[2 * i] = reduce(r[2 * i] + reduce(c0));
+			r[2 * i + 1] = reduce(r[2 * i + 1] + reduce(c1));
+		}
+	}
+
+	// ByteEncode_d
+	private static void encode(byte[] out, int offset, int[] a, int d)
+	{
+		long acc = 0;
+		int bits = 0;
+		for (int i = 0; i < N; ++i) {
+			acc |= ((long)a[i]) << bits;
+			bits += d;
+			while (bits >= 8) {
+				out[offset++] = (byte)acc;
+				acc >>>= 8;
+				bits -= 8;
+			}
+		}
+	}
+
+	// ByteDecode_d; returns false if d is 12 and a value is not less than q.
+	private static boolean decode(int[] a, byte[] in, int offset, int d)
+	{
+		long acc = 0;
+		int bits = 0;
+		int mask = (1 << d) - 1;
+		int bad = 0;
+		for (int i = 0; i < N; ++i) {
+			while (bits < d) {
+				acc |= ((long)(in[offset++] & 0xFF)) << bits;
+				bits += 8;
+			}
+			a[i] = (int)acc & mask;
+			acc >>>= d;
+			bits -= d;
+			if (d == 12)
+				bad |= (Q - 1 - a[i]) >> 31;
+		}
+		return bad == 0;
+	}
+}
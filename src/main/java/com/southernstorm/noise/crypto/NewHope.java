@@ -8,15 +8,22 @@
 
 package com.southernstorm.noise.crypto;
 
-import java.security.SecureRandom;
 import java.util.Arrays;
 
+import com.southernstorm.noise.protocol.Noise;
+
 /**
  * NewHope key exchange algorithm.
  * 
  * This class implements the standard "ref" version of the New Hope
  * algorithm.
  * 
+ * Each object owns a workspace of polynomials and buffers that is
+ * allocated once by the constructor and reused by every call to
+ * keygen(), sharedb() and shareda().  The workspace is cleared at
+ * the end of each call, so no key material is left behind in it.
+ * A NewHope object must not be used by multiple threads at once.
+ * 
  * @see NewHopeTor
  */
 public class NewHope {
@@ -47,6 +54,14 @@ public class NewHope {
 	// -------------- newhope.c --------------
 
 	private Poly sk;
+	private Poly[] work;
+	private byte[] seed;
+	private byte[] noiseseed;
+	private byte[] skey;
+	private byte[] noisebuf;
+	private int[] v0;
+	private char[] uniformCoeffs;
+	Keccak keccak;
 
 	/**
 	 * Constructs a NewHope object.
@@ -54,6 +69,16 @@ public class NewHope {
 	public NewHope()
 	{
 		sk = null;
+		work = new Poly [6];
+		for (int index = 0; index < work.length; ++index)
+			work[index] = new Poly();
+		seed = new byte [SEEDBYTES + 32];
+		noiseseed = new byte [32];
+		skey = new byte [32];
+		noisebuf = new byte [4*PARAM_N];
+		v0 = new int [8];
+		uniformCoeffs = new char [PARAM_N];
+		keccak = new Keccak();
 	}
 
 	@Override
@@ -77,6 +102,23 @@ public class NewHope {
 			sk.destroy();
 			sk = null;
 		}
+		clean();
+	}
+
+	/**
+	 * Clears the temporary values in the workspace.
+	 */
+	void clean()
+	{
+		for (Poly p : work)
+			p.destroy();
+		Arrays.fill(seed, (byte)0);
+		Arrays.fill(noiseseed, (byte)0);
+		Arrays.fill(skey, (byte)0);
+		Arrays.fill(noisebuf, (byte)0);
+		Arrays.fill(v0, 0);
+		Arrays.fill(uniformCoeffs, (char)0);
+		keccak.destroy();
 	}
 
 	/**
@@ -93,19 +135,16 @@ public class NewHope {
 	 */
 	public void keygen(byte[] send, int sendOffset)
 	{
-	  Poly a = new Poly();
-	  Poly e = new Poly();
-	  Poly r = new Poly();
-	  Poly pk = new Poly();
-	  byte[] seed = new byte [SEEDBYTES + 32];
-	  byte[] noiseseed = new byte [32];
+	  Poly a = work[0];
+	  Poly e = work[1];
+	  Poly r = work[2];
 
 	  try {
 		  randombytes(seed);
 		  sha3256(seed, 0, seed, 0, SEEDBYTES); /* Don't send output of system RNG */
 		  System.arraycopy(seed, SEEDBYTES, noiseseed, 0, 32);
 	
-		  uniform(a.coeffs, seed);
+		  a.uniform(seed);
 	
 		  if (sk == null)
 			  sk = new Poly();
@@ -115,17 +154,11 @@ public class NewHope {
 		  e.getnoise(noiseseed,(byte)1);
 		  e.ntt();
 	
-		  r.pointwise(sk,a);
-		  pk.add(e,r);
+		  r.mulAdd(sk,a,e);
 	
-		  encode_a(send, sendOffset, pk, seed);
+		  encode_a(send, sendOffset, r, seed);
 	  } finally {
-		  a.destroy();
-		  e.destroy();
-		  r.destroy();
-		  pk.destroy();
-		  Arrays.fill(seed, (byte)0);
-		  Arrays.fill(noiseseed, (byte)0);
+		  clean();
 	  }
 	}
 
@@ -155,34 +188,29 @@ public class NewHope {
 						byte[] send, int sendOffset,
 						byte[] received, int receivedOffset)
 	{
-	  Poly sp = new Poly();
-	  Poly ep = new Poly();
-	  Poly v = new Poly();
-	  Poly a = new Poly();
-	  Poly pka = new Poly();
-	  Poly c = new Poly();
-	  Poly epp = new Poly();
-	  Poly bp = new Poly();
-	  byte[] seed = new byte [SEEDBYTES];
-	  byte[] noiseseed = new byte [32];
-	  byte[] skey = new byte [32];
+	  Poly sp = work[0];
+	  Poly ep = work[1];
+	  Poly v = work[2];
+	  Poly a = work[3];
+	  Poly pka = work[4];
+	  Poly bp = work[5];
+	  Poly epp = ep;	// "ep" and "a" are free again once "bp" is computed.
+	  Poly c = a;
 
 	  try {
 		  randombytes(noiseseed);
 	
 		  decode_a(pka, seed, received, receivedOffset);
-		  uniform(a.coeffs, seed);
+		  a.uniform(seed);
 	
 		  sp.getnoise(noiseseed,(byte)0);
 		  sp.ntt();
 		  ep.getnoise(noiseseed,(byte)1);
 		  ep.ntt();
 	
-		  bp.pointwise(a, sp);
-		  bp.add(bp, ep);
+		  bp.mulAdd(a, sp, ep);
 	
-		  v.pointwise(pka, sp);
-		  v.invntt();
+		  v.invntt(pka, sp);
 	
 		  epp.getnoise(noiseseed,(byte)2);
 		  v.add(v, epp);
@@ -195,17 +223,7 @@ public class NewHope {
 	
 		  sha3256(sharedkey, sharedkeyOffset, skey, 0, 32);
 	  } finally {
-		  sp.destroy();
-		  ep.destroy();
-		  v.destroy();
-		  a.destroy();
-		  pka.destroy();
-		  c.destroy();
-		  epp.destroy();
-		  bp.destroy();
-		  Arrays.fill(seed, (byte)0);
-		  Arrays.fill(noiseseed, (byte)0);
-		  Arrays.fill(skey, (byte)0);
+		  clean();
 	  }
 	}
 
@@ -229,25 +247,20 @@ public class NewHope {
 	public void shareda(byte[] sharedkey, int sharedkeyOffset,
 						byte[] received, int receivedOffset)
 	{
-	  Poly v = new Poly();
-	  Poly bp = new Poly();
-	  Poly c = new Poly();
-	  byte[] skey = new byte [32];
+	  Poly v = work[0];
+	  Poly bp = work[1];
+	  Poly c = work[2];
 
 	  try {
 		  decode_b(bp, c, received, receivedOffset);
 	
-		  v.pointwise(sk,bp);
-		  v.invntt();
+		  v.invntt(sk,bp);
 	
 		  rec(skey, v, c);
 		  
 		  sha3256(sharedkey, sharedkeyOffset, skey, 0, 32);
 	  } finally {
-		  v.destroy();
-		  bp.destroy();
-		  c.destroy();
-		  Arrays.fill(skey, (byte)0);
+		  clean();
 	  }
 	}
 
@@ -256,13 +269,14 @@ public class NewHope {
 	 * 
 	 * @param buffer The buffer to fill with random bytes.
 	 * 
-	 * This function may be overridden in subclasses to provide a better
-	 * random number generator or to provide static data for test vectors.
+	 * The default implementation uses Noise.random(), which avoids
+	 * seeding a new SecureRandom on every call.  This function may be
+	 * overridden in subclasses to provide a different random number
+	 * generator or to provide static data for test vectors.
 	 */
 	protected void randombytes(byte[] buffer)
 	{
-		SecureRandom random = new SecureRandom();
-		random.nextBytes(buffer);
+		Noise.random(buffer);
 	}
 
 	private static void encode_a(byte[] r, int roffset, Poly pk, byte[] seed)
@@ -295,10 +309,10 @@ public class NewHope {
 	  b.frombytes(r, roffset);
 	  for(i=0;i<PARAM_N/4;i++)
 	  {
-	    c.coeffs[4*i+0] = (char)( r[POLY_BYTES+roffset+i]       & 0x03);
-	    c.coeffs[4*i+1] = (char)((r[POLY_BYTES+roffset+i] >> 2) & 0x03);
-	    c.coeffs[4*i+2] = (char)((r[POLY_BYTES+roffset+i] >> 4) & 0x03);
-	    c.coeffs[4*i+3] = (char)(((r[POLY_BYTES+roffset+i] & 0xff) >> 6));
+	    c.coeffs[4*i+0] = ( r[POLY_BYTES+roffset+i]       & 0x03);
+	    c.coeffs[4*i+1] = ((r[POLY_BYTES+roffset+i] >> 2) & 0x03);
+	    c.coeffs[4*i+2] = ((r[POLY_BYTES+roffset+i] >> 4) & 0x03);
+	    c.coeffs[4*i+3] = (((r[POLY_BYTES+roffset+i] & 0xff) >> 6));
 	  }
 	}
 
@@ -306,11 +320,11 @@ public class NewHope {
 	
 	private class Poly
 	{
-		public char[] coeffs;
+		public int[] coeffs;
 
 		public Poly()
 		{
-			coeffs = new char [PARAM_N];
+			coeffs = new int [PARAM_N];
 		}
 		
 		protected void finalize()
@@ -320,7 +334,7 @@ public class NewHope {
 		
 		public void destroy()
 		{
-			Arrays.fill(coeffs, (char)0);
+			Arrays.fill(coeffs, 0);
 		}
 		
 		public void frombytes(byte[] a, int offset)
@@ -328,10 +342,10 @@ public class NewHope {
 			int i;
 			for (i = 0; i < PARAM_N/4; i++)
 			{
-			    coeffs[4*i+0] = (char)(                                   (a[offset+7*i+0] & 0xff)       | ((a[offset+7*i+1] & 0x3f) << 8));
-			    coeffs[4*i+1] = (char)(((a[offset+7*i+1] & 0xc0) >> 6) | ((a[offset+7*i+2] & 0xff) << 2) | ((a[offset+7*i+3] & 0x0f) << 10));
-			    coeffs[4*i+2] = (char)(((a[offset+7*i+3] & 0xf0) >> 4) | ((a[offset+7*i+4] & 0xff) << 4) | ((a[offset+7*i+5] & 0x03) << 12));
-			    coeffs[4*i+3] = (char)(((a[offset+7*i+5] & 0xfc) >> 2) | ((a[offset+7*i+6] & 0xff) << 6));
+			    coeffs[4*i+0] = (                                   (a[offset+7*i+0] & 0xff)       | ((a[offset+7*i+1] & 0x3f) << 8));
+			    coeffs[4*i+1] = (((a[offset+7*i+1] & 0xc0) >> 6) | ((a[offset+7*i+2] & 0xff) << 2) | ((a[offset+7*i+3] & 0x0f) << 10));
+			    coeffs[4*i+2] = (((a[offset+7*i+3] & 0xf0) >> 4) | ((a[offset+7*i+4] & 0xff) << 4) | ((a[offset+7*i+5] & 0x03) << 12));
+			    coeffs[4*i+3] = (((a[offset+7*i+5] & 0xfc) >> 2) | ((a[offset+7*i+6] & 0xff) << 6));
 			}
 		}
 
@@ -379,7 +393,7 @@ public class NewHope {
 
 		public void getnoise(byte[] seed, byte nonce)
 		{
-		  byte[] buf = new byte [4*PARAM_N];
+		  byte[] buf = noisebuf;
 		  int /*t, d,*/ a, b;
 		  int i/*,j*/;
 
@@ -417,42 +431,47 @@ public class NewHope {
 				b = ((b >> 4) + b) & 0x0F0F;
 				b = ((b >> 8) + b) & 0x00FF;
 
-				coeffs[i] = (char)(a + PARAM_Q - b);
+				coeffs[i] = a + PARAM_Q - b;
 			  }
 		  } finally {
 			  Arrays.fill(buf, (byte)0);
 		  }
 		}
 		
-		public void pointwise(Poly a, Poly b)
+		public void uniform(byte[] seed)
+		{
+		  NewHope.this.uniform(uniformCoeffs, seed);
+		  for (int i = 0; i < PARAM_N; i++)
+		    coeffs[i] = uniformCoeffs[i];
+		}
+
+		/* Computes a * b + e, where a and b are in the NTT domain and
+		   b is the output of ntt().  This fuses poly_pointwise() and
+		   poly_add() from the reference code into a single pass. */
+		public void mulAdd(Poly a, Poly b, Poly e)
 		{
 		  int i;
-		  int t;
 		  for(i=0;i<PARAM_N;i++)
-		  {
-		    t       = montgomery_reduce(3186*b.coeffs[i]); /* t is now in Montgomery domain */
-		    coeffs[i] = (char)montgomery_reduce(a.coeffs[i] * t); /* coeffs[i] is back in normal domain */
-		  }
+		    coeffs[i] = reduce(a.coeffs[i] * b.coeffs[i] + e.coeffs[i]);
 		}
 
 		public void add(Poly a, Poly b)
 		{
 		  int i;
 		  for(i=0;i<PARAM_N;i++)
-		    coeffs[i] = (char)barrett_reduce(a.coeffs[i] + b.coeffs[i]);
+		    coeffs[i] = barrett_reduce(a.coeffs[i] + b.coeffs[i]);
 		}
 
 		public void ntt()
 		{
-		  mul_coefficients(coeffs, psis_bitrev_montgomery);
-		  ntt_global(coeffs, omegas_montgomery);
+		  ntt_forward(coeffs);
 		}
 
-		public void invntt()
+		/* Computes the inverse NTT of the pointwise product of a and b,
+		   where b is the output of ntt(). */
+		public void invntt(Poly a, Poly b)
 		{
-		  bitrev_vector(coeffs);
-		  ntt_global(coeffs, omegas_inv_montgomery);
-		  mul_coefficients(coeffs, psis_inv_montgomery);
+		  ntt_inverse(coeffs, a.coeffs, b.coeffs);
 		}
 	}
 
@@ -475,33 +494,32 @@ public class NewHope {
 	 */
 	protected void uniform(char[] coeffs, byte[] seed)
 	{
-	  int pos=0, ctr=0;
-	  int val;
-	  long[] state = new long [25];
-	  int nblocks=14;
-	  byte[] buf = new byte [SHAKE128_RATE*nblocks];
+	  int ctr=0;
+	  int val, i, j;
+	  long lane;
+	  long[] state = keccak.A;
 
 	  try {
-		  shake128_absorb(state, seed, 0, SEEDBYTES);
-
-		  shake128_squeezeblocks(buf, 0, nblocks, state);
+		  keccak.resetSHAKE128();
+		  keccak.update(seed, 0, SEEDBYTES);
 
+		  // Parse the little-endian 16-bit values straight out of the lanes.
 		  while(ctr < PARAM_N)
 		  {
-		    val = ((buf[pos] & 0xff) | ((buf[pos+1] & 0xff) << 8));
-		    if(val < 5*PARAM_Q)
-		      coeffs[ctr++] = (char)val;
-		    pos += 2;
-		    if(pos > SHAKE128_RATE*nblocks-2)
+		    keccak.nextBlock();
+		    for(i=0;i<Keccak.SHAKE128_RATE/8 && ctr < PARAM_N;i++)
 		    {
-		      nblocks=1;
-		      shake128_squeezeblocks(buf,0,nblocks,state);
-		      pos = 0;
+		      lane = state[i];
+		      for(j=0;j<4;j++,lane>>>=16)
+		      {
+		        val = (int)lane & 0xffff;
+		        if(val < 5*PARAM_Q && ctr < PARAM_N)
+		          coeffs[ctr++] = (char)val;
+		      }
 		    }
 		  }
 	  } finally {
-		  Arrays.fill(state, 0);
-		  Arrays.fill(buf, (byte)0);
+		  keccak.destroy();
 	  }
 	}
 
@@ -596,17 +614,17 @@ public class NewHope {
 	  return t&1;
 	}
 
-	private static void helprec(Poly c, Poly v, byte[] seed, byte nonce)
+	private void helprec(Poly c, Poly v, byte[] seed, byte nonce)
 	{
-	  int[] v0 = new int [8];
 	  int v_tmp0,v_tmp1,v_tmp2,v_tmp3;
 	  int k;
 	  int rbit;
-	  byte[] rand = new byte [32];
+	  byte[] rand = noisebuf;
 	  int i;
 
 	  try {
-		  crypto_stream_chacha20(rand,0,32,((long)nonce) << 56,seed);
+		  // Generate a whole block so that no partial block buffer is needed.
+		  crypto_stream_chacha20(rand,0,64,((long)nonce) << 56,seed);
 	
 		  for(i=0; i<256; i++)
 		  {
@@ -624,14 +642,14 @@ public class NewHope {
 		    v_tmp2 = ((~k) & v0[2]) ^ (k & v0[6]);
 		    v_tmp3 = ((~k) & v0[3]) ^ (k & v0[7]);
 	
-		    c.coeffs[  0+i] = (char)((v_tmp0 -   v_tmp3) & 3);
-		    c.coeffs[256+i] = (char)((v_tmp1 -   v_tmp3) & 3);
-		    c.coeffs[512+i] = (char)((v_tmp2 -   v_tmp3) & 3);
-		    c.coeffs[768+i] = (char)((   -k  + 2*v_tmp3) & 3);
+		    c.coeffs[  0+i] = (v_tmp0 -   v_tmp3) & 3;
+		    c.coeffs[256+i] = (v_tmp1 -   v_tmp3) & 3;
+		    c.coeffs[512+i] = (v_tmp2 -   v_tmp3) & 3;
+		    c.coeffs[768+i] = (   -k  + 2*v_tmp3) & 3;
 		  }
 	  } finally {
 		  Arrays.fill(v0, 0);
-		  Arrays.fill(rand, (byte)0);
+		  Arrays.fill(rand, 0, 64, (byte)0);
 	  }
 	}
 
@@ -645,11 +663,11 @@ public class NewHope {
 
 	  for(i=0; i<256; i++)
 	  {
-		char c768 = c.coeffs[768+i];
-	    tmp0 = 16*PARAM_Q + 8*(int)v.coeffs[  0+i] - PARAM_Q * (2*c.coeffs[  0+i]+c768);
-	    tmp1 = 16*PARAM_Q + 8*(int)v.coeffs[256+i] - PARAM_Q * (2*c.coeffs[256+i]+c768);
-	    tmp2 = 16*PARAM_Q + 8*(int)v.coeffs[512+i] - PARAM_Q * (2*c.coeffs[512+i]+c768);
-	    tmp3 = 16*PARAM_Q + 8*(int)v.coeffs[768+i] - PARAM_Q * (                  c768);
+		int c768 = c.coeffs[768+i];
+	    tmp0 = 16*PARAM_Q + 8*v.coeffs[  0+i] - PARAM_Q * (2*c.coeffs[  0+i]+c768);
+	    tmp1 = 16*PARAM_Q + 8*v.coeffs[256+i] - PARAM_Q * (2*c.coeffs[256+i]+c768);
+	    tmp2 = 16*PARAM_Q + 8*v.coeffs[512+i] - PARAM_Q * (2*c.coeffs[512+i]+c768);
+	    tmp3 = 16*PARAM_Q + 8*v.coeffs[768+i] - PARAM_Q * (                  c768);
 
 	    key[i>>3] |= LDDecode(tmp0, tmp1, tmp2, tmp3) << (i & 7);
 	  }
@@ -657,548 +675,119 @@ public class NewHope {
 	
 	// -------------- ntt.c --------------
 
-	private static final int bitrev_table_combined[/*496*/] = {
-		524289,262146,786435,131076,655365,393222,917511,65544,
-		589833,327690,851979,196620,720909,458766,983055,32784,
-		557073,294930,819219,163860,688149,426006,950295,98328,
-		622617,360474,884763,229404,753693,491550,1015839,540705,
-		278562,802851,147492,671781,409638,933927,81960,606249,
-		344106,868395,213036,737325,475182,999471,573489,311346,
-		835635,180276,704565,442422,966711,114744,639033,376890,
-		901179,245820,770109,507966,1032255,532545,270402,794691,
-		139332,663621,401478,925767,598089,335946,860235,204876,
-		729165,467022,991311,565329,303186,827475,172116,696405,
-		434262,958551,106584,630873,368730,893019,237660,761949,
-		499806,1024095,548961,286818,811107,155748,680037,417894,
-		942183,614505,352362,876651,221292,745581,483438,1007727,
-		581745,319602,843891,188532,712821,450678,974967,647289,
-		385146,909435,254076,778365,516222,1040511,528513,266370,
-		790659,659589,397446,921735,594057,331914,856203,200844,
-		725133,462990,987279,561297,299154,823443,168084,692373,
-		430230,954519,626841,364698,888987,233628,757917,495774,
-		1020063,544929,282786,807075,676005,413862,938151,610473,
-		348330,872619,217260,741549,479406,1003695,577713,315570,
-		839859,708789,446646,970935,643257,381114,905403,250044,
-		774333,512190,1036479,536769,274626,798915,667845,405702,
-		929991,602313,340170,864459,733389,471246,995535,569553,
-		307410,831699,700629,438486,962775,635097,372954,897243,
-		241884,766173,504030,1028319,553185,291042,815331,684261,
-		422118,946407,618729,356586,880875,749805,487662,1011951,
-		585969,323826,848115,717045,454902,979191,651513,389370,
-		913659,782589,520446,1044735,526593,788739,657669,395526,
-		919815,592137,329994,854283,723213,461070,985359,559377,
-		297234,821523,690453,428310,952599,624921,362778,887067,
-		755997,493854,1018143,543009,805155,674085,411942,936231,
-		608553,346410,870699,739629,477486,1001775,575793,837939,
-		706869,444726,969015,641337,379194,903483,772413,510270,
-		1034559,534849,796995,665925,403782,928071,600393,862539,
-		731469,469326,993615,567633,829779,698709,436566,960855,
-		633177,371034,895323,764253,502110,1026399,551265,813411,
-		682341,420198,944487,616809,878955,747885,485742,1010031,
-		584049,846195,715125,452982,977271,649593,911739,780669,
-		518526,1042815,530817,792963,661893,924039,596361,858507,
-		727437,465294,989583,563601,825747,694677,432534,956823,
-		629145,891291,760221,498078,1022367,547233,809379,678309,
-		940455,612777,874923,743853,481710,1005999,580017,842163,
-		711093,973239,645561,907707,776637,514494,1038783,539073,
-		801219,670149,932295,604617,866763,735693,997839,571857,
-		834003,702933,965079,637401,899547,768477,506334,1030623,
-		555489,817635,686565,948711,621033,883179,752109,1014255,
-		588273,850419,719349,981495,653817,915963,784893,1047039,
-		787971,656901,919047,591369,853515,722445,984591,558609,
-		820755,689685,951831,624153,886299,755229,1017375,804387,
-		673317,935463,607785,869931,738861,1001007,837171,706101,
-		968247,640569,902715,771645,1033791,796227,665157,927303,
-		861771,730701,992847,829011,697941,960087,632409,894555,
-		763485,1025631,812643,681573,943719,878187,747117,1009263,
-		845427,714357,976503,910971,779901,1042047,792195,923271,
-		857739,726669,988815,824979,693909,956055,890523,759453,
-		1021599,808611,939687,874155,743085,1005231,841395,972471,
-		906939,775869,1038015,800451,931527,865995,997071,833235,
-		964311,898779,767709,1029855,816867,947943,882411,1013487,
-		849651,980727,915195,1046271,921351,855819,986895,823059,
-		954135,888603,1019679,937767,872235,1003311,970551,905019,
-		1036095,929607,995151,962391,896859,1027935,946023,1011567,
-		978807,1044351,991119,958359,1023903,1007535,1040319,1032159
-	};
-
-	// Modified version of bitrev_vector() from the C reference code
-	// that reduces the number of array bounds checks on the bitrev_table
-	// from 1024 to 496.  The values in the combined table are encoded
-	// as (i + (r * PARAM_N)) where i and r are the indices to swap.
-	// The pseudo-code to generate this combined table is:
-    //     p = 0;
-    //     for (i = 0; i < PARAM_N; i++) {
-    //         r = bitrev_table[i];
-    //         if (i < r)
-    //             bitrev_table_combined[p++] = i + (r * PARAM_N);
-    //     }
-	private static void bitrev_vector(char[] poly)
+	/* The reference code works on 16-bit coefficients, so it has to
+	   reduce after almost every butterfly and moves through the array
+	   once per level.  The version below works on int coefficients
+	   instead.  Pairs of GS butterfly levels are merged into radix-4
+	   passes, the twiddle factors are precomputed in the order that the
+	   passes consume them, and multiplication by a twiddle factor uses
+	   Shoup's method with a precomputed quotient.  The sums are left
+	   unreduced until the end of the transform, which the 32-bit range
+	   easily accommodates.  The results are congruent modulo q to those
+	   of the reference code, which is all that the callers rely on. */
+
+	// Computes (x * w) mod q in the range [0, 2q) for 0 <= x < 2^31,
+	// where ws = floor(w * 2^32 / q).
+	private static int mul_shoup(int x, int w, long ws)
 	{
-	    int i,r,p;
-	    char tmp;
-
-	    for(p = 0; p < 496; ++p)
-	    {
-	    	int indices = bitrev_table_combined[p];
-	    	i = indices & 0x03FF;
-	    	r = indices >> 10;
-        	tmp = poly[i];
-        	poly[i] = poly[r];
-        	poly[r] = tmp;
-	    }
+	  int t = (int)((x * ws) >>> 32);
+	  return x * w - t * PARAM_Q;
 	}
 
-	private static void mul_coefficients(char[] poly, char[] factors)
-	{
-	    int i;
+	private static final long BARRETT_40 = (1L << 40) / PARAM_Q;
 
-	    for(i = 0; i < PARAM_N; i++)
-	      poly[i] = (char)montgomery_reduce((poly[i] * factors[i]));
-	}
-	
-	/* GS_bo_to_no; omegas need to be in Montgomery domain */
-	private static void ntt_global(char[] a, char[] omega)
+	// Reduces 0 <= x < 2^31 to the range [0, q).
+	private static int reduce(int x)
 	{
-	  int i, start, j, jTwiddle, distance;
-	  char temp, W;
-
-
-	  for(i=0;i<10;i+=2)
-	  {
-	    // Even level
-	    distance = (1<<i);
-	    for(start = 0; start < distance;start++)
-	    {
-	      jTwiddle = 0;
-	      for(j=start;j<PARAM_N-1;j+=2*distance)
-	      {
-	        W = omega[jTwiddle++];
-	        temp = a[j];
-	        a[j] = (char)(temp + a[j + distance]); // Omit reduction (be lazy)
-	        a[j + distance] = (char)montgomery_reduce((W * ((int)temp + 3*PARAM_Q - a[j + distance])));
-	      }
-	    }
-
-	    // Odd level
-	    distance <<= 1;
-	    for(start = 0; start < distance;start++)
-	    {
-	      jTwiddle = 0;
-	      for(j=start;j<PARAM_N-1;j+=2*distance)
-	      {
-	        W = omega[jTwiddle++];
-	        temp = a[j];
-	        a[j] = (char)barrett_reduce((temp + a[j + distance]));
-	        a[j + distance] = (char)montgomery_reduce((W * ((int)temp + 3*PARAM_Q - a[j + distance])));
-	      }
-	    }
-	  }
+	  x -= (int)((x * BARRETT_40) >>> 40) * PARAM_Q;
+	  return csub(x);
 	}
 
-	// -------------- fips202.c --------------
-
-	/* Based on the public domain implementation in
-	 * crypto_hash/keccakc512/simple/ from http://bench.cr.yp.to/supercop.html
-	 * by Ronny Van Keer 
-	 * and the public domain "TweetFips202" implementation
-	 * from https://twitter.com/tweetfips202
-	 * by Gilles Van Assche, Daniel J. Bernstein, and Peter Schwabe */
-
-	private static long ROL(long a, int offset)
+	// Reduces 0 <= x < 2q to the range [0, q).
+	private static int csub(int x)
 	{
-		return (a << offset) ^ (a >>> (64 - offset));
+	  x -= PARAM_Q;
+	  return x + (PARAM_Q & (x >> 31));
 	}
 
-	private static long load64(byte[] x, int offset)
+	// Two merged GS levels with distances d and 2*d, applied to the
+	// 4*d coefficients starting at base.  Inputs must be less than
+	// bound, which must be a multiple of q that is at least 2q.
+	private static void butterflies(int[] a, int base, int d, int[] w, long[] ws, int t, int bound)
 	{
-	  long r = 0;
-
-	  for (int i = 0; i < 8; ++i) {
-	    r |= ((long)(x[offset+i] & 0xff)) << (8 * i);
+	  int w1 = w[t], w2 = w[t+1], w3 = w[t+2];
+	  long s1 = ws[t], s2 = ws[t+1], s3 = ws[t+2];
+	  int x0, x1, x2, x3, y0, y1, y2, y3;
+	  int k;
+	  for (k = base; k < base + d; k++)
+	  {
+	    x0 = a[k];
+	    x1 = a[k+d];
+	    x2 = a[k+2*d];
+	    x3 = a[k+3*d];
+	    y0 = x0 + x1;
+	    y1 = mul_shoup(x0 - x1 + bound, w1, s1);
+	    y2 = x2 + x3;
+	    y3 = mul_shoup(x2 - x3 + bound, w2, s2);
+	    a[k]     = y0 + y2;
+	    a[k+d]   = y1 + y3;
+	    a[k+2*d] = mul_shoup(y0 - y2 + 2*bound, w3, s3);
+	    a[k+3*d] = mul_shoup(y1 - y3 + 2*bound, w3, s3);
 	  }
-	  return r;
 	}
 
-	private static void store64(byte[] x, int offset, long u)
+	// Equivalent to ntt_global() from the reference code.  Inputs must
+	// be less than 2q and outputs are less than 2q * 4^5.
+	private static void ntt_levels(int[] a, int[] w, long[] ws)
 	{
-	  int i;
-
-	  for(i=0; i<8; ++i) {
-	    x[offset+i] = (byte)u;
-	    u >>= 8;
+	  int d, base, t = 0;
+	  int bound = 2*PARAM_Q;
+	  for (d = 1; d < PARAM_N; d <<= 2)
+	  {
+	    for (base = 0; base < PARAM_N; base += 4*d, t += 3)
+	      butterflies(a, base, d, w, ws, t, bound);
+	    bound <<= 2;
 	  }
 	}
 
-	private static final long[] KeccakF_RoundConstants =
-		{
-		    0x0000000000000001L,
-		    0x0000000000008082L,
-		    0x800000000000808aL,
-		    0x8000000080008000L,
-		    0x000000000000808bL,
-		    0x0000000080000001L,
-		    0x8000000080008081L,
-		    0x8000000000008009L,
-		    0x000000000000008aL,
-		    0x0000000000000088L,
-		    0x0000000080008009L,
-		    0x000000008000000aL,
-		    0x000000008000808bL,
-		    0x800000000000008bL,
-		    0x8000000000008089L,
-		    0x8000000000008003L,
-		    0x8000000000008002L,
-		    0x8000000000000080L,
-		    0x000000000000800aL,
-		    0x800000008000000aL,
-		    0x8000000080008081L,
-		    0x8000000000008080L,
-		    0x0000000080000001L,
-		    0x8000000080008008L
-		};
-
-	
-	private static void KeccakF1600_StatePermute(long[] state)
-	{
-	    int round;
-
-        long Aba, Abe, Abi, Abo, Abu;
-        long Aga, Age, Agi, Ago, Agu;
-        long Aka, Ake, Aki, Ako, Aku;
-        long Ama, Ame, Ami, Amo, Amu;
-        long Asa, Ase, Asi, Aso, Asu;
-        long BCa, BCe, BCi, BCo, BCu;
-        long Da, De, Di, Do, Du;
-        long Eba, Ebe, Ebi, Ebo, Ebu;
-        long Ega, Ege, Egi, Ego, Egu;
-        long Eka, Eke, Eki, Eko, Eku;
-        long Ema, Eme, Emi, Emo, Emu;
-        long Esa, Ese, Esi, Eso, Esu;
-
-        //copyFromState(A, state)
-        Aba = state[ 0];
-        Abe = state[ 1];
-        Abi = state[ 2];
-        Abo = state[ 3];
-        Abu = state[ 4];
-        Aga = state[ 5];
-        Age = state[ 6];
-        Agi = state[ 7];
-        Ago = state[ 8];
-        Agu = state[ 9];
-        Aka = state[10];
-        Ake = state[11];
-        Aki = state[12];
-        Ako = state[13];
-        Aku = state[14];
-        Ama = state[15];
-        Ame = state[16];
-        Ami = state[17];
-        Amo = state[18];
-        Amu = state[19];
-        Asa = state[20];
-        Ase = state[21];
-        Asi = state[22];
-        Aso = state[23];
-        Asu = state[24];
-
-        for( round = 0; round < 24; round += 2 )
-        {
-            //    prepareTheta
-            BCa = Aba^Aga^Aka^Ama^Asa;
-            BCe = Abe^Age^Ake^Ame^Ase;
-            BCi = Abi^Agi^Aki^Ami^Asi;
-            BCo = Abo^Ago^Ako^Amo^Aso;
-            BCu = Abu^Agu^Aku^Amu^Asu;
-
-            //thetaRhoPiChiIotaPrepareTheta(round  , A, E)
-            Da = BCu^ROL(BCe, 1);
-            De = BCa^ROL(BCi, 1);
-            Di = BCe^ROL(BCo, 1);
-            Do = BCi^ROL(BCu, 1);
-            Du = BCo^ROL(BCa, 1);
-
-            Aba ^= Da;
-            BCa = Aba;
-            Age ^= De;
-            BCe = ROL(Age, 44);
-            Aki ^= Di;
-            BCi = ROL(Aki, 43);
-            Amo ^= Do;
-            BCo = ROL(Amo, 21);
-            Asu ^= Du;
-            BCu = ROL(Asu, 14);
-            Eba =   BCa ^((~BCe)&  BCi );
-            Eba ^= KeccakF_RoundConstants[round];
-            Ebe =   BCe ^((~BCi)&  BCo );
-            Ebi =   BCi ^((~BCo)&  BCu );
-            Ebo =   BCo ^((~BCu)&  BCa );
-            Ebu =   BCu ^((~BCa)&  BCe );
-
-            Abo ^= Do;
-            BCa = ROL(Abo, 28);
-            Agu ^= Du;
-            BCe = ROL(Agu, 20);
-            Aka ^= Da;
-            BCi = ROL(Aka,  3);
-            Ame ^= De;
-            BCo = ROL(Ame, 45);
-            Asi ^= Di;
-            BCu = ROL(Asi, 61);
-            Ega =   BCa ^((~BCe)&  BCi );
-            Ege =   BCe ^((~BCi)&  BCo );
-            Egi =   BCi ^((~BCo)&  BCu );
-            Ego =   BCo ^((~BCu)&  BCa );
-            Egu =   BCu ^((~BCa)&  BCe );
-
-            Abe ^= De;
-            BCa = ROL(Abe,  1);
-            Agi ^= Di;
-            BCe = ROL(Agi,  6);
-            Ako ^= Do;
-            BCi = ROL(Ako, 25);
-            Amu ^= Du;
-            BCo = ROL(Amu,  8);
-            Asa ^= Da;
-            BCu = ROL(Asa, 18);
-            Eka =   BCa ^((~BCe)&  BCi );
-            Eke =   BCe ^((~BCi)&  BCo );
-            Eki =   BCi ^((~BCo)&  BCu );
-            Eko =   BCo ^((~BCu)&  BCa );
-            Eku =   BCu ^((~BCa)&  BCe );
-
-            Abu ^= Du;
-            BCa = ROL(Abu, 27);
-            Aga ^= Da;
-            BCe = ROL(Aga, 36);
-            Ake ^= De;
-            BCi = ROL(Ake, 10);
-            Ami ^= Di;
-            BCo = ROL(Ami, 15);
-            Aso ^= Do;
-            BCu = ROL(Aso, 56);
-            Ema =   BCa ^((~BCe)&  BCi );
-            Eme =   BCe ^((~BCi)&  BCo );
-            Emi =   BCi ^((~BCo)&  BCu );
-            Emo =   BCo ^((~BCu)&  BCa );
-            Emu =   BCu ^((~BCa)&  BCe );
-
-            Abi ^= Di;
-            BCa = ROL(Abi, 62);
-            Ago ^= Do;
-            BCe = ROL(Ago, 55);
-            Aku ^= Du;
-            BCi = ROL(Aku, 39);
-            Ama ^= Da;
-            BCo = ROL(Ama, 41);
-            Ase ^= De;
-            BCu = ROL(Ase,  2);
-            Esa =   BCa ^((~BCe)&  BCi );
-            Ese =   BCe ^((~BCi)&  BCo );
-            Esi =   BCi ^((~BCo)&  BCu );
-            Eso =   BCo ^((~BCu)&  BCa );
-            Esu =   BCu ^((~BCa)&  BCe );
-
-            //    prepareTheta
-            BCa = Eba^Ega^Eka^Ema^Esa;
-            BCe = Ebe^Ege^Eke^Eme^Ese;
-            BCi = Ebi^Egi^Eki^Emi^Esi;
-            BCo = Ebo^Ego^Eko^Emo^Eso;
-            BCu = Ebu^Egu^Eku^Emu^Esu;
-
-            //thetaRhoPiChiIotaPrepareTheta(round+1, E, A)
-            Da = BCu^ROL(BCe, 1);
-            De = BCa^ROL(BCi, 1);
-            Di = BCe^ROL(BCo, 1);
-            Do = BCi^ROL(BCu, 1);
-            Du = BCo^ROL(BCa, 1);
-
-            Eba ^= Da;
-            BCa = Eba;
-            Ege ^= De;
-            BCe = ROL(Ege, 44);
-            Eki ^= Di;
-            BCi = ROL(Eki, 43);
-            Emo ^= Do;
-            BCo = ROL(Emo, 21);
-            Esu ^= Du;
-            BCu = ROL(Esu, 14);
-            Aba =   BCa ^((~BCe)&  BCi );
-            Aba ^= KeccakF_RoundConstants[round+1];
-            Abe =   BCe ^((~BCi)&  BCo );
-            Abi =   BCi ^((~BCo)&  BCu );
-            Abo =   BCo ^((~BCu)&  BCa );
-            Abu =   BCu ^((~BCa)&  BCe );
-
-            Ebo ^= Do;
-            BCa = ROL(Ebo, 28);
-            Egu ^= Du;
-            BCe = ROL(Egu, 20);
-            Eka ^= Da;
-            BCi = ROL(Eka, 3);
-            Eme ^= De;
-            BCo = ROL(Eme, 45);
-            Esi ^= Di;
-            BCu = ROL(Esi, 61);
-            Aga =   BCa ^((~BCe)&  BCi );
-            Age =   BCe ^((~BCi)&  BCo );
-            Agi =   BCi ^((~BCo)&  BCu );
-            Ago =   BCo ^((~BCu)&  BCa );
-            Agu =   BCu ^((~BCa)&  BCe );
-
-            Ebe ^= De;
-            BCa = ROL(Ebe, 1);
-            Egi ^= Di;
-            BCe = ROL(Egi, 6);
-            Eko ^= Do;
-            BCi = ROL(Eko, 25);
-            Emu ^= Du;
-            BCo = ROL(Emu, 8);
-            Esa ^= Da;
-            BCu = ROL(Esa, 18);
-            Aka =   BCa ^((~BCe)&  BCi );
-            Ake =   BCe ^((~BCi)&  BCo );
-            Aki =   BCi ^((~BCo)&  BCu );
-            Ako =   BCo ^((~BCu)&  BCa );
-            Aku =   BCu ^((~BCa)&  BCe );
-
-            Ebu ^= Du;
-            BCa = ROL(Ebu, 27);
-            Ega ^= Da;
-            BCe = ROL(Ega, 36);
-            Eke ^= De;
-            BCi = ROL(Eke, 10);
-            Emi ^= Di;
-            BCo = ROL(Emi, 15);
-            Eso ^= Do;
-            BCu = ROL(Eso, 56);
-            Ama =   BCa ^((~BCe)&  BCi );
-            Ame =   BCe ^((~BCi)&  BCo );
-            Ami =   BCi ^((~BCo)&  BCu );
-            Amo =   BCo ^((~BCu)&  BCa );
-            Amu =   BCu ^((~BCa)&  BCe );
-
-            Ebi ^= Di;
-            BCa = ROL(Ebi, 62);
-            Ego ^= Do;
-            BCe = ROL(Ego, 55);
-            Eku ^= Du;
-            BCi = ROL(Eku, 39);
-            Ema ^= Da;
-            BCo = ROL(Ema, 41);
-            Ese ^= De;
-            BCu = ROL(Ese, 2);
-            Asa =   BCa ^((~BCe)&  BCi );
-            Ase =   BCe ^((~BCi)&  BCo );
-            Asi =   BCi ^((~BCo)&  BCu );
-            Aso =   BCo ^((~BCu)&  BCa );
-            Asu =   BCu ^((~BCa)&  BCe );
-        }
-
-        //copyToState(state, A)
-        state[ 0] = Aba;
-        state[ 1] = Abe;
-        state[ 2] = Abi;
-        state[ 3] = Abo;
-        state[ 4] = Abu;
-        state[ 5] = Aga;
-        state[ 6] = Age;
-        state[ 7] = Agi;
-        state[ 8] = Ago;
-        state[ 9] = Agu;
-        state[10] = Aka;
-        state[11] = Ake;
-        state[12] = Aki;
-        state[13] = Ako;
-        state[14] = Aku;
-        state[15] = Ama;
-        state[16] = Ame;
-        state[17] = Ami;
-        state[18] = Amo;
-        state[19] = Amu;
-        state[20] = Asa;
-        state[21] = Ase;
-        state[22] = Asi;
-        state[23] = Aso;
-        state[24] = Asu;
-	}
-
-	private static void keccak_absorb(long[] s, int r, byte[] m, int offset, int mlen, byte p)
+	// Forward NTT; the outputs are fully reduced.
+	private static void ntt_forward(int[] a)
 	{
 	  int i;
-	  byte[] t = new byte [200];
-
-	  try {
-		  for (i = 0; i < 25; ++i)
-		    s[i] = 0;
-
-		  while (mlen >= r)
-		  {
-		    for (i = 0; i < r / 8; ++i)
-		      s[i] ^= load64(m, offset + 8 * i);
-
-		    KeccakF1600_StatePermute(s);
-		    mlen -= r;
-		    offset += r;
-		  }
-
-		  for (i = 0; i < r; ++i)
-		    t[i] = 0;
-		  for (i = 0; i < mlen; ++i)
-		    t[i] = m[offset + i];
-		  t[i] = p;
-		  t[r - 1] |= 128;
-		  for (i = 0; i < r / 8; ++i)
-		    s[i] ^= load64(t, 8 * i);
-	  } finally {
-		  Arrays.fill(t, (byte)0);
-	  }
+	  for (i = 0; i < PARAM_N; i++)
+	    a[i] = mul_shoup(a[i], psis_bitrev[i], psis_bitrev_shoup[i]);
+	  ntt_levels(a, omegas, omegas_shoup);
+	  for (i = 0; i < PARAM_N; i++)
+	    a[i] = reduce(a[i]);
 	}
 
-	private static void keccak_squeezeblocks(byte[] h, int offset, int nblocks, long [] s, int r)
+	// Inverse NTT of the pointwise product of a and b, with the product
+	// fused into the bit-reversal permutation.  One of a and b must be
+	// fully reduced and the other less than 2^16.  The outputs are
+	// fully reduced.
+	private static void ntt_inverse(int[] r, int[] a, int[] b)
 	{
-	  int i;
-	  while(nblocks > 0)
+	  int i, j;
+	  for (i = 0; i < PARAM_N; i++)
 	  {
-	    KeccakF1600_StatePermute(s);
-	    for(i=0;i<(r>>3);i++)
-	    {
-	      store64(h, offset+8*i, s[i]);
-	    }
-	    offset += r;
-	    nblocks--;
+	    j = Integer.reverse(i) >>> 22;
+	    r[i] = reduce(a[j] * b[j]);
 	  }
+	  ntt_levels(r, omegas_inv, omegas_inv_shoup);
+	  for (i = 0; i < PARAM_N; i++)
+	    r[i] = csub(mul_shoup(r[i], psis_inv[i], psis_inv_shoup[i]));
 	}
 
-	static final int SHAKE128_RATE = 168;
-	
-	static void shake128_absorb(long[] s, byte[] input, int inputOffset, int inputByteLen)
-	{
-	  keccak_absorb(s, SHAKE128_RATE, input, inputOffset, inputByteLen, (byte)0x1F);
-	}
-
-	static void shake128_squeezeblocks(byte[] output, int outputOffset, int nblocks, long[] s)
-	{
-	  keccak_squeezeblocks(output, outputOffset, nblocks, s, SHAKE128_RATE);
-	}
+	// -------------- fips202.c --------------
 
-	private static final int SHA3_256_RATE = 136;
-	
-	private static void sha3256(byte[] output, int outputOffset, byte[] input, int inputOffset, int inputByteLen)
+	private void sha3256(byte[] output, int outputOffset, byte[] input, int inputOffset, int inputByteLen)
 	{
-	  long[] s = new long [25];
-	  byte[] t = new byte [SHA3_256_RATE];
-	  int i;
-
 	  try {
-		  keccak_absorb(s, SHA3_256_RATE, input, inputOffset, inputByteLen, (byte)0x06);
-		  keccak_squeezeblocks(t, 0, 1, s, SHA3_256_RATE);
-		  for(i=0;i<32;i++)
-		    output[i] = t[i];
+		  keccak.resetSHA3_256();
+		  keccak.update(input, inputOffset, inputByteLen);
+		  keccak.squeeze(output, outputOffset, 32);
 	  } finally {
-		  Arrays.fill(s, 0);
-		  Arrays.fill(t, (byte)0);
+		  keccak.destroy();
 	  }
 	}
 
@@ -1602,4 +1191,54 @@ public class NewHope {
 		5218,2501,5624,2559,10899,1557,1978,10816,10323,8497,4725,675,1852,
 		10798,12076,10503,3256,9243,3076,2195,10847,12083,10504,12034,10497
 	};
+
+	// Tables for the optimized NTT, derived from the Montgomery-domain
+	// tables above.  The twiddle factors are stored in the order that
+	// ntt_levels() consumes them.
+
+	private static final int[] omegas = new int [1023];
+	private static final long[] omegas_shoup = new long [1023];
+	private static final int[] omegas_inv = new int [1023];
+	private static final long[] omegas_inv_shoup = new long [1023];
+	private static final int[] psis_bitrev = new int [PARAM_N];
+	private static final long[] psis_bitrev_shoup = new long [PARAM_N];
+	private static final int[] psis_inv = new int [PARAM_N];
+	private static final long[] psis_inv_shoup = new long [PARAM_N];
+
+	private static int from_montgomery(char x)
+	{
+	  return montgomery_reduce(x) % PARAM_Q;
+	}
+
+	private static void twiddles(int[] w, long[] ws, char[] omega)
+	{
+	  int d, g, t = 0;
+	  for (d = 1; d < PARAM_N; d <<= 2)
+	  {
+	    for (g = 0; g < PARAM_N/(4*d); g++, t += 3)
+	    {
+	      w[t]   = from_montgomery(omega[2*g]);
+	      w[t+1] = from_montgomery(omega[2*g+1]);
+	      w[t+2] = from_montgomery(omega[g]);
+	    }
+	  }
+	  for (t = 0; t < w.length; t++)
+	    ws[t] = ((long)w[t] << 32) / PARAM_Q;
+	}
+
+	private static void factors(int[] f, long[] fs, char[] psi)
+	{
+	  for (int i = 0; i < PARAM_N; i++)
+	  {
+	    f[i] = from_montgomery(psi[i]);
+	    fs[i] = ((long)f[i] << 32) / PARAM_Q;
+	  }
+	}
+
+	static {
+	  twiddles(omegas, omegas_shoup, omegas_montgomery);
+	  twiddles(omegas_inv, omegas_inv_shoup, omegas_inv_montgomery);
+	  factors(psis_bitrev, psis_bitrev_shoup, psis_bitrev_montgomery);
+	  factors(psis_inv, psis_inv_shoup, psis_inv_montgomery);
+	}
 }
@@ -24,30 +24,52 @@ import java.util.Arrays;
  */
 public class NewHopeTor extends NewHope {
 
-	public NewHopeTor() {}
+	private char[] x;
+
+	public NewHopeTor()
+	{
+		x = new char [Keccak.SHAKE128_RATE*16 / 2];
+	}
+
+	@Override
+	void clean()
+	{
+		super.clean();
+		Arrays.fill(x, (char)0);
+	}
 
 	@Override
 	protected void uniform(char[] coeffs, byte[] seed)
 	{
-	  long[] state = new long [25];
 	  int nblocks=16;
-	  byte[] buf = new byte [SHAKE128_RATE*nblocks];
-	  char[] x = new char [buf.length / 2];
+	  long[] state = keccak.A;
+	  char[] x = this.x;
+	  long lane;
+	  int block, i, k;
 
 	  try {
-		  shake128_absorb(state, seed, 0, SEEDBYTES);
+		  keccak.resetSHAKE128();
+		  keccak.update(seed, 0, SEEDBYTES);
 		  do
 		  {
-		    shake128_squeezeblocks(buf, 0, nblocks, state);
-		    for (int i = buf.length - 2; i >= 0; i -= 2)
+		    // Parse the little-endian 16-bit values straight out of the lanes.
+		    k = 0;
+		    for (block = 0; block < nblocks; ++block)
 		    {
-		      x[i / 2] = (char)((buf[i] & 0xff) | ((buf[i+1] & 0xff) << 8));
+		      keccak.nextBlock();
+		      for (i = 0; i < Keccak.SHAKE128_RATE / 8; ++i)
+		      {
+		        lane = state[i];
+		        x[k++] = (char)lane;
+		        x[k++] = (char)(lane >>> 16);
+		        x[k++] = (char)(lane >>> 32);
+		        x[k++] = (char)(lane >>> 48);
+		      }
 		    }
 		  }
 		  while (discardtopoly(coeffs, x));
 	  } finally {
-		  Arrays.fill(state, 0);
-		  Arrays.fill(buf, (byte)0);
+		  keccak.destroy();
 		  Arrays.fill(x, (char)0);
 	  }
 	}
@@ -71,912 +93,115 @@ public class NewHopeTor extends NewHope {
 	  return false;
 	}
 
+	// Comparators of the sorting network over 84 elements that
+	// batcher84() applies, in order.  Each entry encodes two element
+	// indexes as (i | (j << 8)), where element i is x[offset + 16 * i].
+	// The network used to be fully unrolled, which made batcher84()
+	// far too large for the JIT to compile so it always ran interpreted.
+	private static final short[] batcher84_network = {
+		0x0100, 0x0302, 0x0200, 0x0301, 0x0201, 0x0504, 0x0706, 0x0604, 0x0705, 0x0605,
+		0x0400, 0x0602, 0x0402, 0x0501, 0x0703, 0x0503, 0x0201, 0x0403, 0x0605, 0x0908,
+		0x0b0a, 0x0a08, 0x0b09, 0x0a09, 0x0d0c, 0x0f0e, 0x0e0c, 0x0f0d, 0x0e0d, 0x0c08,
+		0x0e0a, 0x0c0a, 0x0d09, 0x0f0b, 0x0d0b, 0x0a09, 0x0c0b, 0x0e0d, 0x0800, 0x0c04,
+		0x0804, 0x0a02, 0x0e06, 0x0a06, 0x0402, 0x0806, 0x0c0a, 0x0901, 0x0d05, 0x0905,
+		0x0b03, 0x0f07, 0x0b07, 0x0503, 0x0907, 0x0d0b, 0x0201, 0x0403, 0x0605, 0x0807,
+		0x0a09, 0x0c0b, 0x0e0d, 0x1110, 0x1312, 0x1210, 0x1311, 0x1211, 0x1514, 0x1716,
+		0x1614, 0x1715, 0x1615, 0x1410, 0x1612, 0x1412, 0x1511, 0x1713, 0x1513, 0x1211,
+		0x1413, 0x1615, 0x1918, 0x1b1a, 0x1a18, 0x1b19, 0x1a19, 0x1d1c, 0x1f1e, 0x1e1c,
+		0x1f1d, 0x1e1d, 0x1c18, 0x1e1a, 0x1c1a, 0x1d19, 0x1f1b, 0x1d1b, 0x1a19, 0x1c1b,
+		0x1e1d, 0x1810, 0x1c14, 0x1814, 0x1a12, 0x1e16, 0x1a16, 0x1412, 0x1816, 0x1c1a,
+		0x1911, 0x1d15, 0x1915, 0x1b13, 0x1f17, 0x1b17, 0x1513, 0x1917, 0x1d1b, 0x1211,
+		0x1413, 0x1615, 0x1817, 0x1a19, 0x1c1b, 0x1e1d, 0x1000, 0x1808, 0x1008, 0x1404,
+		0x1c0c, 0x140c, 0x0804, 0x100c, 0x1814, 0x1202, 0x1a0a, 0x120a, 0x1606, 0x1e0e,
+		0x160e, 0x0a06, 0x120e, 0x1a16, 0x0402, 0x0806, 0x0c0a, 0x100e, 0x1412, 0x1816,
+		0x1c1a, 0x1101, 0x1909, 0x1109, 0x1505, 0x1d0d, 0x150d, 0x0905, 0x110d, 0x1915,
+		0x1303, 0x1b0b, 0x130b, 0x1707, 0x1f0f, 0x170f, 0x0b07, 0x130f, 0x1b17, 0x0503,
+		0x0907, 0x0d0b, 0x110f, 0x1513, 0x1917, 0x1d1b, 0x0201, 0x0403, 0x0605, 0x0807,
+		0x0a09, 0x0c0b, 0x0e0d, 0x100f, 0x1211, 0x1413, 0x1615, 0x1817, 0x1a19, 0x1c1b,
+		0x1e1d, 0x2120, 0x2322, 0x2220, 0x2321, 0x2221, 0x2524, 0x2726, 0x2624, 0x2725,
+		0x2625, 0x2420, 0x2622, 0x2422, 0x2521, 0x2723, 0x2523, 0x2221, 0x2423, 0x2625,
+		0x2928, 0x2b2a, 0x2a28, 0x2b29, 0x2a29, 0x2d2c, 0x2f2e, 0x2e2c, 0x2f2d, 0x2e2d,
+		0x2c28, 0x2e2a, 0x2c2a, 0x2d29, 0x2f2b, 0x2d2b, 0x2a29, 0x2c2b, 0x2e2d, 0x2820,
+		0x2c24, 0x2824, 0x2a22, 0x2e26, 0x2a26, 0x2422, 0x2826, 0x2c2a, 0x2921, 0x2d25,
+		0x2925, 0x2b23, 0x2f27, 0x2b27, 0x2523, 0x2927, 0x2d2b, 0x2221, 0x2423, 0x2625,
+		0x2827, 0x2a29, 0x2c2b, 0x2e2d, 0x3130, 0x3332, 0x3230, 0x3331, 0x3231, 0x3534,
+		0x3736, 0x3634, 0x3735, 0x3635, 0x3430, 0x3632, 0x3432, 0x3531, 0x3733, 0x3533,
+		0x3231, 0x3433, 0x3635, 0x3938, 0x3b3a, 0x3a38, 0x3b39, 0x3a39, 0x3d3c, 0x3f3e,
+		0x3e3c, 0x3f3d, 0x3e3d, 0x3c38, 0x3e3a, 0x3c3a, 0x3d39, 0x3f3b, 0x3d3b, 0x3a39,
+		0x3c3b, 0x3e3d, 0x3830, 0x3c34, 0x3834, 0x3a32, 0x3e36, 0x3a36, 0x3432, 0x3836,
+		0x3c3a, 0x3931, 0x3d35, 0x3935, 0x3b33, 0x3f37, 0x3b37, 0x3533, 0x3937, 0x3d3b,
+		0x3231, 0x3433, 0x3635, 0x3837, 0x3a39, 0x3c3b, 0x3e3d, 0x3020, 0x3828, 0x3028,
+		0x3424, 0x3c2c, 0x342c, 0x2824, 0x302c, 0x3834, 0x3222, 0x3a2a, 0x322a, 0x3626,
+		0x3e2e, 0x362e, 0x2a26, 0x322e, 0x3a36, 0x2422, 0x2826, 0x2c2a, 0x302e, 0x3432,
+		0x3836, 0x3c3a, 0x3121, 0x3929, 0x3129, 0x3525, 0x3d2d, 0x352d, 0x2925, 0x312d,
+		0x3935, 0x3323, 0x3b2b, 0x332b, 0x3727, 0x3f2f, 0x372f, 0x2b27, 0x332f, 0x3b37,
+		0x2523, 0x2927, 0x2d2b, 0x312f, 0x3533, 0x3937, 0x3d3b, 0x2221, 0x2423, 0x2625,
+		0x2827, 0x2a29, 0x2c2b, 0x2e2d, 0x302f, 0x3231, 0x3433, 0x3635, 0x3837, 0x3a39,
+		0x3c3b, 0x3e3d, 0x2000, 0x3010, 0x2010, 0x2808, 0x3818, 0x2818, 0x1008, 0x2018,
+		0x3028, 0x2404, 0x3414, 0x2414, 0x2c0c, 0x3c1c, 0x2c1c, 0x140c, 0x241c, 0x342c,
+		0x0804, 0x100c, 0x1814, 0x201c, 0x2824, 0x302c, 0x3834, 0x2202, 0x3212, 0x2212,
+		0x2a0a, 0x3a1a, 0x2a1a, 0x120a, 0x221a, 0x322a, 0x2606, 0x3616, 0x2616, 0x2e0e,
+		0x3e1e, 0x2e1e, 0x160e, 0x261e, 0x362e, 0x0a06, 0x120e, 0x1a16, 0x221e, 0x2a26,
+		0x322e, 0x3a36, 0x0402, 0x0806, 0x0c0a, 0x100e, 0x1412, 0x1816, 0x1c1a, 0x201e,
+		0x2422, 0x2826, 0x2c2a, 0x302e, 0x3432, 0x3836, 0x3c3a, 0x2101, 0x3111, 0x2111,
+		0x2909, 0x3919, 0x2919, 0x1109, 0x2119, 0x3129, 0x2505, 0x3515, 0x2515, 0x2d0d,
+		0x3d1d, 0x2d1d, 0x150d, 0x251d, 0x352d, 0x0905, 0x110d, 0x1915, 0x211d, 0x2925,
+		0x312d, 0x3935, 0x2303, 0x3313, 0x2313, 0x2b0b, 0x3b1b, 0x2b1b, 0x130b, 0x231b,
+		0x332b, 0x2707, 0x3717, 0x2717, 0x2f0f, 0x3f1f, 0x2f1f, 0x170f, 0x271f, 0x372f,
+		0x0b07, 0x130f, 0x1b17, 0x231f, 0x2b27, 0x332f, 0x3b37, 0x0503, 0x0907, 0x0d0b,
+		0x110f, 0x1513, 0x1917, 0x1d1b, 0x211f, 0x2523, 0x2927, 0x2d2b, 0x312f, 0x3533,
+		0x3937, 0x3d3b, 0x0201, 0x0403, 0x0605, 0x0807, 0x0a09, 0x0c0b, 0x0e0d, 0x100f,
+		0x1211, 0x1413, 0x1615, 0x1817, 0x1a19, 0x1c1b, 0x1e1d, 0x201f, 0x2221, 0x2423,
+		0x2625, 0x2827, 0x2a29, 0x2c2b, 0x2e2d, 0x302f, 0x3231, 0x3433, 0x3635, 0x3837,
+		0x3a39, 0x3c3b, 0x3e3d, 0x4140, 0x4342, 0x4240, 0x4341, 0x4241, 0x4544, 0x4746,
+		0x4644, 0x4745, 0x4645, 0x4440, 0x4642, 0x4442, 0x4541, 0x4743, 0x4543, 0x4241,
+		0x4443, 0x4645, 0x4948, 0x4b4a, 0x4a48, 0x4b49, 0x4a49, 0x4d4c, 0x4f4e, 0x4e4c,
+		0x4f4d, 0x4e4d, 0x4c48, 0x4e4a, 0x4c4a, 0x4d49, 0x4f4b, 0x4d4b, 0x4a49, 0x4c4b,
+		0x4e4d, 0x4840, 0x4c44, 0x4844, 0x4a42, 0x4e46, 0x4a46, 0x4442, 0x4846, 0x4c4a,
+		0x4941, 0x4d45, 0x4945, 0x4b43, 0x4f47, 0x4b47, 0x4543, 0x4947, 0x4d4b, 0x4241,
+		0x4443, 0x4645, 0x4847, 0x4a49, 0x4c4b, 0x4e4d, 0x5150, 0x5352, 0x5250, 0x5351,
+		0x5251, 0x5251, 0x5251, 0x5040, 0x5048, 0x4844, 0x504c, 0x5242, 0x524a, 0x4a46,
+		0x524e, 0x4442, 0x4846, 0x4c4a, 0x504e, 0x5141, 0x5149, 0x4945, 0x514d, 0x5343,
+		0x534b, 0x4b47, 0x534f, 0x4543, 0x4947, 0x4d4b, 0x514f, 0x4241, 0x4443, 0x4645,
+		0x4847, 0x4a49, 0x4c4b, 0x4e4d, 0x504f, 0x5251, 0x5048, 0x4844, 0x504c, 0x524a,
+		0x4a46, 0x524e, 0x4442, 0x4846, 0x4c4a, 0x504e, 0x5149, 0x4945, 0x514d, 0x534b,
+		0x4b47, 0x534f, 0x4543, 0x4947, 0x4d4b, 0x514f, 0x4241, 0x4443, 0x4645, 0x4847,
+		0x4a49, 0x4c4b, 0x4e4d, 0x504f, 0x5251, 0x4000, 0x4020, 0x5010, 0x5030, 0x2010,
+		0x4030, 0x4808, 0x4828, 0x2818, 0x4838, 0x1008, 0x2018, 0x3028, 0x4038, 0x5048,
+		0x4404, 0x4424, 0x2414, 0x4434, 0x4c0c, 0x4c2c, 0x2c1c, 0x4c3c, 0x140c, 0x241c,
+		0x342c, 0x443c, 0x0804, 0x100c, 0x1814, 0x201c, 0x2824, 0x302c, 0x3834, 0x403c,
+		0x4844, 0x504c, 0x4202, 0x4222, 0x5212, 0x5232, 0x2212, 0x4232, 0x4a0a, 0x4a2a,
+		0x2a1a, 0x4a3a, 0x120a, 0x221a, 0x322a, 0x423a, 0x524a, 0x4606, 0x4626, 0x2616,
+		0x4636, 0x4e0e, 0x4e2e, 0x2e1e, 0x4e3e, 0x160e, 0x261e, 0x362e, 0x463e, 0x0a06,
+		0x120e, 0x1a16, 0x221e, 0x2a26, 0x322e, 0x3a36, 0x423e, 0x4a46, 0x524e, 0x0402,
+		0x0806, 0x0c0a, 0x100e, 0x1412, 0x1816, 0x1c1a, 0x201e, 0x2422, 0x2826, 0x2c2a,
+		0x302e, 0x3432, 0x3836, 0x3c3a, 0x403e, 0x4442, 0x4846, 0x4c4a, 0x504e, 0x4101,
+		0x4121, 0x5111, 0x5131, 0x2111, 0x4131, 0x4909, 0x4929, 0x2919, 0x4939, 0x1109,
+		0x2119, 0x3129, 0x4139, 0x5149, 0x4505, 0x4525, 0x2515, 0x4535, 0x4d0d, 0x4d2d,
+		0x2d1d, 0x4d3d, 0x150d, 0x251d, 0x352d, 0x453d, 0x0905, 0x110d, 0x1915, 0x211d,
+		0x2925, 0x312d, 0x3935, 0x413d, 0x4945, 0x514d, 0x4303, 0x4323, 0x5313, 0x5333,
+		0x2313, 0x4333, 0x4b0b, 0x4b2b, 0x2b1b, 0x4b3b, 0x130b, 0x231b, 0x332b, 0x433b,
+		0x534b, 0x4707, 0x4727, 0x2717, 0x4737, 0x4f0f, 0x4f2f, 0x2f1f, 0x4f3f, 0x170f,
+		0x271f, 0x372f, 0x473f, 0x0b07, 0x130f, 0x1b17, 0x231f, 0x2b27, 0x332f, 0x3b37,
+		0x433f, 0x4b47, 0x534f, 0x0503, 0x0907, 0x0d0b, 0x110f, 0x1513, 0x1917, 0x1d1b,
+		0x211f, 0x2523, 0x2927, 0x2d2b, 0x312f, 0x3533, 0x3937, 0x3d3b, 0x413f, 0x4543,
+		0x4947, 0x4d4b, 0x514f, 0x0201, 0x0403, 0x0605, 0x0807, 0x0a09, 0x0c0b, 0x0e0d,
+		0x100f, 0x1211, 0x1413, 0x1615, 0x1817, 0x1a19, 0x1c1b, 0x1e1d, 0x201f, 0x2221,
+		0x2423, 0x2625, 0x2827, 0x2a29, 0x2c2b, 0x2e2d, 0x302f, 0x3231, 0x3433, 0x3635,
+		0x3837, 0x3a39, 0x3c3b, 0x3e3d, 0x403f, 0x4241, 0x4443, 0x4645, 0x4847, 0x4a49,
+		0x4c4b, 0x4e4d, 0x504f, 0x5251
+	};
+
 	private static void batcher84(char[] x, int offset)
 	{
-		int c, t;
-		c = 61444 - x[offset +    0]; t = (x[offset +    0] ^ x[offset +   16]) & (c >> 31); x[offset +    0] ^= t; x[offset +   16] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +   48]) & (c >> 31); x[offset +   32] ^= t; x[offset +   48] ^= t;
-		c = 61444 - x[offset +    0]; t = (x[offset +    0] ^ x[offset +   32]) & (c >> 31); x[offset +    0] ^= t; x[offset +   32] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   48]) & (c >> 31); x[offset +   16] ^= t; x[offset +   48] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   32]) & (c >> 31); x[offset +   16] ^= t; x[offset +   32] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +   80]) & (c >> 31); x[offset +   64] ^= t; x[offset +   80] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  112]) & (c >> 31); x[offset +   96] ^= t; x[offset +  112] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +   96]) & (c >> 31); x[offset +   64] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  112]) & (c >> 31); x[offset +   80] ^= t; x[offset +  112] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +   96]) & (c >> 31); x[offset +   80] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +    0]; t = (x[offset +    0] ^ x[offset +   64]) & (c >> 31); x[offset +    0] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +   96]) & (c >> 31); x[offset +   32] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +   64]) & (c >> 31); x[offset +   32] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   80]) & (c >> 31); x[offset +   16] ^= t; x[offset +   80] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +  112]) & (c >> 31); x[offset +   48] ^= t; x[offset +  112] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   80]) & (c >> 31); x[offset +   48] ^= t; x[offset +   80] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   32]) & (c >> 31); x[offset +   16] ^= t; x[offset +   32] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   64]) & (c >> 31); x[offset +   48] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +   96]) & (c >> 31); x[offset +   80] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  144]) & (c >> 31); x[offset +  128] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  176]) & (c >> 31); x[offset +  160] ^= t; x[offset +  176] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  160]) & (c >> 31); x[offset +  128] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  176]) & (c >> 31); x[offset +  144] ^= t; x[offset +  176] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  160]) & (c >> 31); x[offset +  144] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  208]) & (c >> 31); x[offset +  192] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  240]) & (c >> 31); x[offset +  224] ^= t; x[offset +  240] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  224]) & (c >> 31); x[offset +  192] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  240]) & (c >> 31); x[offset +  208] ^= t; x[offset +  240] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  224]) & (c >> 31); x[offset +  208] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  192]) & (c >> 31); x[offset +  128] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  224]) & (c >> 31); x[offset +  160] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  192]) & (c >> 31); x[offset +  160] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  208]) & (c >> 31); x[offset +  144] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  240]) & (c >> 31); x[offset +  176] ^= t; x[offset +  240] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  208]) & (c >> 31); x[offset +  176] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  160]) & (c >> 31); x[offset +  144] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  192]) & (c >> 31); x[offset +  176] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  224]) & (c >> 31); x[offset +  208] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +    0]; t = (x[offset +    0] ^ x[offset +  128]) & (c >> 31); x[offset +    0] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +  192]) & (c >> 31); x[offset +   64] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +  128]) & (c >> 31); x[offset +   64] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +  160]) & (c >> 31); x[offset +   32] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  224]) & (c >> 31); x[offset +   96] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  160]) & (c >> 31); x[offset +   96] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +   64]) & (c >> 31); x[offset +   32] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  128]) & (c >> 31); x[offset +   96] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  192]) & (c >> 31); x[offset +  160] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +  144]) & (c >> 31); x[offset +   16] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  208]) & (c >> 31); x[offset +   80] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  144]) & (c >> 31); x[offset +   80] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +  176]) & (c >> 31); x[offset +   48] ^= t; x[offset +  176] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  240]) & (c >> 31); x[offset +  112] ^= t; x[offset +  240] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  176]) & (c >> 31); x[offset +  112] ^= t; x[offset +  176] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   80]) & (c >> 31); x[offset +   48] ^= t; x[offset +   80] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  144]) & (c >> 31); x[offset +  112] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  208]) & (c >> 31); x[offset +  176] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   32]) & (c >> 31); x[offset +   16] ^= t; x[offset +   32] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   64]) & (c >> 31); x[offset +   48] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +   96]) & (c >> 31); x[offset +   80] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  128]) & (c >> 31); x[offset +  112] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  160]) & (c >> 31); x[offset +  144] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  192]) & (c >> 31); x[offset +  176] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  224]) & (c >> 31); x[offset +  208] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset +  272]) & (c >> 31); x[offset +  256] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  304]) & (c >> 31); x[offset +  288] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset +  288]) & (c >> 31); x[offset +  256] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  304]) & (c >> 31); x[offset +  272] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  288]) & (c >> 31); x[offset +  272] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  336]) & (c >> 31); x[offset +  320] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  368]) & (c >> 31); x[offset +  352] ^= t; x[offset +  368] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  352]) & (c >> 31); x[offset +  320] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  368]) & (c >> 31); x[offset +  336] ^= t; x[offset +  368] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  352]) & (c >> 31); x[offset +  336] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset +  320]) & (c >> 31); x[offset +  256] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  352]) & (c >> 31); x[offset +  288] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  320]) & (c >> 31); x[offset +  288] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  336]) & (c >> 31); x[offset +  272] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  368]) & (c >> 31); x[offset +  304] ^= t; x[offset +  368] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  336]) & (c >> 31); x[offset +  304] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  288]) & (c >> 31); x[offset +  272] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  320]) & (c >> 31); x[offset +  304] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  352]) & (c >> 31); x[offset +  336] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  400]) & (c >> 31); x[offset +  384] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  432]) & (c >> 31); x[offset +  416] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  416]) & (c >> 31); x[offset +  384] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  432]) & (c >> 31); x[offset +  400] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  416]) & (c >> 31); x[offset +  400] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  464]) & (c >> 31); x[offset +  448] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  496]) & (c >> 31); x[offset +  480] ^= t; x[offset +  496] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  480]) & (c >> 31); x[offset +  448] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  496]) & (c >> 31); x[offset +  464] ^= t; x[offset +  496] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  480]) & (c >> 31); x[offset +  464] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  448]) & (c >> 31); x[offset +  384] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  480]) & (c >> 31); x[offset +  416] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  448]) & (c >> 31); x[offset +  416] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  464]) & (c >> 31); x[offset +  400] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  496]) & (c >> 31); x[offset +  432] ^= t; x[offset +  496] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  464]) & (c >> 31); x[offset +  432] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  416]) & (c >> 31); x[offset +  400] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  448]) & (c >> 31); x[offset +  432] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  480]) & (c >> 31); x[offset +  464] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset +  384]) & (c >> 31); x[offset +  256] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  448]) & (c >> 31); x[offset +  320] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  384]) & (c >> 31); x[offset +  320] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  416]) & (c >> 31); x[offset +  288] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  480]) & (c >> 31); x[offset +  352] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  416]) & (c >> 31); x[offset +  352] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  320]) & (c >> 31); x[offset +  288] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  384]) & (c >> 31); x[offset +  352] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  448]) & (c >> 31); x[offset +  416] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  400]) & (c >> 31); x[offset +  272] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  464]) & (c >> 31); x[offset +  336] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  400]) & (c >> 31); x[offset +  336] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  432]) & (c >> 31); x[offset +  304] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  496]) & (c >> 31); x[offset +  368] ^= t; x[offset +  496] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  432]) & (c >> 31); x[offset +  368] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  336]) & (c >> 31); x[offset +  304] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  400]) & (c >> 31); x[offset +  368] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  464]) & (c >> 31); x[offset +  432] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  288]) & (c >> 31); x[offset +  272] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  320]) & (c >> 31); x[offset +  304] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  352]) & (c >> 31); x[offset +  336] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  384]) & (c >> 31); x[offset +  368] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  416]) & (c >> 31); x[offset +  400] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  448]) & (c >> 31); x[offset +  432] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  480]) & (c >> 31); x[offset +  464] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +    0]; t = (x[offset +    0] ^ x[offset +  256]) & (c >> 31); x[offset +    0] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  384]) & (c >> 31); x[offset +  128] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  256]) & (c >> 31); x[offset +  128] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +  320]) & (c >> 31); x[offset +   64] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  448]) & (c >> 31); x[offset +  192] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  320]) & (c >> 31); x[offset +  192] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +  128]) & (c >> 31); x[offset +   64] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  256]) & (c >> 31); x[offset +  192] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  384]) & (c >> 31); x[offset +  320] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +  288]) & (c >> 31); x[offset +   32] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  416]) & (c >> 31); x[offset +  160] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  288]) & (c >> 31); x[offset +  160] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  352]) & (c >> 31); x[offset +   96] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  480]) & (c >> 31); x[offset +  224] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  352]) & (c >> 31); x[offset +  224] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  160]) & (c >> 31); x[offset +   96] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  288]) & (c >> 31); x[offset +  224] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  416]) & (c >> 31); x[offset +  352] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +   64]) & (c >> 31); x[offset +   32] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  128]) & (c >> 31); x[offset +   96] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  192]) & (c >> 31); x[offset +  160] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  256]) & (c >> 31); x[offset +  224] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  320]) & (c >> 31); x[offset +  288] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  384]) & (c >> 31); x[offset +  352] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  448]) & (c >> 31); x[offset +  416] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +  272]) & (c >> 31); x[offset +   16] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  400]) & (c >> 31); x[offset +  144] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  272]) & (c >> 31); x[offset +  144] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  336]) & (c >> 31); x[offset +   80] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  464]) & (c >> 31); x[offset +  208] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  336]) & (c >> 31); x[offset +  208] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  144]) & (c >> 31); x[offset +   80] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  272]) & (c >> 31); x[offset +  208] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  400]) & (c >> 31); x[offset +  336] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +  304]) & (c >> 31); x[offset +   48] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  432]) & (c >> 31); x[offset +  176] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  304]) & (c >> 31); x[offset +  176] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  368]) & (c >> 31); x[offset +  112] ^= t; x[offset +  368] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  496]) & (c >> 31); x[offset +  240] ^= t; x[offset +  496] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  368]) & (c >> 31); x[offset +  240] ^= t; x[offset +  368] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  176]) & (c >> 31); x[offset +  112] ^= t; x[offset +  176] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  304]) & (c >> 31); x[offset +  240] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  432]) & (c >> 31); x[offset +  368] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   80]) & (c >> 31); x[offset +   48] ^= t; x[offset +   80] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  144]) & (c >> 31); x[offset +  112] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  208]) & (c >> 31); x[offset +  176] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  272]) & (c >> 31); x[offset +  240] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  336]) & (c >> 31); x[offset +  304] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  400]) & (c >> 31); x[offset +  368] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  464]) & (c >> 31); x[offset +  432] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   32]) & (c >> 31); x[offset +   16] ^= t; x[offset +   32] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   64]) & (c >> 31); x[offset +   48] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +   96]) & (c >> 31); x[offset +   80] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  128]) & (c >> 31); x[offset +  112] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  160]) & (c >> 31); x[offset +  144] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  192]) & (c >> 31); x[offset +  176] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  224]) & (c >> 31); x[offset +  208] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  256]) & (c >> 31); x[offset +  240] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  288]) & (c >> 31); x[offset +  272] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  320]) & (c >> 31); x[offset +  304] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  352]) & (c >> 31); x[offset +  336] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  384]) & (c >> 31); x[offset +  368] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  416]) & (c >> 31); x[offset +  400] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  448]) & (c >> 31); x[offset +  432] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  480]) & (c >> 31); x[offset +  464] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  512]; t = (x[offset +  512] ^ x[offset +  528]) & (c >> 31); x[offset +  512] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  560]) & (c >> 31); x[offset +  544] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  512]; t = (x[offset +  512] ^ x[offset +  544]) & (c >> 31); x[offset +  512] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  560]) & (c >> 31); x[offset +  528] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  544]) & (c >> 31); x[offset +  528] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  592]) & (c >> 31); x[offset +  576] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  624]) & (c >> 31); x[offset +  608] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  608]) & (c >> 31); x[offset +  576] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  624]) & (c >> 31); x[offset +  592] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  608]) & (c >> 31); x[offset +  592] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  512]; t = (x[offset +  512] ^ x[offset +  576]) & (c >> 31); x[offset +  512] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  608]) & (c >> 31); x[offset +  544] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  576]) & (c >> 31); x[offset +  544] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  592]) & (c >> 31); x[offset +  528] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  624]) & (c >> 31); x[offset +  560] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  592]) & (c >> 31); x[offset +  560] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  544]) & (c >> 31); x[offset +  528] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  576]) & (c >> 31); x[offset +  560] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  608]) & (c >> 31); x[offset +  592] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset +  656]) & (c >> 31); x[offset +  640] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  688]) & (c >> 31); x[offset +  672] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset +  672]) & (c >> 31); x[offset +  640] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  688]) & (c >> 31); x[offset +  656] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  672]) & (c >> 31); x[offset +  656] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  720]) & (c >> 31); x[offset +  704] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  752]) & (c >> 31); x[offset +  736] ^= t; x[offset +  752] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  736]) & (c >> 31); x[offset +  704] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  752]) & (c >> 31); x[offset +  720] ^= t; x[offset +  752] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  736]) & (c >> 31); x[offset +  720] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset +  704]) & (c >> 31); x[offset +  640] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  736]) & (c >> 31); x[offset +  672] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  704]) & (c >> 31); x[offset +  672] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  720]) & (c >> 31); x[offset +  656] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  752]) & (c >> 31); x[offset +  688] ^= t; x[offset +  752] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  720]) & (c >> 31); x[offset +  688] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  672]) & (c >> 31); x[offset +  656] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  704]) & (c >> 31); x[offset +  688] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  736]) & (c >> 31); x[offset +  720] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  512]; t = (x[offset +  512] ^ x[offset +  640]) & (c >> 31); x[offset +  512] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  704]) & (c >> 31); x[offset +  576] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  640]) & (c >> 31); x[offset +  576] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  672]) & (c >> 31); x[offset +  544] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  736]) & (c >> 31); x[offset +  608] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  672]) & (c >> 31); x[offset +  608] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  576]) & (c >> 31); x[offset +  544] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  640]) & (c >> 31); x[offset +  608] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  704]) & (c >> 31); x[offset +  672] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  656]) & (c >> 31); x[offset +  528] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  720]) & (c >> 31); x[offset +  592] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  656]) & (c >> 31); x[offset +  592] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  688]) & (c >> 31); x[offset +  560] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  752]) & (c >> 31); x[offset +  624] ^= t; x[offset +  752] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  688]) & (c >> 31); x[offset +  624] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  592]) & (c >> 31); x[offset +  560] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  656]) & (c >> 31); x[offset +  624] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  720]) & (c >> 31); x[offset +  688] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  544]) & (c >> 31); x[offset +  528] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  576]) & (c >> 31); x[offset +  560] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  608]) & (c >> 31); x[offset +  592] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  640]) & (c >> 31); x[offset +  624] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  672]) & (c >> 31); x[offset +  656] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  704]) & (c >> 31); x[offset +  688] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  736]) & (c >> 31); x[offset +  720] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  768]; t = (x[offset +  768] ^ x[offset +  784]) & (c >> 31); x[offset +  768] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  816]) & (c >> 31); x[offset +  800] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  768]; t = (x[offset +  768] ^ x[offset +  800]) & (c >> 31); x[offset +  768] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  816]) & (c >> 31); x[offset +  784] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  800]) & (c >> 31); x[offset +  784] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset +  848]) & (c >> 31); x[offset +  832] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  880]) & (c >> 31); x[offset +  864] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset +  864]) & (c >> 31); x[offset +  832] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  880]) & (c >> 31); x[offset +  848] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  864]) & (c >> 31); x[offset +  848] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  768]; t = (x[offset +  768] ^ x[offset +  832]) & (c >> 31); x[offset +  768] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  864]) & (c >> 31); x[offset +  800] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  832]) & (c >> 31); x[offset +  800] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  848]) & (c >> 31); x[offset +  784] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  880]) & (c >> 31); x[offset +  816] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  848]) & (c >> 31); x[offset +  816] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  800]) & (c >> 31); x[offset +  784] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  832]) & (c >> 31); x[offset +  816] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  864]) & (c >> 31); x[offset +  848] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  896]; t = (x[offset +  896] ^ x[offset +  912]) & (c >> 31); x[offset +  896] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset +  944]) & (c >> 31); x[offset +  928] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +  896]; t = (x[offset +  896] ^ x[offset +  928]) & (c >> 31); x[offset +  896] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  944]) & (c >> 31); x[offset +  912] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  928]) & (c >> 31); x[offset +  912] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  960]; t = (x[offset +  960] ^ x[offset +  976]) & (c >> 31); x[offset +  960] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  992]; t = (x[offset +  992] ^ x[offset + 1008]) & (c >> 31); x[offset +  992] ^= t; x[offset + 1008] ^= t;
-		c = 61444 - x[offset +  960]; t = (x[offset +  960] ^ x[offset +  992]) & (c >> 31); x[offset +  960] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset + 1008]) & (c >> 31); x[offset +  976] ^= t; x[offset + 1008] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset +  992]) & (c >> 31); x[offset +  976] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  896]; t = (x[offset +  896] ^ x[offset +  960]) & (c >> 31); x[offset +  896] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset +  992]) & (c >> 31); x[offset +  928] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset +  960]) & (c >> 31); x[offset +  928] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  976]) & (c >> 31); x[offset +  912] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset + 1008]) & (c >> 31); x[offset +  944] ^= t; x[offset + 1008] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  976]) & (c >> 31); x[offset +  944] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  928]) & (c >> 31); x[offset +  912] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  960]) & (c >> 31); x[offset +  944] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset +  992]) & (c >> 31); x[offset +  976] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  768]; t = (x[offset +  768] ^ x[offset +  896]) & (c >> 31); x[offset +  768] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset +  960]) & (c >> 31); x[offset +  832] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset +  896]) & (c >> 31); x[offset +  832] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  928]) & (c >> 31); x[offset +  800] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  992]) & (c >> 31); x[offset +  864] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  928]) & (c >> 31); x[offset +  864] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  832]) & (c >> 31); x[offset +  800] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  896]) & (c >> 31); x[offset +  864] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset +  960]) & (c >> 31); x[offset +  928] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  912]) & (c >> 31); x[offset +  784] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  976]) & (c >> 31); x[offset +  848] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  912]) & (c >> 31); x[offset +  848] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  944]) & (c >> 31); x[offset +  816] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset + 1008]) & (c >> 31); x[offset +  880] ^= t; x[offset + 1008] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  944]) & (c >> 31); x[offset +  880] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  848]) & (c >> 31); x[offset +  816] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  912]) & (c >> 31); x[offset +  880] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  976]) & (c >> 31); x[offset +  944] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  800]) & (c >> 31); x[offset +  784] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  832]) & (c >> 31); x[offset +  816] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  864]) & (c >> 31); x[offset +  848] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  896]) & (c >> 31); x[offset +  880] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  928]) & (c >> 31); x[offset +  912] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  960]) & (c >> 31); x[offset +  944] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset +  992]) & (c >> 31); x[offset +  976] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  512]; t = (x[offset +  512] ^ x[offset +  768]) & (c >> 31); x[offset +  512] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset +  896]) & (c >> 31); x[offset +  640] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset +  768]) & (c >> 31); x[offset +  640] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  832]) & (c >> 31); x[offset +  576] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  960]) & (c >> 31); x[offset +  704] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  832]) & (c >> 31); x[offset +  704] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  640]) & (c >> 31); x[offset +  576] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  768]) & (c >> 31); x[offset +  704] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset +  896]) & (c >> 31); x[offset +  832] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  800]) & (c >> 31); x[offset +  544] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  928]) & (c >> 31); x[offset +  672] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  800]) & (c >> 31); x[offset +  672] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  864]) & (c >> 31); x[offset +  608] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  992]) & (c >> 31); x[offset +  736] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  864]) & (c >> 31); x[offset +  736] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  672]) & (c >> 31); x[offset +  608] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  800]) & (c >> 31); x[offset +  736] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  928]) & (c >> 31); x[offset +  864] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  576]) & (c >> 31); x[offset +  544] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  640]) & (c >> 31); x[offset +  608] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  704]) & (c >> 31); x[offset +  672] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  768]) & (c >> 31); x[offset +  736] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  832]) & (c >> 31); x[offset +  800] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  896]) & (c >> 31); x[offset +  864] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset +  960]) & (c >> 31); x[offset +  928] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  784]) & (c >> 31); x[offset +  528] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  912]) & (c >> 31); x[offset +  656] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  784]) & (c >> 31); x[offset +  656] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  848]) & (c >> 31); x[offset +  592] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  976]) & (c >> 31); x[offset +  720] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  848]) & (c >> 31); x[offset +  720] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  656]) & (c >> 31); x[offset +  592] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  784]) & (c >> 31); x[offset +  720] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  912]) & (c >> 31); x[offset +  848] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  816]) & (c >> 31); x[offset +  560] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  944]) & (c >> 31); x[offset +  688] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  816]) & (c >> 31); x[offset +  688] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  880]) & (c >> 31); x[offset +  624] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset + 1008]) & (c >> 31); x[offset +  752] ^= t; x[offset + 1008] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  880]) & (c >> 31); x[offset +  752] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  688]) & (c >> 31); x[offset +  624] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  816]) & (c >> 31); x[offset +  752] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  944]) & (c >> 31); x[offset +  880] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  592]) & (c >> 31); x[offset +  560] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  656]) & (c >> 31); x[offset +  624] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  720]) & (c >> 31); x[offset +  688] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  784]) & (c >> 31); x[offset +  752] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  848]) & (c >> 31); x[offset +  816] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  912]) & (c >> 31); x[offset +  880] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  976]) & (c >> 31); x[offset +  944] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  544]) & (c >> 31); x[offset +  528] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  576]) & (c >> 31); x[offset +  560] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  608]) & (c >> 31); x[offset +  592] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  640]) & (c >> 31); x[offset +  624] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  672]) & (c >> 31); x[offset +  656] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  704]) & (c >> 31); x[offset +  688] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  736]) & (c >> 31); x[offset +  720] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  768]) & (c >> 31); x[offset +  752] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  800]) & (c >> 31); x[offset +  784] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  832]) & (c >> 31); x[offset +  816] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  864]) & (c >> 31); x[offset +  848] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  896]) & (c >> 31); x[offset +  880] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  928]) & (c >> 31); x[offset +  912] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  960]) & (c >> 31); x[offset +  944] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset +  992]) & (c >> 31); x[offset +  976] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +    0]; t = (x[offset +    0] ^ x[offset +  512]) & (c >> 31); x[offset +    0] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset +  768]) & (c >> 31); x[offset +  256] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset +  512]) & (c >> 31); x[offset +  256] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  640]) & (c >> 31); x[offset +  128] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  896]) & (c >> 31); x[offset +  384] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  640]) & (c >> 31); x[offset +  384] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  256]) & (c >> 31); x[offset +  128] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  512]) & (c >> 31); x[offset +  384] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset +  768]) & (c >> 31); x[offset +  640] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +  576]) & (c >> 31); x[offset +   64] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  832]) & (c >> 31); x[offset +  320] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  576]) & (c >> 31); x[offset +  320] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  704]) & (c >> 31); x[offset +  192] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  960]) & (c >> 31); x[offset +  448] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  704]) & (c >> 31); x[offset +  448] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  320]) & (c >> 31); x[offset +  192] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  576]) & (c >> 31); x[offset +  448] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  832]) & (c >> 31); x[offset +  704] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +  128]) & (c >> 31); x[offset +   64] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  256]) & (c >> 31); x[offset +  192] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  384]) & (c >> 31); x[offset +  320] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  512]) & (c >> 31); x[offset +  448] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  640]) & (c >> 31); x[offset +  576] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  768]) & (c >> 31); x[offset +  704] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset +  896]) & (c >> 31); x[offset +  832] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +  544]) & (c >> 31); x[offset +   32] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  800]) & (c >> 31); x[offset +  288] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  544]) & (c >> 31); x[offset +  288] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  672]) & (c >> 31); x[offset +  160] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  928]) & (c >> 31); x[offset +  416] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  672]) & (c >> 31); x[offset +  416] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  288]) & (c >> 31); x[offset +  160] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  544]) & (c >> 31); x[offset +  416] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  800]) & (c >> 31); x[offset +  672] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  608]) & (c >> 31); x[offset +   96] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  864]) & (c >> 31); x[offset +  352] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  608]) & (c >> 31); x[offset +  352] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  736]) & (c >> 31); x[offset +  224] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  992]) & (c >> 31); x[offset +  480] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  736]) & (c >> 31); x[offset +  480] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  352]) & (c >> 31); x[offset +  224] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  608]) & (c >> 31); x[offset +  480] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  864]) & (c >> 31); x[offset +  736] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  160]) & (c >> 31); x[offset +   96] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  288]) & (c >> 31); x[offset +  224] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  416]) & (c >> 31); x[offset +  352] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  544]) & (c >> 31); x[offset +  480] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  672]) & (c >> 31); x[offset +  608] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  800]) & (c >> 31); x[offset +  736] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  928]) & (c >> 31); x[offset +  864] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +   64]) & (c >> 31); x[offset +   32] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  128]) & (c >> 31); x[offset +   96] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  192]) & (c >> 31); x[offset +  160] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  256]) & (c >> 31); x[offset +  224] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  320]) & (c >> 31); x[offset +  288] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  384]) & (c >> 31); x[offset +  352] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  448]) & (c >> 31); x[offset +  416] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  512]) & (c >> 31); x[offset +  480] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  576]) & (c >> 31); x[offset +  544] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  640]) & (c >> 31); x[offset +  608] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  704]) & (c >> 31); x[offset +  672] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  768]) & (c >> 31); x[offset +  736] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  832]) & (c >> 31); x[offset +  800] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  896]) & (c >> 31); x[offset +  864] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset +  960]) & (c >> 31); x[offset +  928] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +  528]) & (c >> 31); x[offset +   16] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  784]) & (c >> 31); x[offset +  272] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  528]) & (c >> 31); x[offset +  272] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  656]) & (c >> 31); x[offset +  144] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  912]) & (c >> 31); x[offset +  400] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  656]) & (c >> 31); x[offset +  400] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  272]) & (c >> 31); x[offset +  144] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  528]) & (c >> 31); x[offset +  400] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  784]) & (c >> 31); x[offset +  656] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  592]) & (c >> 31); x[offset +   80] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  848]) & (c >> 31); x[offset +  336] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  592]) & (c >> 31); x[offset +  336] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  720]) & (c >> 31); x[offset +  208] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  976]) & (c >> 31); x[offset +  464] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  720]) & (c >> 31); x[offset +  464] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  336]) & (c >> 31); x[offset +  208] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  592]) & (c >> 31); x[offset +  464] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  848]) & (c >> 31); x[offset +  720] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  144]) & (c >> 31); x[offset +   80] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  272]) & (c >> 31); x[offset +  208] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  400]) & (c >> 31); x[offset +  336] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  528]) & (c >> 31); x[offset +  464] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  656]) & (c >> 31); x[offset +  592] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  784]) & (c >> 31); x[offset +  720] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  912]) & (c >> 31); x[offset +  848] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +  560]) & (c >> 31); x[offset +   48] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  816]) & (c >> 31); x[offset +  304] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  560]) & (c >> 31); x[offset +  304] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  688]) & (c >> 31); x[offset +  176] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  944]) & (c >> 31); x[offset +  432] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  688]) & (c >> 31); x[offset +  432] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  304]) & (c >> 31); x[offset +  176] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  560]) & (c >> 31); x[offset +  432] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  816]) & (c >> 31); x[offset +  688] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  624]) & (c >> 31); x[offset +  112] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  880]) & (c >> 31); x[offset +  368] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  624]) & (c >> 31); x[offset +  368] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  752]) & (c >> 31); x[offset +  240] ^= t; x[offset +  752] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset + 1008]) & (c >> 31); x[offset +  496] ^= t; x[offset + 1008] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  752]) & (c >> 31); x[offset +  496] ^= t; x[offset +  752] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  368]) & (c >> 31); x[offset +  240] ^= t; x[offset +  368] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  624]) & (c >> 31); x[offset +  496] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  880]) & (c >> 31); x[offset +  752] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  176]) & (c >> 31); x[offset +  112] ^= t; x[offset +  176] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  304]) & (c >> 31); x[offset +  240] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  432]) & (c >> 31); x[offset +  368] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  560]) & (c >> 31); x[offset +  496] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  688]) & (c >> 31); x[offset +  624] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  816]) & (c >> 31); x[offset +  752] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  944]) & (c >> 31); x[offset +  880] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   80]) & (c >> 31); x[offset +   48] ^= t; x[offset +   80] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  144]) & (c >> 31); x[offset +  112] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  208]) & (c >> 31); x[offset +  176] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  272]) & (c >> 31); x[offset +  240] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  336]) & (c >> 31); x[offset +  304] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  400]) & (c >> 31); x[offset +  368] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  464]) & (c >> 31); x[offset +  432] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  528]) & (c >> 31); x[offset +  496] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  592]) & (c >> 31); x[offset +  560] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  656]) & (c >> 31); x[offset +  624] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  720]) & (c >> 31); x[offset +  688] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  784]) & (c >> 31); x[offset +  752] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  848]) & (c >> 31); x[offset +  816] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  912]) & (c >> 31); x[offset +  880] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  976]) & (c >> 31); x[offset +  944] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   32]) & (c >> 31); x[offset +   16] ^= t; x[offset +   32] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   64]) & (c >> 31); x[offset +   48] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +   96]) & (c >> 31); x[offset +   80] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  128]) & (c >> 31); x[offset +  112] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  160]) & (c >> 31); x[offset +  144] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  192]) & (c >> 31); x[offset +  176] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  224]) & (c >> 31); x[offset +  208] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  256]) & (c >> 31); x[offset +  240] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  288]) & (c >> 31); x[offset +  272] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  320]) & (c >> 31); x[offset +  304] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  352]) & (c >> 31); x[offset +  336] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  384]) & (c >> 31); x[offset +  368] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  416]) & (c >> 31); x[offset +  400] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  448]) & (c >> 31); x[offset +  432] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  480]) & (c >> 31); x[offset +  464] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  512]) & (c >> 31); x[offset +  496] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  544]) & (c >> 31); x[offset +  528] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  576]) & (c >> 31); x[offset +  560] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  608]) & (c >> 31); x[offset +  592] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  640]) & (c >> 31); x[offset +  624] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  672]) & (c >> 31); x[offset +  656] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  704]) & (c >> 31); x[offset +  688] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  736]) & (c >> 31); x[offset +  720] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  768]) & (c >> 31); x[offset +  752] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  800]) & (c >> 31); x[offset +  784] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  832]) & (c >> 31); x[offset +  816] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  864]) & (c >> 31); x[offset +  848] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  896]) & (c >> 31); x[offset +  880] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  928]) & (c >> 31); x[offset +  912] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  960]) & (c >> 31); x[offset +  944] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset +  992]) & (c >> 31); x[offset +  976] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset + 1024]; t = (x[offset + 1024] ^ x[offset + 1040]) & (c >> 31); x[offset + 1024] ^= t; x[offset + 1040] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1072]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1072] ^= t;
-		c = 61444 - x[offset + 1024]; t = (x[offset + 1024] ^ x[offset + 1056]) & (c >> 31); x[offset + 1024] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1072]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1072] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1056]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1088]; t = (x[offset + 1088] ^ x[offset + 1104]) & (c >> 31); x[offset + 1088] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1136]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1136] ^= t;
-		c = 61444 - x[offset + 1088]; t = (x[offset + 1088] ^ x[offset + 1120]) & (c >> 31); x[offset + 1088] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1136]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1136] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1120]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1024]; t = (x[offset + 1024] ^ x[offset + 1088]) & (c >> 31); x[offset + 1024] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1120]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1088]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1104]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1136]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1136] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1104]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1056]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1088]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1120]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1152]; t = (x[offset + 1152] ^ x[offset + 1168]) & (c >> 31); x[offset + 1152] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1200]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset + 1152]; t = (x[offset + 1152] ^ x[offset + 1184]) & (c >> 31); x[offset + 1152] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1200]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1184]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1216]; t = (x[offset + 1216] ^ x[offset + 1232]) & (c >> 31); x[offset + 1216] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1248]; t = (x[offset + 1248] ^ x[offset + 1264]) & (c >> 31); x[offset + 1248] ^= t; x[offset + 1264] ^= t;
-		c = 61444 - x[offset + 1216]; t = (x[offset + 1216] ^ x[offset + 1248]) & (c >> 31); x[offset + 1216] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1264]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1264] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1248]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1152]; t = (x[offset + 1152] ^ x[offset + 1216]) & (c >> 31); x[offset + 1152] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1248]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1216]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1232]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1264]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1264] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1232]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1184]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1216]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1248]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1024]; t = (x[offset + 1024] ^ x[offset + 1152]) & (c >> 31); x[offset + 1024] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1088]; t = (x[offset + 1088] ^ x[offset + 1216]) & (c >> 31); x[offset + 1088] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1088]; t = (x[offset + 1088] ^ x[offset + 1152]) & (c >> 31); x[offset + 1088] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1184]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1248]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1184]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1088]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1152]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1216]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1168]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1232]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1168]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1200]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1264]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1264] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1200]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1104]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1168]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1232]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1056]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1088]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1120]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1152]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1184]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1216]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1248]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1280]; t = (x[offset + 1280] ^ x[offset + 1296]) & (c >> 31); x[offset + 1280] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1312]; t = (x[offset + 1312] ^ x[offset + 1328]) & (c >> 31); x[offset + 1312] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset + 1280]; t = (x[offset + 1280] ^ x[offset + 1312]) & (c >> 31); x[offset + 1280] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1296]; t = (x[offset + 1296] ^ x[offset + 1328]) & (c >> 31); x[offset + 1296] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset + 1296]; t = (x[offset + 1296] ^ x[offset + 1312]) & (c >> 31); x[offset + 1296] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1296]; t = (x[offset + 1296] ^ x[offset + 1312]) & (c >> 31); x[offset + 1296] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1296]; t = (x[offset + 1296] ^ x[offset + 1312]) & (c >> 31); x[offset + 1296] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1024]; t = (x[offset + 1024] ^ x[offset + 1280]) & (c >> 31); x[offset + 1024] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1152]; t = (x[offset + 1152] ^ x[offset + 1280]) & (c >> 31); x[offset + 1152] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1088]; t = (x[offset + 1088] ^ x[offset + 1152]) & (c >> 31); x[offset + 1088] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1216]; t = (x[offset + 1216] ^ x[offset + 1280]) & (c >> 31); x[offset + 1216] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1312]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1312]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1184]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1248]; t = (x[offset + 1248] ^ x[offset + 1312]) & (c >> 31); x[offset + 1248] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1088]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1152]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1216]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1248]; t = (x[offset + 1248] ^ x[offset + 1280]) & (c >> 31); x[offset + 1248] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1296]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1296]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1168]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1296]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1328]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1328]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1200]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1328]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1104]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1168]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1232]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1296]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1056]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1088]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1120]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1152]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1184]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1216]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1248]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1280]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1296]; t = (x[offset + 1296] ^ x[offset + 1312]) & (c >> 31); x[offset + 1296] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1152]; t = (x[offset + 1152] ^ x[offset + 1280]) & (c >> 31); x[offset + 1152] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1088]; t = (x[offset + 1088] ^ x[offset + 1152]) & (c >> 31); x[offset + 1088] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1216]; t = (x[offset + 1216] ^ x[offset + 1280]) & (c >> 31); x[offset + 1216] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1312]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1184]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1248]; t = (x[offset + 1248] ^ x[offset + 1312]) & (c >> 31); x[offset + 1248] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1088]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1152]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1216]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1248]; t = (x[offset + 1248] ^ x[offset + 1280]) & (c >> 31); x[offset + 1248] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1296]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1168]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1296]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1328]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1200]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1328]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1104]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1168]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1232]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1296]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1056]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1088]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1120]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1152]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1184]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1216]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1248]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1280]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1296]; t = (x[offset + 1296] ^ x[offset + 1312]) & (c >> 31); x[offset + 1296] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset +    0]; t = (x[offset +    0] ^ x[offset + 1024]) & (c >> 31); x[offset +    0] ^= t; x[offset + 1024] ^= t;
-		c = 61444 - x[offset +  512]; t = (x[offset +  512] ^ x[offset + 1024]) & (c >> 31); x[offset +  512] ^= t; x[offset + 1024] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset + 1280]) & (c >> 31); x[offset +  256] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset +  768]; t = (x[offset +  768] ^ x[offset + 1280]) & (c >> 31); x[offset +  768] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset +  256]; t = (x[offset +  256] ^ x[offset +  512]) & (c >> 31); x[offset +  256] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  768]; t = (x[offset +  768] ^ x[offset + 1024]) & (c >> 31); x[offset +  768] ^= t; x[offset + 1024] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset + 1152]) & (c >> 31); x[offset +  128] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset + 1152]) & (c >> 31); x[offset +  640] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  640]) & (c >> 31); x[offset +  384] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  896]; t = (x[offset +  896] ^ x[offset + 1152]) & (c >> 31); x[offset +  896] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset +  128]; t = (x[offset +  128] ^ x[offset +  256]) & (c >> 31); x[offset +  128] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  384]; t = (x[offset +  384] ^ x[offset +  512]) & (c >> 31); x[offset +  384] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  640]; t = (x[offset +  640] ^ x[offset +  768]) & (c >> 31); x[offset +  640] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  896]; t = (x[offset +  896] ^ x[offset + 1024]) & (c >> 31); x[offset +  896] ^= t; x[offset + 1024] ^= t;
-		c = 61444 - x[offset + 1152]; t = (x[offset + 1152] ^ x[offset + 1280]) & (c >> 31); x[offset + 1152] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset + 1088]) & (c >> 31); x[offset +   64] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset + 1088]) & (c >> 31); x[offset +  576] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  576]) & (c >> 31); x[offset +  320] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset + 1088]) & (c >> 31); x[offset +  832] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset + 1216]) & (c >> 31); x[offset +  192] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset + 1216]) & (c >> 31); x[offset +  704] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  704]) & (c >> 31); x[offset +  448] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  960]; t = (x[offset +  960] ^ x[offset + 1216]) & (c >> 31); x[offset +  960] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  320]) & (c >> 31); x[offset +  192] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  576]) & (c >> 31); x[offset +  448] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  832]) & (c >> 31); x[offset +  704] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  960]; t = (x[offset +  960] ^ x[offset + 1088]) & (c >> 31); x[offset +  960] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset +   64]; t = (x[offset +   64] ^ x[offset +  128]) & (c >> 31); x[offset +   64] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  192]; t = (x[offset +  192] ^ x[offset +  256]) & (c >> 31); x[offset +  192] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  320]; t = (x[offset +  320] ^ x[offset +  384]) & (c >> 31); x[offset +  320] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  448]; t = (x[offset +  448] ^ x[offset +  512]) & (c >> 31); x[offset +  448] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  576]; t = (x[offset +  576] ^ x[offset +  640]) & (c >> 31); x[offset +  576] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  704]; t = (x[offset +  704] ^ x[offset +  768]) & (c >> 31); x[offset +  704] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  832]; t = (x[offset +  832] ^ x[offset +  896]) & (c >> 31); x[offset +  832] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  960]; t = (x[offset +  960] ^ x[offset + 1024]) & (c >> 31); x[offset +  960] ^= t; x[offset + 1024] ^= t;
-		c = 61444 - x[offset + 1088]; t = (x[offset + 1088] ^ x[offset + 1152]) & (c >> 31); x[offset + 1088] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1216]; t = (x[offset + 1216] ^ x[offset + 1280]) & (c >> 31); x[offset + 1216] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset + 1056]) & (c >> 31); x[offset +   32] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset + 1056]) & (c >> 31); x[offset +  544] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset + 1312]) & (c >> 31); x[offset +  288] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset + 1312]) & (c >> 31); x[offset +  800] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  544]) & (c >> 31); x[offset +  288] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset + 1056]) & (c >> 31); x[offset +  800] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset + 1184]) & (c >> 31); x[offset +  160] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset + 1184]) & (c >> 31); x[offset +  672] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  672]) & (c >> 31); x[offset +  416] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset + 1184]) & (c >> 31); x[offset +  928] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  288]) & (c >> 31); x[offset +  160] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  544]) & (c >> 31); x[offset +  416] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  800]) & (c >> 31); x[offset +  672] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset + 1056]) & (c >> 31); x[offset +  928] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1312]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset + 1120]) & (c >> 31); x[offset +   96] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset + 1120]) & (c >> 31); x[offset +  608] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  608]) & (c >> 31); x[offset +  352] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset + 1120]) & (c >> 31); x[offset +  864] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset + 1248]) & (c >> 31); x[offset +  224] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset + 1248]) & (c >> 31); x[offset +  736] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  736]) & (c >> 31); x[offset +  480] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  992]; t = (x[offset +  992] ^ x[offset + 1248]) & (c >> 31); x[offset +  992] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  352]) & (c >> 31); x[offset +  224] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  608]) & (c >> 31); x[offset +  480] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  864]) & (c >> 31); x[offset +  736] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  992]; t = (x[offset +  992] ^ x[offset + 1120]) & (c >> 31); x[offset +  992] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  160]) & (c >> 31); x[offset +   96] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  288]) & (c >> 31); x[offset +  224] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  416]) & (c >> 31); x[offset +  352] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  544]) & (c >> 31); x[offset +  480] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  672]) & (c >> 31); x[offset +  608] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  800]) & (c >> 31); x[offset +  736] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  928]) & (c >> 31); x[offset +  864] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  992]; t = (x[offset +  992] ^ x[offset + 1056]) & (c >> 31); x[offset +  992] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1184]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1248]; t = (x[offset + 1248] ^ x[offset + 1312]) & (c >> 31); x[offset + 1248] ^= t; x[offset + 1312] ^= t;
-		c = 61444 - x[offset +   32]; t = (x[offset +   32] ^ x[offset +   64]) & (c >> 31); x[offset +   32] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   96]; t = (x[offset +   96] ^ x[offset +  128]) & (c >> 31); x[offset +   96] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  160]; t = (x[offset +  160] ^ x[offset +  192]) & (c >> 31); x[offset +  160] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  224]; t = (x[offset +  224] ^ x[offset +  256]) & (c >> 31); x[offset +  224] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  288]; t = (x[offset +  288] ^ x[offset +  320]) & (c >> 31); x[offset +  288] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  352]; t = (x[offset +  352] ^ x[offset +  384]) & (c >> 31); x[offset +  352] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  416]; t = (x[offset +  416] ^ x[offset +  448]) & (c >> 31); x[offset +  416] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  480]; t = (x[offset +  480] ^ x[offset +  512]) & (c >> 31); x[offset +  480] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  544]; t = (x[offset +  544] ^ x[offset +  576]) & (c >> 31); x[offset +  544] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  608]; t = (x[offset +  608] ^ x[offset +  640]) & (c >> 31); x[offset +  608] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  672]; t = (x[offset +  672] ^ x[offset +  704]) & (c >> 31); x[offset +  672] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  736]; t = (x[offset +  736] ^ x[offset +  768]) & (c >> 31); x[offset +  736] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  800]; t = (x[offset +  800] ^ x[offset +  832]) & (c >> 31); x[offset +  800] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  864]; t = (x[offset +  864] ^ x[offset +  896]) & (c >> 31); x[offset +  864] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  928]; t = (x[offset +  928] ^ x[offset +  960]) & (c >> 31); x[offset +  928] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  992]; t = (x[offset +  992] ^ x[offset + 1024]) & (c >> 31); x[offset +  992] ^= t; x[offset + 1024] ^= t;
-		c = 61444 - x[offset + 1056]; t = (x[offset + 1056] ^ x[offset + 1088]) & (c >> 31); x[offset + 1056] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1120]; t = (x[offset + 1120] ^ x[offset + 1152]) & (c >> 31); x[offset + 1120] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1184]; t = (x[offset + 1184] ^ x[offset + 1216]) & (c >> 31); x[offset + 1184] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1248]; t = (x[offset + 1248] ^ x[offset + 1280]) & (c >> 31); x[offset + 1248] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset + 1040]) & (c >> 31); x[offset +   16] ^= t; x[offset + 1040] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset + 1040]) & (c >> 31); x[offset +  528] ^= t; x[offset + 1040] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset + 1296]) & (c >> 31); x[offset +  272] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset + 1296]) & (c >> 31); x[offset +  784] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  528]) & (c >> 31); x[offset +  272] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset + 1040]) & (c >> 31); x[offset +  784] ^= t; x[offset + 1040] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset + 1168]) & (c >> 31); x[offset +  144] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset + 1168]) & (c >> 31); x[offset +  656] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  656]) & (c >> 31); x[offset +  400] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset + 1168]) & (c >> 31); x[offset +  912] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  272]) & (c >> 31); x[offset +  144] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  528]) & (c >> 31); x[offset +  400] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  784]) & (c >> 31); x[offset +  656] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset + 1040]) & (c >> 31); x[offset +  912] ^= t; x[offset + 1040] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1296]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset + 1104]) & (c >> 31); x[offset +   80] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset + 1104]) & (c >> 31); x[offset +  592] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  592]) & (c >> 31); x[offset +  336] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset + 1104]) & (c >> 31); x[offset +  848] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset + 1232]) & (c >> 31); x[offset +  208] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset + 1232]) & (c >> 31); x[offset +  720] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  720]) & (c >> 31); x[offset +  464] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset + 1232]) & (c >> 31); x[offset +  976] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  336]) & (c >> 31); x[offset +  208] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  592]) & (c >> 31); x[offset +  464] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  848]) & (c >> 31); x[offset +  720] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset + 1104]) & (c >> 31); x[offset +  976] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +  144]) & (c >> 31); x[offset +   80] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  272]) & (c >> 31); x[offset +  208] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  400]) & (c >> 31); x[offset +  336] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  528]) & (c >> 31); x[offset +  464] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  656]) & (c >> 31); x[offset +  592] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  784]) & (c >> 31); x[offset +  720] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  912]) & (c >> 31); x[offset +  848] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset + 1040]) & (c >> 31); x[offset +  976] ^= t; x[offset + 1040] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1168]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1296]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset + 1072]) & (c >> 31); x[offset +   48] ^= t; x[offset + 1072] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset + 1072]) & (c >> 31); x[offset +  560] ^= t; x[offset + 1072] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset + 1328]) & (c >> 31); x[offset +  304] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset + 1328]) & (c >> 31); x[offset +  816] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  560]) & (c >> 31); x[offset +  304] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset + 1072]) & (c >> 31); x[offset +  816] ^= t; x[offset + 1072] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset + 1200]) & (c >> 31); x[offset +  176] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset + 1200]) & (c >> 31); x[offset +  688] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  688]) & (c >> 31); x[offset +  432] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset + 1200]) & (c >> 31); x[offset +  944] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  304]) & (c >> 31); x[offset +  176] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  560]) & (c >> 31); x[offset +  432] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  816]) & (c >> 31); x[offset +  688] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset + 1072]) & (c >> 31); x[offset +  944] ^= t; x[offset + 1072] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1328]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset + 1136]) & (c >> 31); x[offset +  112] ^= t; x[offset + 1136] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset + 1136]) & (c >> 31); x[offset +  624] ^= t; x[offset + 1136] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  624]) & (c >> 31); x[offset +  368] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset + 1136]) & (c >> 31); x[offset +  880] ^= t; x[offset + 1136] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset + 1264]) & (c >> 31); x[offset +  240] ^= t; x[offset + 1264] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset + 1264]) & (c >> 31); x[offset +  752] ^= t; x[offset + 1264] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  752]) & (c >> 31); x[offset +  496] ^= t; x[offset +  752] ^= t;
-		c = 61444 - x[offset + 1008]; t = (x[offset + 1008] ^ x[offset + 1264]) & (c >> 31); x[offset + 1008] ^= t; x[offset + 1264] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  368]) & (c >> 31); x[offset +  240] ^= t; x[offset +  368] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  624]) & (c >> 31); x[offset +  496] ^= t; x[offset +  624] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  880]) & (c >> 31); x[offset +  752] ^= t; x[offset +  880] ^= t;
-		c = 61444 - x[offset + 1008]; t = (x[offset + 1008] ^ x[offset + 1136]) & (c >> 31); x[offset + 1008] ^= t; x[offset + 1136] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  176]) & (c >> 31); x[offset +  112] ^= t; x[offset +  176] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  304]) & (c >> 31); x[offset +  240] ^= t; x[offset +  304] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  432]) & (c >> 31); x[offset +  368] ^= t; x[offset +  432] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  560]) & (c >> 31); x[offset +  496] ^= t; x[offset +  560] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  688]) & (c >> 31); x[offset +  624] ^= t; x[offset +  688] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  816]) & (c >> 31); x[offset +  752] ^= t; x[offset +  816] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  944]) & (c >> 31); x[offset +  880] ^= t; x[offset +  944] ^= t;
-		c = 61444 - x[offset + 1008]; t = (x[offset + 1008] ^ x[offset + 1072]) & (c >> 31); x[offset + 1008] ^= t; x[offset + 1072] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1200]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1200] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1328]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1328] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   80]) & (c >> 31); x[offset +   48] ^= t; x[offset +   80] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  144]) & (c >> 31); x[offset +  112] ^= t; x[offset +  144] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  208]) & (c >> 31); x[offset +  176] ^= t; x[offset +  208] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  272]) & (c >> 31); x[offset +  240] ^= t; x[offset +  272] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  336]) & (c >> 31); x[offset +  304] ^= t; x[offset +  336] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  400]) & (c >> 31); x[offset +  368] ^= t; x[offset +  400] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  464]) & (c >> 31); x[offset +  432] ^= t; x[offset +  464] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  528]) & (c >> 31); x[offset +  496] ^= t; x[offset +  528] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  592]) & (c >> 31); x[offset +  560] ^= t; x[offset +  592] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  656]) & (c >> 31); x[offset +  624] ^= t; x[offset +  656] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  720]) & (c >> 31); x[offset +  688] ^= t; x[offset +  720] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  784]) & (c >> 31); x[offset +  752] ^= t; x[offset +  784] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  848]) & (c >> 31); x[offset +  816] ^= t; x[offset +  848] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  912]) & (c >> 31); x[offset +  880] ^= t; x[offset +  912] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  976]) & (c >> 31); x[offset +  944] ^= t; x[offset +  976] ^= t;
-		c = 61444 - x[offset + 1008]; t = (x[offset + 1008] ^ x[offset + 1040]) & (c >> 31); x[offset + 1008] ^= t; x[offset + 1040] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1104]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1104] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1168]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1168] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1232]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1232] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1296]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1296] ^= t;
-		c = 61444 - x[offset +   16]; t = (x[offset +   16] ^ x[offset +   32]) & (c >> 31); x[offset +   16] ^= t; x[offset +   32] ^= t;
-		c = 61444 - x[offset +   48]; t = (x[offset +   48] ^ x[offset +   64]) & (c >> 31); x[offset +   48] ^= t; x[offset +   64] ^= t;
-		c = 61444 - x[offset +   80]; t = (x[offset +   80] ^ x[offset +   96]) & (c >> 31); x[offset +   80] ^= t; x[offset +   96] ^= t;
-		c = 61444 - x[offset +  112]; t = (x[offset +  112] ^ x[offset +  128]) & (c >> 31); x[offset +  112] ^= t; x[offset +  128] ^= t;
-		c = 61444 - x[offset +  144]; t = (x[offset +  144] ^ x[offset +  160]) & (c >> 31); x[offset +  144] ^= t; x[offset +  160] ^= t;
-		c = 61444 - x[offset +  176]; t = (x[offset +  176] ^ x[offset +  192]) & (c >> 31); x[offset +  176] ^= t; x[offset +  192] ^= t;
-		c = 61444 - x[offset +  208]; t = (x[offset +  208] ^ x[offset +  224]) & (c >> 31); x[offset +  208] ^= t; x[offset +  224] ^= t;
-		c = 61444 - x[offset +  240]; t = (x[offset +  240] ^ x[offset +  256]) & (c >> 31); x[offset +  240] ^= t; x[offset +  256] ^= t;
-		c = 61444 - x[offset +  272]; t = (x[offset +  272] ^ x[offset +  288]) & (c >> 31); x[offset +  272] ^= t; x[offset +  288] ^= t;
-		c = 61444 - x[offset +  304]; t = (x[offset +  304] ^ x[offset +  320]) & (c >> 31); x[offset +  304] ^= t; x[offset +  320] ^= t;
-		c = 61444 - x[offset +  336]; t = (x[offset +  336] ^ x[offset +  352]) & (c >> 31); x[offset +  336] ^= t; x[offset +  352] ^= t;
-		c = 61444 - x[offset +  368]; t = (x[offset +  368] ^ x[offset +  384]) & (c >> 31); x[offset +  368] ^= t; x[offset +  384] ^= t;
-		c = 61444 - x[offset +  400]; t = (x[offset +  400] ^ x[offset +  416]) & (c >> 31); x[offset +  400] ^= t; x[offset +  416] ^= t;
-		c = 61444 - x[offset +  432]; t = (x[offset +  432] ^ x[offset +  448]) & (c >> 31); x[offset +  432] ^= t; x[offset +  448] ^= t;
-		c = 61444 - x[offset +  464]; t = (x[offset +  464] ^ x[offset +  480]) & (c >> 31); x[offset +  464] ^= t; x[offset +  480] ^= t;
-		c = 61444 - x[offset +  496]; t = (x[offset +  496] ^ x[offset +  512]) & (c >> 31); x[offset +  496] ^= t; x[offset +  512] ^= t;
-		c = 61444 - x[offset +  528]; t = (x[offset +  528] ^ x[offset +  544]) & (c >> 31); x[offset +  528] ^= t; x[offset +  544] ^= t;
-		c = 61444 - x[offset +  560]; t = (x[offset +  560] ^ x[offset +  576]) & (c >> 31); x[offset +  560] ^= t; x[offset +  576] ^= t;
-		c = 61444 - x[offset +  592]; t = (x[offset +  592] ^ x[offset +  608]) & (c >> 31); x[offset +  592] ^= t; x[offset +  608] ^= t;
-		c = 61444 - x[offset +  624]; t = (x[offset +  624] ^ x[offset +  640]) & (c >> 31); x[offset +  624] ^= t; x[offset +  640] ^= t;
-		c = 61444 - x[offset +  656]; t = (x[offset +  656] ^ x[offset +  672]) & (c >> 31); x[offset +  656] ^= t; x[offset +  672] ^= t;
-		c = 61444 - x[offset +  688]; t = (x[offset +  688] ^ x[offset +  704]) & (c >> 31); x[offset +  688] ^= t; x[offset +  704] ^= t;
-		c = 61444 - x[offset +  720]; t = (x[offset +  720] ^ x[offset +  736]) & (c >> 31); x[offset +  720] ^= t; x[offset +  736] ^= t;
-		c = 61444 - x[offset +  752]; t = (x[offset +  752] ^ x[offset +  768]) & (c >> 31); x[offset +  752] ^= t; x[offset +  768] ^= t;
-		c = 61444 - x[offset +  784]; t = (x[offset +  784] ^ x[offset +  800]) & (c >> 31); x[offset +  784] ^= t; x[offset +  800] ^= t;
-		c = 61444 - x[offset +  816]; t = (x[offset +  816] ^ x[offset +  832]) & (c >> 31); x[offset +  816] ^= t; x[offset +  832] ^= t;
-		c = 61444 - x[offset +  848]; t = (x[offset +  848] ^ x[offset +  864]) & (c >> 31); x[offset +  848] ^= t; x[offset +  864] ^= t;
-		c = 61444 - x[offset +  880]; t = (x[offset +  880] ^ x[offset +  896]) & (c >> 31); x[offset +  880] ^= t; x[offset +  896] ^= t;
-		c = 61444 - x[offset +  912]; t = (x[offset +  912] ^ x[offset +  928]) & (c >> 31); x[offset +  912] ^= t; x[offset +  928] ^= t;
-		c = 61444 - x[offset +  944]; t = (x[offset +  944] ^ x[offset +  960]) & (c >> 31); x[offset +  944] ^= t; x[offset +  960] ^= t;
-		c = 61444 - x[offset +  976]; t = (x[offset +  976] ^ x[offset +  992]) & (c >> 31); x[offset +  976] ^= t; x[offset +  992] ^= t;
-		c = 61444 - x[offset + 1008]; t = (x[offset + 1008] ^ x[offset + 1024]) & (c >> 31); x[offset + 1008] ^= t; x[offset + 1024] ^= t;
-		c = 61444 - x[offset + 1040]; t = (x[offset + 1040] ^ x[offset + 1056]) & (c >> 31); x[offset + 1040] ^= t; x[offset + 1056] ^= t;
-		c = 61444 - x[offset + 1072]; t = (x[offset + 1072] ^ x[offset + 1088]) & (c >> 31); x[offset + 1072] ^= t; x[offset + 1088] ^= t;
-		c = 61444 - x[offset + 1104]; t = (x[offset + 1104] ^ x[offset + 1120]) & (c >> 31); x[offset + 1104] ^= t; x[offset + 1120] ^= t;
-		c = 61444 - x[offset + 1136]; t = (x[offset + 1136] ^ x[offset + 1152]) & (c >> 31); x[offset + 1136] ^= t; x[offset + 1152] ^= t;
-		c = 61444 - x[offset + 1168]; t = (x[offset + 1168] ^ x[offset + 1184]) & (c >> 31); x[offset + 1168] ^= t; x[offset + 1184] ^= t;
-		c = 61444 - x[offset + 1200]; t = (x[offset + 1200] ^ x[offset + 1216]) & (c >> 31); x[offset + 1200] ^= t; x[offset + 1216] ^= t;
-		c = 61444 - x[offset + 1232]; t = (x[offset + 1232] ^ x[offset + 1248]) & (c >> 31); x[offset + 1232] ^= t; x[offset + 1248] ^= t;
-		c = 61444 - x[offset + 1264]; t = (x[offset + 1264] ^ x[offset + 1280]) & (c >> 31); x[offset + 1264] ^= t; x[offset + 1280] ^= t;
-		c = 61444 - x[offset + 1296]; t = (x[offset + 1296] ^ x[offset + 1312]) & (c >> 31); x[offset + 1296] ^= t; x[offset + 1312] ^= t;
+		int c, t, i, j, p;
+		for (p = 0; p < batcher84_network.length; ++p) {
+			i = offset + ((batcher84_network[p] & 0xFF) << 4);
+			j = offset + ((batcher84_network[p] >> 8) << 4);
+			c = 61444 - x[i];
+			t = (x[i] ^ x[j]) & (c >> 31);
+			x[i] ^= t;
+			x[j] ^= t;
+		}
 	}
 }
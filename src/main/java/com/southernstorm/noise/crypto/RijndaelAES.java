@@ -58,6 +58,31 @@ public class RijndaelAES {
 		Arrays.fill(rk, 0);
 	}
 
+	/**
+	 * Copies the key schedule from another object.
+	 * 
+	 * @param other The object to copy the key schedule from.
+	 */
+	public void copyFrom(RijndaelAES other) {
+		System.arraycopy(other.rk, 0, rk, 0, rk.length);
+		Nr = other.Nr;
+	}
+
+	/**
+	 * Recovers the cipher key from an encryption key schedule.
+	 * 
+	 * @param cipherKey The buffer to write the key to.
+	 * @param offset The offset in the buffer to write the key at.
+	 * 
+	 * The first words of the encryption key schedule are the key itself.
+	 * The result is undefined if the schedule was set up by setupDec().
+	 */
+	public void getKey(byte[] cipherKey, int offset) {
+		int words = Nr - 6;
+		for (int i = 0; i < words; ++i)
+			PUTU32(cipherKey, offset + i * 4, rk[i]);
+	}
+
 	private static int GETU32(byte[] buf, int offset)
 	{
 		return ((buf[offset    ] & 0xFF) << 24) |
@@ -31,7 +31,7 @@ import com.southernstorm.noise.protocol.Destroyable;
 /**
  * Fallback implementation of SHA256.
  */
-public class SHA256MessageDigest extends MessageDigest implements Destroyable {
+public class SHA256MessageDigest extends MessageDigest implements Destroyable, Cloneable {
 
 	private int[] h;
 	private byte[] block;
@@ -50,6 +50,25 @@ public class SHA256MessageDigest extends MessageDigest implements Destroyable {
 		engineReset();
 	}
 
+	/**
+	 * Copies the state of another SHA256 message digest object into this one.
+	 */
+	public void copyStateFrom(SHA256MessageDigest other) {
+		System.arraycopy(other.h, 0, h, 0, h.length);
+		System.arraycopy(other.block, 0, block, 0, block.length);
+		length = other.length;
+		posn = other.posn;
+	}
+
+	@Override
+	public Object clone() throws CloneNotSupportedException {
+		SHA256MessageDigest copy = (SHA256MessageDigest)super.clone();
+		copy.h = h.clone();
+		copy.block = block.clone();
+		copy.w = new int [64];
+		return copy;
+	}
+
 	@Override
 	public void destroy() {
 		Arrays.fill(h, (int)0);
@@ -154,7 +173,7 @@ public class SHA256MessageDigest extends MessageDigest implements Destroyable {
 		}
 	}
 
-    private static final int[] k = {
+    static final int[] k = {
         0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5,
         0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
         0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3,
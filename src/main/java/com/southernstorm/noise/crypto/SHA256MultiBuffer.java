@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.crypto;
+
+import java.util.Arrays;
+
+import com.southernstorm.noise.protocol.Destroyable;
+
+/**
+ * Multi-buffer implementation of SHA256 that hashes several independent
+ * messages in lockstep.
+ * 
+ * The messages are gathered into lanes with update() and then hashed
+ * together by digest().  The working state is stored with the lanes
+ * interleaved, one array element per lane for each word, so that every
+ * step of the compression function is a simple loop over the lanes.
+ * JITs with support for vectorizing such loops can then process all
+ * lanes with SIMD instructions.  Whether this is faster than hashing
+ * the messages one at a time with SHA256MessageDigest depends upon
+ * the JVM, so it should be measured on the target platform.
+ * 
+ * Messages are buffered in full until digest() is called, so this class
+ * is not suitable for hashing large amounts of data.
+ */
+public class SHA256MultiBuffer implements Destroyable {
+
+	/**
+	 * Maximum number of lanes that are hashed at once.
+	 */
+	public static final int LANES = 8;
+
+	private static final int[] IV = {
+		0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A,
+		0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19
+	};
+
+	private byte[][] data;
+	private int[] length;
+	private int[] blocks;
+	private int[] h;
+	private int[] w;
+	private int[] a, b, c, d, e, f, g, hh;
+	private byte[] block;
+
+	/**
+	 * Constructs a new multi-buffer SHA256 object.
+	 */
+	public SHA256MultiBuffer() {
+		data = new byte [LANES][];
+		for (int lane = 0; lane < LANES; ++lane)
+			data[lane] = new byte [128];
+		length = new int [LANES];
+		blocks = new int [LANES];
+		h = new int [8 * LANES];
+		w = new int [64 * LANES];
+		a = new int [LANES];
+		b = new int [LANES];
+		c = new int [LANES];
+		d = new int [LANES];
+		e = new int [LANES];
+		f = new int [LANES];
+		g = new int [LANES];
+		hh = new int [LANES];
+		block = new byte [64];
+	}
+
+	/**
+	 * Resets all lanes to empty messages.
+	 */
+	public void reset() {
+		for (int lane = 0; lane < LANES; ++lane) {
+			Arrays.fill(data[lane], 0, length[lane], (byte)0);
+			length[lane] = 0;
+		}
+	}
+
+	/**
+	 * Adds data to the message in a lane.
+	 * 
+	 * @param lane The lane, between 0 and LANES - 1.
+	 * @param input The buffer containing the data.
+	 * @param offset The offset of the data in the buffer.
+	 * @param len The length of the data.
+	 */
+	public void update(int lane, byte[] input, int offset, int len) {
+		byte[] buf = data[lane];
+		int posn = length[lane];
+		if ((buf.length - posn) < len) {
+			byte[] newBuf = Arrays.copyOf(buf, Math.max(buf.length * 2, posn + len));
+			Arrays.fill(buf, (byte)0);
+			data[lane] = buf = newBuf;
+		}
+		System.arraycopy(input, offset, buf, posn, len);
+		length[lane] = posn + len;
+	}
+
+	/**
+	 * Hashes the messages in the first lanes and resets all lanes.
+	 * 
+	 * @param count The number of lanes to hash, between 1 and LANES.
+	 * @param output The buffer to write the digests to, 32 bytes per lane.
+	 * @param offset The offset to write the first digest at.
+	 */
+	public void digest(int count, byte[] output, int offset) {
+		if (count < 1 || count > LANES)
+			throw new IllegalArgumentException("Invalid number of lanes");
+		int maxBlocks = 0;
+		for (int lane = 0; lane < count; ++lane) {
+			blocks[lane] = (length[lane] + 9 + 63) / 64;
+			if (blocks[lane] > maxBlocks)
+				maxBlocks = blocks[lane];
+		}
+		for (int index = 0; index < 8; ++index)
+			Arrays.fill(h, index * LANES, index * LANES + LANES, IV[index]);
+		for (int blk = 0; blk < maxBlocks; ++blk) {
+			for (int lane = 0; lane < count; ++lane)
+				load(lane, blk);
+			transform();
+			for (int lane = 0; lane < count; ++lane) {
+				if (blk == blocks[lane] - 1) {
+					for (int index = 0; index < 8; ++index) {
+						int value = h[index * LANES + lane];
+						int posn = offset + lane * 32 + index * 4;
+						output[posn] = (byte)(value >> 24);
+						output[posn + 1] = (byte)(value >> 16);
+						output[posn + 2] = (byte)(value >> 8);
+						output[posn + 3] = (byte)value;
+					}
+				}
+			}
+		}
+		reset();
+	}
+
+	/**
+	 * Loads a block of the padded message in a lane into the schedule.
+	 * 
+	 * @param lane The lane.
+	 * @param blk The block number within the padded message.
+	 */
+	private void load(int lane, int blk) {
+		byte[] buf = data[lane];
+		int len = length[lane];
+		int start = blk * 64;
+		int offset;
+		if (blk >= blocks[lane]) {
+			// Message has already finished; hash zeroes and ignore the result.
+			Arrays.fill(block, (byte)0);
+			buf = block;
+			offset = 0;
+		} else if ((start + 64) <= len) {
+			buf = data[lane];
+			offset = start;
+		} else {
+			// Construct the padding for the final block or blocks.
+			Arrays.fill(block, (byte)0);
+			if (start < len)
+				System.arraycopy(buf, start, block, 0, len - start);
+			if (start <= len)
+				block[len - start] = (byte)0x80;
+			if (blk == blocks[lane] - 1) {
+				long bits = ((long)len) * 8;
+				for (int index = 0; index < 8; ++index)
+					block[56 + index] = (byte)(bits >> (56 - index * 8));
+			}
+			buf = block;
+			offset = 0;
+		}
+		for (int index = 0; index < 16; ++index, offset += 4) {
+			w[index * LANES + lane] =
+				((buf[offset] & 0xFF) << 24) |
+				((buf[offset + 1] & 0xFF) << 16) |
+				((buf[offset + 2] & 0xFF) << 8) |
+				 (buf[offset + 3] & 0xFF);
+		}
+	}
+
+	/**
+	 * Runs the compression function on all lanes at once.
+	 * 
+	 * All lanes are processed, even those that are not in use, so that
+	 * the inner loops have a constant trip count.
+	 */
+	private void transform() {
+		int[] w = this.w;
+		int[] a = this.a, b = this.b, c = this.c, d = this.d;
+		int[] e = this.e, f = this.f, g = this.g, hh = this.hh;
+		int lane;
+
+		// Expand the message schedule.
+		for (int index = 16; index < 64; ++index) {
+			int t = index * LANES;
+			for (lane = 0; lane < LANES; ++lane) {
+				int w15 = w[t - 15 * LANES + lane];
+				int w2 = w[t - 2 * LANES + lane];
+				int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+				int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+				w[t + lane] = w[t - 16 * LANES + lane] + s0 + w[t - 7 * LANES + lane] + s1;
+			}
+		}
+
+		// Load the chaining values into the working variables.
+		System.arraycopy(h, 0, a, 0, LANES);
+		System.arraycopy(h, LANES, b, 0, LANES);
+		System.arraycopy(h, 2 * LANES, c, 0, LANES);
+		System.arraycopy(h, 3 * LANES, d, 0, LANES);
+		System.arraycopy(h, 4 * LANES, e, 0, LANES);
+		System.arraycopy(h, 5 * LANES, f, 0, LANES);
+		System.arraycopy(h, 6 * LANES, g, 0, LANES);
+		System.arraycopy(h, 7 * LANES, hh, 0, LANES);
+
+		// Perform the 64 rounds on all lanes, rotating the roles of the
+		// working variables instead of moving the values between them.
+		for (int index = 0; index < 64; index += 8) {
+			round(a, b, c, d, e, f, g, hh, index);
+			round(hh, a, b, c, d, e, f, g, index + 1);
+			round(g, hh, a, b, c, d, e, f, index + 2);
+			round(f, g, hh, a, b, c, d, e, index + 3);
+			round(e, f, g, hh, a, b, c, d, index + 4);
+			round(d, e, f, g, hh, a, b, c, index + 5);
+			round(c, d, e, f, g, hh, a, b, index + 6);
+			round(b, c, d, e, f, g, hh, a, index + 7);
+		}
+
+		// Add the working variables to the chaining values.
+		for (lane = 0; lane < LANES; ++lane) {
+			h[lane] += a[lane];
+			h[LANES + lane] += b[lane];
+			h[2 * LANES + lane] += c[lane];
+			h[3 * LANES + lane] += d[lane];
+			h[4 * LANES + lane] += e[lane];
+			h[5 * LANES + lane] += f[lane];
+			h[6 * LANES + lane] += g[lane];
+			h[7 * LANES + lane] += hh[lane];
+		}
+	}
+
+	/**
+	 * Performs a single SHA256 round on all lanes.
+	 */
+	private void round(int[] a, int[] b, int[] c, int[] d, int[] e, int[] f, int[] g, int[] h, int index)
+	{
+		int[] w = this.w;
+		int t = index * LANES;
+		int kt = SHA256MessageDigest.k[index];
+		for (int lane = 0; lane < LANES; ++lane) {
+			int av = a[lane];
+			int bv = b[lane];
+			int cv = c[lane];
+			int ev = e[lane];
+			int temp1 = h[lane] + (Integer.rotateRight(ev, 6) ^ Integer.rotateRight(ev, 11) ^ Integer.rotateRight(ev, 25)) +
+					((ev & f[lane]) ^ (~ev & g[lane])) + kt + w[t + lane];
+			int temp2 = (Integer.rotateRight(av, 2) ^ Integer.rotateRight(av, 13) ^ Integer.rotateRight(av, 22)) +
+					((av & bv) ^ (av & cv) ^ (bv & cv));
+			d[lane] += temp1;
+			h[lane] = temp1 + temp2;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		for (int lane = 0; lane < LANES; ++lane) {
+			Arrays.fill(data[lane], (byte)0);
+			length[lane] = 0;
+		}
+		Arrays.fill(h, 0);
+		Arrays.fill(w, 0);
+		Arrays.fill(a, 0);
+		Arrays.fill(b, 0);
+		Arrays.fill(c, 0);
+		Arrays.fill(d, 0);
+		Arrays.fill(e, 0);
+		Arrays.fill(f, 0);
+		Arrays.fill(g, 0);
+		Arrays.fill(hh, 0);
+		Arrays.fill(block, (byte)0);
+	}
+}
@@ -34,7 +34,7 @@ import com.southernstorm.noise.protocol.Destroyable;
  * Note: This implementation is limited to a maximum 2^56 - 1 bytes of input.
  * That is, we don't bother trying to implement 128-bit length values.
  */
-public class SHA512MessageDigest extends MessageDigest implements Destroyable {
+public class SHA512MessageDigest extends MessageDigest implements Destroyable, Cloneable {
 
 	private long[] h;
 	private byte[] block;
@@ -53,6 +53,25 @@ public class SHA512MessageDigest extends MessageDigest implements Destroyable {
 		engineReset();
 	}
 
+	/**
+	 * Copies the state of another SHA512 message digest object into this one.
+	 */
+	public void copyStateFrom(SHA512MessageDigest other) {
+		System.arraycopy(other.h, 0, h, 0, h.length);
+		System.arraycopy(other.block, 0, block, 0, block.length);
+		length = other.length;
+		posn = other.posn;
+	}
+
+	@Override
+	public Object clone() throws CloneNotSupportedException {
+		SHA512MessageDigest copy = (SHA512MessageDigest)super.clone();
+		copy.h = h.clone();
+		copy.block = block.clone();
+		copy.w = new long [80];
+		return copy;
+	}
+
 	@Override
 	public void destroy() {
 		Arrays.fill(h, (long)0);
@@ -65,6 +65,10 @@ class AESGCMFallbackCipherState implements CipherState {
 		Noise.destroy(hashKey);
 		Noise.destroy(iv);
 		Noise.destroy(enciv);
+
+		// Mark the nonce as exhausted so that a destroyed cipher fails
+		// rather than continuing with a zeroed key.
+		n = -1L;
 	}
 
 	@Override
@@ -87,7 +91,15 @@ class AESGCMFallbackCipherState implements CipherState {
 		// Set up the AES key.
 		aes.setupEnc(key, offset, 256);
 		haskey = true;
+		initHashKey();
+	}
 
+	/**
+	 * Initializes the GHASH key and resets the nonce after
+	 * the AES key schedule has been set up.
+	 */
+	private void initHashKey()
+	{
 		// Generate the hashing key by encrypting a block of zeroes.
 		Arrays.fill(hashKey, (byte)0);
 		aes.encrypt(hashKey, 0, hashKey, 0);
@@ -103,17 +115,36 @@ class AESGCMFallbackCipherState implements CipherState {
 	}
 	
 	/**
-	 * Set up to encrypt or decrypt the next packet.
+	 * Set up to encrypt or decrypt a packet.
 	 * 
 	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
 	 */
-	private void setup(byte[] ad)
+	private void setup(byte[] ad, long nonce)
 	{
-		// Check for nonce wrap-around.
-		if (n == -1L)
-			throw new IllegalStateException("Nonce has wrapped around");
-		
 		// Format the counter/IV block.
+		formatIV(nonce);
+		
+		// Encrypt a block of zeroes to generate the hash key to XOR
+		// the GHASH tag with at the end of the encrypt/decrypt operation.
+		Arrays.fill(hashKey, (byte)0);
+		aes.encrypt(iv, 0, hashKey, 0);
+		
+		// Initialize the GHASH with the associated data value.
+		ghash.reset();
+		if (ad != null) {
+			ghash.update(ad, 0, ad.length);
+			ghash.pad();
+		}
+	}
+
+	/**
+	 * Formats the counter/IV block for a specific nonce.
+	 * 
+	 * @param n The nonce value.
+	 */
+	private void formatIV(long n)
+	{
 		iv[0] = 0;
 		iv[1] = 0;
 		iv[2] = 0;
@@ -130,19 +161,6 @@ class AESGCMFallbackCipherState implements CipherState {
 		iv[13] = 0;
 		iv[14] = 0;
 		iv[15] = 1;
-		++n;
-		
-		// Encrypt a block of zeroes to generate the hash key to XOR
-		// the GHASH tag with at the end of the encrypt/decrypt operation.
-		Arrays.fill(hashKey, (byte)0);
-		aes.encrypt(iv, 0, hashKey, 0);
-		
-		// Initialize the GHASH with the associated data value.
-		ghash.reset();
-		if (ad != null) {
-			ghash.update(ad, 0, ad.length);
-			ghash.pad();
-		}
 	}
 
 	/**
@@ -200,7 +218,26 @@ class AESGCMFallbackCipherState implements CipherState {
 		}
 		if (space < 16 || length > (space - 16))
 			throw new ShortBufferException();
-		setup(ad);
+		if (n == -1L)
+			throw new IllegalStateException("Nonce has wrapped around");
+		return encryptPacket(ad, n++, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+	}
+
+	/**
+	 * Encrypts a single packet after the arguments have been validated.
+	 * 
+	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
+	 * @param plaintext The buffer containing the plaintext.
+	 * @param plaintextOffset The offset of the first plaintext byte.
+	 * @param ciphertext The buffer to place the ciphertext in.
+	 * @param ciphertextOffset The offset of the first ciphertext byte.
+	 * @param length The length of the plaintext.
+	 * @return The length of the ciphertext plus the MAC.
+	 */
+	private int encryptPacket(byte[] ad, long nonce, byte[] plaintext, int plaintextOffset,
+			byte[] ciphertext, int ciphertextOffset, int length) {
+		setup(ad, nonce);
 		encryptCTR(plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
 		ghash.update(ciphertext, ciphertextOffset, length);
 		ghash.pad(ad != null ? ad.length : 0, length);
@@ -214,6 +251,16 @@ class AESGCMFallbackCipherState implements CipherState {
 	public int decryptWithAd(byte[] ad, byte[] ciphertext,
 			int ciphertextOffset, byte[] plaintext, int plaintextOffset,
 			int length) throws ShortBufferException, BadPaddingException {
+		int result = tryDecryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+		if (result < 0)
+			Noise.throwBadTagException();
+		return result;
+	}
+
+	@Override
+	public int tryDecryptWithAd(byte[] ad, byte[] ciphertext,
+			int ciphertextOffset, byte[] plaintext, int plaintextOffset,
+			int length) throws ShortBufferException {
 		int space;
 		if (ciphertextOffset < 0 || ciphertextOffset > ciphertext.length)
 			throw new IllegalArgumentException();
@@ -233,11 +280,30 @@ class AESGCMFallbackCipherState implements CipherState {
 			return length;
 		}
 		if (length < 16)
-			Noise.throwBadTagException();
+			return -1;
 		int dataLen = length - 16;
 		if (dataLen > space)
 			throw new ShortBufferException();
-		setup(ad);
+		if (n == -1L)
+			throw new IllegalStateException("Nonce has wrapped around");
+		return decryptPacket(ad, n++, ciphertext, ciphertextOffset, plaintext, plaintextOffset, dataLen);
+	}
+
+	/**
+	 * Decrypts a single packet after the arguments have been validated.
+	 * 
+	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
+	 * @param ciphertext The buffer containing the ciphertext and MAC.
+	 * @param ciphertextOffset The offset of the first ciphertext byte.
+	 * @param plaintext The buffer to place the plaintext in.
+	 * @param plaintextOffset The offset of the first plaintext byte.
+	 * @param dataLen The length of the ciphertext, excluding the MAC.
+	 * @return The length of the plaintext, or -1 if the MAC check failed.
+	 */
+	private int decryptPacket(byte[] ad, long nonce, byte[] ciphertext, int ciphertextOffset,
+			byte[] plaintext, int plaintextOffset, int dataLen) {
+		setup(ad, nonce);
 		ghash.update(ciphertext, ciphertextOffset, dataLen);
 		ghash.pad(ad != null ? ad.length : 0, dataLen);
 		ghash.finish(enciv, 0, 16);
@@ -245,11 +311,70 @@ class AESGCMFallbackCipherState implements CipherState {
 		for (int index = 0; index < 16; ++index)
 			temp |= (hashKey[index] ^ enciv[index] ^ ciphertext[ciphertextOffset + dataLen + index]);
 		if ((temp & 0xFF) != 0)
-			Noise.throwBadTagException();
+			return -1;
 		encryptCTR(ciphertext, ciphertextOffset, plaintext, plaintextOffset, dataLen);
 		return dataLen;
 	}
 
+	@Override
+	public int encryptBatchWithAd(byte[] ad, byte[] plaintext, int plaintextOffset,
+			int[] lengths, int count, byte[] ciphertext, int ciphertextOffset)
+			throws ShortBufferException {
+		int total = CipherBatch.totalLength(plaintext, plaintextOffset, lengths, count);
+		if (!haskey) {
+			// The key is not set yet - return the plaintext as-is.
+			CipherBatch.checkSpace(ciphertext, ciphertextOffset, total);
+			System.arraycopy(plaintext, plaintextOffset, ciphertext, ciphertextOffset, total);
+			return total;
+		}
+		CipherBatch.checkSpace(ciphertext, ciphertextOffset, total + 16L * count);
+		CipherBatch.checkNonces(n, count);
+		int start = ciphertextOffset;
+		long nonce = n;
+		try {
+			for (int index = 0; index < count; ++index) {
+				int length = lengths[index];
+				ciphertextOffset += encryptPacket(ad, nonce++, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+				plaintextOffset += length;
+			}
+		} finally {
+			n = nonce;
+		}
+		return ciphertextOffset - start;
+	}
+
+	@Override
+	public int decryptBatchWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset,
+			int[] lengths, int count, byte[] plaintext, int plaintextOffset)
+			throws ShortBufferException, BadPaddingException {
+		int total = CipherBatch.totalLength(ciphertext, ciphertextOffset, lengths, count);
+		if (!haskey) {
+			// The key is not set yet - return the ciphertext as-is.
+			CipherBatch.checkSpace(plaintext, plaintextOffset, total);
+			System.arraycopy(ciphertext, ciphertextOffset, plaintext, plaintextOffset, total);
+			return total;
+		}
+		CipherBatch.checkSpace(plaintext, plaintextOffset, total - 16L * count);
+		CipherBatch.checkNonces(n, count);
+		int start = plaintextOffset;
+		long nonce = n;
+		try {
+			for (int index = 0; index < count; ++index) {
+				int length = lengths[index];
+				if (length < 16)
+					Noise.throwBadTagException();
+				int result = decryptPacket(ad, nonce++, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length - 16);
+				if (result < 0)
+					Noise.throwBadTagException();
+				ciphertextOffset += length;
+				plaintextOffset += result;
+			}
+		} finally {
+			n = nonce;
+		}
+		return plaintextOffset - start;
+	}
+
 	@Override
 	public CipherState fork(byte[] key, int offset) {
 		CipherState cipher;
@@ -258,8 +383,56 @@ class AESGCMFallbackCipherState implements CipherState {
 		return cipher;
 	}
 
+	/**
+	 * Gets the current key for this cipher.
+	 * 
+	 * @param key The buffer to write the key to.
+	 * @param offset The offset in the buffer to write the key at.
+	 * 
+	 * @throws IllegalStateException The cipher does not have a key.
+	 * 
+	 * This is used to export the state of a session with CipherStatePair.
+	 */
+	void getKey(byte[] key, int offset)
+	{
+		if (!haskey)
+			throw new IllegalStateException("Cipher does not have a key");
+		aes.getKey(key, offset);
+	}
+
+	@Override
+	public CipherState fork() {
+		AESGCMFallbackCipherState cipher = new AESGCMFallbackCipherState();
+		if (haskey) {
+			cipher.aes.copyFrom(aes);
+			cipher.haskey = true;
+			cipher.initHashKey();
+		}
+		return cipher;
+	}
+
+	@Override
+	public void rekey() {
+		if (!haskey)
+			throw new IllegalStateException("Cipher does not have a key");
+
+		// Encrypt 32 zero bytes in CTR mode with a nonce of 2^64 - 1.
+		byte[] key = new byte [32];
+		formatIV(-1L);
+		encryptCTR(key, 0, key, 0, 32);
+		long nonce = n;
+		initializeKey(key, 0);
+		n = nonce;
+		Noise.destroy(key);
+	}
+
 	@Override
 	public void setNonce(long nonce) {
 		n = nonce;
 	}
+
+	@Override
+	public long getNonce() {
+		return n;
+	}
 }
@@ -104,6 +104,10 @@ class AESGCMOnCtrCipherState implements CipherState {
 		} catch (InvalidAlgorithmParameterException e) {
 			// Shouldn't happen.
 		}
+
+		// Mark the nonce as exhausted so that a destroyed cipher fails
+		// rather than continuing with a zeroed key.
+		n = -1L;
 	}
 
 	@Override
@@ -163,34 +167,15 @@ class AESGCMOnCtrCipherState implements CipherState {
 	}
 
 	/**
-	 * Set up to encrypt or decrypt the next packet.
+	 * Set up to encrypt or decrypt a packet.
 	 * 
 	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
 	 */
-	private void setup(byte[] ad) throws InvalidKeyException, InvalidAlgorithmParameterException
+	private void setup(byte[] ad, long nonce) throws InvalidKeyException, InvalidAlgorithmParameterException
 	{
-		// Check for nonce wrap-around.
-		if (n == -1L)
-			throw new IllegalStateException("Nonce has wrapped around");
-		
 		// Format the counter/IV block for AES/CTR/NoPadding.
-		iv[0] = 0;
-		iv[1] = 0;
-		iv[2] = 0;
-		iv[3] = 0;
-		iv[4] = (byte)(n >> 56);
-		iv[5] = (byte)(n >> 48);
-		iv[6] = (byte)(n >> 40);
-		iv[7] = (byte)(n >> 32);
-		iv[8] = (byte)(n >> 24);
-		iv[9] = (byte)(n >> 16);
-		iv[10] = (byte)(n >> 8);
-		iv[11] = (byte)n;
-		iv[12] = 0;
-		iv[13] = 0;
-		iv[14] = 0;
-		iv[15] = 1;
-		++n;
+		formatIV(nonce);
 		
 		// Initialize the CTR mode cipher with the key and IV.
 		cipher.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(iv));
@@ -213,6 +198,31 @@ class AESGCMOnCtrCipherState implements CipherState {
 		}
 	}
 
+	/**
+	 * Formats the counter/IV block for a specific nonce.
+	 * 
+	 * @param n The nonce value.
+	 */
+	private void formatIV(long n)
+	{
+		iv[0] = 0;
+		iv[1] = 0;
+		iv[2] = 0;
+		iv[3] = 0;
+		iv[4] = (byte)(n >> 56);
+		iv[5] = (byte)(n >> 48);
+		iv[6] = (byte)(n >> 40);
+		iv[7] = (byte)(n >> 32);
+		iv[8] = (byte)(n >> 24);
+		iv[9] = (byte)(n >> 16);
+		iv[10] = (byte)(n >> 8);
+		iv[11] = (byte)n;
+		iv[12] = 0;
+		iv[13] = 0;
+		iv[14] = 0;
+		iv[15] = 1;
+	}
+
 	@Override
 	public int encryptWithAd(byte[] ad, byte[] plaintext, int plaintextOffset,
 			byte[] ciphertext, int ciphertextOffset, int length)
@@ -233,8 +243,30 @@ class AESGCMOnCtrCipherState implements CipherState {
 		}
 		if (space < 16 || length > (space - 16))
 			throw new ShortBufferException();
+		if (n == -1L)
+			throw new IllegalStateException("Nonce has wrapped around");
+		return encryptPacket(ad, n++, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+	}
+
+	/**
+	 * Encrypts a single packet after the arguments have been validated.
+	 * 
+	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
+	 * @param plaintext The buffer containing the plaintext.
+	 * @param plaintextOffset The offset of the first plaintext byte.
+	 * @param ciphertext The buffer to place the ciphertext in.
+	 * @param ciphertextOffset The offset of the first ciphertext byte.
+	 * @param length The length of the plaintext.
+	 * @return The length of the ciphertext plus the MAC.
+	 * 
+	 * @throws ShortBufferException The ciphertext buffer is too small.
+	 */
+	private int encryptPacket(byte[] ad, long nonce, byte[] plaintext, int plaintextOffset,
+			byte[] ciphertext, int ciphertextOffset, int length)
+			throws ShortBufferException {
 		try {
-			setup(ad);
+			setup(ad, nonce);
 			int result = cipher.update(plaintext, plaintextOffset, length, ciphertext, ciphertextOffset);
 			cipher.doFinal(ciphertext, ciphertextOffset + result);
 		} catch (InvalidKeyException e) {
@@ -262,6 +294,16 @@ class AESGCMOnCtrCipherState implements CipherState {
 	public int decryptWithAd(byte[] ad, byte[] ciphertext,
 			int ciphertextOffset, byte[] plaintext, int plaintextOffset,
 			int length) throws ShortBufferException, BadPaddingException {
+		int result = tryDecryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+		if (result < 0)
+			Noise.throwBadTagException();
+		return result;
+	}
+
+	@Override
+	public int tryDecryptWithAd(byte[] ad, byte[] ciphertext,
+			int ciphertextOffset, byte[] plaintext, int plaintextOffset,
+			int length) throws ShortBufferException {
 		int space;
 		if (ciphertextOffset < 0 || ciphertextOffset > ciphertext.length)
 			throw new IllegalArgumentException();
@@ -281,12 +323,34 @@ class AESGCMOnCtrCipherState implements CipherState {
 			return length;
 		}
 		if (length < 16)
-			Noise.throwBadTagException();
+			return -1;
 		int dataLen = length - 16;
 		if (dataLen > space)
 			throw new ShortBufferException();
+		if (n == -1L)
+			throw new IllegalStateException("Nonce has wrapped around");
+		return decryptPacket(ad, n++, ciphertext, ciphertextOffset, plaintext, plaintextOffset, dataLen);
+	}
+
+	/**
+	 * Decrypts a single packet after the arguments have been validated.
+	 * 
+	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
+	 * @param ciphertext The buffer containing the ciphertext and MAC.
+	 * @param ciphertextOffset The offset of the first ciphertext byte.
+	 * @param plaintext The buffer to place the plaintext in.
+	 * @param plaintextOffset The offset of the first plaintext byte.
+	 * @param dataLen The length of the ciphertext, excluding the MAC.
+	 * @return The length of the plaintext, or -1 if the MAC check failed.
+	 * 
+	 * @throws ShortBufferException The plaintext buffer is too small.
+	 */
+	private int decryptPacket(byte[] ad, long nonce, byte[] ciphertext, int ciphertextOffset,
+			byte[] plaintext, int plaintextOffset, int dataLen)
+			throws ShortBufferException {
 		try {
-			setup(ad);
+			setup(ad, nonce);
 		} catch (InvalidKeyException e) {
 			// Shouldn't happen.
 			throw new IllegalStateException(e);
@@ -301,7 +365,7 @@ class AESGCMOnCtrCipherState implements CipherState {
 		for (int index = 0; index < 16; ++index)
 			temp |= (hashKey[index] ^ iv[index] ^ ciphertext[ciphertextOffset + dataLen + index]);
 		if ((temp & 0xFF) != 0)
-			Noise.throwBadTagException();
+			return -1;
 		try {
 			int result = cipher.update(ciphertext, ciphertextOffset, dataLen, plaintext, plaintextOffset);
 			cipher.doFinal(plaintext, plaintextOffset + result);
@@ -315,6 +379,65 @@ class AESGCMOnCtrCipherState implements CipherState {
 		return dataLen;
 	}
 
+	@Override
+	public int encryptBatchWithAd(byte[] ad, byte[] plaintext, int plaintextOffset,
+			int[] lengths, int count, byte[] ciphertext, int ciphertextOffset)
+			throws ShortBufferException {
+		int total = CipherBatch.totalLength(plaintext, plaintextOffset, lengths, count);
+		if (keySpec == null) {
+			// The key is not set yet - return the plaintext as-is.
+			CipherBatch.checkSpace(ciphertext, ciphertextOffset, total);
+			System.arraycopy(plaintext, plaintextOffset, ciphertext, ciphertextOffset, total);
+			return total;
+		}
+		CipherBatch.checkSpace(ciphertext, ciphertextOffset, total + 16L * count);
+		CipherBatch.checkNonces(n, count);
+		int start = ciphertextOffset;
+		long nonce = n;
+		try {
+			for (int index = 0; index < count; ++index) {
+				int length = lengths[index];
+				ciphertextOffset += encryptPacket(ad, nonce++, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+				plaintextOffset += length;
+			}
+		} finally {
+			n = nonce;
+		}
+		return ciphertextOffset - start;
+	}
+
+	@Override
+	public int decryptBatchWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset,
+			int[] lengths, int count, byte[] plaintext, int plaintextOffset)
+			throws ShortBufferException, BadPaddingException {
+		int total = CipherBatch.totalLength(ciphertext, ciphertextOffset, lengths, count);
+		if (keySpec == null) {
+			// The key is not set yet - return the ciphertext as-is.
+			CipherBatch.checkSpace(plaintext, plaintextOffset, total);
+			System.arraycopy(ciphertext, ciphertextOffset, plaintext, plaintextOffset, total);
+			return total;
+		}
+		CipherBatch.checkSpace(plaintext, plaintextOffset, total - 16L * count);
+		CipherBatch.checkNonces(n, count);
+		int start = plaintextOffset;
+		long nonce = n;
+		try {
+			for (int index = 0; index < count; ++index) {
+				int length = lengths[index];
+				if (length < 16)
+					Noise.throwBadTagException();
+				int result = decryptPacket(ad, nonce++, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length - 16);
+				if (result < 0)
+					Noise.throwBadTagException();
+				ciphertextOffset += length;
+				plaintextOffset += result;
+			}
+		} finally {
+			n = nonce;
+		}
+		return plaintextOffset - start;
+	}
+
 	@Override
 	public CipherState fork(byte[] key, int offset) {
 		CipherState cipher;
@@ -328,8 +451,80 @@ class AESGCMOnCtrCipherState implements CipherState {
 		return cipher;
 	}
 
+	/**
+	 * Gets the current key for this cipher.
+	 * 
+	 * @param key The buffer to write the key to.
+	 * @param offset The offset in the buffer to write the key at.
+	 * 
+	 * @throws IllegalStateException The cipher does not have a key.
+	 * 
+	 * This is used to export the state of a session with CipherStatePair.
+	 */
+	void getKey(byte[] key, int offset)
+	{
+		if (keySpec == null)
+			throw new IllegalStateException("Cipher does not have a key");
+		byte[] encoded = keySpec.getEncoded();
+		System.arraycopy(encoded, 0, key, offset, 32);
+		Noise.destroy(encoded);
+	}
+
+	@Override
+	public CipherState fork() {
+		CipherState cipher;
+		try {
+			cipher = new AESGCMOnCtrCipherState();
+		} catch (NoSuchAlgorithmException e) {
+			// Shouldn't happen.
+			return null;
+		}
+		if (keySpec != null) {
+			byte[] key = keySpec.getEncoded();
+			try {
+				cipher.initializeKey(key, 0);
+			} finally {
+				Noise.destroy(key);
+			}
+		}
+		return cipher;
+	}
+
+	@Override
+	public void rekey() {
+		if (keySpec == null)
+			throw new IllegalStateException("Cipher does not have a key");
+
+		// Encrypt 32 zero bytes in CTR mode with a nonce of 2^64 - 1,
+		// skipping the first counter block which is used for the tag.
+		byte[] key = new byte [48];
+		formatIV(-1L);
+		try {
+			cipher.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(iv));
+			cipher.update(key, 0, 48, key, 0);
+		} catch (InvalidKeyException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		} catch (InvalidAlgorithmParameterException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		}
+		long nonce = n;
+		initializeKey(key, 16);
+		n = nonce;
+		Noise.destroy(key);
+	}
+
 	@Override
 	public void setNonce(long nonce) {
 		n = nonce;
 	}
+
+	@Override
+	public long getNonce() {
+		return n;
+	}
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * CipherState wrapper that rekeys automatically according to a policy.
+ *
+ * The underlying cipher is rekeyed before the next message once a
+ * number of messages or bytes have been processed since the last rekey,
+ * or when a rekey has been requested with requestRekey().  Rekeying is
+ * a single block encryption, so it does not pause the traffic.
+ *
+ * Both parties must use the same policy so that they rekey at the same
+ * point in the message stream.  Messages and bytes are counted the same
+ * way on both sides: every message that is encrypted or successfully
+ * decrypted is counted, and the byte count is the plaintext length of
+ * each message.  Messages that fail to decrypt are not counted, as
+ * they were not sent by the remote party.  Requests for an explicit
+ * rekey must be coordinated by the application, for example by sending
+ * an in-band message that tells the remote party to call requestRekey()
+ * on its receiving cipher before decrypting the next message.
+ *
+ * @see CipherState#rekey()
+ */
+public final class AutoRekeyCipherState implements CipherState {
+
+	private final CipherState cipher;
+	private final long maxMessages;
+	private final long maxBytes;
+	private long messages;
+	private long bytes;
+	private boolean requested;
+	private long rekeys;
+
+	/**
+	 * Constructs a new automatically rekeying cipher.
+	 *
+	 * @param cipher The underlying cipher.  This object takes ownership
+	 * of the cipher and will destroy it.
+	 * @param maxMessages The number of messages between rekeys,
+	 * or zero to not rekey based on the number of messages.
+	 * @param maxBytes The number of plaintext bytes between rekeys,
+	 * or zero to not rekey based on the number of bytes.
+	 *
+	 * @throws IllegalArgumentException One of the limits is negative.
+	 */
+	public AutoRekeyCipherState(CipherState cipher, long maxMessages, long maxBytes)
+	{
+		if (maxMessages < 0 || maxBytes < 0)
+			throw new IllegalArgumentException("Rekey limits cannot be negative");
+		this.cipher = cipher;
+		this.maxMessages = maxMessages;
+		this.maxBytes = maxBytes;
+		this.messages = 0;
+		this.bytes = 0;
+		this.requested = false;
+		this.rekeys = 0;
+	}
+
+	/**
+	 * Wraps both ciphers in a pair with the same rekey policy.
+	 *
+	 * @param pair The pair of ciphers from HandshakeState.split().
+	 * @param maxMessages The number of messages between rekeys,
+	 * or zero to not rekey based on the number of messages.
+	 * @param maxBytes The number of plaintext bytes between rekeys,
+	 * or zero to not rekey based on the number of bytes.
+	 * @return A new pair containing the wrapped ciphers.
+	 */
+	public static CipherStatePair wrap(CipherStatePair pair, long maxMessages, long maxBytes)
+	{
+		CipherState sender = pair.getSender();
+		CipherState receiver = pair.getReceiver();
+		return new CipherStatePair
+			(sender != null ? new AutoRekeyCipherState(sender, maxMessages, maxBytes) : null,
+			 receiver != null ? new AutoRekeyCipherState(receiver, maxMessages, maxBytes) : null);
+	}
+
+	/**
+	 * Requests that the cipher be rekeyed before the next message.
+	 */
+	public void requestRekey()
+	{
+		requested = true;
+	}
+
+	/**
+	 * Gets the number of times that this cipher has been rekeyed.
+	 *
+	 * @return The number of rekeys, including explicit calls to rekey().
+	 */
+	public long getRekeyCount()
+	{
+		return rekeys;
+	}
+
+	@Override
+	public String getCipherName() {
+		return cipher.getCipherName();
+	}
+
+	@Override
+	public int getKeyLength() {
+		return cipher.getKeyLength();
+	}
+
+	@Override
+	public int getMACLength() {
+		return cipher.getMACLength();
+	}
+
+	@Override
+	public void initializeKey(byte[] key, int offset) {
+		cipher.initializeKey(key, offset);
+		messages = 0;
+		bytes = 0;
+		requested = false;
+	}
+
+	@Override
+	public boolean hasKey() {
+		return cipher.hasKey();
+	}
+
+	@Override
+	public int encryptWithAd(byte[] ad, byte[] plaintext, int plaintextOffset, byte[] ciphertext, int ciphertextOffset, int length) throws ShortBufferException {
+		checkRekey();
+		int result = cipher.encryptWithAd(ad, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+		count(length);
+		return result;
+	}
+
+	@Override
+	public int decryptWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset, byte[] plaintext, int plaintextOffset, int length) throws ShortBufferException, BadPaddingException {
+		int result = tryDecryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+		if (result < 0)
+			Noise.throwBadTagException();
+		return result;
+	}
+
+	@Override
+	public int tryDecryptWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset, byte[] plaintext, int plaintextOffset, int length) throws ShortBufferException {
+		checkRekey();
+		int result = cipher.tryDecryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+		if (result >= 0)
+			count(result);
+		return result;
+	}
+
+	/**
+	 * Creates a new cipher with the given key and the same rekey policy.
+	 */
+	@Override
+	public CipherState fork(byte[] key, int offset) {
+		return new AutoRekeyCipherState(cipher.fork(key, offset), maxMessages, maxBytes);
+	}
+
+	/**
+	 * Creates a new cipher with the current key and the same rekey
+	 * policy.  The message and byte counts start again from zero.
+	 */
+	@Override
+	public CipherState fork() {
+		return new AutoRekeyCipherState(cipher.fork(), maxMessages, maxBytes);
+	}
+
+	@Override
+	public long getNonce() {
+		return cipher.getNonce();
+	}
+
+	@Override
+	public void setNonce(long nonce) {
+		cipher.setNonce(nonce);
+	}
+
+	@Override
+	public void rekey() {
+		cipher.rekey();
+		messages = 0;
+		bytes = 0;
+		requested = false;
+		++rekeys;
+	}
+
+	@Override
+	public void destroy() {
+		cipher.destroy();
+	}
+
+	/**
+	 * Rekeys the cipher if the policy says that it is time to.
+	 */
+	private void checkRekey()
+	{
+		if (!cipher.hasKey())
+			return;
+		if (requested || (maxMessages != 0 && messages >= maxMessages) ||
+				(maxBytes != 0 && bytes >= maxBytes))
+			rekey();
+	}
+
+	/**
+	 * Counts a message that has been processed.
+	 *
+	 * @param length The plaintext length of the message.
+	 */
+	private void count(int length)
+	{
+		++messages;
+		bytes += length;
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.crypto.ShortBufferException;
+
+import com.southernstorm.noise.crypto.Blake2bMessageDigest;
+import com.southernstorm.noise.crypto.Blake2sMessageDigest;
+import com.southernstorm.noise.crypto.SHA256MessageDigest;
+import com.southernstorm.noise.crypto.SHA512MessageDigest;
+
+/**
+ * Chooses between the JCA and fallback implementations of each
+ * algorithm by measuring them.
+ *
+ * Each candidate is first checked against a known-answer vector, and
+ * candidates that fail are never chosen.  The remaining candidates are
+ * timed on handshake-sized inputs and the fastest one wins.
+ *
+ * @see Noise#calibrate()
+ */
+final class Calibration {
+
+	/**
+	 * Choice value for the JCA implementation.
+	 */
+	static final String JCA = "jca";
+
+	/**
+	 * Choice value for the fallback implementation in this library.
+	 */
+	static final String FALLBACK = "fallback";
+
+	/**
+	 * Version number of the format of the cache file.
+	 */
+	private static final String FORMAT_VERSION = "1";
+
+	/**
+	 * Number of milliseconds to spend timing each candidate.
+	 */
+	private static final long TIMING_MILLIS = 50;
+
+	/**
+	 * Noise names of the algorithms that have more than one candidate.
+	 */
+	private static final String[] ALGORITHMS = {
+		"SHA256", "SHA512", "BLAKE2b", "BLAKE2s", "AESGCM"
+	};
+
+	private static final byte[] KAT_INPUT = "abc".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] KAT_PLAINTEXT = "Noise calibration".getBytes(StandardCharsets.US_ASCII);
+	private static final long KAT_NONCE = 5;
+
+	private static final String KAT_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+	private static final String KAT_SHA512 = "ddaf35a193617abacc417349ae20413112e6fa4e89a97ea20a9eeee64b55d39a2192992a274fc1a836ba3c23a3feebbd454d4423643ce80e2a9ac94fa54ca49f";
+	private static final String KAT_BLAKE2B = "ba80a53f981c4d0d6a2797b69f12f6e94c212f14685ac4b74b12bb6fdbffa2d17d87c5392aab792dc252d5de4533cc9518d38aa8dbf1925ab92386edd4009923";
+	private static final String KAT_BLAKE2S = "508c5e8c327c14e2e1a72ba34eeb452f37458b209ed63a294d999b4c86675982";
+	private static final String KAT_AESGCM = "d6ceab11a69ef62c043b2b8324833c8d75fbbbcc778f6a987a67ec65f46845cc93";
+
+	private Calibration() {}
+
+	/**
+	 * Measures the candidates for every algorithm.
+	 *
+	 * @return Map from Noise algorithm names to JCA or FALLBACK.
+	 */
+	static Map<String, String> run()
+	{
+		Map<String, String> choices = new HashMap<String, String>();
+		for (String name : ALGORITHMS) {
+			String choice = choose(name);
+			if (choice != null)
+				choices.put(name, choice);
+		}
+		return Collections.unmodifiableMap(choices);
+	}
+
+	/**
+	 * Loads the choices from a cache file.
+	 *
+	 * @param file The cache file.
+	 * @return The choices, or null if the file does not exist, was
+	 * created on a different JVM, or names a candidate that no longer
+	 * passes its known-answer test.
+	 *
+	 * @throws IOException The file exists but could not be read.
+	 */
+	static Map<String, String> load(Path file) throws IOException
+	{
+		if (!Files.exists(file))
+			return null;
+		Properties props = new Properties();
+		InputStream in = Files.newInputStream(file);
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+		if (!FORMAT_VERSION.equals(props.getProperty("version")) ||
+				!platform().equals(props.getProperty("platform")))
+			return null;
+		Map<String, String> choices = new HashMap<String, String>();
+		for (String name : ALGORITHMS) {
+			String choice = props.getProperty(name);
+			if (choice == null)
+				continue;
+			if (!choice.equals(JCA) && !choice.equals(FALLBACK))
+				return null;
+			Object candidate = create(name, choice);
+			if (candidate == null || !verify(name, candidate))
+				return null;
+			choices.put(name, choice);
+		}
+		return Collections.unmodifiableMap(choices);
+	}
+
+	/**
+	 * Saves the choices to a cache file.
+	 *
+	 * @param file The cache file.
+	 * @param choices The choices to save.
+	 *
+	 * @throws IOException The file could not be written.
+	 *
+	 * The file is written to a temporary file first and then moved into
+	 * place so that concurrent starts never see a partial file.
+	 */
+	static void save(Path file, Map<String, String> choices) throws IOException
+	{
+		Properties props = new Properties();
+		props.setProperty("version", FORMAT_VERSION);
+		props.setProperty("platform", platform());
+		for (Map.Entry<String, String> entry : choices.entrySet())
+			props.setProperty(entry.getKey(), entry.getValue());
+		Path parent = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(parent, "noise", ".tmp");
+		try {
+			OutputStream out = Files.newOutputStream(temp);
+			try {
+				props.store(out, "Noise algorithm calibration");
+			} finally {
+				out.close();
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Gets a description of the platform that the choices apply to.
+	 */
+	private static String platform()
+	{
+		return System.getProperty("java.vm.name") + " " +
+			   System.getProperty("java.vm.version") + " " +
+			   System.getProperty("os.arch");
+	}
+
+	/**
+	 * Chooses the best candidate for an algorithm.
+	 *
+	 * @param name The Noise name of the algorithm.
+	 * @return JCA or FALLBACK, or null if neither candidate works.
+	 */
+	private static String choose(String name)
+	{
+		Object jca = create(name, JCA);
+		Object fallback = create(name, FALLBACK);
+		if (jca != null && !verify(name, jca))
+			jca = null;
+		if (fallback != null && !verify(name, fallback))
+			fallback = null;
+		if (jca == null)
+			return fallback != null ? FALLBACK : null;
+		if (fallback == null)
+			return JCA;
+
+		// Time each candidate twice, alternating, to reduce the effect of
+		// JIT warm-up and other activity on the machine.
+		double jcaRate = 0;
+		double fallbackRate = 0;
+		for (int pass = 0; pass < 2; ++pass) {
+			jcaRate = time(jca);
+			fallbackRate = time(fallback);
+		}
+		destroy(jca);
+		destroy(fallback);
+		return jcaRate >= fallbackRate ? JCA : FALLBACK;
+	}
+
+	/**
+	 * Creates a candidate implementation of an algorithm.
+	 *
+	 * @param name The Noise name of the algorithm.
+	 * @param choice JCA or FALLBACK.
+	 * @return The MessageDigest or CipherState, or null if the
+	 * candidate is not available.
+	 */
+	static Object create(String name, String choice)
+	{
+		boolean jca = choice.equals(JCA);
+		try {
+			if (name.equals("SHA256"))
+				return jca ? MessageDigest.getInstance("SHA-256") : new SHA256MessageDigest();
+			else if (name.equals("SHA512"))
+				return jca ? MessageDigest.getInstance("SHA-512") : new SHA512MessageDigest();
+			else if (name.equals("BLAKE2b"))
+				return jca ? MessageDigest.getInstance("BLAKE2B-512") : new Blake2bMessageDigest();
+			else if (name.equals("BLAKE2s"))
+				return jca ? MessageDigest.getInstance("BLAKE2S-256") : new Blake2sMessageDigest();
+			else if (name.equals("AESGCM"))
+				return jca ? new AESGCMOnCtrCipherState() : new AESGCMFallbackCipherState();
+		} catch (NoSuchAlgorithmException e) {
+			// Candidate is not available.
+		}
+		return null;
+	}
+
+	/**
+	 * Verifies a candidate against its known-answer vector.
+	 */
+	private static boolean verify(String name, Object candidate)
+	{
+		try {
+			if (candidate instanceof MessageDigest) {
+				MessageDigest digest = (MessageDigest)candidate;
+				digest.reset();
+				String expected;
+				if (name.equals("SHA256"))
+					expected = KAT_SHA256;
+				else if (name.equals("SHA512"))
+					expected = KAT_SHA512;
+				else if (name.equals("BLAKE2b"))
+					expected = KAT_BLAKE2B;
+				else
+					expected = KAT_BLAKE2S;
+				return Arrays.equals(fromHex(expected), digest.digest(KAT_INPUT));
+			}
+			CipherState cipher = (CipherState)candidate;
+			byte[] key = new byte [32];
+			for (int index = 0; index < key.length; ++index)
+				key[index] = (byte)index;
+			cipher.initializeKey(key, 0);
+			cipher.setNonce(KAT_NONCE);
+			byte[] ciphertext = new byte [KAT_PLAINTEXT.length + cipher.getMACLength()];
+			cipher.encryptWithAd(KAT_INPUT, KAT_PLAINTEXT, 0, ciphertext, 0, KAT_PLAINTEXT.length);
+			return Arrays.equals(fromHex(KAT_AESGCM), ciphertext);
+		} catch (ShortBufferException e) {
+			return false;
+		} catch (RuntimeException e) {
+			// Broken providers may throw anything.
+			return false;
+		}
+	}
+
+	/**
+	 * Measures the speed of a candidate.
+	 *
+	 * @return The number of operations per second.
+	 */
+	private static double time(Object candidate)
+	{
+		byte[] data = new byte [256];
+		byte[] output = new byte [256 + 16];
+		long limit = TIMING_MILLIS * 1000000L;
+		long count = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		try {
+			if (candidate instanceof MessageDigest) {
+				MessageDigest digest = (MessageDigest)candidate;
+				do {
+					for (int index = 0; index < 64; ++index) {
+						digest.update(data);
+						digest.digest();
+					}
+					count += 64;
+					elapsed = System.nanoTime() - start;
+				} while (elapsed < limit);
+			} else {
+				CipherState cipher = (CipherState)candidate;
+				cipher.initializeKey(output, 0);
+				do {
+					for (int index = 0; index < 64; ++index)
+						cipher.encryptWithAd(null, data, 0, output, 0, data.length);
+					count += 64;
+					elapsed = System.nanoTime() - start;
+				} while (elapsed < limit);
+			}
+		} catch (ShortBufferException e) {
+			return 0;
+		}
+		return count * 1e9 / elapsed;
+	}
+
+	private static void destroy(Object candidate)
+	{
+		if (candidate instanceof Destroyable)
+			((Destroyable)candidate).destroy();
+	}
+
+	private static byte[] fromHex(String hex)
+	{
+		byte[] data = new byte [hex.length() / 2];
+		for (int index = 0; index < data.length; ++index)
+			data[index] = (byte)Integer.parseInt(hex.substring(index * 2, index * 2 + 2), 16);
+		return data;
+	}
+}
@@ -61,6 +61,10 @@ class ChaChaPolyCipherState implements CipherState {
 		Arrays.fill(input, 0);
 		Arrays.fill(output, 0);
 		Noise.destroy(polyKey);
+
+		// Mark the nonce as exhausted so that a destroyed cipher fails
+		// rather than continuing with a zeroed key.
+		n = -1L;
 	}
 
 	@Override
@@ -130,15 +134,14 @@ class ChaChaPolyCipherState implements CipherState {
 	}
 	
 	/**
-	 * Set up to encrypt or decrypt the next packet.
+	 * Set up to encrypt or decrypt a packet.
 	 * 
 	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
 	 */
-	private void setup(byte[] ad)
+	private void setup(byte[] ad, long nonce)
 	{
-		if (n == -1L)
-			throw new IllegalStateException("Nonce has wrapped around");
-		ChaChaCore.initIV(input, n++);
+		ChaChaCore.initIV(input, nonce);
 		ChaChaCore.hash(output, input);
 		Arrays.fill(polyKey, (byte)0);
 		xorBlock(polyKey, 0, polyKey, 0, 32, output);
@@ -229,7 +232,26 @@ class ChaChaPolyCipherState implements CipherState {
 		}
 		if (space < 16 || length > (space - 16))
 			throw new ShortBufferException();
-		setup(ad);
+		if (n == -1L)
+			throw new IllegalStateException("Nonce has wrapped around");
+		return encryptPacket(ad, n++, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+	}
+
+	/**
+	 * Encrypts a single packet after the arguments have been validated.
+	 * 
+	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
+	 * @param plaintext The buffer containing the plaintext.
+	 * @param plaintextOffset The offset of the first plaintext byte.
+	 * @param ciphertext The buffer to place the ciphertext in.
+	 * @param ciphertextOffset The offset of the first ciphertext byte.
+	 * @param length The length of the plaintext.
+	 * @return The length of the ciphertext plus the MAC.
+	 */
+	private int encryptPacket(byte[] ad, long nonce, byte[] plaintext, int plaintextOffset,
+			byte[] ciphertext, int ciphertextOffset, int length) {
+		setup(ad, nonce);
 		encrypt(plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
 		poly.update(ciphertext, ciphertextOffset, length);
 		finish(ad, length);
@@ -241,6 +263,16 @@ class ChaChaPolyCipherState implements CipherState {
 	public int decryptWithAd(byte[] ad, byte[] ciphertext,
 			int ciphertextOffset, byte[] plaintext, int plaintextOffset,
 			int length) throws ShortBufferException, BadPaddingException {
+		int result = tryDecryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+		if (result < 0)
+			Noise.throwBadTagException();
+		return result;
+	}
+
+	@Override
+	public int tryDecryptWithAd(byte[] ad, byte[] ciphertext,
+			int ciphertextOffset, byte[] plaintext, int plaintextOffset,
+			int length) throws ShortBufferException {
 		int space;
 		if (ciphertextOffset < 0 || ciphertextOffset > ciphertext.length)
 			throw new IllegalArgumentException();
@@ -260,22 +292,100 @@ class ChaChaPolyCipherState implements CipherState {
 			return length;
 		}
 		if (length < 16)
-			Noise.throwBadTagException();
+			return -1;
 		int dataLen = length - 16;
 		if (dataLen > space)
 			throw new ShortBufferException();
-		setup(ad);
+		if (n == -1L)
+			throw new IllegalStateException("Nonce has wrapped around");
+		return decryptPacket(ad, n++, ciphertext, ciphertextOffset, plaintext, plaintextOffset, dataLen);
+	}
+
+	/**
+	 * Decrypts a single packet after the arguments have been validated.
+	 * 
+	 * @param ad The associated data for the packet.
+	 * @param nonce The nonce for the packet.
+	 * @param ciphertext The buffer containing the ciphertext and MAC.
+	 * @param ciphertextOffset The offset of the first ciphertext byte.
+	 * @param plaintext The buffer to place the plaintext in.
+	 * @param plaintextOffset The offset of the first plaintext byte.
+	 * @param dataLen The length of the ciphertext, excluding the MAC.
+	 * @return The length of the plaintext, or -1 if the MAC check failed.
+	 */
+	private int decryptPacket(byte[] ad, long nonce, byte[] ciphertext, int ciphertextOffset,
+			byte[] plaintext, int plaintextOffset, int dataLen) {
+		setup(ad, nonce);
 		poly.update(ciphertext, ciphertextOffset, dataLen);
 		finish(ad, dataLen);
 		int temp = 0;
 		for (int index = 0; index < 16; ++index)
 			temp |= (polyKey[index] ^ ciphertext[ciphertextOffset + dataLen + index]);
 		if ((temp & 0xFF) != 0)
-			Noise.throwBadTagException();
+			return -1;
 		encrypt(ciphertext, ciphertextOffset, plaintext, plaintextOffset, dataLen);
 		return dataLen;
 	}
 
+	@Override
+	public int encryptBatchWithAd(byte[] ad, byte[] plaintext, int plaintextOffset,
+			int[] lengths, int count, byte[] ciphertext, int ciphertextOffset)
+			throws ShortBufferException {
+		int total = CipherBatch.totalLength(plaintext, plaintextOffset, lengths, count);
+		if (!haskey) {
+			// The key is not set yet - return the plaintext as-is.
+			CipherBatch.checkSpace(ciphertext, ciphertextOffset, total);
+			System.arraycopy(plaintext, plaintextOffset, ciphertext, ciphertextOffset, total);
+			return total;
+		}
+		CipherBatch.checkSpace(ciphertext, ciphertextOffset, total + 16L * count);
+		CipherBatch.checkNonces(n, count);
+		int start = ciphertextOffset;
+		long nonce = n;
+		try {
+			for (int index = 0; index < count; ++index) {
+				int length = lengths[index];
+				ciphertextOffset += encryptPacket(ad, nonce++, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+				plaintextOffset += length;
+			}
+		} finally {
+			n = nonce;
+		}
+		return ciphertextOffset - start;
+	}
+
+	@Override
+	public int decryptBatchWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset,
+			int[] lengths, int count, byte[] plaintext, int plaintextOffset)
+			throws ShortBufferException, BadPaddingException {
+		int total = CipherBatch.totalLength(ciphertext, ciphertextOffset, lengths, count);
+		if (!haskey) {
+			// The key is not set yet - return the ciphertext as-is.
+			CipherBatch.checkSpace(plaintext, plaintextOffset, total);
+			System.arraycopy(ciphertext, ciphertextOffset, plaintext, plaintextOffset, total);
+			return total;
+		}
+		CipherBatch.checkSpace(plaintext, plaintextOffset, total - 16L * count);
+		CipherBatch.checkNonces(n, count);
+		int start = plaintextOffset;
+		long nonce = n;
+		try {
+			for (int index = 0; index < count; ++index) {
+				int length = lengths[index];
+				if (length < 16)
+					Noise.throwBadTagException();
+				int result = decryptPacket(ad, nonce++, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length - 16);
+				if (result < 0)
+					Noise.throwBadTagException();
+				ciphertextOffset += length;
+				plaintextOffset += result;
+			}
+		} finally {
+			n = nonce;
+		}
+		return plaintextOffset - start;
+	}
+
 	@Override
 	public CipherState fork(byte[] key, int offset) {
 		CipherState cipher = new ChaChaPolyCipherState();
@@ -283,8 +393,64 @@ class ChaChaPolyCipherState implements CipherState {
 		return cipher;
 	}
 
+	/**
+	 * Gets the current key for this cipher.
+	 * 
+	 * @param key The buffer to write the key to.
+	 * @param offset The offset in the buffer to write the key at.
+	 * 
+	 * @throws IllegalStateException The cipher does not have a key.
+	 * 
+	 * This is used to export the state of a session with CipherStatePair.
+	 */
+	void getKey(byte[] key, int offset)
+	{
+		if (!haskey)
+			throw new IllegalStateException("Cipher does not have a key");
+		for (int index = 0; index < 8; ++index) {
+			int value = input[index + 4];
+			key[offset + index * 4] = (byte)value;
+			key[offset + index * 4 + 1] = (byte)(value >> 8);
+			key[offset + index * 4 + 2] = (byte)(value >> 16);
+			key[offset + index * 4 + 3] = (byte)(value >> 24);
+		}
+	}
+
+	@Override
+	public CipherState fork() {
+		ChaChaPolyCipherState cipher = new ChaChaPolyCipherState();
+		if (haskey) {
+			System.arraycopy(input, 0, cipher.input, 0, 16);
+			cipher.haskey = true;
+		}
+		return cipher;
+	}
+
+	@Override
+	public void rekey() {
+		if (!haskey)
+			throw new IllegalStateException("Cipher does not have a key");
+
+		// Generate the keystream for the first data block with a nonce of
+		// 2^64 - 1.  Block zero would be used for the Poly1305 key.
+		ChaChaCore.initIV(input, -1L, 1);
+		ChaChaCore.hash(output, input);
+		byte[] key = new byte [32];
+		xorBlock(key, 0, key, 0, 32, output);
+		long nonce = n;
+		initializeKey(key, 0);
+		n = nonce;
+		Noise.destroy(key);
+		Arrays.fill(output, 0);
+	}
+
 	@Override
 	public void setNonce(long nonce) {
 		n = nonce;
 	}
+
+	@Override
+	public long getNonce() {
+		return n;
+	}
 }
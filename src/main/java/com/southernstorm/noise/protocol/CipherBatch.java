@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import javax.crypto.ShortBufferException;
+
+/**
+ * Argument validation for the batch encryption and decryption
+ * methods of CipherState.
+ */
+final class CipherBatch {
+
+	private CipherBatch() {}
+
+	/**
+	 * Validates a packed array of messages and computes its total length.
+	 * 
+	 * @param buffer The buffer containing the messages.
+	 * @param offset The offset of the first message in the buffer.
+	 * @param lengths The lengths of the messages.
+	 * @param count The number of messages in the batch.
+	 * @return The total length of all messages in the batch.
+	 * 
+	 * @throws IllegalArgumentException One of the parameters is out of range.
+	 */
+	static int totalLength(byte[] buffer, int offset, int[] lengths, int count)
+	{
+		if (count < 0 || count > lengths.length)
+			throw new IllegalArgumentException();
+		if (offset < 0 || offset > buffer.length)
+			throw new IllegalArgumentException();
+		long total = 0;
+		for (int index = 0; index < count; ++index) {
+			int length = lengths[index];
+			if (length < 0)
+				throw new IllegalArgumentException();
+			total += length;
+		}
+		if (total > (buffer.length - offset))
+			throw new IllegalArgumentException();
+		return (int)total;
+	}
+
+	/**
+	 * Checks that an output buffer has enough space for a batch.
+	 * 
+	 * @param buffer The output buffer.
+	 * @param offset The offset of the first output byte.
+	 * @param required The number of bytes that are required.
+	 * 
+	 * @throws IllegalArgumentException The offset is out of range.
+	 * @throws ShortBufferException The buffer is not large enough.
+	 */
+	static void checkSpace(byte[] buffer, int offset, long required) throws ShortBufferException
+	{
+		if (offset < 0 || offset > buffer.length)
+			throw new IllegalArgumentException();
+		if (required > (buffer.length - offset))
+			throw new ShortBufferException();
+	}
+
+	/**
+	 * Checks that a batch will not cause the nonce to wrap around.
+	 * 
+	 * @param n The nonce for the first message in the batch.
+	 * @param count The number of messages in the batch.
+	 * 
+	 * @throws IllegalStateException The nonce would wrap around.
+	 */
+	static void checkNonces(long n, long count)
+	{
+		// The nonce 2^64 - 1 is reserved, so n + count must not pass it.
+		if (count > 0 && Long.compareUnsigned(n, -1L - count) > 0)
+			throw new IllegalStateException("Nonce has wrapped around");
+	}
+
+	/**
+	 * Checks that a batch will not cause the nonce of a cipher to wrap around.
+	 * 
+	 * @param cipher The cipher that will process the batch.
+	 * @param count The number of messages in the batch.
+	 * 
+	 * @throws IllegalStateException The nonce would wrap around.
+	 * 
+	 * Nothing is checked if the cipher does not have a key, as messages
+	 * are passed through as-is, or if the cipher does not support
+	 * getNonce(), in which case the check is left to the cipher itself.
+	 */
+	static void checkNonces(CipherState cipher, long count)
+	{
+		if (count <= 0 || !cipher.hasKey())
+			return;
+		long n;
+		try {
+			n = cipher.getNonce();
+		} catch (UnsupportedOperationException e) {
+			return;
+		}
+		checkNonces(n, count);
+	}
+}
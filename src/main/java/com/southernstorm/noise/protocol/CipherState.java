@@ -140,6 +140,153 @@ public interface CipherState extends Destroyable {
 	 */
 	int decryptWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset, byte[] plaintext, int plaintextOffset, int length) throws ShortBufferException, BadPaddingException;
 
+	/**
+	 * Decrypts a ciphertext buffer using the cipher and a block of associated
+	 * data, reporting MAC failures via the return value.
+	 * 
+	 * @param ad The associated data, or null if there is none.
+	 * @param ciphertext The buffer containing the ciphertext to decrypt.
+	 * @param ciphertextOffset The offset within the ciphertext buffer of
+	 * the first byte of ciphertext data.
+	 * @param plaintext The buffer to place the plaintext in.  This can be
+	 * the same as the ciphertext buffer.
+	 * @param plaintextOffset The first offset within the plaintext buffer
+	 * to place the plaintext.
+	 * @param length The length of the incoming ciphertext plus the MAC tag.
+	 * @return The length of the plaintext with the MAC tag stripped off,
+	 * or -1 if the MAC value failed to verify.
+	 * 
+	 * @throws ShortBufferException The plaintext buffer does not have
+	 * enough space to store the decrypted data.
+	 * 
+	 * @throws IllegalStateException The nonce has wrapped around.
+	 * 
+	 * @throws IllegalArgumentException One of the parameters is out of range.
+	 *
+	 * This function is identical to decryptWithAd() except that a MAC
+	 * failure is reported by returning -1 rather than by throwing an
+	 * exception.  This makes it much cheaper to reject forged packets.
+	 * The nonce is advanced regardless of whether the MAC verifies,
+	 * and the plaintext buffer is not modified on failure.
+	 * 
+	 * The default implementation calls decryptWithAd() and catches the
+	 * BadPaddingException, for ciphers that are supplied by a provider.
+	 * It is no cheaper than decryptWithAd(), and whether the plaintext
+	 * buffer is modified on failure depends upon that implementation.
+	 * 
+	 * @see #decryptWithAd(byte[], byte[], int, byte[], int, int)
+	 */
+	default int tryDecryptWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset, byte[] plaintext, int plaintextOffset, int length) throws ShortBufferException
+	{
+		try {
+			return decryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+		} catch (BadPaddingException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Encrypts a batch of plaintext messages with consecutive nonces.
+	 * 
+	 * @param ad The associated data for every message, or null if none.
+	 * @param plaintext The buffer containing the plaintext messages,
+	 * packed one after the other.
+	 * @param plaintextOffset The offset of the first plaintext message.
+	 * @param lengths The lengths of the plaintext messages.
+	 * @param count The number of messages in the batch.
+	 * @param ciphertext The buffer to place the ciphertext messages in,
+	 * packed one after the other.  Each ciphertext message is the length
+	 * of the corresponding plaintext plus the MAC length.
+	 * @param ciphertextOffset The offset of the first ciphertext message.
+	 * @return The total length of all ciphertext messages.
+	 * 
+	 * @throws ShortBufferException The ciphertext buffer does not have
+	 * enough space to hold all of the ciphertext messages.
+	 * @throws IllegalStateException The nonce would wrap around during
+	 * the batch.  No messages are encrypted in this case.
+	 * @throws IllegalArgumentException One of the parameters is out of range.
+	 * 
+	 * The result is the same as calling encryptWithAd() once for each
+	 * message.  The built-in ciphers validate the arguments and nonce
+	 * once for the whole batch and then encrypt each message without
+	 * further checks.  The plaintext and ciphertext buffers must not
+	 * overlap.
+	 * 
+	 * The default implementation, for ciphers that are supplied by a
+	 * provider, simply calls encryptWithAd() for each message and is no
+	 * cheaper than doing so directly.  If the cipher does not support
+	 * getNonce(), then the nonce cannot be checked up front and
+	 * wrap-around is instead reported by the encryptWithAd() call for
+	 * the message that would have wrapped.
+	 * 
+	 * @see #encryptWithAd(byte[], byte[], int, byte[], int, int)
+	 */
+	default int encryptBatchWithAd(byte[] ad, byte[] plaintext, int plaintextOffset, int[] lengths, int count, byte[] ciphertext, int ciphertextOffset) throws ShortBufferException
+	{
+		int total = CipherBatch.totalLength(plaintext, plaintextOffset, lengths, count);
+		CipherBatch.checkSpace(ciphertext, ciphertextOffset, total + ((long)getMACLength()) * count);
+		CipherBatch.checkNonces(this, count);
+		int start = ciphertextOffset;
+		for (int index = 0; index < count; ++index) {
+			int length = lengths[index];
+			ciphertextOffset += encryptWithAd(ad, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+			plaintextOffset += length;
+		}
+		return ciphertextOffset - start;
+	}
+
+	/**
+	 * Decrypts a batch of ciphertext messages with consecutive nonces.
+	 * 
+	 * @param ad The associated data for every message, or null if none.
+	 * @param ciphertext The buffer containing the ciphertext messages,
+	 * packed one after the other.
+	 * @param ciphertextOffset The offset of the first ciphertext message.
+	 * @param lengths The lengths of the ciphertext messages, including
+	 * their MAC values.
+	 * @param count The number of messages in the batch.
+	 * @param plaintext The buffer to place the plaintext messages in,
+	 * packed one after the other.
+	 * @param plaintextOffset The offset of the first plaintext message.
+	 * @return The total length of all plaintext messages.
+	 * 
+	 * @throws ShortBufferException The plaintext buffer does not have
+	 * enough space to hold all of the plaintext messages.
+	 * @throws BadPaddingException One of the messages failed its MAC check.
+	 * @throws IllegalStateException The nonce would wrap around during
+	 * the batch.  No messages are decrypted in this case.
+	 * @throws IllegalArgumentException One of the parameters is out of range.
+	 * 
+	 * The result is the same as calling decryptWithAd() once for each
+	 * message.  The built-in ciphers validate the arguments and nonce
+	 * once for the whole batch.  If a message fails its MAC check, then
+	 * the messages before it will have been decrypted and the nonce will
+	 * be left where decryptWithAd() would have left it.  The ciphertext
+	 * and plaintext buffers must not overlap.
+	 * 
+	 * The default implementation simply calls decryptWithAd() for each
+	 * message, with the same caveat as encryptBatchWithAd() for ciphers
+	 * that do not support getNonce().
+	 * 
+	 * @see #decryptWithAd(byte[], byte[], int, byte[], int, int)
+	 */
+	default int decryptBatchWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset, int[] lengths, int count, byte[] plaintext, int plaintextOffset) throws ShortBufferException, BadPaddingException
+	{
+		int total = CipherBatch.totalLength(ciphertext, ciphertextOffset, lengths, count);
+		int macLength = getMACLength();
+		CipherBatch.checkSpace(plaintext, plaintextOffset, total - ((long)macLength) * count);
+		CipherBatch.checkNonces(this, count);
+		int start = plaintextOffset;
+		for (int index = 0; index < count; ++index) {
+			int length = lengths[index];
+			if (length < macLength)
+				Noise.throwBadTagException();
+			plaintextOffset += decryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+			ciphertextOffset += length;
+		}
+		return plaintextOffset - start;
+	}
+
 	/**
 	 * Creates a new instance of this cipher and initializes it with a key.
 	 * 
@@ -148,7 +295,73 @@ public interface CipherState extends Destroyable {
 	 * @return A new CipherState of the same class as this one.
 	 */
 	CipherState fork(byte[] key, int offset);
+
+	/**
+	 * Creates a new instance of this cipher with the same key.
+	 * 
+	 * @return A new CipherState of the same class as this one,
+	 * which has the same key as this object and a nonce of zero.
+	 * If this object does not have a key yet, then neither will
+	 * the new object.
+	 * 
+	 * This is typically used to create independent cipher contexts
+	 * for different threads that encrypt with the same key.  It is
+	 * the responsibility of the caller to ensure that the contexts
+	 * never encrypt with the same nonce.
+	 * 
+	 * @throws UnsupportedOperationException The cipher cannot copy its
+	 * key.  The default implementation always throws this, as there is
+	 * no safe way to copy the key of an arbitrary implementation.
+	 * 
+	 * @see ConcurrentCipherSender
+	 * @see DatagramCipher
+	 */
+	default CipherState fork()
+	{
+		throw new UnsupportedOperationException("fork() is not supported by " + getCipherName());
+	}
+
+	/**
+	 * Gets the nonce value.
+	 * 
+	 * @return The nonce that will be used for the next packet that is
+	 * encrypted or decrypted.
+	 * 
+	 * @throws UnsupportedOperationException The cipher does not report
+	 * its nonce.  The default implementation always throws this.  Nonce
+	 * tracking features such as ConcurrentCipherSender, DatagramCipher,
+	 * batching and state export need a cipher that implements it.
+	 */
+	default long getNonce()
+	{
+		throw new UnsupportedOperationException("getNonce() is not supported by " + getCipherName());
+	}
 	
+	/**
+	 * Rekeys this cipher with a new key derived from the current key.
+	 * 
+	 * The new key is the first 32 bytes of the result of encrypting
+	 * 32 zero bytes with the current key and a nonce of 2^64 - 1,
+	 * as described by the REKEY function in the Noise specification.
+	 * The nonce is not changed by this function.
+	 * 
+	 * Both parties must rekey at the same point in the message stream,
+	 * so the application needs to agree on when this will happen.
+	 * 
+	 * @throws IllegalStateException The cipher does not have a key.
+	 * @throws UnsupportedOperationException The cipher does not
+	 * support rekeying.  The default implementation always throws this,
+	 * as REKEY needs the raw cipher function with the nonce 2^64 - 1,
+	 * which encryptWithAd() reserves and so cannot be reached through
+	 * this interface.  The built-in ciphers all support rekeying.
+	 * 
+	 * @see AutoRekeyCipherState
+	 */
+	default void rekey()
+	{
+		throw new UnsupportedOperationException("rekey() is not supported by " + getCipherName());
+	}
+
 	/**
 	 * Sets the nonce value.
 	 * 
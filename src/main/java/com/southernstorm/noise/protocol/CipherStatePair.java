@@ -22,13 +22,51 @@
 
 package com.southernstorm.noise.protocol;
 
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.ShortBufferException;
+
 /**
  * Class that contains a pair of CipherState objects.
  * 
  * CipherState pairs typically arise when HandshakeState.split() is called.
+ * 
+ * The state of a pair can be exported to a compact fixed-size form with
+ * exportState() and imported again with importState().  This allows a
+ * session to be handed to another thread or process, or parked in a
+ * state store, without performing a new handshake.  The exported state
+ * contains the session keys, so it should normally be wrapped under a
+ * local wrapping key unless it never leaves the process.
  */
 public final class CipherStatePair implements Destroyable {
 
+	/**
+	 * Length of the exported state when it is not wrapped.
+	 */
+	public static final int EXPORT_LEN = 84;
+
+	/**
+	 * Length of the exported state when it is wrapped under a local key.
+	 */
+	public static final int WRAPPED_EXPORT_LEN = 108;
+
+	/**
+	 * Length of the wrapping key for exported state.
+	 */
+	public static final int WRAP_KEY_LEN = 32;
+
+	private static final int VERSION = 1;
+	private static final int CIPHER_CHACHAPOLY = 1;
+	private static final int CIPHER_AESGCM = 2;
+	private static final int FLAG_SENDER = 0x01;
+	private static final int FLAG_RECEIVER = 0x02;
+	private static final int FLAG_WRAPPED = 0x80;
+	private static final int HEADER_LEN = 4;
+	private static final int NONCE_LEN = 8;
+	private static final int BODY_LEN = 80;
+
 	private CipherState send;
 	private CipherState recv;
 
@@ -103,4 +141,218 @@ public final class CipherStatePair implements Destroyable {
 		senderOnly();
 		receiverOnly();
 	}
+
+	/**
+	 * Exports the state of this pair.
+	 * 
+	 * @param output The buffer to write the exported state to.
+	 * @param offset The offset into the buffer to write the state at.
+	 * @param wrapKey The 32-byte local key to wrap the state with,
+	 * or null to export the state without wrapping it.
+	 * @return The number of bytes that were written; EXPORT_LEN or
+	 * WRAPPED_EXPORT_LEN depending upon whether wrapKey is null.
+	 * 
+	 * @throws ShortBufferException The output buffer is too small.
+	 * @throws IllegalArgumentException The pair contains a cipher that
+	 * cannot be exported, the ciphers do not have keys, or the wrapping
+	 * key is the wrong length.
+	 * 
+	 * The pair itself is not modified; the caller should destroy it
+	 * once the exported state has been handed over so that the same
+	 * nonces are not used twice.  The ciphers must not be in use by
+	 * other threads while the state is being exported.
+	 * 
+	 * Wrapped exports use a random 64-bit nonce, so the wrapping key
+	 * should be replaced well before 2^32 exports have been made with it.
+	 */
+	public int exportState(byte[] output, int offset, byte[] wrapKey) throws ShortBufferException
+	{
+		if (wrapKey != null && wrapKey.length != WRAP_KEY_LEN)
+			throw new IllegalArgumentException("Wrapping key must be 32 bytes in length");
+		int length = wrapKey != null ? WRAPPED_EXPORT_LEN : EXPORT_LEN;
+		if (offset < 0 || offset > output.length || (output.length - offset) < length)
+			throw new ShortBufferException();
+		if (send == null && recv == null)
+			throw new IllegalArgumentException("Cipher pair is empty");
+		if (send != null && recv != null && !send.getCipherName().equals(recv.getCipherName()))
+			throw new IllegalArgumentException("Ciphers in the pair are not the same");
+		String name = (send != null ? send : recv).getCipherName();
+		byte[] state = new byte [HEADER_LEN + BODY_LEN];
+		try {
+			state[0] = (byte)VERSION;
+			if (name.equals("ChaChaPoly"))
+				state[1] = (byte)CIPHER_CHACHAPOLY;
+			else if (name.equals("AESGCM"))
+				state[1] = (byte)CIPHER_AESGCM;
+			else
+				throw new IllegalArgumentException("Cannot export cipher " + name);
+			int flags = 0;
+			if (send != null) {
+				exportCipher(send, state, HEADER_LEN);
+				flags |= FLAG_SENDER;
+			}
+			if (recv != null) {
+				exportCipher(recv, state, HEADER_LEN + BODY_LEN / 2);
+				flags |= FLAG_RECEIVER;
+			}
+			if (wrapKey == null) {
+				state[2] = (byte)flags;
+				System.arraycopy(state, 0, output, offset, EXPORT_LEN);
+				return EXPORT_LEN;
+			}
+			state[2] = (byte)(flags | FLAG_WRAPPED);
+			ChaChaPolyCipherState wrapper = new ChaChaPolyCipherState();
+			try {
+				byte[] header = Arrays.copyOf(state, HEADER_LEN);
+				// The nonce 2^64 - 1 is reserved and would be rejected
+				// by the wrapping cipher, so choose another if it comes up.
+				byte[] nonce = new byte [NONCE_LEN];
+				do {
+					Noise.random(nonce);
+				} while (getLong(nonce, 0) == -1L);
+				System.arraycopy(header, 0, output, offset, HEADER_LEN);
+				System.arraycopy(nonce, 0, output, offset + HEADER_LEN, NONCE_LEN);
+				wrapper.initializeKey(wrapKey, 0);
+				wrapper.setNonce(getLong(nonce, 0));
+				wrapper.encryptWithAd(header, state, HEADER_LEN, output, offset + HEADER_LEN + NONCE_LEN, BODY_LEN);
+			} finally {
+				wrapper.destroy();
+			}
+			return WRAPPED_EXPORT_LEN;
+		} finally {
+			Noise.destroy(state);
+		}
+	}
+
+	/**
+	 * Imports the state of a pair that was exported with exportState().
+	 * 
+	 * @param input The buffer containing the exported state.
+	 * @param offset The offset of the exported state in the buffer.
+	 * @param length The length of the exported state.
+	 * @param wrapKey The 32-byte local key that the state was wrapped
+	 * with, or null if the state was exported without wrapping.
+	 * @return A new pair with the keys and nonces from the exported state.
+	 * 
+	 * @throws BadPaddingException The wrapped state is corrupted or
+	 * was wrapped with a different key.
+	 * @throws IllegalArgumentException The exported state is not in a
+	 * recognized format, does not match the wrapping mode, or the
+	 * offset and length are out of range for the input buffer.
+	 */
+	public static CipherStatePair importState(byte[] input, int offset, int length, byte[] wrapKey) throws BadPaddingException
+	{
+		if (wrapKey != null && wrapKey.length != WRAP_KEY_LEN)
+			throw new IllegalArgumentException("Wrapping key must be 32 bytes in length");
+		if (offset < 0 || length < 0 || offset > input.length || length > (input.length - offset))
+			throw new IllegalArgumentException();
+		if (length != (wrapKey != null ? WRAPPED_EXPORT_LEN : EXPORT_LEN))
+			throw new IllegalArgumentException("Exported state has the wrong length");
+		if ((input[offset] & 0xFF) != VERSION)
+			throw new IllegalArgumentException("Unsupported exported state version");
+		int flags = input[offset + 2] & 0xFF;
+		if (((flags & FLAG_WRAPPED) != 0) != (wrapKey != null))
+			throw new IllegalArgumentException("Exported state does not match the wrapping mode");
+		byte[] state = new byte [HEADER_LEN + BODY_LEN];
+		try {
+			if (wrapKey == null) {
+				System.arraycopy(input, offset, state, 0, EXPORT_LEN);
+			} else {
+				ChaChaPolyCipherState wrapper = new ChaChaPolyCipherState();
+				try {
+					byte[] header = Arrays.copyOfRange(input, offset, offset + HEADER_LEN);
+					System.arraycopy(header, 0, state, 0, HEADER_LEN);
+					long nonce = getLong(input, offset + HEADER_LEN);
+					if (nonce == -1L)
+						Noise.throwBadTagException();
+					wrapper.initializeKey(wrapKey, 0);
+					wrapper.setNonce(nonce);
+					wrapper.decryptWithAd(header, input, offset + HEADER_LEN + NONCE_LEN, state, HEADER_LEN, BODY_LEN + wrapper.getMACLength());
+				} catch (ShortBufferException e) {
+					// Shouldn't happen.
+					throw new IllegalStateException(e);
+				} finally {
+					wrapper.destroy();
+				}
+			}
+			String name;
+			if ((state[1] & 0xFF) == CIPHER_CHACHAPOLY)
+				name = "ChaChaPoly";
+			else if ((state[1] & 0xFF) == CIPHER_AESGCM)
+				name = "AESGCM";
+			else
+				throw new IllegalArgumentException("Unknown cipher in exported state");
+			CipherState sender = null;
+			CipherState receiver = null;
+			if ((flags & FLAG_SENDER) != 0)
+				sender = importCipher(name, state, HEADER_LEN);
+			if ((flags & FLAG_RECEIVER) != 0)
+				receiver = importCipher(name, state, HEADER_LEN + BODY_LEN / 2);
+			if (sender == null && receiver == null)
+				throw new IllegalArgumentException("Exported state is empty");
+			return new CipherStatePair(sender, receiver);
+		} finally {
+			Noise.destroy(state);
+		}
+	}
+
+	/**
+	 * Writes the key and nonce for a cipher to an export buffer.
+	 * 
+	 * @param cipher The cipher to export.
+	 * @param state The export buffer.
+	 * @param offset The offset to write the key and nonce at.
+	 */
+	private static void exportCipher(CipherState cipher, byte[] state, int offset)
+	{
+		if (!cipher.hasKey())
+			throw new IllegalArgumentException("Cipher does not have a key");
+		if (cipher instanceof ChaChaPolyCipherState)
+			((ChaChaPolyCipherState)cipher).getKey(state, offset);
+		else if (cipher instanceof AESGCMOnCtrCipherState)
+			((AESGCMOnCtrCipherState)cipher).getKey(state, offset);
+		else if (cipher instanceof AESGCMFallbackCipherState)
+			((AESGCMFallbackCipherState)cipher).getKey(state, offset);
+		else
+			throw new IllegalArgumentException("Cannot export cipher state of class " + cipher.getClass().getName());
+		putLong(state, offset + 32, cipher.getNonce());
+	}
+
+	/**
+	 * Creates a cipher from the key and nonce in an export buffer.
+	 * 
+	 * @param name The name of the cipher algorithm.
+	 * @param state The export buffer.
+	 * @param offset The offset of the key and nonce.
+	 * @return The new cipher.
+	 */
+	private static CipherState importCipher(String name, byte[] state, int offset)
+	{
+		CipherState cipher;
+		try {
+			cipher = Noise.createCipher(name);
+		} catch (NoSuchAlgorithmException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		}
+		cipher.initializeKey(state, offset);
+		cipher.setNonce(getLong(state, offset + 32));
+		return cipher;
+	}
+
+	private static void putLong(byte[] buf, int offset, long value)
+	{
+		for (int index = 7; index >= 0; --index) {
+			buf[offset + index] = (byte)value;
+			value >>= 8;
+		}
+	}
+
+	private static long getLong(byte[] buf, int offset)
+	{
+		long value = 0;
+		for (int index = 0; index < 8; ++index)
+			value = (value << 8) | (buf[offset + index] & 0xFF);
+		return value;
+	}
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.ShortBufferException;
+
+/**
+ * Sends packets on a single CipherState from multiple threads.
+ *
+ * Nonces are reserved atomically so that threads can encrypt packets
+ * in parallel, each using its own cipher context that was forked from
+ * the original CipherState.  The sequenced output methods then write
+ * the packets to the underlying stream in nonce order, which is the
+ * order that the remote party will expect to decrypt them in.
+ *
+ * Contexts are borrowed from a pool for each packet rather than being
+ * tied to threads.  At most one idle context per available processor
+ * is kept between calls; contexts beyond that, which are only needed
+ * when more threads than that are encrypting at once, are destroyed
+ * as soon as their packet has been encrypted and written.
+ *
+ * Once the CipherState has been passed to this class, it should not be
+ * used directly by the application any more.  Destroying this object
+ * will also destroy the original CipherState and all pooled contexts.
+ *
+ * The low-level reserveNonce() and encryptWithAd() methods must not be
+ * mixed with the sequenced output methods on the same sender, as the
+ * sequenced output will wait forever for a nonce that is never written.
+ */
+public final class ConcurrentCipherSender implements Destroyable {
+
+	private final CipherState cipher;
+	private final int macLength;
+	private final AtomicLong nonce;
+	private final ContextPool<Context> contexts;
+	private final ReentrantLock lock;
+	private final Condition turn;
+	private long nextToWrite;
+	private boolean failed;
+
+	/**
+	 * Constructs a new concurrent sender.
+	 *
+	 * @param cipher The CipherState to send packets with, which must
+	 * already have a key.  Packets will be sent starting at the current
+	 * nonce for the CipherState.
+	 *
+	 * @throws IllegalArgumentException The cipher does not have a key.
+	 *
+	 * @throws UnsupportedOperationException The cipher does not
+	 * implement CipherState.fork() and CipherState.getNonce().
+	 */
+	public ConcurrentCipherSender(CipherState cipher)
+	{
+		if (!cipher.hasKey())
+			throw new IllegalArgumentException("CipherState does not have a key");
+		this.cipher = cipher;
+		this.macLength = cipher.getMACLength();
+		this.nonce = new AtomicLong(cipher.getNonce());
+		this.contexts = new ContextPool<Context>(ContextPool.DEFAULT_LIMIT) {
+			@Override
+			protected Context create() {
+				return new Context(ConcurrentCipherSender.this.cipher.fork());
+			}
+
+			@Override
+			protected void destroy(Context context) {
+				context.destroy();
+			}
+		};
+		this.lock = new ReentrantLock();
+		this.turn = lock.newCondition();
+		this.nextToWrite = cipher.getNonce();
+		this.failed = false;
+	}
+
+	/**
+	 * Gets the length of the MAC values that are added to each packet.
+	 *
+	 * @return The length of MAC values in bytes.
+	 */
+	public int getMACLength()
+	{
+		return macLength;
+	}
+
+	/**
+	 * Gets the next nonce that will be reserved.
+	 *
+	 * @return The next nonce value.
+	 */
+	public long getNonce()
+	{
+		return nonce.get();
+	}
+
+	/**
+	 * Reserves the next nonce for encrypting a packet.
+	 *
+	 * @return The nonce that was reserved.
+	 *
+	 * @throws IllegalStateException The nonce has wrapped around.
+	 */
+	public long reserveNonce()
+	{
+		for (;;) {
+			long n = nonce.get();
+			if (n == -1L)
+				throw new IllegalStateException("Nonce has wrapped around");
+			if (nonce.compareAndSet(n, n + 1))
+				return n;
+		}
+	}
+
+	/**
+	 * Encrypts a packet with a nonce that was previously reserved.
+	 *
+	 * @param n The nonce that was returned by reserveNonce().
+	 * @param ad The associated data for the packet, or null if none.
+	 * @param plaintext The buffer containing the plaintext to encrypt.
+	 * @param plaintextOffset The offset within the plaintext buffer.
+	 * @param ciphertext The buffer to place the ciphertext in.
+	 * @param ciphertextOffset The offset within the ciphertext buffer.
+	 * @param length The length of the plaintext.
+	 * @return The length of the ciphertext plus the MAC.
+	 *
+	 * @throws ShortBufferException The ciphertext buffer does not have
+	 * enough space to hold the ciphertext plus MAC.
+	 *
+	 * This method can be called from multiple threads at once.  It is
+	 * the caller's responsibility to use each reserved nonce only once.
+	 *
+	 * @see CipherState#encryptWithAd(byte[], byte[], int, byte[], int, int)
+	 */
+	public int encryptWithAd(long n, byte[] ad, byte[] plaintext, int plaintextOffset, byte[] ciphertext, int ciphertextOffset, int length) throws ShortBufferException
+	{
+		Context context = contexts.borrow();
+		try {
+			context.cipher.setNonce(n);
+			return context.cipher.encryptWithAd(ad, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+		} finally {
+			contexts.release(context);
+		}
+	}
+
+	/**
+	 * Encrypts a packet and writes it to an output stream in nonce order.
+	 *
+	 * @param ad The associated data for the packet, or null if none.
+	 * @param plaintext The buffer containing the plaintext to encrypt.
+	 * @param offset The offset within the plaintext buffer.
+	 * @param length The length of the plaintext.
+	 * @param out The stream to write the packet to.
+	 *
+	 * @throws IOException An error occurred writing to the stream, or a
+	 * previous packet could not be written.
+	 * @throws IllegalArgumentException The packet is too large, or the
+	 * offset and length are out of range for the plaintext buffer.
+	 * @throws IllegalStateException The nonce has wrapped around.
+	 *
+	 * The packet is written to the stream with a 2-byte big-endian length
+	 * prefix.  Encryption is performed in parallel with other threads,
+	 * but this method blocks until all packets with earlier nonces have
+	 * been written.  All writes to the stream are performed with an
+	 * internal lock held.
+	 *
+	 * The arguments are checked before a nonce is reserved, so a bad
+	 * argument only fails the call that passed it.  If a packet cannot
+	 * be encrypted or written after its nonce has been reserved, then
+	 * the packet stream will have a gap in it and all subsequent calls
+	 * will fail.
+	 */
+	public void encryptAndWrite(byte[] ad, byte[] plaintext, int offset, int length, OutputStream out) throws IOException
+	{
+		if (length < 0 || length > (Noise.MAX_PACKET_LEN - macLength))
+			throw new IllegalArgumentException("Packet is too large");
+		if (offset < 0 || offset > plaintext.length || length > (plaintext.length - offset))
+			throw new IllegalArgumentException();
+		Context context = contexts.borrow();
+		try {
+			writePacket(context, ad, plaintext, offset, length, out);
+		} finally {
+			contexts.release(context);
+		}
+	}
+
+	/**
+	 * Encrypts and writes a packet using a borrowed context, after the
+	 * arguments have been validated.
+	 */
+	private void writePacket(Context context, byte[] ad, byte[] plaintext, int offset, int length, OutputStream out) throws IOException
+	{
+		byte[] buffer = context.buffer;
+		long n = reserveNonce();
+		int len = -1;
+		boolean written = false;
+		try {
+			context.cipher.setNonce(n);
+			len = context.cipher.encryptWithAd(ad, plaintext, offset, buffer, 2, length);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+		} finally {
+			// Wait for our turn even if the encryption failed so
+			// that the threads with later nonces are not blocked.
+			lock.lock();
+			try {
+				while (nextToWrite != n)
+					turn.awaitUninterruptibly();
+				try {
+					if (len >= 0 && !failed) {
+						buffer[0] = (byte)(len >> 8);
+						buffer[1] = (byte)len;
+						out.write(buffer, 0, len + 2);
+						written = true;
+					} else {
+						failed = true;
+					}
+				} catch (IOException e) {
+					failed = true;
+					throw e;
+				} finally {
+					++nextToWrite;
+					turn.signalAll();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (!written)
+			throw new IOException("Could not send packet due to an earlier failure");
+	}
+
+	/**
+	 * Flushes the underlying output stream once all packets that have
+	 * been passed to encryptAndWrite() have been written.
+	 *
+	 * @param out The stream to flush.
+	 *
+	 * @throws IOException An error occurred flushing the stream.
+	 */
+	public void flush(OutputStream out) throws IOException
+	{
+		long last = nonce.get();
+		lock.lock();
+		try {
+			while (nextToWrite != last)
+				turn.awaitUninterruptibly();
+			out.flush();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		contexts.destroy();
+		cipher.destroy();
+	}
+
+	/**
+	 * Forked cipher and packet buffer for encrypting one packet.
+	 */
+	private static final class Context implements Destroyable {
+
+		final CipherState cipher;
+		final byte[] buffer;
+
+		Context(CipherState cipher)
+		{
+			this.cipher = cipher;
+			this.buffer = new byte [Noise.MAX_PACKET_LEN + 2];
+		}
+
+		@Override
+		public void destroy() {
+			cipher.destroy();
+			Noise.destroy(buffer);
+		}
+	}
+}
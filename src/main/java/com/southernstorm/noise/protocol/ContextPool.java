@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of per-thread working contexts, such as forked ciphers.
+ *
+ * Callers borrow a context for the duration of one operation and then
+ * return it.  At most a fixed number of idle contexts are kept; if more
+ * threads than that are working at once, the extra contexts are created
+ * on demand and destroyed when they are returned.  The memory held by
+ * the pool therefore does not grow with the number of threads that
+ * have ever used it.
+ *
+ * Borrowing and returning never block.
+ *
+ * @param <T> The type of context.
+ */
+abstract class ContextPool<T> implements Destroyable {
+
+	/**
+	 * Default number of idle contexts to keep, which is the number of
+	 * processors that are available to the JVM.
+	 */
+	static final int DEFAULT_LIMIT = Runtime.getRuntime().availableProcessors();
+
+	private final int limit;
+	private final ConcurrentLinkedQueue<T> idle;
+	private final AtomicInteger idleCount;
+	private volatile boolean destroyed;
+
+	/**
+	 * Constructs a new context pool.
+	 *
+	 * @param limit The maximum number of idle contexts to keep.
+	 */
+	ContextPool(int limit)
+	{
+		this.limit = limit;
+		this.idle = new ConcurrentLinkedQueue<T>();
+		this.idleCount = new AtomicInteger();
+		this.destroyed = false;
+	}
+
+	/**
+	 * Creates a new context.
+	 *
+	 * @return The new context.
+	 */
+	protected abstract T create();
+
+	/**
+	 * Destroys a context that is no longer needed.
+	 *
+	 * @param context The context to destroy.
+	 */
+	protected abstract void destroy(T context);
+
+	/**
+	 * Borrows a context from this pool, creating one if none are idle.
+	 *
+	 * @return The context, which must be returned with release().
+	 *
+	 * @throws IllegalStateException This pool has been destroyed.
+	 */
+	T borrow()
+	{
+		if (destroyed)
+			throw new IllegalStateException("Context pool has been destroyed");
+		T context = idle.poll();
+		if (context != null) {
+			idleCount.decrementAndGet();
+			return context;
+		}
+		return create();
+	}
+
+	/**
+	 * Returns a context to this pool.
+	 *
+	 * @param context The context that was returned by borrow().
+	 */
+	void release(T context)
+	{
+		if (idleCount.incrementAndGet() <= limit && !destroyed) {
+			idle.add(context);
+
+			// Clean up if the pool was destroyed while we were adding.
+			if (destroyed)
+				drain();
+		} else {
+			idleCount.decrementAndGet();
+			destroy(context);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		destroyed = true;
+		drain();
+	}
+
+	/**
+	 * Destroys all idle contexts.
+	 */
+	private void drain()
+	{
+		T context;
+		while ((context = idle.poll()) != null) {
+			idleCount.decrementAndGet();
+			destroy(context);
+		}
+	}
+}
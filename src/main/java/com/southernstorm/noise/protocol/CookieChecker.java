@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.security.MessageDigest;
+
+import javax.crypto.ShortBufferException;
+
+/**
+ * Checks the cookie MACs on handshake messages before they are processed.
+ *
+ * This is the responder side of a cookie layer in the style of WireGuard.
+ * Initiators use CookieMaker to append a 32-byte trailer to the first
+ * handshake message consisting of two 16-byte MAC values:
+ *
+ * mac1 is keyed by a hash of the responder's static public key, so only
+ * initiators that know who they are talking to can produce it.  Messages
+ * with a bad mac1 can be dropped without any DH work.
+ *
+ * mac2 is keyed by a cookie that the responder gave to the initiator's
+ * source address in an earlier cookie reply.  The cookie is a MAC of the
+ * source address under a random secret that changes every two minutes,
+ * so the responder does not need to store any per-source state.
+ *
+ * When the responder is not under load, only mac1 is checked.  When it is
+ * under load, messages without a valid mac2 are answered with a cookie
+ * reply instead of being processed.  An attacker that spoofs its source
+ * address never sees the cookie reply and cannot produce a valid mac2.
+ *
+ * The responder is considered to be under load when more than a given
+ * number of messages per second have passed the mac1 check, or the
+ * application can make the decision itself with the variant of check()
+ * that takes an explicit load flag.
+ *
+ * Usage on the responder is as follows:
+ *
+ * <pre>
+ * int result = checker.check(message, 0, length, sourceAddress);
+ * if (result == CookieChecker.VALID) {
+ *     handshake.readMessage(message, 0, length - CookieChecker.MACS_LEN, payload, 0);
+ * } else if (result == CookieChecker.COOKIE_REQUIRED) {
+ *     int replyLen = checker.createCookieReply(message, 0, length, sourceAddress, reply, 0);
+ *     // send the reply to the source address
+ * }
+ * </pre>
+ *
+ * The source address is an arbitrary byte array that identifies where
+ * the message came from, such as the IP address and port.
+ *
+ * The methods of this class are synchronized so that a single checker
+ * can be shared between the threads of a server.
+ */
+public final class CookieChecker implements Destroyable {
+
+	/**
+	 * Length of the MAC trailer that CookieMaker appends to messages.
+	 */
+	public static final int MACS_LEN = 2 * CookieMac.MAC_LEN;
+
+	/**
+	 * Length of a cookie reply: 24-byte nonce, encrypted cookie, and tag.
+	 */
+	public static final int COOKIE_REPLY_LEN = CookieMac.NONCE_LEN + 2 * CookieMac.MAC_LEN;
+
+	/**
+	 * The message is valid and should be passed to the HandshakeState.
+	 */
+	public static final int VALID = 0;
+
+	/**
+	 * The message is invalid and should be dropped silently.
+	 */
+	public static final int INVALID = 1;
+
+	/**
+	 * The responder is under load and the message does not have a valid
+	 * mac2.  A cookie reply should be sent instead of processing it.
+	 */
+	public static final int COOKIE_REQUIRED = 2;
+
+	/**
+	 * Number of nanoseconds between changes of the cookie secret.
+	 */
+	static final long SECRET_LIFETIME = 120L * 1000000000L;
+
+	private MessageDigest hash;
+	private byte[] mac1Key;
+	private byte[] cookieKey;
+	private byte[] secret;
+	private long secretTime;
+	private byte[] temp;
+	private int loadThreshold;
+	private long loadWindow;
+	private int loadCount;
+
+	/**
+	 * Constructs a new cookie checker.
+	 *
+	 * @param publicKey The buffer containing the responder's static public key.
+	 * @param offset The offset of the public key.
+	 * @param length The length of the public key.
+	 */
+	public CookieChecker(byte[] publicKey, int offset, int length)
+	{
+		hash = CookieMac.createHash();
+		mac1Key = CookieMac.deriveKey(hash, CookieMac.LABEL_MAC1, publicKey, offset, length);
+		cookieKey = CookieMac.deriveKey(hash, CookieMac.LABEL_COOKIE, publicKey, offset, length);
+		secret = new byte [32];
+		secretTime = System.nanoTime() - SECRET_LIFETIME;
+		temp = new byte [2 * CookieMac.MAC_LEN];
+		loadThreshold = 0;
+		loadWindow = System.nanoTime();
+		loadCount = 0;
+	}
+
+	/**
+	 * Sets the number of messages per second above which the responder
+	 * is considered to be under load.
+	 *
+	 * @param messagesPerSecond The number of messages with a valid mac1
+	 * per second, or zero to never be under load.  Zero is the default.
+	 */
+	public synchronized void setLoadThreshold(int messagesPerSecond)
+	{
+		if (messagesPerSecond < 0)
+			throw new IllegalArgumentException("Load threshold cannot be negative");
+		loadThreshold = messagesPerSecond;
+	}
+
+	/**
+	 * Checks the MACs on a handshake message, using the load threshold
+	 * to decide whether the responder is under load.
+	 *
+	 * @param message The buffer containing the message.
+	 * @param offset The offset of the message.
+	 * @param length The length of the message, including the MAC trailer.
+	 * @param source The source address of the message.
+	 * @return One of VALID, INVALID, or COOKIE_REQUIRED.
+	 *
+	 * @see #setLoadThreshold(int)
+	 */
+	public synchronized int check(byte[] message, int offset, int length, byte[] source)
+	{
+		if (!checkMac1(message, offset, length))
+			return INVALID;
+		boolean underLoad = false;
+		if (loadThreshold != 0) {
+			long now = System.nanoTime();
+			if ((now - loadWindow) >= 1000000000L) {
+				loadWindow = now;
+				loadCount = 0;
+			}
+			underLoad = (++loadCount > loadThreshold);
+		}
+		return checkMac2(message, offset, length, source, underLoad);
+	}
+
+	/**
+	 * Checks the MACs on a handshake message.
+	 *
+	 * @param message The buffer containing the message.
+	 * @param offset The offset of the message.
+	 * @param length The length of the message, including the MAC trailer.
+	 * @param source The source address of the message.
+	 * @param underLoad Set to true if the responder is under load and
+	 * requires a valid mac2, or false to only check mac1.
+	 * @return One of VALID, INVALID, or COOKIE_REQUIRED.
+	 */
+	public synchronized int check(byte[] message, int offset, int length, byte[] source, boolean underLoad)
+	{
+		if (!checkMac1(message, offset, length))
+			return INVALID;
+		return checkMac2(message, offset, length, source, underLoad);
+	}
+
+	/**
+	 * Creates a cookie reply for a handshake message.
+	 *
+	 * @param message The buffer containing the message, which must have
+	 * already passed the mac1 check.
+	 * @param offset The offset of the message.
+	 * @param length The length of the message, including the MAC trailer.
+	 * @param source The source address of the message.
+	 * @param reply The buffer to write the cookie reply to.
+	 * @param replyOffset The offset to write the cookie reply at.
+	 * @return The length of the cookie reply, COOKIE_REPLY_LEN.
+	 *
+	 * @throws ShortBufferException The reply buffer is too small.
+	 * @throws IllegalArgumentException The message is too short to
+	 * contain the MAC trailer.
+	 *
+	 * The cookie is encrypted under a fresh key that is derived from the
+	 * responder's static public key and a random 24-byte nonce, with mac1
+	 * from the message as the associated data.  This binds the reply to
+	 * the message that the initiator sent.
+	 */
+	public synchronized int createCookieReply(byte[] message, int offset, int length, byte[] source, byte[] reply, int replyOffset) throws ShortBufferException
+	{
+		if (length < MACS_LEN)
+			throw new IllegalArgumentException("Message is too short to contain the cookie MACs");
+		if (replyOffset < 0 || replyOffset > reply.length || (reply.length - replyOffset) < COOKIE_REPLY_LEN)
+			throw new ShortBufferException();
+		byte[] mac1 = new byte [CookieMac.MAC_LEN];
+		System.arraycopy(message, offset + length - MACS_LEN, mac1, 0, CookieMac.MAC_LEN);
+		byte[] nonce = new byte [CookieMac.NONCE_LEN];
+		Noise.random(nonce);
+		System.arraycopy(nonce, 0, reply, replyOffset, CookieMac.NONCE_LEN);
+		makeCookie(source, temp, 0);
+		CipherState cipher = CookieMac.createReplyCipher(hash, cookieKey, reply, replyOffset);
+		try {
+			cipher.encryptWithAd(mac1, temp, 0, reply, replyOffset + CookieMac.NONCE_LEN, CookieMac.MAC_LEN);
+		} finally {
+			cipher.destroy();
+			Noise.destroy(temp);
+		}
+		return COOKIE_REPLY_LEN;
+	}
+
+	@Override
+	public synchronized void destroy() {
+		Noise.destroy(mac1Key);
+		Noise.destroy(cookieKey);
+		Noise.destroy(secret);
+		Noise.destroy(temp);
+		if (hash instanceof Destroyable)
+			((Destroyable)hash).destroy();
+		hash.reset();
+	}
+
+	/**
+	 * Checks the mac1 value on a message.
+	 */
+	private boolean checkMac1(byte[] message, int offset, int length)
+	{
+		if (length < MACS_LEN)
+			return false;
+		int dataLen = length - MACS_LEN;
+		CookieMac.mac(hash, mac1Key, message, offset, dataLen, null, 0, 0, temp, 0);
+		boolean ok = CookieMac.equal(temp, 0, message, offset + dataLen);
+		Noise.destroy(temp);
+		return ok;
+	}
+
+	/**
+	 * Checks the mac2 value on a message that has already passed mac1.
+	 */
+	private int checkMac2(byte[] message, int offset, int length, byte[] source, boolean underLoad)
+	{
+		if (!underLoad)
+			return VALID;
+		int dataLen = length - CookieMac.MAC_LEN;
+		makeCookie(source, temp, CookieMac.MAC_LEN);
+		byte[] cookie = new byte [CookieMac.MAC_LEN];
+		System.arraycopy(temp, CookieMac.MAC_LEN, cookie, 0, CookieMac.MAC_LEN);
+		CookieMac.mac(hash, cookie, message, offset, dataLen, null, 0, 0, temp, 0);
+		boolean ok = CookieMac.equal(temp, 0, message, offset + dataLen);
+		Noise.destroy(cookie);
+		Noise.destroy(temp);
+		return ok ? VALID : COOKIE_REQUIRED;
+	}
+
+	/**
+	 * Makes the cookie for a source address, changing the secret if
+	 * it has expired.
+	 */
+	private void makeCookie(byte[] source, byte[] output, int outputOffset)
+	{
+		long now = System.nanoTime();
+		if ((now - secretTime) >= SECRET_LIFETIME) {
+			Noise.random(secret);
+			secretTime = now;
+		}
+		CookieMac.mac(hash, secret, source, 0, source.length, null, 0, 0, output, outputOffset);
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Common functions for the handshake cookie layer.
+ *
+ * The MAC function is HMAC-BLAKE2s truncated to 16 bytes.  The mac1
+ * key and the cookie reply key are derived from the responder's static
+ * public key with BLAKE2s and a label, so that any initiator that knows
+ * the public key can compute mac1 but an off-path attacker cannot.
+ *
+ * Each cookie reply is encrypted with ChaChaPoly under its own key,
+ * which is the BLAKE2s hash of the cookie reply key and a random
+ * 24-byte nonce.  Cookie replies can be triggered at a high rate,
+ * so a 64-bit random nonce under a single key would soon repeat.
+ *
+ * @see CookieChecker
+ * @see CookieMaker
+ */
+final class CookieMac {
+
+	/**
+	 * Length of a MAC value or a cookie.
+	 */
+	static final int MAC_LEN = 16;
+
+	/**
+	 * Length of the random nonce at the start of a cookie reply.
+	 */
+	static final int NONCE_LEN = 24;
+
+	/**
+	 * Label for deriving the mac1 key.
+	 */
+	static final String LABEL_MAC1 = "mac1----";
+
+	/**
+	 * Label for deriving the cookie reply encryption key.
+	 */
+	static final String LABEL_COOKIE = "cookie--";
+
+	private CookieMac() {}
+
+	/**
+	 * Creates the BLAKE2s hash object for the cookie layer.
+	 *
+	 * @return The hash object.
+	 */
+	static MessageDigest createHash()
+	{
+		try {
+			return Noise.createHash("BLAKE2s");
+		} catch (NoSuchAlgorithmException e) {
+			// Shouldn't happen as there is a fallback implementation.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Derives a key from a label and the responder's static public key.
+	 *
+	 * @param hash The BLAKE2s hash object.
+	 * @param label The label.
+	 * @param publicKey The buffer containing the public key.
+	 * @param offset The offset of the public key.
+	 * @param length The length of the public key.
+	 * @return The 32-byte key.
+	 */
+	static byte[] deriveKey(MessageDigest hash, String label, byte[] publicKey, int offset, int length)
+	{
+		byte[] labelBytes = label.getBytes(StandardCharsets.US_ASCII);
+		hash.reset();
+		hash.update(labelBytes);
+		hash.update(publicKey, offset, length);
+		return hash.digest();
+	}
+
+	/**
+	 * Computes a truncated HMAC-BLAKE2s value over two pieces of data.
+	 *
+	 * @param hash The BLAKE2s hash object.
+	 * @param key The key, which must be no more than 64 bytes in length.
+	 * @param data The buffer that contains the data.
+	 * @param dataOffset The offset of the data.
+	 * @param dataLength The length of the data.
+	 * @param data2 The buffer that contains more data, or null.
+	 * @param data2Offset The offset of the additional data.
+	 * @param data2Length The length of the additional data.
+	 * @param output The buffer to write the 16-byte MAC to.
+	 * @param outputOffset The offset to write the MAC at.
+	 */
+	static void mac(MessageDigest hash, byte[] key,
+					byte[] data, int dataOffset, int dataLength,
+					byte[] data2, int data2Offset, int data2Length,
+					byte[] output, int outputOffset)
+	{
+		byte[] block = new byte [64];
+		byte[] inner = new byte [32];
+		try {
+			System.arraycopy(key, 0, block, 0, key.length);
+			for (int index = 0; index < 64; ++index)
+				block[index] ^= (byte)0x36;
+			hash.reset();
+			hash.update(block, 0, 64);
+			hash.update(data, dataOffset, dataLength);
+			if (data2 != null)
+				hash.update(data2, data2Offset, data2Length);
+			hash.digest(inner, 0, 32);
+			for (int index = 0; index < 64; ++index)
+				block[index] ^= (byte)(0x36 ^ 0x5C);
+			hash.reset();
+			hash.update(block, 0, 64);
+			hash.update(inner, 0, 32);
+			hash.digest(inner, 0, 32);
+			System.arraycopy(inner, 0, output, outputOffset, MAC_LEN);
+		} catch (DigestException e) {
+			Arrays.fill(output, outputOffset, outputOffset + MAC_LEN, (byte)0);
+		} finally {
+			Noise.destroy(block);
+			Noise.destroy(inner);
+		}
+	}
+
+	/**
+	 * Compares two MAC values in constant time.
+	 *
+	 * @param a The buffer containing the first MAC.
+	 * @param aOffset The offset of the first MAC.
+	 * @param b The buffer containing the second MAC.
+	 * @param bOffset The offset of the second MAC.
+	 * @return Returns true if the values are the same.
+	 */
+	static boolean equal(byte[] a, int aOffset, byte[] b, int bOffset)
+	{
+		int temp = 0;
+		for (int index = 0; index < MAC_LEN; ++index)
+			temp |= (a[aOffset + index] ^ b[bOffset + index]);
+		return temp == 0;
+	}
+
+	/**
+	 * Creates the cipher for encrypting or decrypting a cookie reply.
+	 *
+	 * @param hash The BLAKE2s hash object.
+	 * @param key The 32-byte cookie reply key.
+	 * @param nonce The buffer containing the 24-byte random nonce.
+	 * @param offset The offset of the nonce.
+	 * @return The cipher, which the caller must destroy.
+	 *
+	 * The cipher is keyed with a hash of the key and the nonce, and
+	 * starts at a nonce of zero.  Nothing from the network is used as
+	 * the ChaChaPoly nonce itself.
+	 */
+	static CipherState createReplyCipher(MessageDigest hash, byte[] key, byte[] nonce, int offset)
+	{
+		ChaChaPolyCipherState cipher = new ChaChaPolyCipherState();
+		hash.reset();
+		hash.update(key);
+		hash.update(nonce, offset, NONCE_LEN);
+		byte[] replyKey = hash.digest();
+		try {
+			cipher.initializeKey(replyKey, 0);
+		} finally {
+			Noise.destroy(replyKey);
+		}
+		return cipher;
+	}
+}
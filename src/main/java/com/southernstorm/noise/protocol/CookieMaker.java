@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Adds cookie MACs to handshake messages for a responder that uses
+ * a CookieChecker.
+ *
+ * The initiator appends the MAC trailer to its first handshake message
+ * with addMacs().  If the responder is under load, it answers with a
+ * cookie reply instead of a handshake message; the initiator passes it
+ * to consumeCookieReply() and then retries the handshake, which will
+ * carry a valid mac2 for the next two minutes.
+ *
+ * <pre>
+ * int length = handshake.writeMessage(message, 0, payload, 0, payloadLen);
+ * length = maker.addMacs(message, 0, length);
+ * </pre>
+ *
+ * @see CookieChecker
+ */
+public final class CookieMaker implements Destroyable {
+
+	/**
+	 * Number of nanoseconds that a cookie remains usable.  This is a
+	 * little less than the lifetime of the responder's cookie secret.
+	 */
+	static final long COOKIE_LIFETIME = CookieChecker.SECRET_LIFETIME - 10L * 1000000000L;
+
+	private MessageDigest hash;
+	private byte[] mac1Key;
+	private byte[] cookieKey;
+	private byte[] lastMac1;
+	private byte[] cookie;
+	private long cookieTime;
+	private boolean haveMac1;
+	private boolean haveCookie;
+
+	/**
+	 * Constructs a new cookie maker.
+	 *
+	 * @param publicKey The buffer containing the responder's static public key.
+	 * @param offset The offset of the public key.
+	 * @param length The length of the public key.
+	 */
+	public CookieMaker(byte[] publicKey, int offset, int length)
+	{
+		hash = CookieMac.createHash();
+		mac1Key = CookieMac.deriveKey(hash, CookieMac.LABEL_MAC1, publicKey, offset, length);
+		cookieKey = CookieMac.deriveKey(hash, CookieMac.LABEL_COOKIE, publicKey, offset, length);
+		lastMac1 = new byte [CookieMac.MAC_LEN];
+		cookie = new byte [CookieMac.MAC_LEN];
+		cookieTime = 0;
+		haveMac1 = false;
+		haveCookie = false;
+	}
+
+	/**
+	 * Appends the MAC trailer to a handshake message.
+	 *
+	 * @param message The buffer containing the message.  There must be
+	 * CookieChecker.MACS_LEN bytes of space after the message.
+	 * @param offset The offset of the message.
+	 * @param length The length of the message.
+	 * @return The length of the message including the trailer.
+	 *
+	 * @throws ShortBufferException There is not enough space in the
+	 * buffer for the MAC trailer.
+	 *
+	 * If there is no current cookie from the responder, then mac2 is
+	 * set to all-zeroes.
+	 */
+	public int addMacs(byte[] message, int offset, int length) throws ShortBufferException
+	{
+		if (offset < 0 || length < 0 || (message.length - offset - length) < CookieChecker.MACS_LEN)
+			throw new ShortBufferException();
+		CookieMac.mac(hash, mac1Key, message, offset, length, null, 0, 0, message, offset + length);
+		System.arraycopy(message, offset + length, lastMac1, 0, CookieMac.MAC_LEN);
+		haveMac1 = true;
+		length += CookieMac.MAC_LEN;
+		if (haveCookie && (System.nanoTime() - cookieTime) >= COOKIE_LIFETIME) {
+			Noise.destroy(cookie);
+			haveCookie = false;
+		}
+		if (haveCookie)
+			CookieMac.mac(hash, cookie, message, offset, length, null, 0, 0, message, offset + length);
+		else
+			Arrays.fill(message, offset + length, offset + length + CookieMac.MAC_LEN, (byte)0);
+		return length + CookieMac.MAC_LEN;
+	}
+
+	/**
+	 * Processes a cookie reply from the responder.
+	 *
+	 * @param reply The buffer containing the cookie reply.
+	 * @param offset The offset of the cookie reply.
+	 * @param length The length of the cookie reply.
+	 *
+	 * @throws BadPaddingException The cookie reply is invalid or does not
+	 * correspond to the last message that was sent.
+	 */
+	public void consumeCookieReply(byte[] reply, int offset, int length) throws BadPaddingException
+	{
+		if (!haveMac1 || length != CookieChecker.COOKIE_REPLY_LEN)
+			Noise.throwBadTagException();
+		CipherState cipher = CookieMac.createReplyCipher(hash, cookieKey, reply, offset);
+		byte[] value = new byte [CookieMac.MAC_LEN];
+		try {
+			cipher.decryptWithAd(lastMac1, reply, offset + CookieMac.NONCE_LEN, value, 0, length - CookieMac.NONCE_LEN);
+			System.arraycopy(value, 0, cookie, 0, CookieMac.MAC_LEN);
+			cookieTime = System.nanoTime();
+			haveCookie = true;
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		} finally {
+			cipher.destroy();
+			Noise.destroy(value);
+		}
+	}
+
+	/**
+	 * Determines if this object has a current cookie from the responder.
+	 *
+	 * @return Returns true if addMacs() will produce a non-zero mac2.
+	 */
+	public boolean hasCookie()
+	{
+		return haveCookie && (System.nanoTime() - cookieTime) < COOKIE_LIFETIME;
+	}
+
+	@Override
+	public void destroy() {
+		Noise.destroy(mac1Key);
+		Noise.destroy(cookieKey);
+		Noise.destroy(lastMac1);
+		Noise.destroy(cookie);
+		haveMac1 = false;
+		haveCookie = false;
+		if (hash instanceof Destroyable)
+			((Destroyable)hash).destroy();
+		hash.reset();
+	}
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.crypto.ShortBufferException;
+
+/**
+ * Encrypts and decrypts datagrams with explicit nonces.
+ *
+ * Each datagram starts with the 64-bit big-endian nonce that was used
+ * to encrypt it, followed by the ciphertext and MAC.  Datagrams can be
+ * decrypted in any order.  Received nonces are tracked with a sliding
+ * window bitmap, similar to WireGuard, so that replayed datagrams and
+ * datagrams that are too old are rejected.
+ *
+ * Encryption and decryption are thread-safe and lock-free.  Nonces are
+ * reserved for outgoing datagrams with an atomic counter, and each
+ * datagram is encrypted or decrypted with a fork of the cipher that is
+ * borrowed from a pool.  At most one idle fork per available processor
+ * is kept in each direction, so the memory held does not grow with the
+ * number of threads that send or receive datagrams.
+ *
+ * Nonces are limited to the range 0 to 2^63 - 1.
+ */
+public final class DatagramCipher implements Destroyable {
+
+	/**
+	 * Length of the nonce header on each datagram.
+	 */
+	public static final int HEADER_LEN = 8;
+
+	/**
+	 * Number of 32-bit blocks in the replay window.
+	 */
+	private static final int WINDOW_BLOCKS = 64;
+
+	/**
+	 * Number of nonces behind the highest received nonce that
+	 * will be accepted.  One block of the window is kept in reserve
+	 * so that the block for a new nonce can be recycled.
+	 */
+	public static final int WINDOW_SIZE = (WINDOW_BLOCKS - 1) * 32;
+
+	private final CipherState sender;
+	private final CipherState receiver;
+	private final int sendMacLength;
+	private final int receiveMacLength;
+	private final AtomicLong sendNonce;
+	private final AtomicLong maxNonce;
+	private final AtomicLongArray window;
+	private final ContextPool<CipherState> sendContexts;
+	private final ContextPool<CipherState> receiveContexts;
+
+	/**
+	 * Constructs a datagram cipher from the result of a handshake.
+	 *
+	 * @param pair The pair of ciphers from HandshakeState.split().
+	 * This object takes ownership of the ciphers and will destroy them.
+	 */
+	public DatagramCipher(CipherStatePair pair)
+	{
+		this(pair.getSender(), pair.getReceiver());
+	}
+
+	/**
+	 * Constructs a datagram cipher from separate sending and
+	 * receiving ciphers.
+	 *
+	 * @param sender The cipher to encrypt outgoing datagrams with,
+	 * or null if this object will only be used to receive.
+	 * @param receiver The cipher to decrypt incoming datagrams with,
+	 * or null if this object will only be used to send.
+	 *
+	 * This object takes ownership of the ciphers and will destroy them.
+	 * Outgoing nonces start at the sender's current nonce.
+	 *
+	 * @throws UnsupportedOperationException One of the ciphers does not
+	 * implement CipherState.fork() and CipherState.getNonce().
+	 */
+	public DatagramCipher(CipherState sender, CipherState receiver)
+	{
+		this.sender = sender;
+		this.receiver = receiver;
+		this.sendMacLength = sender != null ? sender.getMACLength() : 0;
+		this.receiveMacLength = receiver != null ? receiver.getMACLength() : 0;
+		this.sendNonce = new AtomicLong(sender != null ? sender.getNonce() : 0);
+		this.maxNonce = new AtomicLong(-1L);
+		this.window = new AtomicLongArray(WINDOW_BLOCKS);
+		this.sendContexts = createPool(sender);
+		this.receiveContexts = createPool(receiver);
+	}
+
+	/**
+	 * Gets the maximum payload length for an outgoing datagram.
+	 *
+	 * @return The maximum payload length.
+	 */
+	public int getMaxPayloadLength()
+	{
+		return Noise.MAX_PACKET_LEN - sendMacLength;
+	}
+
+	/**
+	 * Encrypts a datagram.
+	 *
+	 * @param ad The associated data, or null if none.
+	 * @param plaintext The buffer containing the payload.
+	 * @param plaintextOffset The offset of the payload.
+	 * @param packet The buffer to write the datagram to.
+	 * @param packetOffset The offset to write the datagram at.
+	 * @param length The length of the payload.
+	 * @return The length of the datagram, including the nonce header.
+	 *
+	 * @throws ShortBufferException The packet buffer is too small.
+	 * @throws IllegalArgumentException The payload is too large or one
+	 * of the offsets is out of range.
+	 * @throws IllegalStateException There is no sending cipher, or the
+	 * nonce has reached 2^63.
+	 */
+	public int encryptWithAd(byte[] ad, byte[] plaintext, int plaintextOffset, byte[] packet, int packetOffset, int length) throws ShortBufferException
+	{
+		if (sender == null)
+			throw new IllegalStateException("No sending cipher");
+		if (length < 0 || length > getMaxPayloadLength())
+			throw new IllegalArgumentException("Payload is too large");
+		if (packetOffset < 0 || packetOffset > packet.length)
+			throw new IllegalArgumentException();
+		if ((packet.length - packetOffset) < (HEADER_LEN + length + sendMacLength))
+			throw new ShortBufferException();
+		long n;
+		do {
+			n = sendNonce.get();
+			if (n < 0)
+				throw new IllegalStateException("Nonce has wrapped around");
+		} while (!sendNonce.compareAndSet(n, n + 1));
+		for (int index = 0; index < HEADER_LEN; ++index)
+			packet[packetOffset + index] = (byte)(n >> (56 - index * 8));
+		CipherState context = sendContexts.borrow();
+		try {
+			context.setNonce(n);
+			return HEADER_LEN + context.encryptWithAd(ad, plaintext, plaintextOffset, packet, packetOffset + HEADER_LEN, length);
+		} finally {
+			sendContexts.release(context);
+		}
+	}
+
+	/**
+	 * Decrypts a datagram.
+	 *
+	 * @param ad The associated data, or null if none.
+	 * @param packet The buffer containing the datagram.
+	 * @param packetOffset The offset of the datagram.
+	 * @param packetLength The length of the datagram.
+	 * @param plaintext The buffer to write the payload to.
+	 * @param plaintextOffset The offset to write the payload at.
+	 * @return The length of the payload, or -1 if the datagram is
+	 * malformed, fails authentication, is a replay of an earlier
+	 * datagram, or is too old to be checked for replay.
+	 *
+	 * The contents of the plaintext buffer are undefined if -1 is
+	 * returned; they may have been overwritten.
+	 *
+	 * @throws ShortBufferException The plaintext buffer is too small.
+	 * @throws IllegalArgumentException One of the offsets is out of range.
+	 * @throws IllegalStateException There is no receiving cipher.
+	 */
+	public int decryptWithAd(byte[] ad, byte[] packet, int packetOffset, int packetLength, byte[] plaintext, int plaintextOffset) throws ShortBufferException
+	{
+		if (receiver == null)
+			throw new IllegalStateException("No receiving cipher");
+		if (packetOffset < 0 || packetLength < 0 || packetOffset > packet.length || (packet.length - packetOffset) < packetLength)
+			throw new IllegalArgumentException();
+		if (packetLength < (HEADER_LEN + receiveMacLength))
+			return -1;
+		long n = 0;
+		for (int index = 0; index < HEADER_LEN; ++index)
+			n = (n << 8) | (packet[packetOffset + index] & 0xFF);
+
+		// Discard obvious replays before spending time on decryption.
+		if (!checkWindow(n))
+			return -1;
+		CipherState context = receiveContexts.borrow();
+		int result;
+		try {
+			context.setNonce(n);
+			result = context.tryDecryptWithAd(ad, packet, packetOffset + HEADER_LEN, plaintext, plaintextOffset, packetLength - HEADER_LEN);
+		} finally {
+			receiveContexts.release(context);
+		}
+		if (result < 0)
+			return -1;
+
+		// Record the nonce now that the datagram has been authenticated.
+		if (!markWindow(n))
+			return -1;
+		return result;
+	}
+
+	/**
+	 * Gets the highest nonce that has been received so far.
+	 *
+	 * @return The highest nonce, or -1 if no datagrams have been received.
+	 */
+	public long getMaxReceivedNonce()
+	{
+		return maxNonce.get();
+	}
+
+	@Override
+	public void destroy() {
+		sendContexts.destroy();
+		receiveContexts.destroy();
+		if (sender != null)
+			sender.destroy();
+		if (receiver != null)
+			receiver.destroy();
+	}
+
+	/**
+	 * Creates the pool of forked contexts for one direction.
+	 *
+	 * @param cipher The cipher to fork, or null for no contexts.
+	 * @return The context pool.
+	 */
+	private static ContextPool<CipherState> createPool(final CipherState cipher)
+	{
+		return new ContextPool<CipherState>(ContextPool.DEFAULT_LIMIT) {
+			@Override
+			protected CipherState create() {
+				return cipher.fork();
+			}
+
+			@Override
+			protected void destroy(CipherState context) {
+				context.destroy();
+			}
+		};
+	}
+
+	/**
+	 * Checks if a nonce could be accepted by the replay window,
+	 * without recording it.
+	 *
+	 * @param n The nonce.
+	 * @return true if the nonce is acceptable; false if it is a replay,
+	 * too old, or out of range.
+	 */
+	private boolean checkWindow(long n)
+	{
+		if (n < 0)
+			return false;
+		if ((maxNonce.get() - n) >= WINDOW_SIZE)
+			return false;
+		long block = n >>> 5;
+		long value = window.get((int)(block & (WINDOW_BLOCKS - 1)));
+		int tag = (int)(value >>> 32);
+		if (tag == (int)block)
+			return (value & (1L << (n & 31))) == 0;
+		return (((int)block) - tag) > 0;
+	}
+
+	/**
+	 * Records a nonce in the replay window.
+	 *
+	 * @param n The nonce, which must be between 0 and 2^63 - 1.
+	 * @return true if the nonce was recorded; false if it is a replay
+	 * or too old.
+	 *
+	 * Each slot in the window packs a 32-bit block number tag into the
+	 * high half and a bitmap of the 32 nonces in that block into the low
+	 * half.  Slots are only ever replaced by newer blocks, so a bit that
+	 * has been set can never be cleared again for the same nonce.  If a
+	 * slot is so stale that its tag has wrapped around relative to the
+	 * new block, the nonce is rejected rather than risk a replay.
+	 */
+	private boolean markWindow(long n)
+	{
+		long block = n >>> 5;
+		int tag = (int)block;
+		int slot = (int)(block & (WINDOW_BLOCKS - 1));
+		long bit = 1L << (n & 31);
+		for (;;) {
+			if ((maxNonce.get() - n) >= WINDOW_SIZE)
+				return false;
+			long value = window.get(slot);
+			int oldTag = (int)(value >>> 32);
+			long newValue;
+			if (oldTag == tag) {
+				if ((value & bit) != 0)
+					return false;
+				newValue = value | bit;
+			} else if ((tag - oldTag) > 0) {
+				newValue = (((long)tag) << 32) | bit;
+			} else {
+				return false;
+			}
+			if (window.compareAndSet(slot, value, newValue))
+				break;
+		}
+
+		// Advance the highest nonce that we have seen.
+		long max;
+		do {
+			max = maxNonce.get();
+			if (n <= max)
+				break;
+		} while (!maxNonce.compareAndSet(max, n));
+		return true;
+	}
+}
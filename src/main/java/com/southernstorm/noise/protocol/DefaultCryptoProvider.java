@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.southernstorm.noise.crypto.Blake2bMessageDigest;
+import com.southernstorm.noise.crypto.Blake2sMessageDigest;
+import com.southernstorm.noise.crypto.SHA256MessageDigest;
+import com.southernstorm.noise.crypto.SHA512MessageDigest;
+
+/**
+ * Provider for the implementations that are built into this library.
+ *
+ * The JCA implementation of an algorithm is used where one exists,
+ * unless fallbacks are forced or calibration chose the fallback.
+ */
+final class DefaultCryptoProvider implements NoiseCryptoProvider {
+
+	@Override
+	public String getName() {
+		return "Noise-Java";
+	}
+
+	@Override
+	public int getPriority() {
+		return 0;
+	}
+
+	@Override
+	public int getCapabilities(String name) {
+		// The AESGCM fallback uses lookup tables, and whether the JCA
+		// version is constant-time or accelerated depends upon the JVM.
+		// NewHope and Kyber768 use rejection sampling, which is
+		// variable-time but only on public values.  Report only what we can promise.
+		if (name.equals("25519") || name.equals("448"))
+			return CONSTANT_TIME;
+		else if (name.equals("ChaChaPoly"))
+			return CONSTANT_TIME | ALLOCATION_FREE;
+		else if (name.equals("SHA256") || name.equals("SHA512") ||
+				 name.equals("BLAKE2b") || name.equals("BLAKE2s"))
+			return CONSTANT_TIME;
+		return 0;
+	}
+
+	@Override
+	public DHState createDH(String name) {
+		if (name.equals("25519"))
+			return new Curve25519DHState();
+		if (name.equals("448"))
+			return new Curve448DHState();
+		if (name.equals("NewHope"))
+			return new NewHopeDHState();
+		if (name.equals("Kyber768"))
+			return new MLKEMDHState();
+		return null;
+	}
+
+	@Override
+	public CipherState createCipher(String name) {
+		if (name.equals("AESGCM")) {
+			if (Noise.useFallback(name))
+				return new AESGCMFallbackCipherState();
+			// "AES/GCM/NoPadding" exists in some recent JDK's but it is flaky
+			// to use and not easily back-portable to older Android versions.
+			// We instead emulate AESGCM on top of "AES/CTR/NoPadding".
+			try {
+				return new AESGCMOnCtrCipherState();
+			} catch (NoSuchAlgorithmException e1) {
+				// Could not find anything useful in the JCA/JCE so
+				// use the pure Java fallback implementation instead.
+				return new AESGCMFallbackCipherState();
+			}
+		} else if (name.equals("ChaChaPoly")) {
+			return new ChaChaPolyCipherState();
+		}
+		return null;
+	}
+
+	@Override
+	public MessageDigest createHash(String name) {
+		// Look for a JCA/JCE provider first and if that doesn't work,
+		// use the fallback implementations in this library instead.
+		// The only algorithm that is required to be implemented by a
+		// JDK is "SHA-256", although "SHA-512" is fairly common as well.
+		if (name.equals("SHA256")) {
+			if (Noise.useFallback(name))
+				return new SHA256MessageDigest();
+			try {
+				return MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				return new SHA256MessageDigest();
+			}
+		} else if (name.equals("SHA512")) {
+			if (Noise.useFallback(name))
+				return new SHA512MessageDigest();
+			try {
+				return MessageDigest.getInstance("SHA-512");
+			} catch (NoSuchAlgorithmException e) {
+				return new SHA512MessageDigest();
+			}
+		} else if (name.equals("BLAKE2b")) {
+			// Bouncy Castle registers the BLAKE2b variant we
+			// want under the name "BLAKE2B-512".
+			if (Noise.useFallback(name))
+				return new Blake2bMessageDigest();
+			try {
+				return MessageDigest.getInstance("BLAKE2B-512");
+			} catch (NoSuchAlgorithmException e) {
+				return new Blake2bMessageDigest();
+			}
+		} else if (name.equals("BLAKE2s")) {
+			// Bouncy Castle doesn't currently (June 2016) have an
+			// implementation of BLAKE2s, but look for the most
+			// obvious provider name in case one is added in the future.
+			if (Noise.useFallback(name))
+				return new Blake2sMessageDigest();
+			try {
+				return MessageDigest.getInstance("BLAKE2S-256");
+			} catch (NoSuchAlgorithmException e) {
+				return new Blake2sMessageDigest();
+			}
+		}
+		return null;
+	}
+}
@@ -24,6 +24,11 @@ package com.southernstorm.noise.protocol;
 
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.ShortBufferException;
@@ -49,6 +54,10 @@ public class HandshakeState implements Destroyable {
 	private int patternIndex;
 	private byte[] preSharedKey;
 	private byte[] prologue;
+	private StaticDHCache staticCache;
+	private Executor executor;
+	private FutureTask<byte[]> hybridTask;
+	private byte[] hybridShared;
 
 	/**
 	 * Enumerated value that indicates that the handshake object
@@ -460,6 +469,68 @@ public class HandshakeState implements Destroyable {
 		return fixedHybrid;
 	}
 
+	/**
+	 * Gets the cache that is used for static-static DH calculations.
+	 * 
+	 * @return The cache, or null if static-static DH values are not cached.
+	 */
+	public StaticDHCache getStaticDHCache()
+	{
+		return staticCache;
+	}
+
+	/**
+	 * Sets the cache to use for static-static DH calculations.
+	 * 
+	 * @param cache The cache to use, or null to disable caching.
+	 * 
+	 * The cache is consulted for the "ss" token in handshake patterns
+	 * such as "KK" and "IK".  The cache is not destroyed when this
+	 * handshake is destroyed, as it is normally shared between
+	 * multiple handshakes with the same local static key.
+	 * 
+	 * @see StaticDHCache
+	 */
+	public void setStaticDHCache(StaticDHCache cache)
+	{
+		staticCache = cache;
+	}
+
+	/**
+	 * Gets the executor that is used for hybrid forward secrecy
+	 * computations.
+	 * 
+	 * @return The executor, or null if all computations are performed
+	 * on the calling thread.
+	 */
+	public Executor getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * Sets the executor to use for hybrid forward secrecy computations.
+	 * 
+	 * @param executor The executor to use, or null to perform all
+	 * computations on the calling thread (the default).
+	 * 
+	 * In "hfs" handshake patterns, the hybrid "f" key generation and
+	 * "ff" calculation for a message are independent of the classical
+	 * "e", "ee", "es", "se", and "ss" work in the same message.  When an
+	 * executor is set, writeMessage() and readMessage() start the hybrid
+	 * work on the executor and perform the classical work on the calling
+	 * thread.  The hybrid results are joined before they are needed, so
+	 * the order of mixHash() and mixKey() operations, and hence the
+	 * messages and the handshake hash, are identical to sequential mode.
+	 * 
+	 * If the executor rejects the work, it is run on the calling thread.
+	 * Handshakes without hybrid keys are not affected.
+	 */
+	public void setExecutor(Executor executor)
+	{
+		this.executor = executor;
+	}
+
 	// Empty value for when the prologue is not supplied.
 	private static final byte[] emptyPrologue = new byte [0];
 
@@ -724,13 +795,166 @@ public class HandshakeState implements Destroyable {
 		int len = local.getSharedKeyLength();
 		byte[] shared = new byte [len];
 		try {
-			local.calculate(shared, 0, remote);
+			if (staticCache != null && local == localKeyPair && remote == remotePublicKey)
+				staticCache.calculate(shared, 0, local, remote);
+			else
+				local.calculate(shared, 0, remote);
 			symmetric.mixKey(shared, 0, len);
 		} finally {
 			Noise.destroy(shared);
 		}
 	}
 
+	/**
+	 * Generates the local hybrid key pair for an "f" token.
+	 */
+	private void generateHybrid()
+	{
+		if (localHybrid instanceof DHStateHybrid) {
+			// The DH object is something like New Hope which needs to
+			// generate keys relative to the other party's public key.
+			DHStateHybrid hybrid = (DHStateHybrid)localHybrid;
+			if (fixedHybrid == null)
+				hybrid.generateKeyPair(remoteHybrid);
+			else
+				hybrid.copyFrom(fixedHybrid, remoteHybrid);
+		} else {
+			if (fixedHybrid == null)
+				localHybrid.generateKeyPair();
+			else
+				localHybrid.copyFrom(fixedHybrid);
+		}
+	}
+
+	/**
+	 * Starts the hybrid work for the current message on the executor.
+	 * 
+	 * @param writing Set to true for writeMessage(), false for readMessage().
+	 * 
+	 * When writing, the "f" key generation only depends upon the remote
+	 * hybrid key from an earlier message and the "ff" calculation follows
+	 * on from it.  When reading, the "ff" calculation can only be started
+	 * early if the remote hybrid key arrived in an earlier message.
+	 */
+	private void startHybrid(boolean writing)
+	{
+		if (executor == null || localHybrid == null || remoteHybrid == null)
+			return;
+		boolean generate = false;
+		boolean calculate = false;
+		boolean remoteKnown = true;
+		for (int index = patternIndex; index < pattern.length; ++index) {
+			short token = pattern[index];
+			if (token == Pattern.FLIP_DIR)
+				break;
+			if (token == Pattern.F) {
+				if (writing)
+					generate = true;
+				else
+					remoteKnown = false;
+			} else if (token == Pattern.FF) {
+				calculate = remoteKnown;
+			}
+		}
+		if (!generate && !calculate)
+			return;
+		final boolean gen = generate;
+		final boolean calc = calculate;
+		hybridTask = new FutureTask<byte[]>(new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				if (gen)
+					generateHybrid();
+				if (!calc)
+					return null;
+				byte[] shared = new byte [localHybrid.getSharedKeyLength()];
+				try {
+					localHybrid.calculate(shared, 0, remoteHybrid);
+				} catch (RuntimeException e) {
+					Noise.destroy(shared);
+					throw e;
+				}
+				return shared;
+			}
+		});
+		try {
+			executor.execute(hybridTask);
+		} catch (RejectedExecutionException e) {
+			hybridTask.run();
+		}
+	}
+
+	/**
+	 * Waits for the hybrid work on the executor to finish.
+	 * 
+	 * The wait cannot be interrupted because the work is still using
+	 * the hybrid keys.  The interrupt status is restored afterwards.
+	 */
+	private void joinHybrid()
+	{
+		FutureTask<byte[]> task = hybridTask;
+		boolean interrupted = false;
+		hybridTask = null;
+		try {
+			for (;;) {
+				try {
+					hybridShared = task.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if (cause instanceof Error)
+				throw (Error)cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits for any outstanding hybrid work and destroys unused results.
+	 */
+	private void abortHybrid()
+	{
+		if (hybridTask != null) {
+			try {
+				joinHybrid();
+			} catch (RuntimeException e) {
+				// Already failing for another reason.
+			}
+		}
+		if (hybridShared != null) {
+			Noise.destroy(hybridShared);
+			hybridShared = null;
+		}
+	}
+
+	/**
+	 * Mixes the result of the hybrid calculation for an "ff" token
+	 * into the chaining key.
+	 */
+	private void mixHybrid()
+	{
+		if (hybridTask != null)
+			joinHybrid();
+		if (hybridShared != null) {
+			try {
+				symmetric.mixKey(hybridShared, 0, hybridShared.length);
+			} finally {
+				Noise.destroy(hybridShared);
+				hybridShared = null;
+			}
+		} else {
+			mixDH(localHybrid, remoteHybrid);
+		}
+	}
+
 	/**
 	 * Writes a message payload during the handshake.
 	 * 
@@ -776,6 +1000,7 @@ public class HandshakeState implements Destroyable {
 		
 		// Format the message.
 		try {
+			startHybrid(true);
 			// Process tokens until the direction changes or the patten ends.
 			for (;;) {
 				if (patternIndex >= pattern.length) {
@@ -873,20 +1098,10 @@ public class HandshakeState implements Destroyable {
 			            // then a fixed hybrid key may have already been provided.
 						if (localHybrid == null)
 							throw new IllegalStateException("Pattern definition error");
-						if (localHybrid instanceof DHStateHybrid) {
-							// The DH object is something like New Hope which needs to
-							// generate keys relative to the other party's public key.
-							DHStateHybrid hybrid = (DHStateHybrid)localHybrid;
-							if (fixedHybrid == null)
-								hybrid.generateKeyPair(remoteHybrid);
-							else
-								hybrid.copyFrom(fixedHybrid, remoteHybrid);
-						} else {
-							if (fixedHybrid == null)
-								localHybrid.generateKeyPair();
-							else
-								localHybrid.copyFrom(fixedHybrid);
-						}
+						if (hybridTask != null)
+							joinHybrid();
+						else
+							generateHybrid();
 						len = localHybrid.getPublicKeyLength();
 						if (space < len)
 							throw new ShortBufferException();
@@ -901,7 +1116,7 @@ public class HandshakeState implements Destroyable {
 					case Pattern.FF:
 					{
 						// DH operation with initiator and responder hybrid keys.
-						mixDH(localHybrid, remoteHybrid);
+						mixHybrid();
 					}
 					break;
 
@@ -922,6 +1137,7 @@ public class HandshakeState implements Destroyable {
 		} finally {
 			// If we failed, then clear any sensitive data that may have
 			// already been written to the message buffer.
+			abortHybrid();
 			if (!success) {
 				Arrays.fill(message, messageOffset, message.length - messageOffset, (byte)0);
 				action = FAILED;
@@ -956,6 +1172,63 @@ public class HandshakeState implements Destroyable {
 	 * @see #writeMessage(byte[], int, byte[], int, int)
 	 */
 	public int readMessage(byte[] message, int messageOffset, int messageLength, byte[] payload, int payloadOffset) throws ShortBufferException, BadPaddingException
+	{
+		return readMessage(message, messageOffset, messageLength, payload, payloadOffset, false);
+	}
+
+	/**
+	 * Reads a message payload during the handshake, reporting MAC
+	 * failures via the return value.
+	 * 
+	 * @param message Buffer containing the incoming handshake
+	 * that was read from the transport.
+	 * @param messageOffset Offset of the first message byte.
+	 * @param messageLength The length of the incoming message.
+	 * @param payload Buffer that will be populated with the message payload.
+	 * @param payloadOffset Offset of the first byte in the
+	 * payload buffer to be populated with payload data.
+	 * 
+	 * @return The length of the payload, or -1 if a MAC value in the
+	 * message failed to verify or the remote ephemeral key is invalid.
+	 * 
+	 * @throws IllegalStateException The action is not READ_MESSAGE.
+	 * 
+	 * @throws ShortBufferException The message buffer does not have
+	 * sufficient bytes for a valid message or the payload buffer does
+	 * not have enough space for the decrypted payload. 
+	 * 
+	 * This function is identical to readMessage() except that it avoids
+	 * the cost of throwing an exception when rejecting a forged message.
+	 * The action will be FAILED after -1 is returned.
+	 * 
+	 * @see #readMessage(byte[], int, int, byte[], int)
+	 */
+	public int tryReadMessage(byte[] message, int messageOffset, int messageLength, byte[] payload, int payloadOffset) throws ShortBufferException
+	{
+		try {
+			return readMessage(message, messageOffset, messageLength, payload, payloadOffset, true);
+		} catch (BadPaddingException e) {
+			// Shouldn't happen because MAC failures are reported as -1.
+			return -1;
+		}
+	}
+
+	/**
+	 * Reads a message payload during the handshake.
+	 * 
+	 * @param message Buffer containing the incoming handshake
+	 * that was read from the transport.
+	 * @param messageOffset Offset of the first message byte.
+	 * @param messageLength The length of the incoming message.
+	 * @param payload Buffer that will be populated with the message payload.
+	 * @param payloadOffset Offset of the first byte in the
+	 * payload buffer to be populated with payload data.
+	 * @param quiet Set to true to report MAC failures by returning -1,
+	 * or false to throw an exception.
+	 * 
+	 * @return The length of the payload, or -1 on failure if quiet is true.
+	 */
+	private int readMessage(byte[] message, int messageOffset, int messageLength, byte[] payload, int payloadOffset, boolean quiet) throws ShortBufferException, BadPaddingException
 	{
 		boolean success = false;
 		int messageEnd = messageOffset + messageLength;
@@ -974,6 +1247,7 @@ public class HandshakeState implements Destroyable {
 		
 		// Process the message.
 		try {
+			startHybrid(false);
 			// Process tokens until the direction changes or the patten ends.
 			for (;;) {
 				if (patternIndex >= pattern.length) {
@@ -1006,6 +1280,8 @@ public class HandshakeState implements Destroyable {
 			                // not contributing anything to the security of the session
 			                // and is in fact downgrading the security to "none at all"
 			                // in some of the message patterns.  Reject all such keys.
+							if (quiet)
+								return -1;
 							throw new BadPaddingException("Null remote public key");
 						}
 
@@ -1028,7 +1304,13 @@ public class HandshakeState implements Destroyable {
 							throw new ShortBufferException();
 						byte[] temp = new byte [len];
 						try {
-							if (symmetric.decryptAndHash(message, messageOffset, temp, 0, len + macLen) != len)
+							int keyLen = symmetric.tryDecryptAndHash(message, messageOffset, temp, 0, len + macLen);
+							if (keyLen < 0) {
+								if (quiet)
+									return -1;
+								Noise.throwBadTagException();
+							}
+							if (keyLen != len)
 								throw new ShortBufferException();
 							remotePublicKey.setPublicKey(temp, 0);
 						} finally {
@@ -1077,6 +1359,8 @@ public class HandshakeState implements Destroyable {
 						// Decrypt and read the remote hybrid ephemeral key.
 						if (remoteHybrid == null)
 							throw new IllegalStateException("Pattern definition error");
+						if (hybridTask != null)
+							joinHybrid();
 						if (remoteHybrid instanceof DHStateHybrid) {
 							// The DH object is something like New Hope.  The public key
 							// length may need to change based on whether we already have
@@ -1089,7 +1373,13 @@ public class HandshakeState implements Destroyable {
 							throw new ShortBufferException();
 						byte[] temp = new byte [len];
 						try {
-							if (symmetric.decryptAndHash(message, messageOffset, temp, 0, len + macLen) != len)
+							int keyLen = symmetric.tryDecryptAndHash(message, messageOffset, temp, 0, len + macLen);
+							if (keyLen < 0) {
+								if (quiet)
+									return -1;
+								Noise.throwBadTagException();
+							}
+							if (keyLen != len)
 								throw new ShortBufferException();
 							remoteHybrid.setPublicKey(temp, 0);
 						} finally {
@@ -1102,7 +1392,7 @@ public class HandshakeState implements Destroyable {
 					case Pattern.FF:
 					{
 						// DH operation with initiator and responder hybrid keys.
-						mixDH(localHybrid, remoteHybrid);
+						mixHybrid();
 					}
 					break;
 
@@ -1115,12 +1405,18 @@ public class HandshakeState implements Destroyable {
 			}
 			
 			// Decrypt the message payload.
-			int payloadLength = symmetric.decryptAndHash(message, messageOffset, payload, payloadOffset, messageEnd - messageOffset);
+			int payloadLength = symmetric.tryDecryptAndHash(message, messageOffset, payload, payloadOffset, messageEnd - messageOffset);
+			if (payloadLength < 0) {
+				if (quiet)
+					return -1;
+				Noise.throwBadTagException();
+			}
 			success = true;
 			return payloadLength;
 		} finally {
 			// If we failed, then clear any sensitive data that may have
 			// already been written to the payload buffer.
+			abortHybrid();
 			if (!success) {
 				Arrays.fill(payload, payloadOffset, payload.length - payloadOffset, (byte)0);
 				action = FAILED;
@@ -1197,6 +1493,7 @@ public class HandshakeState implements Destroyable {
 
 	@Override
 	public void destroy() {
+		abortHybrid();
 		if (symmetric != null)
 			symmetric.destroy();
 		if (localKeyPair != null)
@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.util.Arrays;
+
+import com.southernstorm.noise.crypto.MLKEM768;
+
+/**
+ * Implementation of the ML-KEM-768 (Kyber768) post-quantum algorithm
+ * for the Noise protocol.
+ *
+ * The roles follow NewHopeDHState: Alice generates the encapsulation
+ * key, Bob's "public key" is the ciphertext that he generates against
+ * Alice's key, and Alice recovers the shared key in calculate().
+ */
+final class MLKEMDHState implements DHStateHybrid {
+
+	enum KeyType
+	{
+		None,
+		AlicePrivate,
+		AlicePublic,
+		BobPrivate,
+		BobPublic,
+		BobCalculated;
+	}
+
+	private MLKEMWithPrivateKey kem;
+	private byte[] publicKey;
+	private byte[] privateKey;
+	private KeyType keyType;
+
+	/**
+	 * Special version of MLKEM768 that allows explicit random data
+	 * to be specified for test vectors.
+	 */
+	private static class MLKEMWithPrivateKey extends MLKEM768 {
+
+		byte[] randomData;
+
+		public MLKEMWithPrivateKey()
+		{
+			randomData = null;
+		}
+
+		@Override
+		protected void randombytes(byte[] buffer)
+		{
+			if (randomData != null)
+				System.arraycopy(randomData, 0, buffer, 0, buffer.length);
+			else
+				super.randombytes(buffer);
+		}
+	}
+
+	/**
+	 * Constructs a new key exchange object for ML-KEM-768.
+	 */
+	public MLKEMDHState() {
+		kem = null;
+		publicKey = null;
+		privateKey = null;
+		keyType = KeyType.None;
+	}
+
+	/**
+	 * Prepares the ML-KEM object for this key.  The object and its
+	 * workspace are reused by every key that is generated here.
+	 *
+	 * @param randomData Explicit random data to use for test vectors,
+	 * or null to use the library's random number generator.
+	 */
+	private void mlkem(byte[] randomData) {
+		if (kem == null)
+			kem = new MLKEMWithPrivateKey();
+		kem.randomData = randomData;
+	}
+
+	private boolean isAlice() {
+		return keyType == KeyType.AlicePrivate || keyType == KeyType.AlicePublic;
+	}
+
+	@Override
+	public void destroy() {
+		clearKey();
+	}
+
+	@Override
+	public String getDHName() {
+		return "Kyber768";
+	}
+
+	@Override
+	public int getPublicKeyLength() {
+		if (isAlice())
+			return MLKEM768.PUBLICKEYBYTES;
+		else
+			return MLKEM768.CIPHERTEXTBYTES;
+	}
+
+	@Override
+	public int getPrivateKeyLength() {
+		// As with New Hope, return the number of random bytes that
+		// we need to generate each key type.
+		if (isAlice())
+			return MLKEM768.KEYGEN_RANDOMBYTES;
+		else
+			return MLKEM768.ENCAPS_RANDOMBYTES;
+	}
+
+	@Override
+	public int getSharedKeyLength() {
+		return MLKEM768.SHAREDBYTES;
+	}
+
+	@Override
+	public void generateKeyPair() {
+		clearKey();
+		keyType = KeyType.AlicePrivate;
+		mlkem(null);
+		publicKey = new byte [MLKEM768.PUBLICKEYBYTES];
+		kem.keygen(publicKey, 0);
+	}
+
+	@Override
+	public void generateKeyPair(DHState remote) {
+		if (remote == null) {
+			// No remote public key, so always generate in Alice mode.
+			generateKeyPair();
+			return;
+		} else if (!(remote instanceof MLKEMDHState)) {
+			throw new IllegalStateException("Mismatched DH objects");
+		}
+		MLKEMDHState r = (MLKEMDHState)remote;
+		if (r.isAlice() && r.publicKey != null) {
+			// We have a remote public key for Alice, so encapsulate in Bob mode.
+			clearKey();
+			keyType = KeyType.BobCalculated;
+			mlkem(null);
+			publicKey = new byte [MLKEM768.CIPHERTEXTBYTES];
+			privateKey = new byte [MLKEM768.SHAREDBYTES];
+			kem.encaps(privateKey, 0, publicKey, 0, r.publicKey, 0);
+		} else {
+			generateKeyPair();
+		}
+	}
+
+	@Override
+	public void getPublicKey(byte[] key, int offset) {
+		if (publicKey != null)
+			System.arraycopy(publicKey, 0, key, offset, getPublicKeyLength());
+		else
+			Arrays.fill(key, offset, offset + getPublicKeyLength(), (byte)0);
+	}
+
+	@Override
+	public void setPublicKey(byte[] key, int offset) {
+		if (publicKey != null)
+			Noise.destroy(publicKey);
+		publicKey = new byte [getPublicKeyLength()];
+		System.arraycopy(key, offset, publicKey, 0, publicKey.length);
+	}
+
+	@Override
+	public void getPrivateKey(byte[] key, int offset) {
+		if (privateKey != null)
+			System.arraycopy(privateKey, 0, key, offset, getPrivateKeyLength());
+		else
+			Arrays.fill(key, offset, offset + getPrivateKeyLength(), (byte)0);
+	}
+
+	@Override
+	public void setPrivateKey(byte[] key, int offset) {
+		clearKey();
+		// Guess the key type from the length of the test data.
+		if (offset == 0 && key.length == MLKEM768.KEYGEN_RANDOMBYTES)
+			keyType = KeyType.AlicePrivate;
+		else
+			keyType = KeyType.BobPrivate;
+		privateKey = new byte [getPrivateKeyLength()];
+		System.arraycopy(key, offset, privateKey, 0, privateKey.length);
+	}
+
+	@Override
+	public void setToNullPublicKey() {
+		// Null public keys are not supported by ML-KEM.
+		// Destroy the current values but otherwise ignore.
+		clearKey();
+	}
+
+	@Override
+	public void clearKey() {
+		if (kem != null) {
+			kem.destroy();
+			kem.randomData = null;
+		}
+		if (publicKey != null) {
+			Noise.destroy(publicKey);
+			publicKey = null;
+		}
+		if (privateKey != null) {
+			Noise.destroy(privateKey);
+			privateKey = null;
+		}
+		keyType = KeyType.None;
+	}
+
+	@Override
+	public boolean hasPublicKey() {
+		return publicKey != null;
+	}
+
+	@Override
+	public boolean hasPrivateKey() {
+		return privateKey != null;
+	}
+
+	@Override
+	public boolean isNullPublicKey() {
+		return false;
+	}
+
+	@Override
+	public void calculate(byte[] sharedKey, int offset, DHState publicDH) {
+		if (!(publicDH instanceof MLKEMDHState))
+			throw new IllegalArgumentException("Incompatible DH algorithms");
+		MLKEMDHState other = (MLKEMDHState)publicDH;
+		if (keyType == KeyType.AlicePrivate) {
+			// Decapsulate Bob's ciphertext to get the shared key for Alice.
+			kem.decaps(sharedKey, offset, other.publicKey, 0);
+		} else if (keyType == KeyType.BobCalculated) {
+			// The shared key for Bob was already computed when the key was generated.
+			System.arraycopy(privateKey, 0, sharedKey, offset, MLKEM768.SHAREDBYTES);
+		} else {
+			throw new IllegalStateException("Cannot calculate with this DH object");
+		}
+	}
+
+	@Override
+	public void copyFrom(DHState other) {
+		if (!(other instanceof MLKEMDHState))
+			throw new IllegalStateException("Mismatched DH key objects");
+		if (other == this)
+			return;
+		MLKEMDHState dh = (MLKEMDHState)other;
+		clearKey();
+		switch (dh.keyType) {
+		case None:
+			break;
+
+		case AlicePrivate:
+			if (dh.privateKey != null) {
+				keyType = KeyType.AlicePrivate;
+				privateKey = new byte [dh.privateKey.length];
+				System.arraycopy(dh.privateKey, 0, privateKey, 0, privateKey.length);
+			} else {
+				throw new IllegalStateException("Cannot copy generated key for Alice");
+			}
+			break;
+
+		case BobPrivate:
+		case BobCalculated:
+			throw new IllegalStateException("Cannot copy private key for Bob without public key for Alice");
+
+		case AlicePublic:
+		case BobPublic:
+			keyType = dh.keyType;
+			publicKey = new byte [dh.publicKey.length];
+			System.arraycopy(dh.publicKey, 0, publicKey, 0, publicKey.length);
+			break;
+		}
+	}
+
+	@Override
+	public void copyFrom(DHState other, DHState remote) {
+		if (remote == null) {
+			copyFrom(other);
+			return;
+		}
+		if (!(other instanceof MLKEMDHState) || !(remote instanceof MLKEMDHState))
+			throw new IllegalStateException("Mismatched DH key objects");
+		if (other == this)
+			return;
+		MLKEMDHState dh = (MLKEMDHState)other;
+		MLKEMDHState remotedh = (MLKEMDHState)remote;
+		clearKey();
+		switch (dh.keyType) {
+		case None:
+			break;
+
+		case AlicePrivate:
+			if (dh.privateKey != null) {
+				// Generate Alice's key pair now from the fixed random data.
+				keyType = KeyType.AlicePrivate;
+				mlkem(dh.privateKey);
+				publicKey = new byte [MLKEM768.PUBLICKEYBYTES];
+				kem.keygen(publicKey, 0);
+			} else {
+				throw new IllegalStateException("Cannot copy generated key for Alice");
+			}
+			break;
+
+		case BobPrivate:
+			if (dh.privateKey != null && remotedh.keyType == KeyType.AlicePublic) {
+				// Now we know the public key for Alice, we can encapsulate.
+				keyType = KeyType.BobCalculated;
+				mlkem(dh.privateKey);
+				publicKey = new byte [MLKEM768.CIPHERTEXTBYTES];
+				privateKey = new byte [MLKEM768.SHAREDBYTES];
+				kem.encaps(privateKey, 0, publicKey, 0, remotedh.publicKey, 0);
+			} else {
+				throw new IllegalStateException("Cannot copy private key for Bob without public key for Alice");
+			}
+			break;
+
+		case BobCalculated:
+			throw new IllegalStateException("Cannot copy generated key for Bob");
+
+		case AlicePublic:
+		case BobPublic:
+			keyType = dh.keyType;
+			publicKey = new byte [dh.publicKey.length];
+			System.arraycopy(dh.publicKey, 0, publicKey, 0, publicKey.length);
+			break;
+		}
+	}
+
+	@Override
+	public void specifyPeer(DHState local) {
+		if (!(local instanceof MLKEMDHState))
+			return;
+		clearKey();
+		if (((MLKEMDHState)local).keyType == KeyType.AlicePrivate)
+			keyType = KeyType.BobPublic;
+		else
+			keyType = KeyType.AlicePublic;
+	}
+}
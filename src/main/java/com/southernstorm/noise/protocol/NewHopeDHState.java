@@ -42,7 +42,7 @@ final class NewHopeDHState implements DHStateHybrid {
 		BobCalculated;
 	}
 
-	private NewHopeTor nh;
+	private NewHopeWithPrivateKey nh;
 	private byte[] publicKey;
 	private byte[] privateKey;
 	private KeyType keyType;
@@ -51,19 +51,22 @@ final class NewHopeDHState implements DHStateHybrid {
 	 * Special version of NewHopeTor that allows explicit random data
 	 * to be specified for test vectors.
 	 */
-	private class NewHopeWithPrivateKey extends NewHopeTor {
+	private static class NewHopeWithPrivateKey extends NewHopeTor {
 
 		byte[] randomData;
 		
-		public NewHopeWithPrivateKey(byte[] randomData)
+		public NewHopeWithPrivateKey()
 		{
-			this.randomData = randomData;
+			randomData = null;
 		}
 
 		@Override
 		protected void randombytes(byte[] buffer)
 		{
-			System.arraycopy(randomData, 0, buffer, 0, buffer.length);
+			if (randomData != null)
+				System.arraycopy(randomData, 0, buffer, 0, buffer.length);
+			else
+				super.randombytes(buffer);
 		}
 	}
 
@@ -77,6 +80,19 @@ final class NewHopeDHState implements DHStateHybrid {
 		keyType = KeyType.None;
 	}
 	
+	/**
+	 * Prepares the New Hope object for this key.  The object and its
+	 * workspace are reused by every key that is generated here.
+	 *
+	 * @param randomData Explicit random data to use for test vectors,
+	 * or null to use the library's random number generator.
+	 */
+	private void newHope(byte[] randomData) {
+		if (nh == null)
+			nh = new NewHopeWithPrivateKey();
+		nh.randomData = randomData;
+	}
+
 	private boolean isAlice() {
 		return keyType == KeyType.AlicePrivate || keyType == KeyType.AlicePublic;
 	}
@@ -119,7 +135,7 @@ final class NewHopeDHState implements DHStateHybrid {
 	public void generateKeyPair() {
 		clearKey();
 		keyType = KeyType.AlicePrivate;
-		nh = new NewHopeTor();
+		newHope(null);
 		publicKey = new byte [NewHope.SENDABYTES];
 		nh.keygen(publicKey, 0);
 	}
@@ -138,7 +154,7 @@ final class NewHopeDHState implements DHStateHybrid {
 			// We have a remote public key for Alice, so generate in Bob mode.
 			clearKey();
 			keyType = KeyType.BobCalculated;
-			nh = new NewHopeTor();
+			newHope(null);
 			publicKey = new byte [NewHope.SENDBBYTES];
 			privateKey = new byte [NewHope.SHAREDBYTES];
 			nh.sharedb(privateKey, 0, publicKey, 0, r.publicKey, 0);
@@ -194,7 +210,7 @@ final class NewHopeDHState implements DHStateHybrid {
 	public void clearKey() {
 		if (nh != null) {
 			nh.destroy();
-			nh = null;
+			nh.randomData = null;
 		}
 		if (publicKey != null) {
 			Noise.destroy(publicKey);
@@ -294,7 +310,7 @@ final class NewHopeDHState implements DHStateHybrid {
 			if (dh.privateKey != null) {
 				// Generate Alice's public and private key now.
 				keyType = KeyType.AlicePrivate;
-				nh = new NewHopeWithPrivateKey(dh.privateKey);
+				newHope(dh.privateKey);
 				publicKey = new byte [NewHope.SENDABYTES];
 				nh.keygen(publicKey, 0);
 			} else {
@@ -306,7 +322,7 @@ final class NewHopeDHState implements DHStateHybrid {
 			if (dh.privateKey != null && remotedh.keyType == KeyType.AlicePublic) {
 				// Now we know the public key for Alice, we can calculate Bob's public and shared keys.
 				keyType = KeyType.BobCalculated;
-				nh = new NewHopeWithPrivateKey(dh.privateKey);
+				newHope(dh.privateKey);
 				publicKey = new byte [NewHope.SENDBBYTES];
 				privateKey = new byte [NewHope.SHAREDBYTES];
 				nh.sharedb(privateKey, 0, publicKey, 0, remotedh.publicKey, 0);
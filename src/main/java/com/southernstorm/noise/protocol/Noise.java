@@ -22,17 +22,24 @@
 
 package com.southernstorm.noise.protocol;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 
 import javax.crypto.BadPaddingException;
 
-import com.southernstorm.noise.crypto.Blake2bMessageDigest;
-import com.southernstorm.noise.crypto.Blake2sMessageDigest;
-import com.southernstorm.noise.crypto.SHA256MessageDigest;
-import com.southernstorm.noise.crypto.SHA512MessageDigest;
+import com.southernstorm.noise.crypto.ChaChaDRBG;
 
 /**
  * Utility functions for the Noise protocol library.
@@ -46,14 +53,46 @@ public final class Noise {
 	
 	private static SecureRandom random = new SecureRandom();
 	
+	private static volatile boolean threadLocalRandom = true;
+
+	private static final ThreadLocal<ChaChaDRBG> drbg = new ThreadLocal<ChaChaDRBG>() {
+		@Override
+		protected ChaChaDRBG initialValue() {
+			return new ChaChaDRBG(random, ChaChaDRBG.DEFAULT_RESEED_INTERVAL);
+		}
+	};
+
 	/**
-	 * Generates random data using the system random number generator.
+	 * Generates random data.
 	 * 
 	 * @param data The data buffer to fill with random data.
+	 * 
+	 * By default, the data comes from a per-thread ChaCha20 generator
+	 * that is periodically reseeded from the system random number
+	 * generator.  This avoids contention on a single SecureRandom
+	 * instance when many threads are generating keys at once.
+	 * 
+	 * @see #setThreadLocalRandom(boolean)
 	 */
 	public static void random(byte[] data)
 	{
-		random.nextBytes(data);
+		if (threadLocalRandom)
+			drbg.get().nextBytes(data);
+		else
+			random.nextBytes(data);
+	}
+
+	/**
+	 * Enables or disables the per-thread random number generator.
+	 * 
+	 * @param enable Set to true to use a per-thread ChaCha20 generator
+	 * that is seeded from the system random number generator (the default),
+	 * or false to obtain all random data directly from the system random
+	 * number generator.
+	 */
+	public static void setThreadLocalRandom(boolean enable)
+	{
+		threadLocalRandom = enable;
 	}
 
 	private static boolean forceFallbacks = false;
@@ -73,6 +112,215 @@ public final class Noise {
 		forceFallbacks = force;
 	}
 
+	private static volatile Map<String, String> calibration = Collections.emptyMap();
+
+	/**
+	 * Measures the JCA and fallback implementations of each algorithm
+	 * and uses the fastest one from now on.
+	 * 
+	 * By default, the JCA implementation of an algorithm is used if one
+	 * is available.  This is not always the fastest choice; e.g. a JCA
+	 * provider for BLAKE2b may be slower than the fallback.  Calibration
+	 * checks every candidate against a known-answer vector and then times
+	 * the candidates that pass.  It takes about a second, so it is not
+	 * done unless the application asks for it.
+	 * 
+	 * setForceFallbacks() takes precedence over the calibrated choices.
+	 * 
+	 * @see #calibrate(Path)
+	 */
+	public static void calibrate()
+	{
+		calibration = Calibration.run();
+	}
+
+	/**
+	 * Calibrates the algorithms, using a cache file to avoid repeating
+	 * the measurements on later starts.
+	 * 
+	 * @param cacheFile The file to load the choices from or save them to.
+	 * 
+	 * @throws IOException The cache file could not be read or written.
+	 * 
+	 * The cache file is ignored and rewritten if it was created on a
+	 * different JVM or architecture, or if one of the implementations
+	 * that it names no longer passes its known-answer test.
+	 * 
+	 * @see #calibrate()
+	 */
+	public static void calibrate(Path cacheFile) throws IOException
+	{
+		Map<String, String> choices = Calibration.load(cacheFile);
+		if (choices == null) {
+			choices = Calibration.run();
+			Calibration.save(cacheFile, choices);
+		}
+		calibration = choices;
+	}
+
+	/**
+	 * Discards the results of calibration and returns to the default
+	 * choice of implementations.
+	 */
+	public static void clearCalibration()
+	{
+		calibration = Collections.emptyMap();
+	}
+
+	/**
+	 * Gets the implementation that calibration chose for an algorithm.
+	 * 
+	 * @param name The Noise name of the algorithm; e.g. "BLAKE2b".
+	 * 
+	 * @return "jca" or "fallback", or null if the algorithm has not been
+	 * calibrated.
+	 */
+	public static String getCalibratedChoice(String name)
+	{
+		return calibration.get(name);
+	}
+
+	/**
+	 * Determines if the fallback implementation of an algorithm should
+	 * be used instead of the JCA implementation.
+	 */
+	static boolean useFallback(String name)
+	{
+		return forceFallbacks || Calibration.FALLBACK.equals(calibration.get(name));
+	}
+
+	private static final NoiseCryptoProvider defaultProvider = new DefaultCryptoProvider();
+
+	private static volatile List<NoiseCryptoProvider> providerList = null;
+
+	private static volatile int requiredCapabilities = 0;
+
+	/**
+	 * Gets the list of registered providers, discovering them with
+	 * ServiceLoader the first time.
+	 * 
+	 * @return The providers in order of decreasing priority.
+	 */
+	public static List<NoiseCryptoProvider> getProviders()
+	{
+		List<NoiseCryptoProvider> list = providerList;
+		if (list == null) {
+			synchronized (Noise.class) {
+				list = providerList;
+				if (list == null) {
+					list = new ArrayList<NoiseCryptoProvider>();
+					list.add(defaultProvider);
+					Iterator<NoiseCryptoProvider> it =
+						ServiceLoader.load(NoiseCryptoProvider.class, Noise.class.getClassLoader()).iterator();
+					for (;;) {
+						try {
+							if (!it.hasNext())
+								break;
+							list.add(it.next());
+						} catch (ServiceConfigurationError e) {
+							// Skip providers that cannot be loaded.
+						}
+					}
+					list = sortProviders(list);
+					providerList = list;
+				}
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Registers a provider explicitly.
+	 * 
+	 * @param provider The provider to add to the list of providers.
+	 * 
+	 * This is an alternative to ServiceLoader discovery for applications
+	 * that construct their providers at runtime.
+	 */
+	public static void addProvider(NoiseCryptoProvider provider)
+	{
+		synchronized (Noise.class) {
+			List<NoiseCryptoProvider> list = new ArrayList<NoiseCryptoProvider>(getProviders());
+			list.add(provider);
+			providerList = sortProviders(list);
+		}
+	}
+
+	/**
+	 * Removes a provider that was previously registered.
+	 * 
+	 * @param provider The provider to remove.  The built-in provider
+	 * cannot be removed.
+	 */
+	public static void removeProvider(NoiseCryptoProvider provider)
+	{
+		if (provider == defaultProvider)
+			return;
+		synchronized (Noise.class) {
+			List<NoiseCryptoProvider> list = new ArrayList<NoiseCryptoProvider>(getProviders());
+			list.remove(provider);
+			providerList = sortProviders(list);
+		}
+	}
+
+	/**
+	 * Sets the capabilities that providers must have to be used.
+	 * 
+	 * @param capabilities A combination of the capability flags from
+	 * NoiseCryptoProvider, or zero to accept any provider (the default).
+	 * 
+	 * If no provider has the required capabilities for an algorithm,
+	 * then attempts to create it will fail with NoSuchAlgorithmException.
+	 */
+	public static void setRequiredCapabilities(int capabilities)
+	{
+		requiredCapabilities = capabilities;
+	}
+
+	/**
+	 * Gets the capabilities that providers must have to be used.
+	 * 
+	 * @return A combination of the capability flags from NoiseCryptoProvider.
+	 */
+	public static int getRequiredCapabilities()
+	{
+		return requiredCapabilities;
+	}
+
+	private static List<NoiseCryptoProvider> sortProviders(List<NoiseCryptoProvider> list)
+	{
+		Collections.sort(list, new Comparator<NoiseCryptoProvider>() {
+			@Override
+			public int compare(NoiseCryptoProvider p1, NoiseCryptoProvider p2) {
+				return Integer.compare(p2.getPriority(), p1.getPriority());
+			}
+		});
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Gets the providers that should be tried for an algorithm.
+	 * 
+	 * @param name The Noise name of the algorithm.
+	 * @return The providers to try, in order.
+	 * 
+	 * Only the built-in provider is used when fallbacks are forced.
+	 */
+	private static List<NoiseCryptoProvider> providers(String name)
+	{
+		List<NoiseCryptoProvider> list = forceFallbacks ?
+				Collections.singletonList(defaultProvider) : getProviders();
+		int required = requiredCapabilities;
+		if (required == 0)
+			return list;
+		List<NoiseCryptoProvider> result = new ArrayList<NoiseCryptoProvider>();
+		for (NoiseCryptoProvider provider : list) {
+			if ((provider.getCapabilities(name) & required) == required)
+				result.add(provider);
+		}
+		return result;
+	}
+
 	/**
 	 * Creates a Diffie-Hellman object from its Noise protocol name.
 	 * 
@@ -86,12 +334,11 @@ public final class Noise {
 	 */
 	public static DHState createDH(String name) throws NoSuchAlgorithmException
 	{
-		if (name.equals("25519"))
-			return new Curve25519DHState();
-		if (name.equals("448"))
-			return new Curve448DHState();
-		if (name.equals("NewHope"))
-			return new NewHopeDHState();
+		for (NoiseCryptoProvider provider : providers(name)) {
+			DHState result = provider.createDH(name);
+			if (result != null)
+				return result;
+		}
 		throw new NoSuchAlgorithmException("Unknown Noise DH algorithm name: " + name);
 	}
 
@@ -108,21 +355,10 @@ public final class Noise {
 	 */
 	public static CipherState createCipher(String name) throws NoSuchAlgorithmException
 	{
-		if (name.equals("AESGCM")) {
-			if (forceFallbacks)
-				return new AESGCMFallbackCipherState();
-			// "AES/GCM/NoPadding" exists in some recent JDK's but it is flaky
-			// to use and not easily back-portable to older Android versions.
-			// We instead emulate AESGCM on top of "AES/CTR/NoPadding".
-			try {
-				return new AESGCMOnCtrCipherState();
-			} catch (NoSuchAlgorithmException e1) {
-				// Could not find anything useful in the JCA/JCE so
-				// use the pure Java fallback implementation instead.
-				return new AESGCMFallbackCipherState();
-			}
-		} else if (name.equals("ChaChaPoly")) {
-			return new ChaChaPolyCipherState();
+		for (NoiseCryptoProvider provider : providers(name)) {
+			CipherState result = provider.createCipher(name);
+			if (result != null)
+				return result;
 		}
 		throw new NoSuchAlgorithmException("Unknown Noise cipher algorithm name: " + name);
 	}
@@ -140,47 +376,10 @@ public final class Noise {
 	 */
 	public static MessageDigest createHash(String name) throws NoSuchAlgorithmException
 	{
-		// Look for a JCA/JCE provider first and if that doesn't work,
-		// use the fallback implementations in this library instead.
-		// The only algorithm that is required to be implemented by a
-		// JDK is "SHA-256", although "SHA-512" is fairly common as well.
-		if (name.equals("SHA256")) {
-			if (forceFallbacks)
-				return new SHA256MessageDigest();
-			try {
-				return MessageDigest.getInstance("SHA-256");
-			} catch (NoSuchAlgorithmException e) {
-				return new SHA256MessageDigest();
-			}
-		} else if (name.equals("SHA512")) {
-			if (forceFallbacks)
-				return new SHA512MessageDigest();
-			try {
-				return MessageDigest.getInstance("SHA-512");
-			} catch (NoSuchAlgorithmException e) {
-				return new SHA512MessageDigest();
-			}
-		} else if (name.equals("BLAKE2b")) {
-			// Bouncy Castle registers the BLAKE2b variant we
-			// want under the name "BLAKE2B-512".
-			if (forceFallbacks)
-				return new Blake2bMessageDigest();
-			try {
-				return MessageDigest.getInstance("BLAKE2B-512");
-			} catch (NoSuchAlgorithmException e) {
-				return new Blake2bMessageDigest();
-			}
-		} else if (name.equals("BLAKE2s")) {
-			// Bouncy Castle doesn't currently (June 2016) have an
-			// implementation of BLAKE2s, but look for the most
-			// obvious provider name in case one is added in the future.
-			if (forceFallbacks)
-				return new Blake2sMessageDigest();
-			try {
-				return MessageDigest.getInstance("BLAKE2S-256");
-			} catch (NoSuchAlgorithmException e) {
-				return new Blake2sMessageDigest();
-			}
+		for (NoiseCryptoProvider provider : providers(name)) {
+			MessageDigest result = provider.createHash(name);
+			if (result != null)
+				return result;
 		}
 		throw new NoSuchAlgorithmException("Unknown Noise hash algorithm name: " + name);
 	}
@@ -214,6 +413,24 @@ public final class Noise {
 		return copy;
 	}
 	
+	// Class object for AEADBadTagException, or null if the JDK doesn't have it.
+	private static final Class<?> badTagClass = findBadTagClass();
+
+	/**
+	 * Looks up the AEADBadTagException class once so that we don't
+	 * need to repeat the reflective search every time a MAC fails.
+	 * 
+	 * @return The class object, or null if it is not available.
+	 */
+	private static Class<?> findBadTagClass()
+	{
+		try {
+			return Class.forName("javax.crypto.AEADBadTagException");
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * Throws an instance of AEADBadTagException.
 	 * 
@@ -225,12 +442,12 @@ public final class Noise {
 	 */
 	static void throwBadTagException() throws BadPaddingException
 	{
-		try {
-			Class<?> c = Class.forName("javax.crypto.AEADBadTagException");
-			throw (BadPaddingException)(c.newInstance());
-		} catch (ClassNotFoundException e) {
-		} catch (InstantiationException e) {
-		} catch (IllegalAccessException e) {
+		if (badTagClass != null) {
+			try {
+				throw (BadPaddingException)(badTagClass.newInstance());
+			} catch (InstantiationException e) {
+			} catch (IllegalAccessException e) {
+			}
 		}
 		throw new BadPaddingException();
 	}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.security.MessageDigest;
+
+/**
+ * Service provider interface for implementations of the Noise algorithms.
+ *
+ * Providers are discovered with java.util.ServiceLoader by listing the
+ * implementation class in a META-INF/services/com.southernstorm.noise.protocol.NoiseCryptoProvider
+ * file in the provider's jar, or registered explicitly with
+ * Noise.addProvider().  When an algorithm is requested, the providers
+ * are tried in order of decreasing priority and the first one that
+ * returns a non-null object is used.  The implementations that are built
+ * into this library are registered as a provider with priority zero.
+ *
+ * The application can require providers to have certain capabilities
+ * with Noise.setRequiredCapabilities().  Providers that do not report
+ * all of the required capabilities for an algorithm are skipped.
+ *
+ * Implementations must be thread-safe and must have a public
+ * no-argument constructor if they are to be found by ServiceLoader.
+ *
+ * @see Noise#addProvider(NoiseCryptoProvider)
+ * @see Noise#setRequiredCapabilities(int)
+ */
+public interface NoiseCryptoProvider {
+
+	/**
+	 * The implementation does not have secret-dependent branches or
+	 * memory accesses.
+	 */
+	public static final int CONSTANT_TIME = 0x01;
+
+	/**
+	 * The implementation uses hardware acceleration such as AES-NI.
+	 */
+	public static final int HARDWARE_ACCELERATED = 0x02;
+
+	/**
+	 * The implementation does not allocate memory for each packet or
+	 * DH operation once it has been created.
+	 */
+	public static final int ALLOCATION_FREE = 0x04;
+
+	/**
+	 * Gets the name of this provider, for diagnostic purposes.
+	 *
+	 * @return The name of the provider.
+	 */
+	String getName();
+
+	/**
+	 * Gets the priority of this provider.
+	 *
+	 * @return The priority.  Providers with higher priorities are tried
+	 * first.  The built-in provider has priority zero.
+	 */
+	int getPriority();
+
+	/**
+	 * Gets the capabilities of this provider's implementation of an algorithm.
+	 *
+	 * @param name The Noise name of the algorithm; e.g. "25519", "AESGCM",
+	 * "BLAKE2s", etc.
+	 * @return A combination of CONSTANT_TIME, HARDWARE_ACCELERATED, and
+	 * ALLOCATION_FREE, or zero if the algorithm is not supported.
+	 */
+	int getCapabilities(String name);
+
+	/**
+	 * Creates a Diffie-Hellman object.
+	 *
+	 * @param name The Noise name of the DH algorithm; e.g. "25519".
+	 * @return The new object, or null if this provider does not
+	 * implement the algorithm.
+	 */
+	DHState createDH(String name);
+
+	/**
+	 * Creates a cipher object.
+	 *
+	 * @param name The Noise name of the cipher algorithm; e.g. "ChaChaPoly".
+	 * @return The new object, or null if this provider does not
+	 * implement the algorithm.
+	 */
+	CipherState createCipher(String name);
+
+	/**
+	 * Creates a hash object.
+	 *
+	 * @param name The Noise name of the hash algorithm; e.g. "SHA256".
+	 * @return The new object, or null if this provider does not
+	 * implement the algorithm.
+	 */
+	MessageDigest createHash(String name);
+}
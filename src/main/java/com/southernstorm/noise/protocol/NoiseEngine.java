@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.nio.ByteBuffer;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Non-blocking engine that runs a Noise session over byte buffers.
+ *
+ * This class is modelled on javax.net.ssl.SSLEngine.  The application
+ * calls wrap() to convert outgoing application data into Noise frames
+ * and unwrap() to convert incoming Noise frames into application data.
+ * The engine drives the HandshakeState internally and switches to the
+ * CipherStatePair once the handshake has been split.
+ *
+ * Every frame on the wire consists of a 2-byte big-endian length
+ * followed by a handshake or transport message of up to
+ * Noise.MAX_PACKET_LEN bytes.  Handshake messages written by the
+ * engine have empty payloads.  Payloads that are received in
+ * handshake messages are returned from unwrap() like application data.
+ *
+ * The engine does not perform any I/O of its own, so it can be used
+ * with non-blocking channels and a Selector.  The application should
+ * check getHandshakeStatus() after each call to determine whether it
+ * needs to call wrap() or unwrap() next.
+ *
+ * Instances of this class are not thread-safe.
+ */
+public final class NoiseEngine implements Destroyable {
+
+	/**
+	 * Result of wrap() or unwrap(): the operation succeeded.
+	 */
+	public static final int OK = 0;
+
+	/**
+	 * Result of unwrap(): the source buffer does not contain a complete
+	 * frame.  Nothing was consumed; read more data and try again.
+	 */
+	public static final int BUFFER_UNDERFLOW = 1;
+
+	/**
+	 * Result of wrap() or unwrap(): the destination buffer does not have
+	 * enough space for the result.  Nothing was consumed; make more space
+	 * in the destination buffer and try again.
+	 */
+	public static final int BUFFER_OVERFLOW = 2;
+
+	/**
+	 * Result of wrap() or unwrap(): the engine has been closed.
+	 */
+	public static final int CLOSED = 3;
+
+	/**
+	 * Handshake status: the handshake has finished and the engine
+	 * is ready for application data.
+	 */
+	public static final int NOT_HANDSHAKING = 0;
+
+	/**
+	 * Handshake status: the engine needs to send a handshake message,
+	 * so the application should call wrap().
+	 */
+	public static final int NEED_WRAP = 1;
+
+	/**
+	 * Handshake status: the engine needs to receive a handshake message,
+	 * so the application should call unwrap().
+	 */
+	public static final int NEED_UNWRAP = 2;
+
+	private HandshakeState handshake;
+	private CipherStatePair pair;
+	private byte[] handshakeHash;
+	private byte[] frame;
+	private int pendingLength;
+	private byte[] wrapBuffer;
+	private byte[] unwrapBuffer;
+	private boolean closed;
+
+	/**
+	 * Constructs a new engine for a handshake.
+	 *
+	 * @param handshake The handshake to run, which must have been fully
+	 * configured with the necessary keys.  If the handshake has not been
+	 * started yet, it will be started by this constructor.  The engine
+	 * takes ownership of the handshake and will destroy it.
+	 *
+	 * @throws IllegalStateException The handshake has already failed
+	 * or finished, or it could not be started.
+	 */
+	public NoiseEngine(HandshakeState handshake)
+	{
+		if (handshake.getAction() == HandshakeState.NO_ACTION)
+			handshake.start();
+		int action = handshake.getAction();
+		if (action != HandshakeState.WRITE_MESSAGE && action != HandshakeState.READ_MESSAGE)
+			throw new IllegalStateException("Handshake is not in progress");
+		this.handshake = handshake;
+		this.pair = null;
+		this.handshakeHash = null;
+		this.frame = new byte [Noise.MAX_PACKET_LEN + 2];
+		this.pendingLength = 0;
+		this.wrapBuffer = null;
+		this.unwrapBuffer = null;
+		this.closed = false;
+	}
+
+	/**
+	 * Gets the current handshake status.
+	 *
+	 * @return One of NEED_WRAP, NEED_UNWRAP, or NOT_HANDSHAKING.
+	 * If the engine has been closed, NOT_HANDSHAKING is returned.
+	 */
+	public int getHandshakeStatus()
+	{
+		if (pendingLength > 0)
+			return NEED_WRAP;
+		if (handshake == null)
+			return NOT_HANDSHAKING;
+		return handshake.getAction() == HandshakeState.WRITE_MESSAGE ? NEED_WRAP : NEED_UNWRAP;
+	}
+
+	/**
+	 * Determine if the handshake has finished and the engine is
+	 * ready to send and receive application data.
+	 *
+	 * @return true if the handshake has finished; false otherwise.
+	 */
+	public boolean isHandshakeComplete()
+	{
+		return pair != null && pendingLength == 0;
+	}
+
+	/**
+	 * Determine if this engine has been closed.
+	 *
+	 * @return true if the engine is closed; false otherwise.
+	 */
+	public boolean isClosed()
+	{
+		return closed;
+	}
+
+	/**
+	 * Gets the handshake hash for channel binding.
+	 *
+	 * @return The handshake hash.  This must not be modified by the caller.
+	 *
+	 * @throws IllegalStateException The handshake has not finished yet.
+	 */
+	public byte[] getHandshakeHash()
+	{
+		if (handshakeHash == null)
+			throw new IllegalStateException("Handshake has not completed");
+		return handshakeHash;
+	}
+
+	/**
+	 * Gets the size of a destination buffer that is large enough
+	 * to hold the largest frame that wrap() can produce.
+	 *
+	 * @return The maximum frame size, including the length prefix.
+	 */
+	public int getPacketBufferSize()
+	{
+		return Noise.MAX_PACKET_LEN + 2;
+	}
+
+	/**
+	 * Gets the size of a destination buffer that is large enough
+	 * to hold the largest payload that unwrap() can produce.
+	 *
+	 * @return The maximum payload size.
+	 */
+	public int getApplicationBufferSize()
+	{
+		return Noise.MAX_PACKET_LEN;
+	}
+
+	/**
+	 * Wraps application data into a Noise frame.
+	 *
+	 * @param src The buffer containing the application data to send.
+	 * @param dst The buffer to write the frame to.
+	 * @return One of OK, BUFFER_OVERFLOW, or CLOSED.
+	 *
+	 * During the handshake, this will write the next handshake message
+	 * to dst if getHandshakeStatus() is NEED_WRAP, and will do nothing
+	 * if the status is NEED_UNWRAP.  No application data is consumed
+	 * from src until the handshake has finished.
+	 *
+	 * After the handshake, a single transport frame is written to dst
+	 * containing as much of the remaining data in src as will fit in
+	 * the frame and in dst.  Nothing is written if src is empty.
+	 *
+	 * @throws IllegalStateException The handshake has failed.
+	 */
+	public int wrap(ByteBuffer src, ByteBuffer dst)
+	{
+		if (closed)
+			return CLOSED;
+
+		// Flush any handshake message that did not fit last time.
+		if (pendingLength > 0)
+			return flushPending(dst);
+
+		// Write the next handshake message if it is our turn.
+		if (handshake != null) {
+			if (handshake.getAction() != HandshakeState.WRITE_MESSAGE)
+				return OK;
+			int len;
+			try {
+				len = handshake.writeMessage(frame, 2, null, 0, 0);
+			} catch (ShortBufferException e) {
+				// Shouldn't happen.
+				close();
+				throw new IllegalStateException(e);
+			}
+			frame[0] = (byte)(len >> 8);
+			frame[1] = (byte)len;
+			pendingLength = len + 2;
+			checkSplit();
+			return flushPending(dst);
+		}
+
+		// Encrypt as much of the application data as will fit.
+		CipherState sender = pair.getSender();
+		int macLen = sender.getMACLength();
+		int length = Math.min(src.remaining(), Noise.MAX_PACKET_LEN - macLen);
+		if (length == 0)
+			return OK;
+		length = Math.min(length, dst.remaining() - 2 - macLen);
+		if (length <= 0)
+			return BUFFER_OVERFLOW;
+		byte[] plaintext;
+		int plaintextOffset;
+		if (src.hasArray()) {
+			plaintext = src.array();
+			plaintextOffset = src.arrayOffset() + src.position();
+		} else {
+			if (wrapBuffer == null)
+				wrapBuffer = new byte [Noise.MAX_PACKET_LEN];
+			plaintext = wrapBuffer;
+			plaintextOffset = 0;
+			src.duplicate().get(plaintext, 0, length);
+		}
+		byte[] ciphertext;
+		int ciphertextOffset;
+		if (dst.hasArray()) {
+			ciphertext = dst.array();
+			ciphertextOffset = dst.arrayOffset() + dst.position();
+		} else {
+			ciphertext = frame;
+			ciphertextOffset = 0;
+		}
+		int len;
+		try {
+			len = sender.encryptWithAd(null, plaintext, plaintextOffset, ciphertext, ciphertextOffset + 2, length);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		}
+		ciphertext[ciphertextOffset] = (byte)(len >> 8);
+		ciphertext[ciphertextOffset + 1] = (byte)len;
+		src.position(src.position() + length);
+		if (dst.hasArray())
+			dst.position(dst.position() + len + 2);
+		else
+			dst.put(frame, 0, len + 2);
+		return OK;
+	}
+
+	/**
+	 * Unwraps a Noise frame into application data.
+	 *
+	 * @param src The buffer containing the frames that were received.
+	 * @param dst The buffer to write the application data to.
+	 * @return One of OK, BUFFER_UNDERFLOW, BUFFER_OVERFLOW, or CLOSED.
+	 *
+	 * At most one frame is consumed from src by each call.  If src does
+	 * not contain a complete frame, then BUFFER_UNDERFLOW is returned
+	 * without consuming or copying anything.  The destination buffer
+	 * must have space for the entire payload of the frame or
+	 * BUFFER_OVERFLOW is returned, again without consuming anything.
+	 *
+	 * During the handshake, this will process the next handshake message
+	 * if getHandshakeStatus() is NEED_UNWRAP, and will do nothing if the
+	 * status is NEED_WRAP.
+	 *
+	 * @throws BadPaddingException The frame could not be authenticated
+	 * or the handshake message was invalid.  The engine is closed.
+	 * @throws IllegalStateException The handshake has failed.
+	 */
+	public int unwrap(ByteBuffer src, ByteBuffer dst) throws BadPaddingException
+	{
+		if (closed)
+			return CLOSED;
+		if (handshake != null && handshake.getAction() != HandshakeState.READ_MESSAGE)
+			return OK;
+
+		// Determine if we have a complete frame yet.
+		if (src.remaining() < 2)
+			return BUFFER_UNDERFLOW;
+		int posn = src.position();
+		int length = ((src.get(posn) & 0xFF) << 8) | (src.get(posn + 1) & 0xFF);
+		if (src.remaining() < (length + 2))
+			return BUFFER_UNDERFLOW;
+
+		// Check that the destination has enough space.  The payload
+		// for a handshake message is no longer than the message itself.
+		int maxPayload = length;
+		if (handshake == null)
+			maxPayload -= pair.getReceiver().getMACLength();
+		if (maxPayload > dst.remaining())
+			return BUFFER_OVERFLOW;
+
+		// Find the input frame data.
+		byte[] input;
+		int inputOffset;
+		if (src.hasArray()) {
+			input = src.array();
+			inputOffset = src.arrayOffset() + posn + 2;
+		} else {
+			input = frame;
+			inputOffset = 0;
+			ByteBuffer dup = src.duplicate();
+			dup.position(posn + 2);
+			dup.get(input, 0, length);
+		}
+		src.position(posn + length + 2);
+
+		// Process a handshake message.
+		if (handshake != null) {
+			if (unwrapBuffer == null)
+				unwrapBuffer = new byte [Noise.MAX_PACKET_LEN];
+			int result;
+			try {
+				result = handshake.tryReadMessage(input, inputOffset, length, unwrapBuffer, 0);
+			} catch (ShortBufferException e) {
+				// The handshake message was truncated.
+				result = -1;
+			}
+			if (result < 0) {
+				close();
+				Noise.throwBadTagException();
+			}
+			dst.put(unwrapBuffer, 0, result);
+			checkSplit();
+			return OK;
+		}
+
+		// Decrypt a transport message.
+		byte[] output;
+		int outputOffset;
+		if (dst.hasArray()) {
+			output = dst.array();
+			outputOffset = dst.arrayOffset() + dst.position();
+		} else {
+			if (unwrapBuffer == null)
+				unwrapBuffer = new byte [Noise.MAX_PACKET_LEN];
+			output = unwrapBuffer;
+			outputOffset = 0;
+		}
+		int result;
+		try {
+			result = pair.getReceiver().tryDecryptWithAd(null, input, inputOffset, output, outputOffset, length);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			result = -1;
+		}
+		if (result < 0) {
+			close();
+			Noise.throwBadTagException();
+		}
+		if (dst.hasArray())
+			dst.position(dst.position() + result);
+		else
+			dst.put(unwrapBuffer, 0, result);
+		return OK;
+	}
+
+	/**
+	 * Closes this engine and destroys all keys.
+	 *
+	 * Subsequent calls to wrap() and unwrap() will return CLOSED.
+	 */
+	public void close()
+	{
+		closed = true;
+		pendingLength = 0;
+		if (handshake != null) {
+			handshake.destroy();
+			handshake = null;
+		}
+		if (pair != null) {
+			pair.destroy();
+			pair = null;
+		}
+		Noise.destroy(frame);
+		if (wrapBuffer != null)
+			Noise.destroy(wrapBuffer);
+		if (unwrapBuffer != null)
+			Noise.destroy(unwrapBuffer);
+	}
+
+	@Override
+	public void destroy() {
+		close();
+	}
+
+	/**
+	 * Flushes the pending handshake frame to a destination buffer.
+	 *
+	 * @param dst The destination buffer.
+	 * @return OK if the frame was written, or BUFFER_OVERFLOW if
+	 * there is insufficient space in the destination buffer.
+	 */
+	private int flushPending(ByteBuffer dst)
+	{
+		if (dst.remaining() < pendingLength)
+			return BUFFER_OVERFLOW;
+		dst.put(frame, 0, pendingLength);
+		pendingLength = 0;
+		return OK;
+	}
+
+	/**
+	 * Switches to the transport ciphers if the handshake has finished.
+	 *
+	 * @throws IllegalStateException The handshake has failed.
+	 */
+	private void checkSplit()
+	{
+		int action = handshake.getAction();
+		if (action == HandshakeState.SPLIT) {
+			pair = handshake.split();
+			handshakeHash = handshake.getHandshakeHash().clone();
+			handshake.destroy();
+			handshake = null;
+		} else if (action == HandshakeState.FAILED) {
+			close();
+			throw new IllegalStateException("Handshake failed");
+		}
+	}
+}
@@ -0,0 +1,546 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Encrypts and decrypts files as a sequence of Noise transport frames.
+ *
+ * The encrypted file starts with an 8-byte header containing a magic
+ * number and the plaintext chunk size.  The header is followed by one
+ * chunk for every chunk size bytes of plaintext, each consisting of a
+ * 2-byte big-endian length and the encrypted chunk plus its MAC.  An
+ * empty file is encrypted as a single empty chunk.
+ *
+ * The associated data for each chunk is the header followed by a byte
+ * that is 1 for the final chunk and 0 for all other chunks.  This binds
+ * the chunk size to every chunk and allows truncation to be detected.
+ * Chunks are encrypted with consecutive nonces from the CipherState.
+ *
+ * The files are accessed through memory-mapped windows so that the
+ * plaintext is never fully materialized on the Java heap; only a single
+ * chunk at a time is copied to the heap for encryption or decryption.
+ *
+ * Chunks are independent AEAD operations apart from their nonces, so
+ * they can also be processed in parallel on a ForkJoinPool.
+ */
+public final class NoiseFileCipher {
+
+	/**
+	 * Length of the header at the start of an encrypted file.
+	 */
+	public static final int HEADER_LEN = 8;
+
+	/**
+	 * Magic number at the start of an encrypted file: "NFC1".
+	 */
+	private static final int MAGIC = 0x4E464331;
+
+	/**
+	 * Approximate size of the regions of the files to map at once.
+	 */
+	private static final long WINDOW_SIZE = 32L * 1024 * 1024;
+
+	/**
+	 * Maximum number of chunks for a single parallel task.
+	 */
+	private static final long TASK_CHUNKS = 64;
+
+	private NoiseFileCipher() {}
+
+	/**
+	 * Encrypts a file with the largest possible chunk size.
+	 *
+	 * @param cipher The CipherState to encrypt with, which must have a key.
+	 * @param in The channel for the plaintext file, open for reading.
+	 * @param out The channel for the encrypted file, open for reading and
+	 * writing.  Any existing contents are replaced.
+	 * @return The size of the encrypted file.
+	 *
+	 * @throws IOException An error occurred accessing the files.
+	 * @throws IllegalArgumentException The cipher does not have a key.
+	 * @throws IllegalStateException The nonce would wrap around.
+	 */
+	public static long encrypt(CipherState cipher, FileChannel in, FileChannel out) throws IOException
+	{
+		return encrypt(cipher, in, out, Noise.MAX_PACKET_LEN - cipher.getMACLength());
+	}
+
+	/**
+	 * Encrypts a file with a specific chunk size.
+	 *
+	 * @param cipher The CipherState to encrypt with, which must have a key.
+	 * @param in The channel for the plaintext file, open for reading.
+	 * @param out The channel for the encrypted file, open for reading and
+	 * writing.  Any existing contents are replaced.
+	 * @param chunkSize The number of plaintext bytes in each chunk, between
+	 * 1 and Noise.MAX_PACKET_LEN minus the MAC length.
+	 * @return The size of the encrypted file.
+	 *
+	 * @throws IOException An error occurred accessing the files.
+	 * @throws IllegalArgumentException The cipher does not have a key,
+	 * or the chunk size is out of range.
+	 * @throws IllegalStateException The nonce would wrap around.
+	 */
+	public static long encrypt(CipherState cipher, FileChannel in, FileChannel out, int chunkSize) throws IOException
+	{
+		return encrypt(cipher, in, out, chunkSize, null);
+	}
+
+	/**
+	 * Encrypts a file with a specific chunk size, in parallel.
+	 *
+	 * @param cipher The CipherState to encrypt with, which must have a key.
+	 * @param in The channel for the plaintext file, open for reading.
+	 * @param out The channel for the encrypted file, open for reading and
+	 * writing.  Any existing contents are replaced.
+	 * @param chunkSize The number of plaintext bytes in each chunk, between
+	 * 1 and Noise.MAX_PACKET_LEN minus the MAC length.
+	 * @param pool The pool to encrypt the chunks on, or null to encrypt
+	 * sequentially in the calling thread.
+	 * @return The size of the encrypted file.
+	 *
+	 * Each worker task encrypts a range of chunks with its own fork of
+	 * the cipher, with the nonce set explicitly to the nonce that the
+	 * first chunk in the range would have had during sequential
+	 * encryption.  The output is byte-for-byte identical to sequential
+	 * encryption, and the cipher's nonce is advanced past all chunks.
+	 *
+	 * @throws IOException An error occurred accessing the files.
+	 * @throws IllegalArgumentException The cipher does not have a key,
+	 * or the chunk size is out of range.
+	 * @throws IllegalStateException The nonce would wrap around.
+	 */
+	public static long encrypt(CipherState cipher, FileChannel in, FileChannel out, int chunkSize, ForkJoinPool pool) throws IOException
+	{
+		int macLen = checkCipher(cipher, chunkSize);
+		Layout layout = new Layout(in.size(), chunkSize, macLen);
+		CipherBatch.checkNonces(cipher.getNonce(), layout.chunks);
+
+		// Write the header.
+		ByteBuffer header = ByteBuffer.wrap(layout.header);
+		out.truncate(0);
+		while (header.hasRemaining())
+			out.write(header, header.position());
+
+		// Encrypt the chunks.
+		long nonce = cipher.getNonce();
+		if (pool == null || layout.chunks <= TASK_CHUNKS) {
+			encryptRange(cipher, in, out, layout, 0, layout.chunks);
+		} else {
+			invoke(pool, new RangeTask(cipher, in, out, layout, nonce, 0, layout.chunks, true, null));
+			cipher.setNonce(nonce + layout.chunks);
+		}
+		return layout.ciphertextOffset(layout.chunks);
+	}
+
+	/**
+	 * Decrypts a file that was encrypted by encrypt().
+	 *
+	 * @param cipher The CipherState to decrypt with, which must have a key.
+	 * @param in The channel for the encrypted file, open for reading.
+	 * @param out The channel for the plaintext file, open for reading and
+	 * writing.  Any existing contents are replaced.
+	 * @return The size of the plaintext file.
+	 *
+	 * @throws IOException An error occurred accessing the files, or the
+	 * encrypted file does not have a valid header.
+	 * @throws BadPaddingException The encrypted file has been corrupted,
+	 * truncated, or was encrypted with a different key.  The output file
+	 * is truncated to zero length in this case.
+	 * @throws IllegalArgumentException The cipher does not have a key.
+	 * @throws IllegalStateException The nonce would wrap around.
+	 */
+	public static long decrypt(CipherState cipher, FileChannel in, FileChannel out) throws IOException, BadPaddingException
+	{
+		return decrypt(cipher, in, out, null);
+	}
+
+	/**
+	 * Decrypts a file that was encrypted by encrypt(), in parallel.
+	 *
+	 * @param cipher The CipherState to decrypt with, which must have a key.
+	 * @param in The channel for the encrypted file, open for reading.
+	 * @param out The channel for the plaintext file, open for reading and
+	 * writing.  Any existing contents are replaced.
+	 * @param pool The pool to decrypt the chunks on, or null to decrypt
+	 * sequentially in the calling thread.
+	 * @return The size of the plaintext file.
+	 *
+	 * Each worker task decrypts a range of chunks with its own fork of
+	 * the cipher and an explicitly assigned nonce range.  If any chunk
+	 * fails to decrypt, then the remaining tasks stop early.
+	 *
+	 * @throws IOException An error occurred accessing the files, or the
+	 * encrypted file does not have a valid header.
+	 * @throws BadPaddingException The encrypted file has been corrupted,
+	 * truncated, or was encrypted with a different key.  The output file
+	 * is truncated to zero length in this case.
+	 * @throws IllegalArgumentException The cipher does not have a key.
+	 * @throws IllegalStateException The nonce would wrap around.
+	 */
+	public static long decrypt(CipherState cipher, FileChannel in, FileChannel out, ForkJoinPool pool) throws IOException, BadPaddingException
+	{
+		// Read and validate the header.
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LEN);
+		while (header.hasRemaining()) {
+			if (in.read(header, header.position()) < 0)
+				throw new IOException("Encrypted file header is truncated");
+		}
+		header.flip();
+		if (header.getInt() != MAGIC)
+			throw new IOException("Not a Noise encrypted file");
+		int chunkSize = header.getInt();
+		int macLen = checkCipher(cipher, 1);
+		if (chunkSize < 1 || chunkSize > (Noise.MAX_PACKET_LEN - macLen))
+			throw new IOException("Invalid chunk size in encrypted file header");
+
+		// Determine the number of chunks and the plaintext size.
+		long body = in.size() - HEADER_LEN;
+		long fullChunk = 2 + chunkSize + macLen;
+		long chunks = Math.max(1, (body + fullChunk - 1) / fullChunk);
+		long size = body - chunks * (2 + macLen);
+		if (size < 0)
+			Noise.throwBadTagException();
+		Layout layout = new Layout(size, chunkSize, macLen);
+		CipherBatch.checkNonces(cipher.getNonce(), layout.chunks);
+
+		// Decrypt the chunks.
+		boolean ok = false;
+		out.truncate(0);
+		try {
+			long nonce = cipher.getNonce();
+			if (pool == null || layout.chunks <= TASK_CHUNKS) {
+				ok = decryptRange(cipher, in, out, layout, 0, layout.chunks, null);
+			} else {
+				AtomicBoolean failed = new AtomicBoolean();
+				invoke(pool, new RangeTask(cipher, in, out, layout, nonce, 0, layout.chunks, false, failed));
+				ok = !failed.get();
+				if (ok)
+					cipher.setNonce(nonce + layout.chunks);
+			}
+		} finally {
+			if (!ok)
+				out.truncate(0);
+		}
+		if (!ok)
+			Noise.throwBadTagException();
+		return size;
+	}
+
+	/**
+	 * Encrypts a range of chunks in the calling thread.
+	 *
+	 * @param cipher The cipher, with the nonce set for the first chunk.
+	 * @param in The plaintext file.
+	 * @param out The encrypted file.
+	 * @param layout The layout of the encrypted file.
+	 * @param first The first chunk to encrypt.
+	 * @param last The chunk after the last one to encrypt.
+	 */
+	private static void encryptRange(CipherState cipher, FileChannel in, FileChannel out, Layout layout, long first, long last) throws IOException
+	{
+		int chunkSize = layout.chunkSize;
+		byte[] ad = Arrays.copyOf(layout.header, HEADER_LEN + 1);
+		byte[] buffer = new byte [chunkSize + layout.macLen];
+		long chunksPerWindow = Math.max(1, WINDOW_SIZE / chunkSize);
+		long chunk = first;
+		try {
+			while (chunk < last) {
+				long windowChunks = Math.min(chunksPerWindow, last - chunk);
+				long inPosn = layout.plaintextOffset(chunk);
+				long outPosn = layout.ciphertextOffset(chunk);
+				long inLen = layout.plaintextOffset(chunk + windowChunks) - inPosn;
+				long outLen = layout.ciphertextOffset(chunk + windowChunks) - outPosn;
+				MappedByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, inPosn, inLen);
+				MappedByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, outPosn, outLen);
+				for (long index = 0; index < windowChunks; ++index, ++chunk) {
+					int len = Math.min(chunkSize, src.remaining());
+					src.get(buffer, 0, len);
+					ad[HEADER_LEN] = (byte)(chunk == (layout.chunks - 1) ? 1 : 0);
+					len = cipher.encryptWithAd(ad, buffer, 0, buffer, 0, len);
+					dst.put((byte)(len >> 8));
+					dst.put((byte)len);
+					dst.put(buffer, 0, len);
+				}
+			}
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		} finally {
+			Noise.destroy(buffer);
+		}
+	}
+
+	/**
+	 * Decrypts a range of chunks in the calling thread.
+	 *
+	 * @param cipher The cipher, with the nonce set for the first chunk.
+	 * @param in The encrypted file.
+	 * @param out The plaintext file.
+	 * @param layout The layout of the encrypted file.
+	 * @param first The first chunk to decrypt.
+	 * @param last The chunk after the last one to decrypt.
+	 * @param failed Flag that is set by other tasks when they fail,
+	 * or null if there are no other tasks.
+	 * @return true if all chunks were decrypted; false if a chunk
+	 * failed to authenticate or another task failed.
+	 */
+	private static boolean decryptRange(CipherState cipher, FileChannel in, FileChannel out, Layout layout, long first, long last, AtomicBoolean failed) throws IOException
+	{
+		int chunkSize = layout.chunkSize;
+		byte[] ad = Arrays.copyOf(layout.header, HEADER_LEN + 1);
+		byte[] buffer = new byte [chunkSize + layout.macLen];
+		long chunksPerWindow = Math.max(1, WINDOW_SIZE / chunkSize);
+		long chunk = first;
+		try {
+			while (chunk < last) {
+				long windowChunks = Math.min(chunksPerWindow, last - chunk);
+				long inPosn = layout.ciphertextOffset(chunk);
+				long outPosn = layout.plaintextOffset(chunk);
+				long inLen = layout.ciphertextOffset(chunk + windowChunks) - inPosn;
+				long outLen = layout.plaintextOffset(chunk + windowChunks) - outPosn;
+				MappedByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, inPosn, inLen);
+				MappedByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, outPosn, outLen);
+				for (long index = 0; index < windowChunks; ++index, ++chunk) {
+					if (failed != null && failed.get())
+						return false;
+					int expected = (int)(layout.ciphertextOffset(chunk + 1) - layout.ciphertextOffset(chunk)) - 2;
+					int len = ((src.get() & 0xFF) << 8) | (src.get() & 0xFF);
+					if (len != expected)
+						return false;
+					src.get(buffer, 0, len);
+					ad[HEADER_LEN] = (byte)(chunk == (layout.chunks - 1) ? 1 : 0);
+					len = cipher.tryDecryptWithAd(ad, buffer, 0, buffer, 0, len);
+					if (len < 0)
+						return false;
+					dst.put(buffer, 0, len);
+				}
+			}
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		} finally {
+			Noise.destroy(buffer);
+		}
+		return true;
+	}
+
+	/**
+	 * Runs a task on a pool, unwrapping I/O errors.
+	 */
+	private static void invoke(ForkJoinPool pool, RangeTask task) throws IOException
+	{
+		try {
+			pool.invoke(task);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Encrypts a file with the largest possible chunk size.
+	 *
+	 * @param cipher The CipherState to encrypt with, which must have a key.
+	 * @param in The path of the plaintext file.
+	 * @param out The path of the encrypted file to create or replace.
+	 * @return The size of the encrypted file.
+	 *
+	 * @throws IOException An error occurred accessing the files.
+	 */
+	public static long encrypt(CipherState cipher, Path in, Path out) throws IOException
+	{
+		FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+		try {
+			FileChannel output = openOutput(out);
+			try {
+				return encrypt(cipher, input, output);
+			} finally {
+				output.close();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Decrypts a file that was encrypted by encrypt().
+	 *
+	 * @param cipher The CipherState to decrypt with, which must have a key.
+	 * @param in The path of the encrypted file.
+	 * @param out The path of the plaintext file to create or replace.
+	 * @return The size of the plaintext file.
+	 *
+	 * @throws IOException An error occurred accessing the files, or the
+	 * encrypted file does not have a valid header.
+	 * @throws BadPaddingException The encrypted file has been corrupted,
+	 * truncated, or was encrypted with a different key.
+	 */
+	public static long decrypt(CipherState cipher, Path in, Path out) throws IOException, BadPaddingException
+	{
+		FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+		try {
+			FileChannel output = openOutput(out);
+			try {
+				return decrypt(cipher, input, output);
+			} finally {
+				output.close();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Checks the cipher and chunk size for encryption or decryption.
+	 *
+	 * @param cipher The cipher.
+	 * @param chunkSize The chunk size.
+	 * @return The MAC length for the cipher.
+	 */
+	static int checkCipher(CipherState cipher, int chunkSize)
+	{
+		if (!cipher.hasKey())
+			throw new IllegalArgumentException("CipherState does not have a key");
+		int macLen = cipher.getMACLength();
+		if (chunkSize < 1 || chunkSize > (Noise.MAX_PACKET_LEN - macLen))
+			throw new IllegalArgumentException("Chunk size is out of range");
+		return macLen;
+	}
+
+	private static FileChannel openOutput(Path out) throws IOException
+	{
+		return FileChannel.open(out, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Layout of the chunks in a plaintext file and its encrypted version.
+	 */
+	private static final class Layout {
+
+		final long size;
+		final int chunkSize;
+		final int macLen;
+		final long chunks;
+		final byte[] header;
+
+		Layout(long size, int chunkSize, int macLen)
+		{
+			this.size = size;
+			this.chunkSize = chunkSize;
+			this.macLen = macLen;
+			this.chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+			this.header = new byte [HEADER_LEN];
+			ByteBuffer buf = ByteBuffer.wrap(header);
+			buf.putInt(MAGIC);
+			buf.putInt(chunkSize);
+		}
+
+		/**
+		 * Gets the offset of a chunk in the plaintext file.
+		 */
+		long plaintextOffset(long chunk)
+		{
+			return Math.min(chunk * chunkSize, size);
+		}
+
+		/**
+		 * Gets the offset of a chunk in the encrypted file.
+		 */
+		long ciphertextOffset(long chunk)
+		{
+			return HEADER_LEN + chunk * (2 + macLen) + plaintextOffset(chunk);
+		}
+	}
+
+	/**
+	 * Task that encrypts or decrypts a range of chunks, splitting
+	 * large ranges into sub-tasks.
+	 */
+	private static final class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CipherState cipher;
+		private final FileChannel in;
+		private final FileChannel out;
+		private final Layout layout;
+		private final long nonce;
+		private final long first;
+		private final long last;
+		private final boolean encrypt;
+		private final AtomicBoolean failed;
+
+		RangeTask(CipherState cipher, FileChannel in, FileChannel out, Layout layout, long nonce, long first, long last, boolean encrypt, AtomicBoolean failed)
+		{
+			this.cipher = cipher;
+			this.in = in;
+			this.out = out;
+			this.layout = layout;
+			this.nonce = nonce;
+			this.first = first;
+			this.last = last;
+			this.encrypt = encrypt;
+			this.failed = failed;
+		}
+
+		@Override
+		protected void compute() {
+			if ((last - first) > TASK_CHUNKS) {
+				long mid = first + (last - first) / 2;
+				invokeAll(new RangeTask(cipher, in, out, layout, nonce, first, mid, encrypt, failed),
+						  new RangeTask(cipher, in, out, layout, nonce, mid, last, encrypt, failed));
+				return;
+			}
+			if (failed != null && failed.get())
+				return;
+			CipherState worker = cipher.fork();
+			try {
+				worker.setNonce(nonce + first);
+				if (encrypt)
+					encryptRange(worker, in, out, layout, first, last);
+				else if (!decryptRange(worker, in, out, layout, first, last, failed))
+					failed.set(true);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				worker.destroy();
+			}
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.ShortBufferException;
+
+/**
+ * Input stream that decrypts length-prefixed Noise frames.
+ *
+ * Each frame is read from the underlying stream, authenticated and
+ * decrypted with the CipherState, and then returned to the caller as
+ * a continuous stream of bytes.  If a frame fails to authenticate,
+ * an IOException is thrown and the stream cannot be used any further.
+ *
+ * This class also implements ReadableByteChannel so that it can be
+ * used as a stage in a channel pipeline.  Use Channels.newInputStream()
+ * to read the frames from an underlying channel.
+ *
+ * This class uses a ReentrantLock rather than synchronized blocks to
+ * serialize readers, so that blocking reads do not pin the carrier
+ * thread of a virtual thread.
+ *
+ * @see NoiseOutputStream
+ */
+public final class NoiseInputStream extends InputStream implements ReadableByteChannel {
+
+	private final InputStream in;
+	private final CipherState cipher;
+	private final ReentrantLock lock;
+	private final byte[] buffer;
+	private int posn;
+	private int length;
+	private boolean eof;
+	private boolean failed;
+	private boolean closed;
+
+	/**
+	 * Constructs a new Noise input stream.
+	 *
+	 * @param in The underlying input stream to read frames from.
+	 * @param cipher The CipherState to decrypt frames with.  The stream
+	 * takes ownership of the cipher and destroys it when it is closed.
+	 */
+	public NoiseInputStream(InputStream in, CipherState cipher)
+	{
+		this.in = in;
+		this.cipher = cipher;
+		this.lock = new ReentrantLock();
+		this.buffer = new byte [Noise.MAX_PACKET_LEN];
+		this.posn = 0;
+		this.length = 0;
+		this.eof = false;
+		this.failed = false;
+		this.closed = false;
+	}
+
+	@Override
+	public int read() throws IOException {
+		lock.lock();
+		try {
+			while (posn >= length) {
+				if (!readFrame())
+					return -1;
+			}
+			return buffer[posn++] & 0xFF;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || off > b.length || (b.length - off) < len)
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+		lock.lock();
+		try {
+			while (posn >= length) {
+				if (!readFrame())
+					return -1;
+			}
+			int temp = Math.min(len, length - posn);
+			System.arraycopy(buffer, posn, b, off, temp);
+			posn += temp;
+			return temp;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads decrypted data into a byte buffer.
+	 *
+	 * @param dst The buffer to read into.
+	 * @return The number of bytes that were read, or -1 at EOF.
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!dst.hasRemaining())
+			return 0;
+		lock.lock();
+		try {
+			if (closed)
+				throw new ClosedChannelException();
+			while (posn >= length) {
+				if (!readFrame())
+					return -1;
+			}
+			int temp = Math.min(dst.remaining(), length - posn);
+			dst.put(buffer, posn, temp);
+			posn += temp;
+			return temp;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		lock.lock();
+		try {
+			return !closed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of decrypted bytes that can be read
+	 * without blocking.
+	 */
+	@Override
+	public int available() throws IOException {
+		lock.lock();
+		try {
+			return closed ? 0 : length - posn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the underlying stream and destroys the cipher.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed)
+				return;
+			closed = true;
+			posn = 0;
+			length = 0;
+			Noise.destroy(buffer);
+			cipher.destroy();
+			in.close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads and decrypts the next frame from the underlying stream.
+	 *
+	 * @return false if the underlying stream is at EOF.
+	 */
+	private boolean readFrame() throws IOException
+	{
+		if (closed)
+			throw new IOException("Stream closed");
+		if (failed)
+			throw new IOException("Noise frame authentication failed");
+		if (eof)
+			return false;
+		posn = 0;
+		length = 0;
+		if (!readFully(in, buffer, 0, 2)) {
+			eof = true;
+			return false;
+		}
+		int len = ((buffer[0] & 0xFF) << 8) | (buffer[1] & 0xFF);
+		if (!readFully(in, buffer, 0, len))
+			throw new EOFException("Truncated Noise frame");
+		int result;
+		try {
+			result = cipher.tryDecryptWithAd(null, buffer, 0, buffer, 0, len);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			result = -1;
+		}
+		if (result < 0) {
+			failed = true;
+			throw new IOException("Noise frame authentication failed");
+		}
+		length = result;
+		return true;
+	}
+
+	/**
+	 * Reads an exact number of bytes from an input stream.
+	 *
+	 * @param in The input stream.
+	 * @param b The buffer to read into.
+	 * @param off The offset of the first byte to read.
+	 * @param len The number of bytes to read.
+	 * @return false if the stream was at EOF before any bytes were read;
+	 * true if all bytes were read.
+	 *
+	 * @throws EOFException The stream reached EOF after some of the
+	 * bytes had been read.
+	 */
+	static boolean readFully(InputStream in, byte[] b, int off, int len) throws IOException
+	{
+		int total = 0;
+		while (total < len) {
+			int result = in.read(b, off + total, len - total);
+			if (result < 0) {
+				if (total == 0)
+					return false;
+				throw new EOFException("Truncated Noise frame");
+			}
+			total += result;
+		}
+		return true;
+	}
+}
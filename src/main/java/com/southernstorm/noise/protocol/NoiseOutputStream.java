@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.ShortBufferException;
+
+/**
+ * Output stream that encrypts data into length-prefixed Noise frames.
+ *
+ * Data that is written to this stream is buffered until a full frame
+ * is available or the stream is flushed.  Each frame is encrypted with
+ * the CipherState and written to the underlying stream with a 2-byte
+ * big-endian length prefix.
+ *
+ * Coalescing small writes into larger frames saves the MAC and the
+ * AEAD setup on every write.  The frame size can be reduced to limit
+ * the amount of data that is buffered, and a flush deadline can be
+ * set with setFlushDeadline() so that buffered data is sent within a
+ * bounded time even if the application does not call flush().
+ *
+ * This class also implements WritableByteChannel so that it can be
+ * used as a stage in a channel pipeline.  Use Channels.newOutputStream()
+ * to write the frames to an underlying channel.
+ *
+ * This class uses a ReentrantLock rather than synchronized blocks to
+ * serialize writers, so that blocking writes do not pin the carrier
+ * thread of a virtual thread.
+ *
+ * @see NoiseInputStream
+ */
+public final class NoiseOutputStream extends OutputStream implements WritableByteChannel {
+
+	private final OutputStream out;
+	private final CipherState cipher;
+	private final ReentrantLock lock;
+	private final byte[] buffer;
+	private final int maxPayload;
+	private int count;
+	private boolean closed;
+	private ScheduledExecutorService scheduler;
+	private long deadline;
+	private ScheduledFuture<?> pendingFlush;
+	private IOException flushError;
+	private long frames;
+
+	/**
+	 * Constructs a new Noise output stream with the maximum frame size.
+	 *
+	 * @param out The underlying output stream to write frames to.
+	 * @param cipher The CipherState to encrypt frames with.  The stream
+	 * takes ownership of the cipher and destroys it when it is closed.
+	 */
+	public NoiseOutputStream(OutputStream out, CipherState cipher)
+	{
+		this(out, cipher, Noise.MAX_PACKET_LEN - cipher.getMACLength());
+	}
+
+	/**
+	 * Constructs a new Noise output stream with a specific frame size.
+	 *
+	 * @param out The underlying output stream to write frames to.
+	 * @param cipher The CipherState to encrypt frames with.  The stream
+	 * takes ownership of the cipher and destroys it when it is closed.
+	 * @param frameSize The maximum number of plaintext bytes in each
+	 * frame, between 1 and Noise.MAX_PACKET_LEN minus the MAC length.
+	 *
+	 * @throws IllegalArgumentException The frame size is out of range.
+	 */
+	public NoiseOutputStream(OutputStream out, CipherState cipher, int frameSize)
+	{
+		if (frameSize < 1 || frameSize > (Noise.MAX_PACKET_LEN - cipher.getMACLength()))
+			throw new IllegalArgumentException("Frame size is out of range");
+		this.out = out;
+		this.cipher = cipher;
+		this.lock = new ReentrantLock();
+		this.buffer = new byte [frameSize + cipher.getMACLength() + 2];
+		this.maxPayload = frameSize;
+		this.count = 0;
+		this.closed = false;
+		this.scheduler = null;
+		this.deadline = 0;
+		this.pendingFlush = null;
+		this.flushError = null;
+		this.frames = 0;
+	}
+
+	/**
+	 * Gets the maximum number of plaintext bytes in each frame.
+	 *
+	 * @return The frame size.
+	 */
+	public int getFrameSize()
+	{
+		return maxPayload;
+	}
+
+	/**
+	 * Sets a deadline for flushing buffered data automatically.
+	 *
+	 * @param scheduler The executor to schedule flushes on, or null
+	 * to disable automatic flushing.
+	 * @param delay The maximum time that data can stay in the buffer.
+	 * @param unit The units for the delay.
+	 *
+	 * When data is written into an empty buffer, a flush is scheduled
+	 * for the deadline.  If the buffer has been sent as a frame before
+	 * the deadline, then nothing happens.  If the scheduled flush fails,
+	 * the error is reported by the next write or flush call.
+	 *
+	 * @throws IllegalArgumentException The delay is negative.
+	 */
+	public void setFlushDeadline(ScheduledExecutorService scheduler, long delay, TimeUnit unit)
+	{
+		if (delay < 0)
+			throw new IllegalArgumentException("Delay cannot be negative");
+		lock.lock();
+		try {
+			cancelFlush();
+			this.scheduler = scheduler;
+			this.deadline = unit.toNanos(delay);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		lock.lock();
+		try {
+			ensureOpen();
+			buffer[2 + count++] = (byte)b;
+			if (count >= maxPayload)
+				writeFrame();
+			else if (count == 1)
+				scheduleFlush();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || off > b.length || (b.length - off) < len)
+			throw new IndexOutOfBoundsException();
+		lock.lock();
+		try {
+			ensureOpen();
+			while (len > 0) {
+				int temp = Math.min(len, maxPayload - count);
+				System.arraycopy(b, off, buffer, 2 + count, temp);
+				count += temp;
+				off += temp;
+				len -= temp;
+				frameAdded(temp);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the contents of a byte buffer to this stream.
+	 *
+	 * @param src The buffer containing the data to write.
+	 * @return The number of bytes that were written, which is
+	 * always all of the remaining bytes in src.
+	 */
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		lock.lock();
+		try {
+			if (closed)
+				throw new ClosedChannelException();
+			ensureOpen();
+			int total = src.remaining();
+			while (src.hasRemaining()) {
+				int temp = Math.min(src.remaining(), maxPayload - count);
+				src.get(buffer, 2 + count, temp);
+				count += temp;
+				frameAdded(temp);
+			}
+			return total;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		lock.lock();
+		try {
+			return !closed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Encrypts and writes any buffered data as a frame and then
+	 * flushes the underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		lock.lock();
+		try {
+			ensureOpen();
+			if (count > 0)
+				writeFrame();
+			out.flush();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Flushes any buffered data, closes the underlying stream,
+	 * and destroys the cipher.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed)
+				return;
+			cancelFlush();
+			try {
+				if (count > 0)
+					writeFrame();
+				out.flush();
+			} finally {
+				closed = true;
+				count = 0;
+				Noise.destroy(buffer);
+				cipher.destroy();
+				out.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Encrypts the buffered data and writes it as a frame.
+	 */
+	private void writeFrame() throws IOException
+	{
+		int len;
+		try {
+			len = cipher.encryptWithAd(null, buffer, 2, buffer, 2, count);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		}
+		buffer[0] = (byte)(len >> 8);
+		buffer[1] = (byte)len;
+		count = 0;
+		++frames;
+		cancelFlush();
+		out.write(buffer, 0, len + 2);
+	}
+
+	/**
+	 * Sends the frame as soon as it is full, or schedules a deadline
+	 * flush if data was just added to an empty buffer.
+	 *
+	 * @param added The number of bytes that were just added to the buffer.
+	 */
+	private void frameAdded(int added) throws IOException
+	{
+		if (count >= maxPayload)
+			writeFrame();
+		else if (count == added)
+			scheduleFlush();
+	}
+
+	private void ensureOpen() throws IOException
+	{
+		if (closed)
+			throw new IOException("Stream closed");
+		if (flushError != null) {
+			IOException e = flushError;
+			flushError = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Schedules a deadline flush for data that is about to be written
+	 * into an empty buffer.
+	 */
+	private void scheduleFlush()
+	{
+		if (scheduler == null || pendingFlush != null)
+			return;
+		final long frame = frames;
+		pendingFlush = scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				deadlineFlush(frame);
+			}
+		}, deadline, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Cancels the pending deadline flush, if any.
+	 */
+	private void cancelFlush()
+	{
+		if (pendingFlush != null) {
+			pendingFlush.cancel(false);
+			pendingFlush = null;
+		}
+	}
+
+	/**
+	 * Flushes the buffered data when a deadline expires.
+	 *
+	 * @param frame The number of frames that had been written when the
+	 * deadline was scheduled.  If more frames have been written since,
+	 * then the data that the deadline was for has already been sent.
+	 */
+	private void deadlineFlush(long frame)
+	{
+		lock.lock();
+		try {
+			if (frame != frames)
+				return;
+			pendingFlush = null;
+			if (closed || count == 0)
+				return;
+			writeFrame();
+			out.flush();
+		} catch (IOException e) {
+			flushError = e;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
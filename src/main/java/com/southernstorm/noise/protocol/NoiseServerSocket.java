@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * Server socket that accepts Noise connections.
+ *
+ * Each accepted connection is returned as a NoiseSocket with a new
+ * HandshakeState from the factory.  The handshake is not performed by
+ * accept(); it runs on first use of the socket's streams, which is
+ * normally in the thread that is servicing the connection.
+ *
+ * @see NoiseSocket
+ */
+public class NoiseServerSocket extends ServerSocket {
+
+	/**
+	 * Factory for creating the HandshakeState for accepted connections.
+	 */
+	public interface HandshakeFactory {
+
+		/**
+		 * Creates a HandshakeState for a newly accepted connection.
+		 *
+		 * @return A handshake in the responder role, configured with
+		 * the necessary keys.
+		 *
+		 * @throws IOException The handshake could not be created.
+		 */
+		HandshakeState createHandshake() throws IOException;
+	}
+
+	private final HandshakeFactory factory;
+
+	/**
+	 * Creates an unbound Noise server socket.
+	 *
+	 * @param factory The factory for handshakes on accepted connections.
+	 *
+	 * @throws IOException An error occurred creating the socket.
+	 */
+	public NoiseServerSocket(HandshakeFactory factory) throws IOException
+	{
+		this.factory = factory;
+	}
+
+	/**
+	 * Creates a Noise server socket that is bound to a port.
+	 *
+	 * @param port The port number, or 0 to choose a port automatically.
+	 * @param factory The factory for handshakes on accepted connections.
+	 *
+	 * @throws IOException An error occurred creating the socket.
+	 */
+	public NoiseServerSocket(int port, HandshakeFactory factory) throws IOException
+	{
+		super(port);
+		this.factory = factory;
+	}
+
+	/**
+	 * Creates a Noise server socket that is bound to a port.
+	 *
+	 * @param port The port number, or 0 to choose a port automatically.
+	 * @param backlog The maximum length of the queue of incoming connections.
+	 * @param bindAddr The local address to bind to, or null for any address.
+	 * @param factory The factory for handshakes on accepted connections.
+	 *
+	 * @throws IOException An error occurred creating the socket.
+	 */
+	public NoiseServerSocket(int port, int backlog, InetAddress bindAddr, HandshakeFactory factory) throws IOException
+	{
+		super(port, backlog, bindAddr);
+		this.factory = factory;
+	}
+
+	/**
+	 * Accepts a connection on this socket.
+	 *
+	 * @return A NoiseSocket for the new connection.
+	 *
+	 * @throws IOException An error occurred accepting the connection
+	 * or creating the handshake.
+	 */
+	@Override
+	public Socket accept() throws IOException {
+		if (isClosed())
+			throw new SocketException("Socket is closed");
+		if (!isBound())
+			throw new SocketException("Socket is not bound yet");
+		NoiseSocket socket = new NoiseSocket(factory.createHandshake());
+		try {
+			implAccept(socket);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return socket;
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.ShortBufferException;
+
+/**
+ * Socket that runs a Noise session over a TCP connection.
+ *
+ * The handshake is performed on first use of the input or output stream,
+ * or when startHandshake() is called explicitly.  Handshake and transport
+ * messages are sent as frames with a 2-byte big-endian length prefix.
+ * Handshake messages sent by this class have empty payloads.
+ *
+ * The streams that are returned by getInputStream() and getOutputStream()
+ * are NoiseInputStream and NoiseOutputStream objects that wrap the
+ * underlying socket streams.  Closing either stream closes the socket.
+ *
+ * This class does not use synchronized blocks.  All locking is done with
+ * ReentrantLock so that blocking handshakes, reads and writes do not pin
+ * the carrier thread when the socket is used from a virtual thread.
+ *
+ * @see NoiseServerSocket
+ */
+public class NoiseSocket extends Socket {
+
+	private final ReentrantLock handshakeLock;
+	private HandshakeState handshake;
+	private NoiseInputStream input;
+	private NoiseOutputStream output;
+	private byte[] handshakeHash;
+
+	/**
+	 * Creates an unconnected Noise socket.
+	 *
+	 * @param handshake The handshake to run once the socket is connected.
+	 * The handshake must have been configured with the necessary keys.
+	 * The socket takes ownership of the handshake and will destroy it.
+	 */
+	public NoiseSocket(HandshakeState handshake)
+	{
+		this.handshakeLock = new ReentrantLock();
+		this.handshake = handshake;
+	}
+
+	/**
+	 * Creates a Noise socket and connects it to a remote host.
+	 *
+	 * @param host The name of the remote host.
+	 * @param port The port number on the remote host.
+	 * @param handshake The handshake to run once the socket is connected.
+	 * The socket takes ownership of the handshake and will destroy it.
+	 *
+	 * @throws IOException An error occurred connecting the socket.
+	 * The handshake is destroyed if the socket cannot be connected.
+	 */
+	public NoiseSocket(String host, int port, HandshakeState handshake) throws IOException
+	{
+		this(handshake);
+		boolean connected = false;
+		try {
+			connect(new InetSocketAddress(InetAddress.getByName(host), port));
+			connected = true;
+		} finally {
+			if (!connected)
+				close();
+		}
+	}
+
+	/**
+	 * Creates a Noise socket and connects it to a remote address.
+	 *
+	 * @param address The address of the remote host.
+	 * @param port The port number on the remote host.
+	 * @param handshake The handshake to run once the socket is connected.
+	 * The socket takes ownership of the handshake and will destroy it.
+	 *
+	 * @throws IOException An error occurred connecting the socket.
+	 * The handshake is destroyed if the socket cannot be connected.
+	 */
+	public NoiseSocket(InetAddress address, int port, HandshakeState handshake) throws IOException
+	{
+		this(handshake);
+		boolean connected = false;
+		try {
+			connect(new InetSocketAddress(address, port));
+			connected = true;
+		} finally {
+			if (!connected)
+				close();
+		}
+	}
+
+	/**
+	 * Performs the Noise handshake if it has not been done already.
+	 *
+	 * @throws IOException An error occurred communicating with the
+	 * remote party, or the handshake failed.  The socket is closed
+	 * if the handshake fails.
+	 */
+	public void startHandshake() throws IOException
+	{
+		handshakeLock.lock();
+		try {
+			if (input != null)
+				return;
+			if (handshake == null)
+				throw new IOException("Noise handshake failed");
+			runHandshake();
+		} finally {
+			handshakeLock.unlock();
+		}
+	}
+
+	/**
+	 * Determine if the handshake has completed.
+	 *
+	 * @return true if the handshake has completed; false otherwise.
+	 */
+	public boolean isHandshakeComplete()
+	{
+		handshakeLock.lock();
+		try {
+			return input != null;
+		} finally {
+			handshakeLock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the handshake hash for channel binding.
+	 *
+	 * @return The handshake hash.  This must not be modified by the caller.
+	 *
+	 * @throws IllegalStateException The handshake has not completed yet.
+	 */
+	public byte[] getHandshakeHash()
+	{
+		handshakeLock.lock();
+		try {
+			if (handshakeHash == null)
+				throw new IllegalStateException("Handshake has not completed");
+			return handshakeHash;
+		} finally {
+			handshakeLock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the input stream for this socket, performing the
+	 * handshake first if necessary.
+	 *
+	 * @return The decrypting input stream.
+	 */
+	@Override
+	public InputStream getInputStream() throws IOException {
+		startHandshake();
+		return input;
+	}
+
+	/**
+	 * Gets the output stream for this socket, performing the
+	 * handshake first if necessary.
+	 *
+	 * @return The encrypting output stream.
+	 */
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		startHandshake();
+		return output;
+	}
+
+	/**
+	 * Closes this socket and destroys the handshake if it has not
+	 * been performed yet.
+	 *
+	 * Any transport ciphers are destroyed when the socket's streams
+	 * are closed.  This method does not wait for a handshake that is
+	 * in progress in another thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			// The lock may be null if the superclass constructor failed.
+			if (handshakeLock != null && handshakeLock.tryLock()) {
+				try {
+					if (handshake != null) {
+						handshake.destroy();
+						handshake = null;
+					}
+				} finally {
+					handshakeLock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the handshake with the lock held.
+	 */
+	private void runHandshake() throws IOException
+	{
+		InputStream in = super.getInputStream();
+		OutputStream out = super.getOutputStream();
+		byte[] message = new byte [Noise.MAX_PACKET_LEN + 2];
+		byte[] payload = new byte [Noise.MAX_PACKET_LEN];
+		try {
+			if (handshake.getAction() == HandshakeState.NO_ACTION)
+				handshake.start();
+			for (;;) {
+				int action = handshake.getAction();
+				if (action == HandshakeState.WRITE_MESSAGE) {
+					int len = handshake.writeMessage(message, 2, null, 0, 0);
+					message[0] = (byte)(len >> 8);
+					message[1] = (byte)len;
+					out.write(message, 0, len + 2);
+					out.flush();
+				} else if (action == HandshakeState.READ_MESSAGE) {
+					if (!NoiseInputStream.readFully(in, message, 0, 2))
+						throw new EOFException("Connection closed during Noise handshake");
+					int len = ((message[0] & 0xFF) << 8) | (message[1] & 0xFF);
+					if (!NoiseInputStream.readFully(in, message, 0, len))
+						throw new EOFException("Connection closed during Noise handshake");
+					if (handshake.tryReadMessage(message, 0, len, payload, 0) < 0)
+						throw new IOException("Noise handshake failed");
+				} else if (action == HandshakeState.SPLIT) {
+					CipherStatePair pair = handshake.split();
+					handshakeHash = handshake.getHandshakeHash().clone();
+					output = new NoiseOutputStream(out, pair.getSender());
+					input = new NoiseInputStream(in, pair.getReceiver());
+					break;
+				} else {
+					throw new IOException("Noise handshake failed");
+				}
+			}
+		} catch (ShortBufferException e) {
+			throw new IOException("Noise handshake failed", e);
+		} catch (IllegalStateException e) {
+			throw new IOException("Noise handshake failed", e);
+		} finally {
+			Noise.destroy(message);
+			Noise.destroy(payload);
+			handshake.destroy();
+			handshake = null;
+			if (input == null)
+				close();
+		}
+	}
+}
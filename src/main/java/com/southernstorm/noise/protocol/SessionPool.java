@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Pool of sessions that keeps only recently used sessions expanded.
+ *
+ * A live CipherStatePair holds a considerable amount of working state
+ * for each direction: key schedules, MAC state, and for AESGCM a JCA
+ * Cipher object.  Servers with large numbers of mostly idle sessions
+ * can use this class to keep a bounded working set of live pairs.
+ * When the working set is full, the least recently used pair is
+ * hibernated: its keys and nonces are exported into a compact record
+ * in an off-heap slab and the live pair is destroyed.  The next call
+ * to get() for that session rehydrates the pair from the record.
+ *
+ * A hibernated session costs EXPORT_LEN bytes of off-heap memory plus
+ * the entry in the map of sessions.  The records are not wrapped as
+ * they never leave the process; freed records are zeroed.
+ *
+ * When the pool is shared between threads, use acquire() and release()
+ * around each use of a pair.  An acquired session is never hibernated
+ * or destroyed by the pool, so its nonces cannot be exported while a
+ * packet is being processed; the working set may grow beyond the limit
+ * while too many sessions are acquired at once.  The pair that is
+ * returned by get() is not protected in this way and may be hibernated
+ * and destroyed by a later call for a different session, so get() is
+ * only suitable when the pool is used by a single thread.
+ *
+ * The methods of this class are synchronized, but the pairs themselves
+ * are not; packets for a single session must still be processed one at
+ * a time.
+ *
+ * @param <K> The type of the identifiers for the sessions.
+ */
+public final class SessionPool<K> implements Destroyable {
+
+	/**
+	 * Number of records in each off-heap slab.
+	 */
+	private static final int SLAB_RECORDS = 1024;
+
+	private static final int RECORD_LEN = CipherStatePair.EXPORT_LEN;
+
+	private final int maxLive;
+	private final LinkedHashMap<K, CipherStatePair> live;
+	private final HashMap<K, Integer> dormant;
+	private final HashMap<K, Integer> leases;
+	private final HashSet<K> deferred;
+	private final ArrayList<ByteBuffer> slabs;
+	private int[] freeRecords;
+	private int numFree;
+	private final byte[] record;
+	private long hibernations;
+	private long rehydrations;
+
+	/**
+	 * Constructs a new session pool.
+	 *
+	 * @param maxLive The maximum number of sessions to keep live.
+	 *
+	 * @throws IllegalArgumentException maxLive is less than 1.
+	 */
+	public SessionPool(int maxLive)
+	{
+		if (maxLive < 1)
+			throw new IllegalArgumentException("Pool must allow at least one live session");
+		this.maxLive = maxLive;
+		this.live = new LinkedHashMap<K, CipherStatePair>(16, 0.75f, true);
+		this.dormant = new HashMap<K, Integer>();
+		this.leases = new HashMap<K, Integer>();
+		this.deferred = new HashSet<K>();
+		this.slabs = new ArrayList<ByteBuffer>();
+		this.freeRecords = new int [SLAB_RECORDS];
+		this.numFree = 0;
+		this.record = new byte [RECORD_LEN];
+		this.hibernations = 0;
+		this.rehydrations = 0;
+	}
+
+	/**
+	 * Adds a session to the pool.
+	 *
+	 * @param id The identifier for the session.
+	 * @param pair The cipher pair for the session, which the pool takes
+	 * ownership of.  Any existing session with the same identifier is
+	 * destroyed.
+	 *
+	 * @throws IllegalArgumentException The pair cannot be exported,
+	 * for example because it contains AutoRekeyCipherState objects.
+	 *
+	 * @throws IllegalStateException The existing session with the same
+	 * identifier is currently acquired.
+	 */
+	public synchronized void put(K id, CipherStatePair pair)
+	{
+		if (leases.containsKey(id))
+			throw new IllegalStateException("Session is in use");
+		// Check that the pair can be hibernated before accepting it.
+		try {
+			pair.exportState(record, 0, null);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		} finally {
+			Arrays.fill(record, (byte)0);
+		}
+		remove(id);
+		live.put(id, pair);
+		trim(id);
+	}
+
+	/**
+	 * Gets the cipher pair for a session, rehydrating it if necessary.
+	 *
+	 * @param id The identifier for the session.
+	 * @return The live cipher pair, or null if the session is not in
+	 * the pool.
+	 *
+	 * The pair may be hibernated by any later call for another session.
+	 * Use acquire() instead if the pool is shared between threads.
+	 *
+	 * @see #acquire(Object)
+	 */
+	public synchronized CipherStatePair get(K id)
+	{
+		CipherStatePair pair = lookup(id);
+		if (pair != null)
+			trim(id);
+		return pair;
+	}
+
+	/**
+	 * Finds the live pair for a session, rehydrating it if necessary.
+	 *
+	 * @param id The identifier for the session.
+	 * @return The live cipher pair, or null if the session is not in
+	 * the pool.  The caller must call trim() afterwards.
+	 */
+	private CipherStatePair lookup(K id)
+	{
+		CipherStatePair pair = live.get(id);
+		if (pair != null)
+			return pair;
+		Integer index = dormant.remove(id);
+		if (index == null)
+			return null;
+		ByteBuffer slab = slabs.get(index / SLAB_RECORDS);
+		int posn = (index % SLAB_RECORDS) * RECORD_LEN;
+		for (int i = 0; i < RECORD_LEN; ++i) {
+			record[i] = slab.get(posn + i);
+			slab.put(posn + i, (byte)0);
+		}
+		freeRecord(index);
+		try {
+			pair = CipherStatePair.importState(record, 0, RECORD_LEN, null);
+		} catch (BadPaddingException e) {
+			// Shouldn't happen because the records are not wrapped.
+			throw new IllegalStateException(e);
+		} finally {
+			Arrays.fill(record, (byte)0);
+		}
+		++rehydrations;
+		live.put(id, pair);
+		return pair;
+	}
+
+	/**
+	 * Gets the cipher pair for a session and holds it live until
+	 * release() is called.
+	 *
+	 * @param id The identifier for the session.
+	 * @return The live cipher pair, or null if the session is not in
+	 * the pool.
+	 *
+	 * A session can be acquired more than once; it stays live until
+	 * every acquire() has been matched by a release().
+	 *
+	 * @see #release(Object)
+	 */
+	public synchronized CipherStatePair acquire(K id)
+	{
+		CipherStatePair pair = lookup(id);
+		if (pair != null) {
+			Integer count = leases.get(id);
+			leases.put(id, count == null ? 1 : count + 1);
+			trim(id);
+		}
+		return pair;
+	}
+
+	/**
+	 * Releases a session that was previously acquired.
+	 *
+	 * @param id The identifier for the session.
+	 *
+	 * @throws IllegalStateException The session is not acquired.
+	 *
+	 * @see #acquire(Object)
+	 */
+	public synchronized void release(K id)
+	{
+		Integer count = leases.get(id);
+		if (count == null)
+			throw new IllegalStateException("Session is not acquired");
+		if (count > 1) {
+			leases.put(id, count - 1);
+			return;
+		}
+		leases.remove(id);
+		if (deferred.remove(id))
+			hibernate(id);
+		else
+			trim(null);
+	}
+
+	/**
+	 * Hibernates a session immediately.
+	 *
+	 * @param id The identifier for the session.
+	 *
+	 * This can be used when the application knows that a session
+	 * will be idle for a while; e.g. a device that has gone to sleep.
+	 * If the session is currently acquired, then it is hibernated
+	 * when it is released.
+	 */
+	public synchronized void hibernate(K id)
+	{
+		if (leases.containsKey(id)) {
+			deferred.add(id);
+			return;
+		}
+		CipherStatePair pair = live.remove(id);
+		if (pair != null)
+			hibernate(id, pair);
+	}
+
+	/**
+	 * Removes a session from the pool and destroys it.
+	 *
+	 * @param id The identifier for the session.
+	 *
+	 * @throws IllegalStateException The session is currently acquired.
+	 */
+	public synchronized void remove(K id)
+	{
+		if (leases.containsKey(id))
+			throw new IllegalStateException("Session is in use");
+		CipherStatePair pair = live.remove(id);
+		if (pair != null)
+			pair.destroy();
+		Integer index = dormant.remove(id);
+		if (index != null) {
+			ByteBuffer slab = slabs.get(index / SLAB_RECORDS);
+			int posn = (index % SLAB_RECORDS) * RECORD_LEN;
+			for (int i = 0; i < RECORD_LEN; ++i)
+				slab.put(posn + i, (byte)0);
+			freeRecord(index);
+		}
+	}
+
+	/**
+	 * Gets the number of sessions in the pool.
+	 *
+	 * @return The number of live and hibernated sessions.
+	 */
+	public synchronized int size()
+	{
+		return live.size() + dormant.size();
+	}
+
+	/**
+	 * Gets the number of sessions that are currently live.
+	 *
+	 * @return The number of live sessions.
+	 */
+	public synchronized int getLiveCount()
+	{
+		return live.size();
+	}
+
+	/**
+	 * Gets the number of times that a session has been hibernated.
+	 *
+	 * @return The number of hibernations.
+	 */
+	public synchronized long getHibernationCount()
+	{
+		return hibernations;
+	}
+
+	/**
+	 * Gets the number of times that a session has been rehydrated.
+	 *
+	 * @return The number of rehydrations.
+	 */
+	public synchronized long getRehydrationCount()
+	{
+		return rehydrations;
+	}
+
+	/**
+	 * Gets the number of bytes of off-heap memory in use for records.
+	 *
+	 * @return The number of bytes that have been allocated for records,
+	 * including records that are currently free.
+	 */
+	public synchronized long getOffHeapSize()
+	{
+		return ((long)slabs.size()) * SLAB_RECORDS * RECORD_LEN;
+	}
+
+	/**
+	 * Destroys all sessions in the pool, including sessions that are
+	 * currently acquired.
+	 */
+	@Override
+	public synchronized void destroy() {
+		for (CipherStatePair pair : live.values())
+			pair.destroy();
+		live.clear();
+		dormant.clear();
+		leases.clear();
+		deferred.clear();
+		for (ByteBuffer slab : slabs) {
+			for (int posn = 0; posn < slab.capacity(); ++posn)
+				slab.put(posn, (byte)0);
+		}
+		slabs.clear();
+		numFree = 0;
+	}
+
+	/**
+	 * Hibernates the least recently used sessions until the number
+	 * of live sessions is within the limit.  Acquired sessions are
+	 * skipped.
+	 *
+	 * @param keep The identifier of the session that is being returned
+	 * to the caller, which is also skipped, or null.
+	 */
+	private void trim(K keep)
+	{
+		Iterator<Map.Entry<K, CipherStatePair>> it = live.entrySet().iterator();
+		while (live.size() > maxLive && it.hasNext()) {
+			Map.Entry<K, CipherStatePair> entry = it.next();
+			if (leases.containsKey(entry.getKey()) || entry.getKey().equals(keep))
+				continue;
+			it.remove();
+			hibernate(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Hibernates a session that has been removed from the live set.
+	 *
+	 * @param id The identifier for the session.
+	 * @param pair The live cipher pair, which will be destroyed.
+	 */
+	private void hibernate(K id, CipherStatePair pair)
+	{
+		int index = allocRecord();
+		ByteBuffer slab = slabs.get(index / SLAB_RECORDS);
+		int posn = (index % SLAB_RECORDS) * RECORD_LEN;
+		try {
+			pair.exportState(record, 0, null);
+			for (int i = 0; i < RECORD_LEN; ++i)
+				slab.put(posn + i, record[i]);
+		} catch (ShortBufferException e) {
+			// Shouldn't happen.
+			throw new IllegalStateException(e);
+		} finally {
+			Arrays.fill(record, (byte)0);
+			pair.destroy();
+		}
+		dormant.put(id, index);
+		++hibernations;
+	}
+
+	/**
+	 * Allocates a record in the off-heap slabs.
+	 *
+	 * @return The index of the record.
+	 */
+	private int allocRecord()
+	{
+		if (numFree == 0) {
+			int base = slabs.size() * SLAB_RECORDS;
+			slabs.add(ByteBuffer.allocateDirect(SLAB_RECORDS * RECORD_LEN));
+			if (freeRecords.length < SLAB_RECORDS)
+				freeRecords = new int [SLAB_RECORDS];
+			for (int index = 0; index < SLAB_RECORDS; ++index)
+				freeRecords[index] = base + SLAB_RECORDS - 1 - index;
+			numFree = SLAB_RECORDS;
+		}
+		return freeRecords[--numFree];
+	}
+
+	/**
+	 * Returns a record to the free list.
+	 *
+	 * @param index The index of the record.
+	 */
+	private void freeRecord(int index)
+	{
+		if (numFree >= freeRecords.length)
+			freeRecords = Arrays.copyOf(freeRecords, freeRecords.length * 2);
+		freeRecords[numFree++] = index;
+	}
+}
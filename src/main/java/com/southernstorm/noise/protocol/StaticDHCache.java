@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.protocol;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of static-static Diffie-Hellman results for known peers.
+ *
+ * Handshake patterns that contain an "ss" token, such as "KK" and "IK",
+ * compute the same DH value every time the same two parties perform
+ * a handshake.  This cache remembers the shared keys for the most
+ * recently seen remote static public keys so that the calculation
+ * can be skipped for peers that reconnect frequently.
+ *
+ * The cache is bound to a single local static key pair.  If a handshake
+ * presents a different local key (for example, because the local key has
+ * been rotated), then all existing entries are destroyed and the cache
+ * is re-bound to the new key.  Entries that are evicted or invalidated
+ * have their shared key values destroyed.
+ *
+ * A single cache object can be shared between multiple HandshakeState
+ * objects in different threads.
+ *
+ * @see HandshakeState#setStaticDHCache(StaticDHCache)
+ */
+public final class StaticDHCache implements Destroyable {
+
+	private final int capacity;
+	private final LinkedHashMap<PeerKey, byte[]> entries;
+	private String dhName;
+	private byte[] localPublicKey;
+
+	/**
+	 * Constructs a new static-static DH cache.
+	 *
+	 * @param capacity The maximum number of remote static keys to cache.
+	 *
+	 * @throws IllegalArgumentException The capacity is less than 1.
+	 */
+	public StaticDHCache(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Cache capacity must be at least 1");
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<PeerKey, byte[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PeerKey, byte[]> eldest) {
+				if (size() <= StaticDHCache.this.capacity)
+					return false;
+				Noise.destroy(eldest.getValue());
+				return true;
+			}
+		};
+		this.dhName = null;
+		this.localPublicKey = null;
+	}
+
+	/**
+	 * Gets the maximum number of remote static keys in this cache.
+	 *
+	 * @return The capacity of the cache.
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of remote static keys that are currently cached.
+	 *
+	 * @return The number of cache entries.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Performs a static-static Diffie-Hellman calculation, using a
+	 * cached value if one is available.
+	 *
+	 * @param sharedKey Buffer to put the shared key into.
+	 * @param offset Offset of the first byte for the shared key.
+	 * @param localKeyPair The local static key pair.
+	 * @param remotePublicKey The remote static public key.
+	 *
+	 * @throws IllegalArgumentException The DH objects are not the same
+	 * type, or one of the objects does not contain a valid key.
+	 */
+	public void calculate(byte[] sharedKey, int offset, DHState localKeyPair, DHState remotePublicKey)
+	{
+		if (!localKeyPair.getDHName().equals(remotePublicKey.getDHName()))
+			throw new IllegalArgumentException("Incompatible DH algorithms");
+		byte[] localKey = new byte [localKeyPair.getPublicKeyLength()];
+		byte[] remoteKey = new byte [remotePublicKey.getPublicKeyLength()];
+		localKeyPair.getPublicKey(localKey, 0);
+		remotePublicKey.getPublicKey(remoteKey, 0);
+		PeerKey peer = new PeerKey(remoteKey);
+		int len = localKeyPair.getSharedKeyLength();
+
+		// Look for an existing entry for the remote party.
+		synchronized (this) {
+			bind(localKeyPair.getDHName(), localKey);
+			byte[] shared = entries.get(peer);
+			if (shared != null) {
+				System.arraycopy(shared, 0, sharedKey, offset, len);
+				return;
+			}
+		}
+
+		// Perform the calculation outside the lock and then add it to the cache.
+		byte[] shared = new byte [len];
+		localKeyPair.calculate(shared, 0, remotePublicKey);
+		System.arraycopy(shared, 0, sharedKey, offset, len);
+		synchronized (this) {
+			if (!isBound(localKeyPair.getDHName(), localKey)) {
+				// Another thread re-bound or cleared the cache while we were
+				// calculating.  Leave its state alone and don't cache ours.
+				Noise.destroy(shared);
+				return;
+			}
+			byte[] previous = entries.put(peer, shared);
+			if (previous != null)
+				Noise.destroy(previous);
+		}
+	}
+
+	/**
+	 * Removes the cached value for a specific remote static public key.
+	 *
+	 * @param publicKey The buffer containing the remote public key.
+	 * @param offset The offset of the first byte of the public key.
+	 * @param length The length of the public key in bytes.
+	 *
+	 * @return true if an entry was removed; false if the key was not cached.
+	 */
+	public synchronized boolean remove(byte[] publicKey, int offset, int length)
+	{
+		byte[] shared = entries.remove(new PeerKey(Noise.copySubArray(publicKey, offset, length)));
+		if (shared == null)
+			return false;
+		Noise.destroy(shared);
+		return true;
+	}
+
+	/**
+	 * Removes all entries from this cache and unbinds it from the local key.
+	 *
+	 * This should be called when the local static key is rotated, although
+	 * the cache will also detect the change on the next handshake.
+	 */
+	public synchronized void clear()
+	{
+		Iterator<byte[]> it = entries.values().iterator();
+		while (it.hasNext())
+			Noise.destroy(it.next());
+		entries.clear();
+		dhName = null;
+		localPublicKey = null;
+	}
+
+	@Override
+	public void destroy() {
+		clear();
+	}
+
+	/**
+	 * Binds this cache to a local static key, clearing the cache if the
+	 * key is different from the one that is already bound.
+	 *
+	 * @param name The name of the DH algorithm.
+	 * @param publicKey The local static public key.
+	 *
+	 * @return true if the cache was cleared; false if the key is unchanged.
+	 */
+	private boolean bind(String name, byte[] publicKey)
+	{
+		if (isBound(name, publicKey))
+			return false;
+		boolean wasBound = (localPublicKey != null);
+		clear();
+		dhName = name;
+		localPublicKey = publicKey;
+		return wasBound;
+	}
+
+	/**
+	 * Determine if this cache is currently bound to a local static key.
+	 *
+	 * @param name The name of the DH algorithm.
+	 * @param publicKey The local static public key.
+	 *
+	 * @return true if the cache is bound to the key; false otherwise.
+	 */
+	private boolean isBound(String name, byte[] publicKey)
+	{
+		return name.equals(dhName) && localPublicKey != null &&
+				MessageDigest.isEqual(publicKey, localPublicKey);
+	}
+
+	/**
+	 * Key for looking up remote static public keys in the cache.
+	 */
+	private static final class PeerKey {
+
+		private final byte[] key;
+		private final int hash;
+
+		public PeerKey(byte[] key)
+		{
+			this.key = key;
+			this.hash = Arrays.hashCode(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PeerKey))
+				return false;
+			return MessageDigest.isEqual(key, ((PeerKey)obj).key);
+		}
+	}
+}
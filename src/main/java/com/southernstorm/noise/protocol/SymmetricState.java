@@ -240,6 +240,31 @@ class SymmetricState implements Destroyable {
 		return cipher.decryptWithAd(prev_h, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
 	}
 
+	/**
+	 * Decrypts a block of ciphertext and mixes it into the handshake hash,
+	 * reporting MAC failures via the return value.
+	 * 
+	 * @param ciphertext The buffer containing the ciphertext to decrypt.
+	 * @param ciphertextOffset The offset within the ciphertext buffer of
+	 * the first byte of ciphertext data.
+	 * @param plaintext The buffer to place the plaintext in.  This can be
+	 * the same as the ciphertext buffer.
+	 * @param plaintextOffset The first offset within the plaintext buffer
+	 * to place the plaintext.
+	 * @param length The length of the incoming ciphertext plus the MAC tag.
+	 * @return The length of the plaintext with the MAC tag stripped off,
+	 * or -1 if the MAC value failed to verify.
+	 * 
+	 * @throws ShortBufferException There is not enough space in the plaintext
+	 * buffer for the decrypted data.
+	 */
+	public int tryDecryptAndHash(byte[] ciphertext, int ciphertextOffset, byte[] plaintext, int plaintextOffset, int length) throws ShortBufferException
+	{
+		System.arraycopy(h, 0, prev_h, 0, h.length);
+		mixHash(ciphertext, ciphertextOffset, length);
+		return cipher.tryDecryptWithAd(prev_h, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+	}
+
 	/**
 	 * Splits the symmetric state into two ciphers for session encryption.
 	 * 
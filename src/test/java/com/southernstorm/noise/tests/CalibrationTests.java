@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.southernstorm.noise.crypto.SHA256MessageDigest;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Perform tests on calibration of the algorithm implementations.
+ */
+public class CalibrationTests {
+
+	@After
+	public void clear() {
+		Noise.clearCalibration();
+	}
+
+	private static Properties load(Path file) throws Exception
+	{
+		Properties props = new Properties();
+		InputStream in = Files.newInputStream(file);
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+		return props;
+	}
+
+	private static void store(Path file, Properties props) throws Exception
+	{
+		OutputStream out = Files.newOutputStream(file);
+		try {
+			props.store(out, null);
+		} finally {
+			out.close();
+		}
+	}
+
+	@Test
+	public void calibrate() throws Exception {
+		Path dir = Files.createTempDirectory("noise");
+		Path file = dir.resolve("calibration.properties");
+		try {
+			assertNull(Noise.getCalibratedChoice("SHA256"));
+			Noise.calibrate(file);
+			assertTrue(Files.exists(file));
+			for (String name : new String[] {"SHA256", "SHA512", "BLAKE2b", "BLAKE2s", "AESGCM"}) {
+				String choice = Noise.getCalibratedChoice(name);
+				assertTrue(name, "jca".equals(choice) || "fallback".equals(choice));
+			}
+			Noise.clearCalibration();
+			assertNull(Noise.getCalibratedChoice("SHA256"));
+
+			// Later starts use the choices from the file.
+			Properties props = load(file);
+			props.setProperty("SHA256", "fallback");
+			store(file, props);
+			Noise.calibrate(file);
+			assertEquals("fallback", Noise.getCalibratedChoice("SHA256"));
+			assertTrue(Noise.createHash("SHA256") instanceof SHA256MessageDigest);
+			Noise.clearCalibration();
+			assertFalse(Noise.createHash("SHA256") instanceof SHA256MessageDigest);
+
+			// Files from another platform, or with unknown choices, are replaced.
+			props.setProperty("platform", "Some other JVM");
+			store(file, props);
+			Noise.calibrate(file);
+			assertFalse("Some other JVM".equals(load(file).getProperty("platform")));
+			props = load(file);
+			props.setProperty("AESGCM", "bogus");
+			store(file, props);
+			Noise.calibrate(file);
+			assertFalse("bogus".equals(load(file).getProperty("AESGCM")));
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(dir);
+		}
+	}
+}
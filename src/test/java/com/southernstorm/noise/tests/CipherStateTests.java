@@ -32,6 +32,7 @@ import javax.crypto.ShortBufferException;
 
 import org.junit.Test;
 
+import com.southernstorm.noise.protocol.AutoRekeyCipherState;
 import com.southernstorm.noise.protocol.CipherState;
 import com.southernstorm.noise.protocol.Noise;
 
@@ -114,6 +115,17 @@ public class CipherStateTests {
 		} catch (ShortBufferException e) {
 			fail();
 		}
+
+		// The non-throwing variant reports the MAC failure as -1.
+		try {
+			byte[] temp = new byte [ciphertextBytes.length];
+			Arrays.fill(temp, (byte)0xAA);
+			assertEquals(-1, cipher.tryDecryptWithAd(adBytes, ciphertextBytes, 0, temp, 0, ciphertextBytes.length));
+			for (int index = 0; index < temp.length; ++index)
+				assertEquals((byte)0xAA, temp[index]);
+		} catch (ShortBufferException e) {
+			fail();
+		}
 		
 	    // Fast-forward the nonce to just before the rollover.  We will be able
 	    // to encrypt one more block, and then the next request will be rejected.
@@ -149,6 +161,17 @@ public class CipherStateTests {
 			fail();
 		}
 
+		// Decrypt again with the non-throwing variant.
+		cipher.setNonce(nonce);
+		try {
+			buffer = new byte [plaintextBytes.length];
+			Arrays.fill(buffer, (byte)0xAA);
+			assertEquals(plaintextBytes.length, cipher.tryDecryptWithAd(adBytes, ciphertextBytes, 0, buffer, 0, ciphertextBytes.length));
+			assertArrayEquals(plaintextBytes, buffer);
+		} catch (ShortBufferException e) {
+			fail();
+		}
+
 	    // Fast-forward the nonce to just before the rollover.  We will be able
 	    // to decrypt one more block, and then the next request will be rejected.
 		cipher.setNonce(-2L);
@@ -239,4 +262,196 @@ public class CipherStateTests {
 	           "a6ad5cb4022b02709b",
 	         "0xeead9d67890cbb22392336fea1851f38");
 	}
+
+	private void testBatch(String name, boolean forceFallbacks) throws Exception
+	{
+		int[] lengths = new int [] {0, 1, 15, 16, 17, 64, 100, 3};
+		int count = lengths.length;
+		int total = 0;
+		for (int index = 0; index < count; ++index)
+			total += lengths[index];
+		byte[] key = new byte [32];
+		byte[] ad = new byte [7];
+		byte[] plaintext = new byte [total];
+		Noise.random(key);
+		Noise.random(ad);
+		Noise.random(plaintext);
+		Noise.setForceFallbacks(forceFallbacks);
+		CipherState batch = Noise.createCipher(name);
+		CipherState single = Noise.createCipher(name);
+		Noise.setForceFallbacks(false);
+
+		// Without a key, the data is copied as-is.
+		byte[] ciphertext = new byte [total + count * 16];
+		assertEquals(total, batch.encryptBatchWithAd(ad, plaintext, 0, lengths, count, ciphertext, 0));
+		assertArrayEquals(plaintext, Arrays.copyOf(ciphertext, total));
+
+		// Encrypt the batch and compare with encrypting one message at a time.
+		batch.initializeKey(key, 0);
+		single.initializeKey(key, 0);
+		batch.setNonce(1000);
+		single.setNonce(1000);
+		assertEquals(total + count * 16, batch.encryptBatchWithAd(ad, plaintext, 0, lengths, count, ciphertext, 0));
+		assertEquals(1000 + count, batch.getNonce());
+		byte[] expected = new byte [total + count * 16];
+		int inPosn = 0;
+		int outPosn = 0;
+		for (int index = 0; index < count; ++index) {
+			outPosn += single.encryptWithAd(ad, plaintext, inPosn, expected, outPosn, lengths[index]);
+			inPosn += lengths[index];
+		}
+		assertArrayEquals(expected, ciphertext);
+
+		// Decrypt the batch again.
+		int[] cipherLengths = new int [count];
+		for (int index = 0; index < count; ++index)
+			cipherLengths[index] = lengths[index] + 16;
+		byte[] decrypted = new byte [total];
+		batch.setNonce(1000);
+		assertEquals(total, batch.decryptBatchWithAd(ad, ciphertext, 0, cipherLengths, count, decrypted, 0));
+		assertArrayEquals(plaintext, decrypted);
+
+		// A short output buffer is detected before anything is encrypted.
+		batch.setNonce(1000);
+		try {
+			batch.encryptBatchWithAd(ad, plaintext, 0, lengths, count, new byte [total + count * 16 - 1], 0);
+			fail("Short buffer not detected");
+		} catch (ShortBufferException e) {
+			// Success!
+		}
+		assertEquals(1000, batch.getNonce());
+
+		// The batch is rejected if the nonce would wrap around.
+		batch.setNonce(-1L - count + 1);
+		try {
+			batch.encryptBatchWithAd(ad, plaintext, 0, lengths, count, ciphertext, 0);
+			fail("Nonce wrap-around not detected");
+		} catch (IllegalStateException e) {
+			// Success!
+		}
+		assertEquals(-1L - count + 1, batch.getNonce());
+		batch.setNonce(-1L - count);
+		batch.encryptBatchWithAd(ad, plaintext, 0, lengths, count, ciphertext, 0);
+		assertEquals(-1L, batch.getNonce());
+
+		// A bad MAC part-way through stops decryption at that message.
+		System.arraycopy(expected, 0, ciphertext, 0, expected.length);
+		int bad = 0;
+		for (int index = 0; index < 4; ++index)
+			bad += cipherLengths[index];
+		ciphertext[bad] ^= 0x01;
+		batch.setNonce(1000);
+		Arrays.fill(decrypted, (byte)0);
+		try {
+			batch.decryptBatchWithAd(ad, ciphertext, 0, cipherLengths, count, decrypted, 0);
+			fail("Bad MAC not detected");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+		assertEquals(1005, batch.getNonce());
+		int good = lengths[0] + lengths[1] + lengths[2] + lengths[3];
+		assertArrayEquals(Arrays.copyOf(plaintext, good), Arrays.copyOf(decrypted, good));
+		batch.destroy();
+		single.destroy();
+	}
+
+	@Test
+	public void batch() throws Exception {
+		testBatch("ChaChaPoly", false);
+		testBatch("AESGCM", false);
+		testBatch("AESGCM", true);
+	}
+
+	@Test
+	public void defaultTryDecrypt() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		CipherState sender = new MinimalCipherState(Noise.createCipher("ChaChaPoly"));
+		CipherState receiver = new MinimalCipherState(Noise.createCipher("ChaChaPoly"));
+		sender.initializeKey(key, 0);
+		receiver.initializeKey(key, 0);
+		byte[] buffer = new byte [32 + 16];
+		byte[] plaintext = new byte [32];
+		assertEquals(48, sender.encryptWithAd(null, buffer, 0, buffer, 0, 32));
+		assertEquals(32, receiver.tryDecryptWithAd(null, buffer, 0, plaintext, 0, 48));
+		assertEquals(48, sender.encryptWithAd(null, buffer, 0, buffer, 0, 32));
+		buffer[3] ^= 0x01;
+		assertEquals(-1, receiver.tryDecryptWithAd(null, buffer, 0, plaintext, 0, 48));
+		sender.destroy();
+		receiver.destroy();
+	}
+
+	@Test
+	public void defaultForkAndNonce() throws Exception {
+		CipherState cipher = new MinimalCipherState(Noise.createCipher("ChaChaPoly"));
+		try {
+			cipher.fork();
+			fail("Default fork() should not be supported");
+		} catch (UnsupportedOperationException e) {
+			// Success!
+		}
+		try {
+			cipher.getNonce();
+			fail("Default getNonce() should not be supported");
+		} catch (UnsupportedOperationException e) {
+			// Success!
+		}
+		cipher.destroy();
+	}
+
+	@Test
+	public void defaultBatch() throws Exception {
+		int[] lengths = new int [] {5, 0, 33};
+		int[] cipherLengths = new int [] {21, 16, 49};
+		byte[] key = new byte [32];
+		byte[] plaintext = new byte [38];
+		Noise.random(key);
+		Noise.random(plaintext);
+		CipherState batch = new MinimalCipherState(Noise.createCipher("ChaChaPoly"));
+		CipherState single = Noise.createCipher("ChaChaPoly");
+		batch.initializeKey(key, 0);
+		single.initializeKey(key, 0);
+		byte[] ciphertext = new byte [86];
+		byte[] expected = new byte [86];
+		assertEquals(86, batch.encryptBatchWithAd(null, plaintext, 0, lengths, 3, ciphertext, 0));
+		int posn = single.encryptWithAd(null, plaintext, 0, expected, 0, 5);
+		posn += single.encryptWithAd(null, plaintext, 5, expected, posn, 0);
+		single.encryptWithAd(null, plaintext, 5, expected, posn, 33);
+		assertArrayEquals(expected, ciphertext);
+		byte[] decrypted = new byte [38];
+		batch.setNonce(0);
+		assertEquals(38, batch.decryptBatchWithAd(null, ciphertext, 0, cipherLengths, 3, decrypted, 0));
+		assertArrayEquals(plaintext, decrypted);
+		batch.destroy();
+		single.destroy();
+	}
+
+	@Test
+	public void defaultRekey() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		CipherState cipher = new MinimalCipherState(Noise.createCipher("ChaChaPoly"));
+		cipher.initializeKey(key, 0);
+		try {
+			cipher.rekey();
+			fail("Default rekey() should not be supported");
+		} catch (UnsupportedOperationException e) {
+			// Success!
+		}
+
+		// Automatic rekeying works on the decrypt side without getNonce().
+		CipherState sender = Noise.createCipher("ChaChaPoly");
+		sender.initializeKey(key, 0);
+		CipherState receiver = new AutoRekeyCipherState(cipher, 0, 0);
+		byte[] buffer = new byte [48];
+		byte[] plaintext = new byte [32];
+		for (int index = 0; index < 3; ++index) {
+			assertEquals(48, sender.encryptWithAd(null, buffer, 0, buffer, 0, 32));
+			assertEquals(32, receiver.tryDecryptWithAd(null, buffer, 0, plaintext, 0, 48));
+		}
+		buffer[0] ^= 0x01;
+		assertEquals(-1, receiver.tryDecryptWithAd(null, buffer, 0, plaintext, 0, 48));
+		sender.destroy();
+		receiver.destroy();
+	}
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.ConcurrentCipherSender;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Perform tests on sending packets from multiple threads.
+ */
+public class ConcurrentCipherSenderTests {
+
+	private static final int THREADS = 8;
+	private static final int PACKETS = 200;
+
+	private CipherState createCipher(String name, byte[] key, boolean forceFallbacks) throws Exception
+	{
+		Noise.setForceFallbacks(forceFallbacks);
+		try {
+			CipherState cipher = Noise.createCipher(name);
+			cipher.initializeKey(key, 0);
+			return cipher;
+		} finally {
+			Noise.setForceFallbacks(false);
+		}
+	}
+
+	private void testFork(String name, boolean forceFallbacks) throws Exception
+	{
+		byte[] key = new byte [32];
+		Noise.random(key);
+		CipherState cipher = createCipher(name, key, forceFallbacks);
+		byte[] plaintext = new byte [100];
+		byte[] expected = new byte [116];
+		byte[] actual = new byte [116];
+		Noise.random(plaintext);
+		cipher.setNonce(42);
+		cipher.encryptWithAd(null, plaintext, 0, expected, 0, plaintext.length);
+		assertEquals(43, cipher.getNonce());
+		CipherState forked = cipher.fork();
+		assertEquals(0, forked.getNonce());
+		assertTrue(forked.hasKey());
+		forked.setNonce(42);
+		forked.encryptWithAd(null, plaintext, 0, actual, 0, plaintext.length);
+		assertArrayEquals(expected, actual);
+		cipher.destroy();
+		forked.destroy();
+
+		// Forking a cipher without a key produces another cipher without a key.
+		Noise.setForceFallbacks(forceFallbacks);
+		cipher = Noise.createCipher(name);
+		Noise.setForceFallbacks(false);
+		assertFalse(cipher.fork().hasKey());
+	}
+
+	private void testSender(String name, boolean forceFallbacks) throws Exception
+	{
+		byte[] key = new byte [32];
+		Noise.random(key);
+		final ConcurrentCipherSender sender = new ConcurrentCipherSender(createCipher(name, key, forceFallbacks));
+		CipherState receiver = createCipher(name, key, forceFallbacks);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Throwable[] errors = new Throwable [THREADS];
+
+		// Send packets from several threads at once.
+		Thread[] threads = new Thread [THREADS];
+		for (int index = 0; index < THREADS; ++index) {
+			final int id = index;
+			threads[index] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						byte[] packet = new byte [3 + id * 100];
+						for (int count = 0; count < PACKETS; ++count) {
+							packet[0] = (byte)id;
+							packet[1] = (byte)(count >> 8);
+							packet[2] = (byte)count;
+							sender.encryptAndWrite(null, packet, 0, packet.length, out);
+						}
+					} catch (Throwable e) {
+						errors[id] = e;
+					}
+				}
+			};
+			threads[index].start();
+		}
+		for (int index = 0; index < THREADS; ++index)
+			threads[index].join();
+		for (int index = 0; index < THREADS; ++index)
+			assertNull(errors[index]);
+		sender.flush(out);
+		assertEquals(THREADS * PACKETS, sender.getNonce());
+
+		// Decrypt the packets in wire order and check that they all arrived.
+		byte[] data = out.toByteArray();
+		byte[] plaintext = new byte [Noise.MAX_PACKET_LEN];
+		int[] next = new int [THREADS];
+		Set<Integer> seen = new HashSet<Integer>();
+		int posn = 0;
+		while (posn < data.length) {
+			int len = ((data[posn] & 0xFF) << 8) | (data[posn + 1] & 0xFF);
+			int plen = receiver.decryptWithAd(null, data, posn + 2, plaintext, 0, len);
+			int id = plaintext[0];
+			int count = ((plaintext[1] & 0xFF) << 8) | (plaintext[2] & 0xFF);
+			assertEquals(3 + id * 100, plen);
+			assertEquals(next[id]++, count);
+			assertTrue(seen.add(id * PACKETS + count));
+			posn += len + 2;
+		}
+		assertEquals(THREADS * PACKETS, seen.size());
+		assertEquals(THREADS * PACKETS, receiver.getNonce());
+		sender.destroy();
+		receiver.destroy();
+	}
+
+	@Test
+	public void fork() throws Exception {
+		testFork("ChaChaPoly", false);
+		testFork("AESGCM", false);
+		testFork("AESGCM", true);
+	}
+
+	@Test
+	public void concurrentSend() throws Exception {
+		testSender("ChaChaPoly", false);
+		testSender("AESGCM", false);
+		testSender("AESGCM", true);
+	}
+
+	@Test
+	public void badArguments() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		ConcurrentCipherSender sender = new ConcurrentCipherSender(createCipher("ChaChaPoly", key, false));
+		CipherState receiver = createCipher("ChaChaPoly", key, false);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] packet = new byte [10];
+
+		// A bad range fails the call without reserving a nonce.
+		int[][] ranges = new int[][] {{-1, 5}, {11, 0}, {6, 5}, {0, 11}};
+		for (int[] range : ranges) {
+			try {
+				sender.encryptAndWrite(null, packet, range[0], range[1], out);
+				fail("Bad plaintext range was accepted");
+			} catch (IllegalArgumentException e) {
+				// Success!
+			}
+		}
+		assertEquals(0, sender.getNonce());
+
+		// The sender is still usable afterwards.
+		sender.encryptAndWrite(null, packet, 0, packet.length, out);
+		byte[] data = out.toByteArray();
+		assertEquals(2 + packet.length + 16, data.length);
+		assertEquals(packet.length, receiver.decryptWithAd(null, data, 2, new byte [packet.length], 0, data.length - 2));
+		sender.destroy();
+		receiver.destroy();
+	}
+}
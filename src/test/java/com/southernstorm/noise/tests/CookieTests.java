@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import javax.crypto.BadPaddingException;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.CookieChecker;
+import com.southernstorm.noise.protocol.CookieMaker;
+import com.southernstorm.noise.protocol.DHState;
+import com.southernstorm.noise.protocol.HandshakeState;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Perform tests on the handshake cookie layer.
+ */
+public class CookieTests {
+
+	private static final String PROTOCOL = "Noise_NK_25519_ChaChaPoly_BLAKE2s";
+
+	private static byte[] publicKey(DHState dh)
+	{
+		byte[] key = new byte [dh.getPublicKeyLength()];
+		dh.getPublicKey(key, 0);
+		return key;
+	}
+
+	/**
+	 * Writes the first handshake message with the cookie MACs.
+	 */
+	private static int writeFirst(DHState serverKey, CookieMaker maker, byte[] message) throws Exception
+	{
+		HandshakeState initiator = new HandshakeState(PROTOCOL, HandshakeState.INITIATOR);
+		initiator.getRemotePublicKey().copyFrom(serverKey);
+		initiator.start();
+		int length = initiator.writeMessage(message, 0, null, 0, 0);
+		initiator.destroy();
+		return maker.addMacs(message, 0, length);
+	}
+
+	@Test
+	public void cookies() throws Exception {
+		DHState serverKey = Noise.createDH("25519");
+		serverKey.generateKeyPair();
+		byte[] serverPublic = publicKey(serverKey);
+		CookieChecker checker = new CookieChecker(serverPublic, 0, serverPublic.length);
+		CookieMaker maker = new CookieMaker(serverPublic, 0, serverPublic.length);
+		byte[] source = {10, 0, 0, 1, 0x1F, (byte)0x90};
+		byte[] otherSource = {10, 0, 0, 2, 0x1F, (byte)0x90};
+		byte[] message = new byte [256];
+		byte[] payload = new byte [256];
+
+		// Not under load: a valid mac1 is sufficient.
+		int length = writeFirst(serverKey, maker, message);
+		assertEquals(CookieChecker.VALID, checker.check(message, 0, length, source, false));
+		HandshakeState responder = new HandshakeState(PROTOCOL, HandshakeState.RESPONDER);
+		responder.getLocalKeyPair().copyFrom(serverKey);
+		responder.start();
+		assertEquals(0, responder.readMessage(message, 0, length - CookieChecker.MACS_LEN, payload, 0));
+		assertEquals(HandshakeState.WRITE_MESSAGE, responder.getAction());
+		responder.destroy();
+
+		// Bad mac1 values and short messages are rejected.
+		message[3] ^= 0x01;
+		assertEquals(CookieChecker.INVALID, checker.check(message, 0, length, source, false));
+		message[3] ^= 0x01;
+		message[length - CookieChecker.MACS_LEN] ^= 0x01;
+		assertEquals(CookieChecker.INVALID, checker.check(message, 0, length, source, false));
+		assertEquals(CookieChecker.INVALID, checker.check(message, 0, 10, source, false));
+		DHState otherKey = Noise.createDH("25519");
+		otherKey.generateKeyPair();
+		byte[] otherPublic = publicKey(otherKey);
+		CookieMaker wrongMaker = new CookieMaker(otherPublic, 0, otherPublic.length);
+		length = writeFirst(serverKey, wrongMaker, message);
+		assertEquals(CookieChecker.INVALID, checker.check(message, 0, length, source, true));
+
+		// Under load: a cookie is required.
+		length = writeFirst(serverKey, maker, message);
+		assertFalse(maker.hasCookie());
+		assertEquals(CookieChecker.COOKIE_REQUIRED, checker.check(message, 0, length, source, true));
+		byte[] reply = new byte [CookieChecker.COOKIE_REPLY_LEN];
+		assertEquals(reply.length, checker.createCookieReply(message, 0, length, source, reply, 0));
+
+		// Tampered cookie replies are rejected.
+		for (int index = 0; index < reply.length; ++index) {
+			reply[index] ^= 0x01;
+			try {
+				maker.consumeCookieReply(reply, 0, reply.length);
+				fail("Tampered cookie reply was accepted");
+			} catch (BadPaddingException e) {
+				// Success!
+			}
+			reply[index] ^= 0x01;
+		}
+
+		// An all-ones nonce is just another wrong nonce, not a wrapped one.
+		byte[] ones = reply.clone();
+		Arrays.fill(ones, 0, CookieChecker.COOKIE_REPLY_LEN - 32, (byte)0xFF);
+		try {
+			maker.consumeCookieReply(ones, 0, ones.length);
+			fail("Cookie reply with an all-ones nonce was accepted");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+		assertFalse(maker.hasCookie());
+		maker.consumeCookieReply(reply, 0, reply.length);
+		assertTrue(maker.hasCookie());
+
+		// The retried handshake passes with the cookie, but only
+		// from the source address that the cookie was issued to.
+		length = writeFirst(serverKey, maker, message);
+		assertEquals(CookieChecker.VALID, checker.check(message, 0, length, source, true));
+		assertEquals(CookieChecker.COOKIE_REQUIRED, checker.check(message, 0, length, otherSource, true));
+		message[length - 1] ^= 0x01;
+		assertEquals(CookieChecker.COOKIE_REQUIRED, checker.check(message, 0, length, source, true));
+
+		// A cookie reply for a different message is rejected.
+		length = writeFirst(serverKey, maker, message);
+		checker.createCookieReply(message, 0, length, source, reply, 0);
+		writeFirst(serverKey, maker, message);
+		try {
+			maker.consumeCookieReply(reply, 0, reply.length);
+			fail("Cookie reply for an old message was accepted");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+
+		checker.destroy();
+		maker.destroy();
+		wrongMaker.destroy();
+		serverKey.destroy();
+		otherKey.destroy();
+	}
+
+	@Test
+	public void loadThreshold() throws Exception {
+		DHState serverKey = Noise.createDH("25519");
+		serverKey.generateKeyPair();
+		byte[] serverPublic = publicKey(serverKey);
+		CookieChecker checker = new CookieChecker(serverPublic, 0, serverPublic.length);
+		CookieMaker maker = new CookieMaker(serverPublic, 0, serverPublic.length);
+		byte[] source = {(byte)192, (byte)168, 1, 1};
+		byte[] message = new byte [256];
+		int length = writeFirst(serverKey, maker, message);
+		for (int index = 0; index < 20; ++index)
+			assertEquals(CookieChecker.VALID, checker.check(message, 0, length, source));
+		checker.setLoadThreshold(5);
+		int valid = 0;
+		for (int index = 0; index < 20; ++index) {
+			if (checker.check(message, 0, length, source) == CookieChecker.VALID)
+				++valid;
+		}
+		assertTrue(valid <= 5);
+
+		// Messages with bad mac1 values do not count towards the load.
+		message[0] ^= 0x01;
+		assertEquals(CookieChecker.INVALID, checker.check(message, 0, length, source));
+		checker.destroy();
+		maker.destroy();
+		serverKey.destroy();
+	}
+}
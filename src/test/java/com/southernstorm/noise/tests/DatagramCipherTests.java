@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.DatagramCipher;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Perform tests on datagram encryption with replay protection.
+ */
+public class DatagramCipherTests {
+
+	private CipherState createCipher(byte[] key) throws Exception
+	{
+		CipherState cipher = Noise.createCipher("ChaChaPoly");
+		cipher.initializeKey(key, 0);
+		return cipher;
+	}
+
+	private byte[][] createPackets(DatagramCipher sender, int count) throws Exception
+	{
+		byte[][] packets = new byte [count][];
+		byte[] payload = new byte [4];
+		for (int index = 0; index < count; ++index) {
+			payload[0] = (byte)(index >> 24);
+			payload[1] = (byte)(index >> 16);
+			payload[2] = (byte)(index >> 8);
+			payload[3] = (byte)index;
+			byte[] packet = new byte [DatagramCipher.HEADER_LEN + 4 + 16];
+			assertEquals(packet.length, sender.encryptWithAd(null, payload, 0, packet, 0, 4));
+			packets[index] = packet;
+		}
+		return packets;
+	}
+
+	private int decrypt(DatagramCipher receiver, byte[] packet) throws Exception
+	{
+		byte[] payload = new byte [4];
+		int len = receiver.decryptWithAd(null, packet, 0, packet.length, payload, 0);
+		if (len < 0)
+			return -1;
+		assertEquals(4, len);
+		return ((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16) | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+	}
+
+	@Test
+	public void replayWindow() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		DatagramCipher sender = new DatagramCipher(createCipher(key), null);
+		DatagramCipher receiver = new DatagramCipher(null, createCipher(key));
+		byte[][] packets = createPackets(sender, 5000);
+		assertEquals(-1, receiver.getMaxReceivedNonce());
+
+		// Out of order delivery is accepted, but replays are not.
+		assertEquals(5, decrypt(receiver, packets[5]));
+		assertEquals(2, decrypt(receiver, packets[2]));
+		assertEquals(-1, decrypt(receiver, packets[5]));
+		assertEquals(-1, decrypt(receiver, packets[2]));
+		assertEquals(0, decrypt(receiver, packets[0]));
+		assertEquals(5, receiver.getMaxReceivedNonce());
+
+		// Move the window forward; packets that fall outside it are rejected.
+		assertEquals(3000, decrypt(receiver, packets[3000]));
+		assertEquals(-1, decrypt(receiver, packets[3000 - DatagramCipher.WINDOW_SIZE]));
+		assertEquals(3001 - DatagramCipher.WINDOW_SIZE, decrypt(receiver, packets[3001 - DatagramCipher.WINDOW_SIZE]));
+		assertEquals(-1, decrypt(receiver, packets[3001 - DatagramCipher.WINDOW_SIZE]));
+		assertEquals(-1, decrypt(receiver, packets[1]));
+		for (int index = 2999; index > 3000 - DatagramCipher.WINDOW_SIZE + 1; --index)
+			assertEquals(index, decrypt(receiver, packets[index]));
+		for (int index = 3001; index < 5000; ++index)
+			assertEquals(index, decrypt(receiver, packets[index]));
+		for (int index = 0; index < 5000; ++index)
+			assertEquals(-1, decrypt(receiver, packets[index]));
+
+		// A forged packet does not consume its nonce.
+		byte[][] more = createPackets(sender, 2);
+		more[0][DatagramCipher.HEADER_LEN] ^= 0x01;
+		assertEquals(-1, decrypt(receiver, more[0]));
+		more[0][DatagramCipher.HEADER_LEN] ^= 0x01;
+		assertEquals(0, decrypt(receiver, more[0]));
+		assertEquals(5000, receiver.getMaxReceivedNonce());
+		assertEquals(-1, decrypt(receiver, Arrays.copyOf(more[1], 10)));
+		sender.destroy();
+		receiver.destroy();
+	}
+
+	@Test
+	public void concurrentReceive() throws Exception {
+		final int count = 20000;
+		final int threads = 8;
+		byte[] key = new byte [32];
+		Noise.random(key);
+		DatagramCipher sender = new DatagramCipher(createCipher(key), null);
+		final DatagramCipher receiver = new DatagramCipher(null, createCipher(key));
+		byte[][] packets = createPackets(sender, count);
+
+		// Deliver every packet three times, with local reordering.
+		List<byte[]> list = new ArrayList<byte[]>();
+		for (int copy = 0; copy < 3; ++copy) {
+			for (int index = 0; index < count; ++index)
+				list.add(packets[index]);
+		}
+		Random random = new Random(42);
+		for (int index = 0; index < list.size(); ++index) {
+			int other = Math.min(list.size() - 1, index + random.nextInt(200));
+			Collections.swap(list, index, other);
+		}
+		final List<byte[]> delivery = list;
+		final AtomicIntegerArray received = new AtomicIntegerArray(count);
+		final Throwable[] errors = new Throwable [threads];
+		Thread[] workers = new Thread [threads];
+		for (int thread = 0; thread < threads; ++thread) {
+			final int id = thread;
+			workers[thread] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int index = id; index < delivery.size(); index += threads) {
+							int value = decrypt(receiver, delivery.get(index));
+							if (value >= 0)
+								received.incrementAndGet(value);
+						}
+					} catch (Throwable e) {
+						errors[id] = e;
+					}
+				}
+			};
+			workers[thread].start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+		for (Throwable error : errors)
+			assertNull(error);
+
+		// No packet may be accepted more than once.  Some may be rejected
+		// as too old if one thread runs far ahead of the others.
+		int accepted = 0;
+		for (int index = 0; index < count; ++index) {
+			assertTrue(received.get(index) <= 1);
+			accepted += received.get(index);
+		}
+		assertTrue(accepted > 0);
+		assertEquals(count - 1, receiver.getMaxReceivedNonce());
+		sender.destroy();
+		receiver.destroy();
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import javax.crypto.BadPaddingException;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.AutoRekeyCipherState;
+import com.southernstorm.noise.protocol.CipherStatePair;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Perform tests on exporting and importing the state of a CipherStatePair.
+ */
+public class ExportStateTests {
+
+	private void testExport(String name, byte[] wrapKey) throws Exception
+	{
+		byte[] key1 = new byte [32];
+		byte[] key2 = new byte [32];
+		Noise.random(key1);
+		Noise.random(key2);
+		CipherStatePair local = TestUtils.createPair(name, key1, key2);
+		CipherStatePair remote = TestUtils.createPair(name, key2, key1);
+		for (int index = 0; index < 5; ++index) {
+			TestUtils.checkTraffic(local.getSender(), remote.getReceiver(), 50);
+			TestUtils.checkTraffic(remote.getSender(), local.getReceiver(), 50);
+		}
+		TestUtils.checkTraffic(local.getSender(), remote.getReceiver(), 50);
+
+		// Move the local session through its exported form.
+		int length = (wrapKey != null ? CipherStatePair.WRAPPED_EXPORT_LEN : CipherStatePair.EXPORT_LEN);
+		byte[] exported = new byte [length + 3];
+		assertEquals(length, local.exportState(exported, 3, wrapKey));
+		local.destroy();
+		CipherStatePair imported = CipherStatePair.importState(exported, 3, length, wrapKey);
+		assertEquals(name, imported.getSender().getCipherName());
+		assertEquals(6, imported.getSender().getNonce());
+		assertEquals(5, imported.getReceiver().getNonce());
+		TestUtils.checkTraffic(imported.getSender(), remote.getReceiver(), 50);
+		TestUtils.checkTraffic(remote.getSender(), imported.getReceiver(), 50);
+
+		// Exports are the same size no matter what the nonces are.
+		imported.getSender().setNonce(0x123456789ABCDEFL);
+		assertEquals(length, imported.exportState(exported, 0, wrapKey));
+		CipherStatePair again = CipherStatePair.importState(exported, 0, length, wrapKey);
+		assertEquals(0x123456789ABCDEFL, again.getSender().getNonce());
+		imported.destroy();
+		again.destroy();
+		remote.destroy();
+	}
+
+	@Test
+	public void unwrapped() throws Exception {
+		testExport("ChaChaPoly", null);
+		testExport("AESGCM", null);
+		Noise.setForceFallbacks(true);
+		try {
+			testExport("AESGCM", null);
+		} finally {
+			Noise.setForceFallbacks(false);
+		}
+	}
+
+	@Test
+	public void wrapped() throws Exception {
+		byte[] wrapKey = new byte [32];
+		Noise.random(wrapKey);
+		testExport("ChaChaPoly", wrapKey);
+		testExport("AESGCM", wrapKey);
+		Noise.setForceFallbacks(true);
+		try {
+			testExport("AESGCM", wrapKey);
+		} finally {
+			Noise.setForceFallbacks(false);
+		}
+	}
+
+	@Test
+	public void errors() throws Exception {
+		byte[] key = new byte [32];
+		byte[] wrapKey = new byte [32];
+		Noise.random(key);
+		Noise.random(wrapKey);
+		CipherStatePair pair = TestUtils.createPair("ChaChaPoly", key, key);
+		pair.receiverOnly();
+		byte[] exported = new byte [CipherStatePair.WRAPPED_EXPORT_LEN];
+		pair.exportState(exported, 0, wrapKey);
+
+		// Tampering with any byte of the wrapped state is detected.
+		for (int index = 0; index < exported.length; ++index) {
+			exported[index] ^= 0x01;
+			try {
+				CipherStatePair.importState(exported, 0, exported.length, wrapKey);
+				fail("Tampered state was accepted");
+			} catch (BadPaddingException e) {
+				// Success!
+			} catch (IllegalArgumentException e) {
+				// Success!
+			}
+			exported[index] ^= 0x01;
+		}
+		CipherStatePair imported = CipherStatePair.importState(exported, 0, exported.length, wrapKey);
+		assertNull(imported.getSender());
+		assertNotNull(imported.getReceiver());
+		imported.destroy();
+
+		// The wrong wrapping key is detected.
+		byte[] otherKey = new byte [32];
+		Noise.random(otherKey);
+		try {
+			CipherStatePair.importState(exported, 0, exported.length, otherKey);
+			fail("Wrong wrapping key was accepted");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+
+		// The reserved nonce 2^64 - 1 is reported as corruption.
+		byte[] reserved = exported.clone();
+		Arrays.fill(reserved, 4, 12, (byte)0xFF);
+		try {
+			CipherStatePair.importState(reserved, 0, reserved.length, wrapKey);
+			fail("Reserved wrapping nonce was accepted");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+
+		// Offsets and lengths outside the input buffer are rejected.
+		int[][] ranges = new int[][] {
+			{-1, exported.length}, {1, exported.length},
+			{exported.length + 1, 0}, {0, -1}
+		};
+		for (int[] range : ranges) {
+			try {
+				CipherStatePair.importState(exported, range[0], range[1], wrapKey);
+				fail("Out of range state was accepted");
+			} catch (IllegalArgumentException e) {
+				// Success!
+			}
+		}
+
+		// Wrapped state cannot be imported as unwrapped state.
+		try {
+			CipherStatePair.importState(exported, 0, CipherStatePair.EXPORT_LEN, null);
+			fail("Wrapped state was accepted without a key");
+		} catch (IllegalArgumentException e) {
+			// Success!
+		}
+
+		// Ciphers with additional policy state cannot be exported.
+		CipherStatePair rekeying = AutoRekeyCipherState.wrap(pair, 10, 0);
+		try {
+			rekeying.exportState(exported, 0, null);
+			fail("Wrapped cipher was exported");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains(AutoRekeyCipherState.class.getName()));
+		}
+		rekeying.destroy();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.crypto.ShortBufferException;
+
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.NoiseFileCipher;
+
+/**
+ * Compares memory-mapped chunked file encryption with a naive loop
+ * that reads the whole file into a byte array, and with parallel
+ * chunk encryption on the common ForkJoinPool.
+ *
+ * Usage: FileCipherBenchmark [cipher] [megabytes]
+ */
+public class FileCipherBenchmark {
+
+	private static CipherState createCipher(String name) throws Exception
+	{
+		CipherState cipher = Noise.createCipher(name);
+		cipher.initializeKey(new byte [32], 0);
+		return cipher;
+	}
+
+	private static void naive(CipherState cipher, File in, File out) throws IOException, ShortBufferException
+	{
+		byte[] plaintext = Files.readAllBytes(in.toPath());
+		int chunkSize = Noise.MAX_PACKET_LEN - cipher.getMACLength();
+		byte[] buffer = new byte [Noise.MAX_PACKET_LEN + 2];
+		FileOutputStream output = new FileOutputStream(out);
+		try {
+			for (int posn = 0; posn < plaintext.length; posn += chunkSize) {
+				int len = Math.min(chunkSize, plaintext.length - posn);
+				len = cipher.encryptWithAd(null, plaintext, posn, buffer, 2, len);
+				buffer[0] = (byte)(len >> 8);
+				buffer[1] = (byte)len;
+				output.write(buffer, 0, len + 2);
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		String name = args.length > 0 ? args[0] : "AESGCM";
+		int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		File plain = File.createTempFile("noise", ".plain");
+		File encrypted = File.createTempFile("noise", ".enc");
+		plain.deleteOnExit();
+		encrypted.deleteOnExit();
+		byte[] block = new byte [1024 * 1024];
+		FileOutputStream output = new FileOutputStream(plain);
+		try {
+			for (int count = 0; count < megabytes; ++count) {
+				Noise.random(block);
+				output.write(block);
+			}
+		} finally {
+			output.close();
+		}
+		for (int pass = 0; pass < 3; ++pass) {
+			long start = System.nanoTime();
+			naive(createCipher(name), plain, encrypted);
+			long naive = System.nanoTime() - start;
+			start = System.nanoTime();
+			NoiseFileCipher.encrypt(createCipher(name), plain.toPath(), encrypted.toPath());
+			long mapped = System.nanoTime() - start;
+			start = System.nanoTime();
+			RandomAccessFile in = new RandomAccessFile(plain, "r");
+			RandomAccessFile out = new RandomAccessFile(encrypted, "rw");
+			try {
+				NoiseFileCipher.encrypt(createCipher(name), in.getChannel(), out.getChannel(),
+						Noise.MAX_PACKET_LEN - 16, ForkJoinPool.commonPool());
+			} finally {
+				in.close();
+				out.close();
+			}
+			long parallel = System.nanoTime() - start;
+			System.out.printf("%s, %d MB: byte[] loop %.1f MB/s, mapped %.1f MB/s, parallel %.1f MB/s%n",
+					name, megabytes, megabytes * 1e9 / naive, megabytes * 1e9 / mapped,
+					megabytes * 1e9 / parallel);
+		}
+		plain.delete();
+		encrypted.delete();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.DHState;
+import com.southernstorm.noise.protocol.HandshakeState;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Perform tests on HandshakeState that are not covered by the vectors.
+ */
+public class HandshakeTests {
+
+	@Test
+	public void tryReadMessage() throws Exception {
+		String protocol = "Noise_NK_25519_ChaChaPoly_SHA256";
+		DHState respStatic = Noise.createDH("25519");
+		respStatic.generateKeyPair();
+		HandshakeState initiator = new HandshakeState(protocol, HandshakeState.INITIATOR);
+		initiator.getRemotePublicKey().copyFrom(respStatic);
+		initiator.start();
+		byte[] message = new byte [1024];
+		byte[] payload = new byte [1024];
+		byte[] data = TestUtils.stringToData("Hello");
+		int len = initiator.writeMessage(message, 0, data, 0, data.length);
+
+		// Corrupt the MAC on the first message; the responder should fail quietly.
+		HandshakeState responder = new HandshakeState(protocol, HandshakeState.RESPONDER);
+		responder.getLocalKeyPair().copyFrom(respStatic);
+		responder.start();
+		message[len - 1] ^= 0x01;
+		assertEquals(-1, responder.tryReadMessage(message, 0, len, payload, 0));
+		assertEquals(HandshakeState.FAILED, responder.getAction());
+		responder.destroy();
+
+		// Try again with the correct message.
+		responder = new HandshakeState(protocol, HandshakeState.RESPONDER);
+		responder.getLocalKeyPair().copyFrom(respStatic);
+		responder.start();
+		message[len - 1] ^= 0x01;
+		assertEquals(data.length, responder.tryReadMessage(message, 0, len, payload, 0));
+		assertEquals(HandshakeState.WRITE_MESSAGE, responder.getAction());
+		initiator.destroy();
+		responder.destroy();
+	}
+
+	private static byte[] fixedKey(Random random, int length)
+	{
+		byte[] key = new byte [length];
+		random.nextBytes(key);
+		return key;
+	}
+
+	private static HandshakeState createHybrid(String protocol, int role, long seed, Executor executor) throws Exception
+	{
+		Random random = new Random(seed);
+		HandshakeState handshake = new HandshakeState(protocol, role);
+		if (handshake.needsLocalKeyPair())
+			handshake.getLocalKeyPair().setPrivateKey(fixedKey(random, 32), 0);
+		handshake.getFixedEphemeralKey().setPrivateKey(fixedKey(random, 32), 0);
+		handshake.getFixedHybridKey().setPrivateKey(fixedKey(random, role == HandshakeState.INITIATOR ? 64 : 32), 0);
+		handshake.setExecutor(executor);
+		handshake.start();
+		return handshake;
+	}
+
+	/**
+	 * Runs a hybrid handshake with fixed keys and returns all of the
+	 * messages followed by the handshake hash.
+	 */
+	private static byte[] hybridTranscript(String protocol, Executor executor) throws Exception
+	{
+		HandshakeState initiator = createHybrid(protocol, HandshakeState.INITIATOR, 1, executor);
+		HandshakeState responder = createHybrid(protocol, HandshakeState.RESPONDER, 2, executor);
+		ByteArrayOutputStream transcript = new ByteArrayOutputStream();
+		byte[] message = new byte [8192];
+		byte[] payload = new byte [8192];
+		HandshakeState writer = initiator;
+		HandshakeState reader = responder;
+		while (writer.getAction() == HandshakeState.WRITE_MESSAGE) {
+			int len = writer.writeMessage(message, 0, null, 0, 0);
+			assertEquals(0, reader.readMessage(message, 0, len, payload, 0));
+			transcript.write(message, 0, len);
+			HandshakeState temp = writer;
+			writer = reader;
+			reader = temp;
+		}
+		assertEquals(HandshakeState.SPLIT, initiator.getAction());
+		assertEquals(HandshakeState.SPLIT, responder.getAction());
+		assertArrayEquals(initiator.getHandshakeHash(), responder.getHandshakeHash());
+		transcript.write(initiator.getHandshakeHash());
+		initiator.destroy();
+		responder.destroy();
+		return transcript.toByteArray();
+	}
+
+	@Test
+	public void concurrentHybrid() throws Exception {
+		String[] protocols = {
+			"Noise_NNhfs_25519+NewHope_ChaChaPoly_SHA256",
+			"Noise_XXhfs_25519+NewHope_ChaChaPoly_SHA256",
+			"Noise_XXhfs_25519+Kyber768_ChaChaPoly_SHA256",
+			"Noise_NNhfs_25519+Kyber768_ChaChaPoly_BLAKE2b"
+		};
+		final ExecutorService pool = Executors.newFixedThreadPool(2);
+		final AtomicInteger submitted = new AtomicInteger();
+		Executor counting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				submitted.incrementAndGet();
+				pool.execute(command);
+			}
+		};
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		};
+		try {
+			for (String protocol : protocols) {
+				// The messages and handshake hash must be the same in every mode.
+				byte[] expected = hybridTranscript(protocol, null);
+				submitted.set(0);
+				assertArrayEquals(expected, hybridTranscript(protocol, counting));
+				assertTrue(submitted.get() > 0);
+				assertArrayEquals(expected, hybridTranscript(protocol, rejecting));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import java.security.MessageDigest;
+
+import com.southernstorm.noise.crypto.Blake2bMessageDigest;
+import com.southernstorm.noise.crypto.Blake2sMessageDigest;
+import com.southernstorm.noise.crypto.SHA256MessageDigest;
+import com.southernstorm.noise.crypto.SHA256MultiBuffer;
+import com.southernstorm.noise.crypto.SHA512MessageDigest;
+
+/**
+ * Measures the throughput of the fallback hash implementations on
+ * bulk data and on the short inputs that are typical of handshakes,
+ * and of multi-buffer SHA256 on batches of short inputs.
+ *
+ * Usage: HashBenchmark [megabytes]
+ */
+public class HashBenchmark {
+
+	private static double bulk(MessageDigest digest, byte[] data, int megabytes)
+	{
+		int count = megabytes * 1024 * 1024 / data.length;
+		long start = System.nanoTime();
+		for (int index = 0; index < count; ++index)
+			digest.update(data);
+		digest.digest();
+		long elapsed = System.nanoTime() - start;
+		return megabytes * 1e9 / elapsed;
+	}
+
+	private static double small(MessageDigest digest, byte[] data, int count)
+	{
+		long start = System.nanoTime();
+		for (int index = 0; index < count; ++index) {
+			digest.update(data, 0, 64);
+			digest.digest();
+		}
+		long elapsed = System.nanoTime() - start;
+		return count * 1e9 / elapsed;
+	}
+
+	private static double multi(SHA256MultiBuffer sha256, byte[] data, int count)
+	{
+		byte[] output = new byte [32 * SHA256MultiBuffer.LANES];
+		long start = System.nanoTime();
+		for (int index = 0; index < count; index += SHA256MultiBuffer.LANES) {
+			for (int lane = 0; lane < SHA256MultiBuffer.LANES; ++lane)
+				sha256.update(lane, data, lane, 64);
+			sha256.digest(SHA256MultiBuffer.LANES, output, 0);
+		}
+		long elapsed = System.nanoTime() - start;
+		return count * 1e9 / elapsed;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		byte[] data = new byte [8192];
+		for (int index = 0; index < data.length; ++index)
+			data[index] = (byte)index;
+		MessageDigest[] digests = {
+			new Blake2sMessageDigest(),
+			new Blake2bMessageDigest(),
+			new SHA256MessageDigest(),
+			new SHA512MessageDigest()
+		};
+		for (int pass = 0; pass < 3; ++pass) {
+			for (MessageDigest digest : digests) {
+				System.out.printf("%-12s %7.1f MB/s, %9.0f 64-byte hashes/s%n",
+						digest.getAlgorithm(), bulk(digest, data, megabytes),
+						small(digest, data, 1000000));
+			}
+			System.out.printf("%-12s %9.0f 64-byte hashes/s%n", "SHA-256 x" + SHA256MultiBuffer.LANES,
+					multi(new SHA256MultiBuffer(), data, 1000000));
+		}
+	}
+}
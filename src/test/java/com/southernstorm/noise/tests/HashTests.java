@@ -30,6 +30,10 @@ import java.security.NoSuchAlgorithmException;
 
 import org.junit.Test;
 
+import com.southernstorm.noise.crypto.Blake2bMessageDigest;
+import com.southernstorm.noise.crypto.Blake2sMessageDigest;
+import com.southernstorm.noise.crypto.SHA256MessageDigest;
+import com.southernstorm.noise.crypto.SHA512MessageDigest;
 import com.southernstorm.noise.protocol.Noise;
 
 /**
@@ -117,4 +121,65 @@ public class HashTests {
 		testHash("SHA512", "abc", "0xddaf35a193617abacc417349ae20413112e6fa4e89a97ea20a9eeee64b55d39a2192992a274fc1a836ba3c23a3feebbd454d4423643ce80e2a9ac94fa54ca49f");
 		testHash("SHA512", "abcdefghbcdefghicdefghijdefghijkefghijklfghijklmghijklmnhijklmnoijklmnopjklmnopqklmnopqrlmnopqrsmnopqrstnopqrstu", "0x8e959b75dae313da8cf4f72814fc143f8f7779c6eb9f7fa17299aeadb6889018501d289e4900f7e4331b99dec4b5433ac7d329eeb6dd26545e96e55b874be909");
 	}
+
+	/**
+	 * Hashes the rest of the input with a snapshot of a partial state.
+	 */
+	private static void finish(MessageDigest digest, byte[] input, int posn, byte[] expected)
+	{
+		digest.update(input, posn, input.length - posn);
+		assertArrayEquals(expected, digest.digest());
+	}
+
+	@Test
+	public void snapshots() throws Exception {
+		String input = "abcdefghbcdefghicdefghijdefghijkefghijklfghijklmghijklmnhijklmnoijklmnopjklmnopqklmnopqrlmnopqrsmnopqrstnopqrstu";
+		byte[] inputBytes = TestUtils.stringToData(input);
+		int posn = 70;
+
+		SHA256MessageDigest sha256 = new SHA256MessageDigest();
+		SHA256MessageDigest sha256Copy = new SHA256MessageDigest();
+		byte[] expected = MessageDigest.getInstance("SHA-256").digest(inputBytes);
+		sha256.update(inputBytes, 0, posn);
+		sha256Copy.copyStateFrom(sha256);
+		finish((MessageDigest)sha256.clone(), inputBytes, posn, expected);
+		finish(sha256, inputBytes, posn, expected);
+		finish(sha256Copy, inputBytes, posn, expected);
+
+		SHA512MessageDigest sha512 = new SHA512MessageDigest();
+		SHA512MessageDigest sha512Copy = new SHA512MessageDigest();
+		expected = MessageDigest.getInstance("SHA-512").digest(inputBytes);
+		sha512.update(inputBytes, 0, posn);
+		sha512Copy.copyStateFrom(sha512);
+		finish((MessageDigest)sha512.clone(), inputBytes, posn, expected);
+		finish(sha512, inputBytes, posn, expected);
+		finish(sha512Copy, inputBytes, posn, expected);
+
+		Blake2sMessageDigest blake2s = new Blake2sMessageDigest();
+		Blake2sMessageDigest blake2sCopy = new Blake2sMessageDigest();
+		expected = TestUtils.stringToData("0x358dd2ed0780d4054e76cb6f3a5bce2841e8e2f547431d4d09db21b66d941fc7");
+		blake2s.update(inputBytes, 0, posn);
+		blake2sCopy.copyStateFrom(blake2s);
+		finish((MessageDigest)blake2s.clone(), inputBytes, posn, expected);
+		finish(blake2s, inputBytes, posn, expected);
+		finish(blake2sCopy, inputBytes, posn, expected);
+
+		Blake2bMessageDigest blake2b = new Blake2bMessageDigest();
+		Blake2bMessageDigest blake2bCopy = new Blake2bMessageDigest();
+		expected = TestUtils.stringToData("0xce741ac5930fe346811175c5227bb7bfcd47f42612fae46c0809514f9e0e3a11ee1773287147cdeaeedff50709aa716341fe65240f4ad6777d6bfaf9726e5e52");
+		blake2b.update(inputBytes, 0, posn);
+		blake2bCopy.copyStateFrom(blake2b);
+		finish((MessageDigest)blake2b.clone(), inputBytes, posn, expected);
+		finish(blake2b, inputBytes, posn, expected);
+		finish(blake2bCopy, inputBytes, posn, expected);
+
+		// A snapshot can be restored many times without allocating.
+		blake2b.reset();
+		blake2b.update(inputBytes, 0, posn);
+		blake2bCopy.copyStateFrom(blake2b);
+		for (int count = 0; count < 3; ++count) {
+			blake2b.copyStateFrom(blake2bCopy);
+			finish(blake2b, inputBytes, posn, expected);
+		}
+	}
 }
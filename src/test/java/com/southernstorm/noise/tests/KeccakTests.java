@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.crypto.Keccak;
+
+/**
+ * Perform tests on the Keccak sponge.
+ */
+public class KeccakTests {
+
+	private static final int SHA3_256 = 0;
+	private static final int SHA3_512 = 1;
+	private static final int SHAKE128 = 2;
+	private static final int SHAKE256 = 3;
+
+	private static void reset(Keccak keccak, int algorithm)
+	{
+		switch (algorithm) {
+		case SHA3_256:	keccak.resetSHA3_256(); break;
+		case SHA3_512:	keccak.resetSHA3_512(); break;
+		case SHAKE128:	keccak.resetSHAKE128(); break;
+		default:		keccak.resetSHAKE256(); break;
+		}
+	}
+
+	private void testVector(int algorithm, String input, String output)
+	{
+		byte[] inputBytes = TestUtils.stringToData(input);
+		byte[] outputBytes = TestUtils.stringToData(output);
+		byte[] result = new byte [outputBytes.length];
+		Keccak keccak = new Keccak();
+
+		reset(keccak, algorithm);
+		keccak.update(inputBytes, 0, inputBytes.length);
+		keccak.squeeze(result, 0, result.length);
+		assertArrayEquals(outputBytes, result);
+
+		// Absorb and squeeze one byte at a time.
+		reset(keccak, algorithm);
+		for (int index = 0; index < inputBytes.length; ++index)
+			keccak.update(inputBytes, index, 1);
+		Arrays.fill(result, (byte)0);
+		for (int index = 0; index < result.length; ++index)
+			keccak.squeeze(result, index, 1);
+		assertArrayEquals(outputBytes, result);
+		keccak.destroy();
+	}
+
+	@Test
+	public void vectors() {
+		testVector(SHA3_256, "",
+				"0xa7ffc6f8bf1ed76651c14756a061d662f580ff4de43b49fa82d80a4b80f8434a");
+		testVector(SHA3_256, "abc",
+				"0x3a985da74fe225b2045c172d6bd390bd855f086e3e9d525b46bfe24511431532");
+		testVector(SHA3_512, "abc",
+				"0xb751850b1a57168a5693cd924b6b096e08f621827444f70d884f5d0240d2712e10e116e9192af3c91a7ec57647e3934057340b4cf408d5a56592f8274eec53f0");
+		testVector(SHAKE128, "",
+				"0x7f9c2ba4e88f827d616045507605853ed73b8093f6efbc88eb1a6eacfa66ef26");
+		testVector(SHAKE256, "",
+				"0x46b9dd2b0ba88d13233b3feb743eeb243fcd52ea62b81b82b50c27646ed5762f");
+	}
+
+	@Test
+	public void compareWithJCA() throws Exception {
+		Random random = new Random(1);
+		Keccak keccak = new Keccak();
+		byte[] input = new byte [1000];
+		random.nextBytes(input);
+		MessageDigest sha3_256 = MessageDigest.getInstance("SHA3-256");
+		MessageDigest sha3_512 = MessageDigest.getInstance("SHA3-512");
+		for (int len = 0; len <= input.length; len += 1 + random.nextInt(37)) {
+			// Split the input at a random point to mix block and byte absorption.
+			int split = random.nextInt(len + 1);
+			byte[] result = new byte [64];
+
+			keccak.resetSHA3_256();
+			keccak.update(input, 0, split);
+			keccak.update(input, split, len - split);
+			keccak.squeeze(result, 0, 32);
+			sha3_256.update(input, 0, len);
+			assertArrayEquals(sha3_256.digest(), Arrays.copyOf(result, 32));
+
+			keccak.resetSHA3_512();
+			keccak.update(input, 0, split);
+			keccak.update(input, split, len - split);
+			keccak.squeeze(result, 0, 64);
+			sha3_512.update(input, 0, len);
+			assertArrayEquals(sha3_512.digest(), result);
+		}
+	}
+
+	@Test
+	public void squeeze() {
+		byte[] seed = TestUtils.stringToData("seed");
+		Keccak keccak = new Keccak();
+		byte[] expected = new byte [Keccak.SHAKE128_RATE * 5];
+		keccak.update(seed, 0, seed.length);
+		keccak.squeeze(expected, 0, expected.length);
+
+		// Whole blocks.
+		byte[] actual = new byte [expected.length];
+		keccak.resetSHAKE128();
+		keccak.update(seed, 0, seed.length);
+		keccak.squeezeBlocks(actual, 0, 2);
+		keccak.squeezeBlocks(actual, 2 * Keccak.SHAKE128_RATE, 3);
+		assertArrayEquals(expected, actual);
+
+		// Pieces that straddle block boundaries.
+		Arrays.fill(actual, (byte)0);
+		keccak.resetSHAKE128();
+		keccak.update(seed, 0, seed.length);
+		for (int posn = 0; posn < actual.length; posn += 100)
+			keccak.squeeze(actual, posn, Math.min(100, actual.length - posn));
+		assertArrayEquals(expected, actual);
+
+		try {
+			keccak.update(seed, 0, seed.length);
+			fail("Absorbed data after squeezing");
+		} catch (IllegalStateException e) {
+			// Success!
+		}
+		keccak.destroy();
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.crypto.MLKEM768;
+import com.southernstorm.noise.protocol.HandshakeState;
+
+/**
+ * Perform tests on the ML-KEM-768 key encapsulation mechanism.
+ *
+ * The expected values were generated with an independent FIPS 203
+ * implementation from the same deterministic random data: d and z for
+ * keygen() followed by m for encaps().
+ */
+public class MLKEMTests {
+
+	private static class FixedMLKEM extends MLKEM768 {
+
+		private Random random;
+
+		public FixedMLKEM(Random random)
+		{
+			this.random = random;
+		}
+
+		@Override
+		protected void randombytes(byte[] buffer)
+		{
+			random.nextBytes(buffer);
+		}
+	}
+
+	private static String hex(byte[] data)
+	{
+		StringBuilder builder = new StringBuilder("0x");
+		for (byte b : data)
+			builder.append(String.format("%02x", b & 0xFF));
+		return builder.toString();
+	}
+
+	private static String hash(byte[] data) throws Exception
+	{
+		return hex(MessageDigest.getInstance("SHA-256").digest(data));
+	}
+
+	private void testVector(long seed, String pkHash, String ctHash, String shared, String rejected) throws Exception
+	{
+		Random random = new Random(seed);
+		MLKEM768 alice = new FixedMLKEM(random);
+		MLKEM768 bob = new FixedMLKEM(random);
+		byte[] pk = new byte [MLKEM768.PUBLICKEYBYTES];
+		byte[] ct = new byte [MLKEM768.CIPHERTEXTBYTES];
+		byte[] keyA = new byte [MLKEM768.SHAREDBYTES];
+		byte[] keyB = new byte [MLKEM768.SHAREDBYTES];
+		alice.keygen(pk, 0);
+		bob.encaps(keyB, 0, ct, 0, pk, 0);
+		assertEquals(pkHash, hash(pk));
+		assertEquals(ctHash, hash(ct));
+		assertEquals(shared, hex(keyB));
+		alice.decaps(keyA, 0, ct, 0);
+		assertArrayEquals(keyB, keyA);
+
+		// A modified ciphertext gives the implicit rejection key.
+		ct[5] ^= 0x10;
+		alice.decaps(keyA, 0, ct, 0);
+		assertEquals(rejected, hex(keyA));
+		alice.destroy();
+		bob.destroy();
+	}
+
+	@Test
+	public void vectors() throws Exception {
+		testVector(1,
+			"0xcb014b81d0e16b3a0df7ef686e1e90c6c437aa8e7770b1c23cabca23d33143c9",
+			"0xadcfbc5c231a2b9777b38dc016dcd2bc2b2a28638057ac38cb2ce61dc44e3ea5",
+			"0x09412fd7f7b7fca01a93a71ebdaa7012cc2942277699692656d12cef7b9ec8ab",
+			"0x727e19a662bc499890051d5423b72618df0e78276f63870b05b039ed9d9156ee");
+		testVector(2,
+			"0x3bd6eeebdd18eba4ffecacc8a9e6ebd403b1626ddf2c0848e561a98b8f1bf96f",
+			"0x24ed8613137b6b34ed45d243f2b0799fac0e31c0d0051685c12d438442e2a64b",
+			"0x13c3808c90acfaa5e04787389afc7bbd2fbdca0465ca456803fde9eacc891aee",
+			"0xf42ccaeccbfc8b5f47d0f3bd5357768ad9ba194736a868a1df850ff73f25e9c6");
+	}
+
+	@Test
+	public void exchange() throws Exception {
+		MLKEM768 alice = new MLKEM768();
+		MLKEM768 bob = new MLKEM768();
+		byte[] pk = new byte [MLKEM768.PUBLICKEYBYTES + 3];
+		byte[] ct = new byte [MLKEM768.CIPHERTEXTBYTES + 5];
+		byte[] keyA = new byte [MLKEM768.SHAREDBYTES + 7];
+		byte[] keyB = new byte [MLKEM768.SHAREDBYTES + 9];
+		for (int round = 0; round < 10; ++round) {
+			alice.keygen(pk, 3);
+			bob.encaps(keyB, 9, ct, 5, pk, 3);
+			alice.decaps(keyA, 7, ct, 5);
+			for (int index = 0; index < MLKEM768.SHAREDBYTES; ++index)
+				assertEquals(keyB[index + 9], keyA[index + 7]);
+		}
+
+		// Encapsulation keys with unreduced coefficients are rejected.
+		pk[3] = (byte)0xFF;
+		pk[4] = (byte)0xFF;
+		try {
+			bob.encaps(keyB, 0, ct, 0, pk, 3);
+			fail("Invalid encapsulation key was accepted");
+		} catch (IllegalArgumentException e) {
+			// Success!
+		}
+
+		// Decapsulation needs a key.
+		alice.destroy();
+		try {
+			alice.decaps(keyA, 0, ct, 0);
+			fail("Decapsulated without a key");
+		} catch (IllegalStateException e) {
+			// Success!
+		}
+		bob.destroy();
+	}
+
+	@Test
+	public void hybridHandshake() throws Exception {
+		String protocol = "Noise_XXhfs_25519+Kyber768_ChaChaPoly_SHA256";
+		for (int round = 0; round < 3; ++round) {
+			HandshakeState initiator = new HandshakeState(protocol, HandshakeState.INITIATOR);
+			HandshakeState responder = new HandshakeState(protocol, HandshakeState.RESPONDER);
+			initiator.getLocalKeyPair().generateKeyPair();
+			responder.getLocalKeyPair().generateKeyPair();
+			initiator.start();
+			responder.start();
+			byte[] message = new byte [4096];
+			byte[] payload = new byte [4096];
+			int len = initiator.writeMessage(message, 0, null, 0, 0);
+			assertEquals(32 + MLKEM768.PUBLICKEYBYTES, len);
+			assertEquals(0, responder.readMessage(message, 0, len, payload, 0));
+			len = responder.writeMessage(message, 0, null, 0, 0);
+			assertEquals(0, initiator.readMessage(message, 0, len, payload, 0));
+			len = initiator.writeMessage(message, 0, null, 0, 0);
+			assertEquals(0, responder.readMessage(message, 0, len, payload, 0));
+			assertEquals(HandshakeState.SPLIT, initiator.getAction());
+			assertEquals(HandshakeState.SPLIT, responder.getAction());
+			assertArrayEquals(initiator.getHandshakeHash(), responder.getHandshakeHash());
+			initiator.destroy();
+			responder.destroy();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.ShortBufferException;
+
+import com.southernstorm.noise.protocol.CipherState;
+
+/**
+ * Cipher that only implements the methods of the original CipherState
+ * interface, in the way that a cipher from a third-party provider
+ * might, so that the default methods of the interface get exercised.
+ */
+public class MinimalCipherState implements CipherState {
+
+	private CipherState cipher;
+
+	public MinimalCipherState(CipherState cipher)
+	{
+		this.cipher = cipher;
+	}
+
+	@Override
+	public void destroy() {
+		cipher.destroy();
+	}
+
+	@Override
+	public String getCipherName() {
+		return cipher.getCipherName();
+	}
+
+	@Override
+	public int getKeyLength() {
+		return cipher.getKeyLength();
+	}
+
+	@Override
+	public int getMACLength() {
+		return cipher.getMACLength();
+	}
+
+	@Override
+	public void initializeKey(byte[] key, int offset) {
+		cipher.initializeKey(key, offset);
+	}
+
+	@Override
+	public boolean hasKey() {
+		return cipher.hasKey();
+	}
+
+	@Override
+	public int encryptWithAd(byte[] ad, byte[] plaintext, int plaintextOffset, byte[] ciphertext, int ciphertextOffset, int length) throws ShortBufferException {
+		return cipher.encryptWithAd(ad, plaintext, plaintextOffset, ciphertext, ciphertextOffset, length);
+	}
+
+	@Override
+	public int decryptWithAd(byte[] ad, byte[] ciphertext, int ciphertextOffset, byte[] plaintext, int plaintextOffset, int length) throws ShortBufferException, BadPaddingException {
+		return cipher.decryptWithAd(ad, ciphertext, ciphertextOffset, plaintext, plaintextOffset, length);
+	}
+
+	@Override
+	public CipherState fork(byte[] key, int offset) {
+		return new MinimalCipherState(cipher.fork(key, offset));
+	}
+
+	@Override
+	public void setNonce(long nonce) {
+		cipher.setNonce(nonce);
+	}
+}
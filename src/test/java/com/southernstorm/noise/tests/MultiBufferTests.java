@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.crypto.BatchHKDF;
+import com.southernstorm.noise.crypto.SHA256MultiBuffer;
+
+/**
+ * Perform tests on multi-buffer SHA256 and batched HKDF.
+ */
+public class MultiBufferTests {
+
+	private static byte[] hmac(byte[] key, byte[]... data) throws Exception
+	{
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(key, "HmacSHA256"));
+		for (byte[] value : data)
+			mac.update(value);
+		return mac.doFinal();
+	}
+
+	@Test
+	public void sha256() throws Exception {
+		Random random = new Random(7);
+		MessageDigest reference = MessageDigest.getInstance("SHA-256");
+		SHA256MultiBuffer sha256 = new SHA256MultiBuffer();
+		for (int round = 0; round < 50; ++round) {
+			int count = 1 + random.nextInt(SHA256MultiBuffer.LANES);
+			byte[][] messages = new byte [count][];
+			for (int lane = 0; lane < count; ++lane) {
+				// Cover the lengths around the padding boundaries.
+				int length = (round < 20) ? (lane * 20 + round) % 140 : random.nextInt(300);
+				messages[lane] = new byte [length];
+				random.nextBytes(messages[lane]);
+				int split = length / 3;
+				sha256.update(lane, messages[lane], 0, split);
+				sha256.update(lane, messages[lane], split, length - split);
+			}
+			byte[] output = new byte [count * 32 + 5];
+			sha256.digest(count, output, 5);
+			for (int lane = 0; lane < count; ++lane) {
+				assertArrayEquals(reference.digest(messages[lane]),
+						Arrays.copyOfRange(output, 5 + lane * 32, 5 + lane * 32 + 32));
+			}
+		}
+		sha256.destroy();
+	}
+
+	@Test
+	public void hmac() throws Exception {
+		Random random = new Random(11);
+		BatchHKDF batch = new BatchHKDF();
+		int count = 19;
+		for (int keyLength : new int[] {16, 32, 64}) {
+			byte[] keys = new byte [count * keyLength];
+			byte[] data = new byte [count * 77];
+			random.nextBytes(keys);
+			random.nextBytes(data);
+			byte[] output = new byte [count * 32];
+			batch.hmac(count, keys, 0, keyLength, data, 0, 77, output, 0);
+			for (int index = 0; index < count; ++index) {
+				byte[] expected = hmac(Arrays.copyOfRange(keys, index * keyLength, (index + 1) * keyLength),
+						Arrays.copyOfRange(data, index * 77, (index + 1) * 77));
+				assertArrayEquals(expected, Arrays.copyOfRange(output, index * 32, index * 32 + 32));
+			}
+		}
+		batch.destroy();
+	}
+
+	@Test
+	public void hkdf() throws Exception {
+		Random random = new Random(13);
+		BatchHKDF batch = new BatchHKDF();
+		int count = 11;
+		byte[] ck = new byte [count * 32];
+		byte[] ikm = new byte [count * 32];
+		random.nextBytes(ck);
+		random.nextBytes(ikm);
+		byte[] out1 = new byte [count * 32];
+		byte[] out2 = new byte [count * 32 + 3];
+		byte[] out3 = new byte [count * 32];
+		batch.hkdf(count, ck, 0, ikm, 0, 32, out1, 0, out2, 3, out3, 0);
+		for (int index = 0; index < count; ++index) {
+			byte[] temp = hmac(Arrays.copyOfRange(ck, index * 32, index * 32 + 32),
+					Arrays.copyOfRange(ikm, index * 32, index * 32 + 32));
+			byte[] expected1 = hmac(temp, new byte[] {0x01});
+			byte[] expected2 = hmac(temp, expected1, new byte[] {0x02});
+			byte[] expected3 = hmac(temp, expected2, new byte[] {0x03});
+			assertArrayEquals(expected1, Arrays.copyOfRange(out1, index * 32, index * 32 + 32));
+			assertArrayEquals(expected2, Arrays.copyOfRange(out2, 3 + index * 32, 3 + index * 32 + 32));
+			assertArrayEquals(expected3, Arrays.copyOfRange(out3, index * 32, index * 32 + 32));
+		}
+
+		// Only the first output, with empty input key material.
+		byte[] single = new byte [count * 32];
+		batch.hkdf(count, ck, 0, null, 0, 0, single, 0, null, 0, null, 0);
+		for (int index = 0; index < count; ++index) {
+			byte[] temp = hmac(Arrays.copyOfRange(ck, index * 32, index * 32 + 32));
+			assertArrayEquals(hmac(temp, new byte[] {0x01}), Arrays.copyOfRange(single, index * 32, index * 32 + 32));
+		}
+		batch.destroy();
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.southernstorm.noise.crypto.MLKEM768;
+import com.southernstorm.noise.crypto.NewHope;
+import com.southernstorm.noise.crypto.NewHopeTor;
+import com.southernstorm.noise.protocol.HandshakeState;
+
+/**
+ * Measures the speed of the New Hope and ML-KEM-768 key exchange
+ * operations and of complete hybrid forward secrecy handshakes.
+ *
+ * Usage: NewHopeBenchmark [iterations]
+ */
+public class NewHopeBenchmark {
+
+	private static void exchange(String name, NewHope alice, NewHope bob, int count)
+	{
+		byte[] sendA = new byte [NewHope.SENDABYTES];
+		byte[] sendB = new byte [NewHope.SENDBBYTES];
+		byte[] keyA = new byte [NewHope.SHAREDBYTES];
+		byte[] keyB = new byte [NewHope.SHAREDBYTES];
+		long keygen = 0, sharedb = 0, shareda = 0;
+		for (int index = 0; index < count; ++index) {
+			long start = System.nanoTime();
+			alice.keygen(sendA, 0);
+			long mid1 = System.nanoTime();
+			bob.sharedb(keyB, 0, sendB, 0, sendA, 0);
+			long mid2 = System.nanoTime();
+			alice.shareda(keyA, 0, sendB, 0);
+			long end = System.nanoTime();
+			keygen += mid1 - start;
+			sharedb += mid2 - mid1;
+			shareda += end - mid2;
+		}
+		System.out.printf("%-10s keygen %7.0f/s, sharedb %7.0f/s, shareda %7.0f/s%n", name,
+				count * 1e9 / keygen, count * 1e9 / sharedb, count * 1e9 / shareda);
+	}
+
+	private static void exchange(String name, MLKEM768 alice, MLKEM768 bob, int count)
+	{
+		byte[] pk = new byte [MLKEM768.PUBLICKEYBYTES];
+		byte[] ct = new byte [MLKEM768.CIPHERTEXTBYTES];
+		byte[] keyA = new byte [MLKEM768.SHAREDBYTES];
+		byte[] keyB = new byte [MLKEM768.SHAREDBYTES];
+		long keygen = 0, encaps = 0, decaps = 0;
+		for (int index = 0; index < count; ++index) {
+			long start = System.nanoTime();
+			alice.keygen(pk, 0);
+			long mid1 = System.nanoTime();
+			bob.encaps(keyB, 0, ct, 0, pk, 0);
+			long mid2 = System.nanoTime();
+			alice.decaps(keyA, 0, ct, 0);
+			long end = System.nanoTime();
+			keygen += mid1 - start;
+			encaps += mid2 - mid1;
+			decaps += end - mid2;
+		}
+		System.out.printf("%-10s keygen %7.0f/s, encaps  %7.0f/s, decaps  %7.0f/s%n", name,
+				count * 1e9 / keygen, count * 1e9 / encaps, count * 1e9 / decaps);
+	}
+
+	private static void handshake(String protocol, int count, ExecutorService executor) throws Exception
+	{
+		byte[] message = new byte [4096];
+		byte[] payload = new byte [4096];
+		long start = System.nanoTime();
+		for (int index = 0; index < count; ++index) {
+			HandshakeState initiator = new HandshakeState(protocol, HandshakeState.INITIATOR);
+			HandshakeState responder = new HandshakeState(protocol, HandshakeState.RESPONDER);
+			initiator.setExecutor(executor);
+			responder.setExecutor(executor);
+			initiator.start();
+			responder.start();
+			int len = initiator.writeMessage(message, 0, null, 0, 0);
+			responder.readMessage(message, 0, len, payload, 0);
+			len = responder.writeMessage(message, 0, null, 0, 0);
+			initiator.readMessage(message, 0, len, payload, 0);
+			initiator.destroy();
+			responder.destroy();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%-45s %7.0f handshakes/s%s%n", protocol, count * 1e9 / elapsed,
+				executor != null ? " (executor)" : "");
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		for (int pass = 0; pass < 3; ++pass) {
+			exchange("NewHope", new NewHope(), new NewHope(), count);
+			exchange("NewHopeTor", new NewHopeTor(), new NewHopeTor(), count);
+			exchange("Kyber768", new MLKEM768(), new MLKEM768(), count);
+			handshake("Noise_NNhfs_25519+NewHope_ChaChaPoly_SHA256", count / 5, null);
+			handshake("Noise_NNhfs_25519+NewHope_ChaChaPoly_SHA256", count / 5, executor);
+			handshake("Noise_NNhfs_25519+Kyber768_ChaChaPoly_SHA256", count / 5, null);
+			handshake("Noise_NNhfs_25519+Kyber768_ChaChaPoly_SHA256", count / 5, executor);
+		}
+		executor.shutdown();
+	}
+}
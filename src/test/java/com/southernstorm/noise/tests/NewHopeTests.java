@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.crypto.NewHope;
+import com.southernstorm.noise.crypto.NewHopeTor;
+import com.southernstorm.noise.protocol.HandshakeState;
+
+/**
+ * Perform tests on the New Hope key exchange.
+ *
+ * The expected values are SHA-256 hashes of the outputs produced by
+ * the original reference port when it is given deterministic random
+ * data.  They guard the optimized implementation against any change
+ * in the bits on the wire.
+ */
+public class NewHopeTests {
+
+	private static class FixedNewHope extends NewHope {
+
+		private Random random;
+
+		public FixedNewHope(long seed)
+		{
+			random = new Random(seed);
+		}
+
+		@Override
+		protected void randombytes(byte[] buffer)
+		{
+			random.nextBytes(buffer);
+		}
+	}
+
+	private static class FixedNewHopeTor extends NewHopeTor {
+
+		private Random random;
+
+		public FixedNewHopeTor(long seed)
+		{
+			random = new Random(seed);
+		}
+
+		@Override
+		protected void randombytes(byte[] buffer)
+		{
+			random.nextBytes(buffer);
+		}
+	}
+
+	private static String hash(byte[] data) throws Exception
+	{
+		byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+		StringBuilder builder = new StringBuilder("0x");
+		for (byte b : digest)
+			builder.append(String.format("%02x", b & 0xFF));
+		return builder.toString();
+	}
+
+	/**
+	 * Runs several exchanges with the same pair of objects, which
+	 * exercises the reuse of their internal workspaces.
+	 */
+	private void testExchange(NewHope alice, NewHope bob, String[] expected) throws Exception
+	{
+		byte[] sendA = new byte [NewHope.SENDABYTES];
+		byte[] sendB = new byte [NewHope.SENDBBYTES];
+		byte[] keyA = new byte [NewHope.SHAREDBYTES];
+		byte[] keyB = new byte [NewHope.SHAREDBYTES];
+		for (int round = 0; round < expected.length / 3; ++round) {
+			alice.keygen(sendA, 0);
+			bob.sharedb(keyB, 0, sendB, 0, sendA, 0);
+			alice.shareda(keyA, 0, sendB, 0);
+			assertArrayEquals(keyB, keyA);
+			assertEquals(expected[round * 3], hash(sendA));
+			assertEquals(expected[round * 3 + 1], hash(sendB));
+			assertEquals(expected[round * 3 + 2], hash(keyA));
+		}
+		alice.destroy();
+		bob.destroy();
+	}
+
+	@Test
+	public void newHope() throws Exception {
+		testExchange(new FixedNewHope(1), new FixedNewHope(2), new String[] {
+			"0xcc5e275e2af422e0c3af8e21135935f41648b7ce1a6379c80de8963230e3c325",
+			"0x73d5adcfd90508eb31fe4ca9c61ab98c07431b18eff92a548042eabbfe1c7bcb",
+			"0x2049afa249a809c089483aad92e93377a9f1844574c792eca3ffd07470f92e09",
+			"0x2bee702c16fc56fc13309d753d70293ab8e440f39d3236699762e28dfd312f9d",
+			"0x4c06869e8179f3f31063f57627badd609612350908f85d3c522cece557ff43be",
+			"0x513b18f548bc64bf9d6f7a0e25c8a0845701e5228e8b0496b62ff6e8c55cada2"
+		});
+	}
+
+	@Test
+	public void newHopeTor() throws Exception {
+		testExchange(new FixedNewHopeTor(3), new FixedNewHopeTor(4), new String[] {
+			"0x8b02b17495de6cc3a3993da2f6d982bc26a2c5e751303a189a59a75636accfbc",
+			"0xdef3405b29b1a27fb4d1e84a7df5dc5287559f9262d5509d18feea46610146dd",
+			"0xe4467daaf6470aff218d326c2f066a0b9767f5fcf752989795c5fc6308ef30b6",
+			"0xd295c7a674603f33582a10ed8bb462760f051d14ef85b74c579d9d7a1c05743f",
+			"0x78ca3b4b308a212918b93c2d39043ad02870e98cb8e44d6a7dc57fe05836144b",
+			"0xd29ddac498c9166db08f79698cbf68b3fd276d7965e83158fb34a062cda81640"
+		});
+	}
+
+	@Test
+	public void hybridHandshake() throws Exception {
+		String protocol = "Noise_NNhfs_25519+NewHope_ChaChaPoly_SHA256";
+		for (int round = 0; round < 3; ++round) {
+			HandshakeState initiator = new HandshakeState(protocol, HandshakeState.INITIATOR);
+			HandshakeState responder = new HandshakeState(protocol, HandshakeState.RESPONDER);
+			initiator.start();
+			responder.start();
+			byte[] message = new byte [4096];
+			byte[] payload = new byte [4096];
+			int len = initiator.writeMessage(message, 0, null, 0, 0);
+			assertEquals(0, responder.readMessage(message, 0, len, payload, 0));
+			len = responder.writeMessage(message, 0, null, 0, 0);
+			assertEquals(0, initiator.readMessage(message, 0, len, payload, 0));
+			assertEquals(HandshakeState.SPLIT, initiator.getAction());
+			assertEquals(HandshakeState.SPLIT, responder.getAction());
+			assertArrayEquals(initiator.getHandshakeHash(), responder.getHandshakeHash());
+			initiator.destroy();
+			responder.destroy();
+		}
+	}
+}
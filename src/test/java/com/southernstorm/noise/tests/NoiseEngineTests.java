@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import javax.crypto.BadPaddingException;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.HandshakeState;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.NoiseEngine;
+
+/**
+ * Perform tests on the non-blocking NoiseEngine.
+ */
+public class NoiseEngineTests {
+
+	private static final String PROTOCOL = "Noise_XX_25519_ChaChaPoly_BLAKE2s";
+
+	private NoiseEngine createEngine(int role) throws Exception
+	{
+		HandshakeState handshake = new HandshakeState(PROTOCOL, role);
+		handshake.getLocalKeyPair().generateKeyPair();
+		return new NoiseEngine(handshake);
+	}
+
+	/**
+	 * Runs the handshake between two engines.
+	 */
+	private void handshake(NoiseEngine initiator, NoiseEngine responder, boolean direct) throws Exception
+	{
+		ByteBuffer wire = direct ? ByteBuffer.allocateDirect(4096) : ByteBuffer.allocate(4096);
+		ByteBuffer empty = ByteBuffer.allocate(0);
+		ByteBuffer app = ByteBuffer.allocate(4096);
+		NoiseEngine writer = initiator;
+		NoiseEngine reader = responder;
+		assertEquals(NoiseEngine.NEED_WRAP, initiator.getHandshakeStatus());
+		assertEquals(NoiseEngine.NEED_UNWRAP, responder.getHandshakeStatus());
+
+		// Nothing happens if the engines are driven the wrong way.
+		assertEquals(NoiseEngine.OK, responder.wrap(empty, wire));
+		assertEquals(0, wire.position());
+		assertEquals(NoiseEngine.OK, initiator.unwrap(wire, app));
+		assertEquals(0, wire.position());
+		assertEquals(NoiseEngine.BUFFER_UNDERFLOW, responder.unwrap(empty, app));
+
+		while (!initiator.isHandshakeComplete() || !responder.isHandshakeComplete()) {
+			assertEquals(NoiseEngine.NEED_WRAP, writer.getHandshakeStatus());
+
+			// Try a destination buffer that is too small first.
+			assertEquals(NoiseEngine.BUFFER_OVERFLOW, writer.wrap(empty, ByteBuffer.allocate(2)));
+			assertEquals(NoiseEngine.NEED_WRAP, writer.getHandshakeStatus());
+			wire.clear();
+			assertEquals(NoiseEngine.OK, writer.wrap(empty, wire));
+			wire.flip();
+			assertEquals(NoiseEngine.OK, reader.unwrap(wire, app));
+			assertEquals(0, wire.remaining());
+			assertEquals(0, app.position());
+			NoiseEngine temp = writer;
+			writer = reader;
+			reader = temp;
+		}
+		assertEquals(NoiseEngine.NOT_HANDSHAKING, initiator.getHandshakeStatus());
+		assertEquals(NoiseEngine.NOT_HANDSHAKING, responder.getHandshakeStatus());
+		assertArrayEquals(initiator.getHandshakeHash(), responder.getHandshakeHash());
+	}
+
+	/**
+	 * Sends data from one engine to the other, delivering the wire
+	 * data in small pieces to exercise the partial frame handling.
+	 */
+	private void transfer(NoiseEngine sender, NoiseEngine receiver, int size, int step, boolean direct) throws Exception
+	{
+		byte[] data = new byte [size];
+		Noise.random(data);
+		ByteBuffer src = ByteBuffer.wrap(data);
+		ByteBuffer wire = direct ? ByteBuffer.allocateDirect(size * 2 + 1024) : ByteBuffer.allocate(size * 2 + 1024);
+		while (src.hasRemaining())
+			assertEquals(NoiseEngine.OK, sender.wrap(src, wire));
+		wire.flip();
+
+		ByteBuffer in = direct ? ByteBuffer.allocateDirect(wire.remaining()) : ByteBuffer.allocate(wire.remaining());
+		ByteBuffer out = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+		in.flip();
+		while (wire.hasRemaining() || in.hasRemaining()) {
+			int result = receiver.unwrap(in, out);
+			if (result == NoiseEngine.BUFFER_UNDERFLOW) {
+				// Append some more wire data to the input buffer.
+				in.compact();
+				for (int index = 0; index < step && wire.hasRemaining(); ++index)
+					in.put(wire.get());
+				in.flip();
+			} else {
+				assertEquals(NoiseEngine.OK, result);
+			}
+		}
+		out.flip();
+		byte[] received = new byte [out.remaining()];
+		out.get(received);
+		assertArrayEquals(data, received);
+	}
+
+	private void testEngine(boolean direct) throws Exception
+	{
+		NoiseEngine initiator = createEngine(HandshakeState.INITIATOR);
+		NoiseEngine responder = createEngine(HandshakeState.RESPONDER);
+		handshake(initiator, responder, direct);
+		transfer(initiator, responder, 1, 1, direct);
+		transfer(responder, initiator, 200000, 1000, direct);
+		transfer(initiator, responder, 70000, 70000, direct);
+
+		// Output space that is smaller than a frame creates shorter frames.
+		ByteBuffer src = ByteBuffer.allocate(100);
+		ByteBuffer dst = ByteBuffer.allocate(2 + 16 + 10);
+		assertEquals(NoiseEngine.OK, initiator.wrap(src, dst));
+		assertEquals(90, src.remaining());
+		assertEquals(NoiseEngine.BUFFER_OVERFLOW, initiator.wrap(src, dst));
+
+		// Input that does not fit in the destination is left alone.
+		dst.flip();
+		assertEquals(NoiseEngine.BUFFER_OVERFLOW, responder.unwrap(dst, ByteBuffer.allocate(9)));
+		assertEquals(28, dst.remaining());
+		assertEquals(NoiseEngine.OK, responder.unwrap(dst, ByteBuffer.allocate(10)));
+
+		// Corrupt a frame and check that the receiver is closed.
+		src.clear();
+		dst.clear();
+		assertEquals(NoiseEngine.OK, initiator.wrap(src, dst));
+		dst.flip();
+		dst.put(5, (byte)(dst.get(5) ^ 0x01));
+		try {
+			responder.unwrap(dst, ByteBuffer.allocate(100));
+			fail("Corrupted frame was accepted");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+		assertTrue(responder.isClosed());
+		assertEquals(NoiseEngine.CLOSED, responder.unwrap(dst, ByteBuffer.allocate(100)));
+		assertEquals(NoiseEngine.CLOSED, responder.wrap(src, ByteBuffer.allocate(100)));
+		initiator.destroy();
+		responder.destroy();
+	}
+
+	@Test
+	public void heapBuffers() throws Exception {
+		testEngine(false);
+	}
+
+	@Test
+	public void directBuffers() throws Exception {
+		testEngine(true);
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.crypto.BadPaddingException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.NoiseFileCipher;
+
+/**
+ * Perform tests on chunked file encryption.
+ */
+public class NoiseFileCipherTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private CipherState createCipher(String name, byte[] key) throws Exception
+	{
+		CipherState cipher = Noise.createCipher(name);
+		cipher.initializeKey(key, 0);
+		return cipher;
+	}
+
+	private void roundTrip(String name, int size, int chunkSize) throws Exception
+	{
+		byte[] key = new byte [32];
+		Noise.random(key);
+		byte[] data = new byte [size];
+		Noise.random(data);
+		File plain = folder.newFile();
+		File encrypted = folder.newFile();
+		File decrypted = folder.newFile();
+		Files.write(plain.toPath(), data);
+
+		CipherState cipher = createCipher(name, key);
+		long encSize;
+		RandomAccessFile in = new RandomAccessFile(plain, "r");
+		RandomAccessFile out = new RandomAccessFile(encrypted, "rw");
+		try {
+			encSize = NoiseFileCipher.encrypt(cipher, in.getChannel(), out.getChannel(), chunkSize);
+		} finally {
+			in.close();
+			out.close();
+		}
+		long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+		assertEquals(NoiseFileCipher.HEADER_LEN + size + chunks * 18, encSize);
+		assertEquals(encSize, encrypted.length());
+		assertEquals(chunks, cipher.getNonce());
+
+		CipherState receiver = createCipher(name, key);
+		assertEquals(size, NoiseFileCipher.decrypt(receiver, encrypted.toPath(), decrypted.toPath()));
+		assertArrayEquals(data, Files.readAllBytes(decrypted.toPath()));
+	}
+
+	@Test
+	public void sizes() throws Exception {
+		roundTrip("ChaChaPoly", 0, 100);
+		roundTrip("ChaChaPoly", 1, 100);
+		roundTrip("ChaChaPoly", 99, 100);
+		roundTrip("ChaChaPoly", 100, 100);
+		roundTrip("ChaChaPoly", 101, 100);
+		roundTrip("ChaChaPoly", 12345, 100);
+		roundTrip("AESGCM", 200000, Noise.MAX_PACKET_LEN - 16);
+	}
+
+	@Test
+	public void multipleWindows() throws Exception {
+		roundTrip("AESGCM", 33 * 1024 * 1024 + 12345, Noise.MAX_PACKET_LEN - 16);
+	}
+
+	private void expectFailure(byte[] key, File encrypted) throws Exception
+	{
+		File decrypted = folder.newFile();
+		try {
+			NoiseFileCipher.decrypt(createCipher("ChaChaPoly", key), encrypted.toPath(), decrypted.toPath());
+			fail("Corrupted file was accepted");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+		assertEquals(0, decrypted.length());
+	}
+
+	@Test
+	public void corruption() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		byte[] data = new byte [1000];
+		Noise.random(data);
+		File plain = folder.newFile();
+		File encrypted = folder.newFile();
+		Files.write(plain.toPath(), data);
+		NoiseFileCipher.encrypt(createCipher("ChaChaPoly", key), plain.toPath(), encrypted.toPath());
+		byte[] good = Files.readAllBytes(encrypted.toPath());
+
+		// Flip a bit in the ciphertext.
+		byte[] bad = good.clone();
+		bad[bad.length - 20] ^= 0x01;
+		Files.write(encrypted.toPath(), bad);
+		expectFailure(key, encrypted);
+
+		// Truncate the file.
+		Files.write(encrypted.toPath(), Arrays.copyOf(good, good.length - 1));
+		expectFailure(key, encrypted);
+
+		// Encrypt with a small chunk size and drop the final chunk.
+		RandomAccessFile in = new RandomAccessFile(plain, "r");
+		RandomAccessFile out = new RandomAccessFile(encrypted, "rw");
+		try {
+			NoiseFileCipher.encrypt(createCipher("ChaChaPoly", key), in.getChannel(), out.getChannel(), 100);
+		} finally {
+			in.close();
+			out.close();
+		}
+		good = Files.readAllBytes(encrypted.toPath());
+		Files.write(encrypted.toPath(), Arrays.copyOf(good, good.length - 118));
+		expectFailure(key, encrypted);
+
+		// Bad header.
+		bad = good.clone();
+		bad[0] ^= 0x01;
+		Files.write(encrypted.toPath(), bad);
+		try {
+			NoiseFileCipher.decrypt(createCipher("ChaChaPoly", key), encrypted.toPath(), folder.newFile().toPath());
+			fail("Bad header was accepted");
+		} catch (IOException e) {
+			// Success!
+		}
+	}
+
+	private void parallel(String name, boolean forceFallbacks, int size, int chunkSize) throws Exception
+	{
+		byte[] key = new byte [32];
+		Noise.random(key);
+		byte[] data = new byte [size];
+		Noise.random(data);
+		File plain = folder.newFile();
+		File sequential = folder.newFile();
+		File parallel = folder.newFile();
+		File decrypted = folder.newFile();
+		Files.write(plain.toPath(), data);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Noise.setForceFallbacks(forceFallbacks);
+		try {
+			// Encrypt sequentially and in parallel and compare the results.
+			CipherState cipher1 = createCipher(name, key);
+			CipherState cipher2 = createCipher(name, key);
+			cipher1.setNonce(1000);
+			cipher2.setNonce(1000);
+			RandomAccessFile in = new RandomAccessFile(plain, "r");
+			RandomAccessFile out1 = new RandomAccessFile(sequential, "rw");
+			RandomAccessFile out2 = new RandomAccessFile(parallel, "rw");
+			try {
+				NoiseFileCipher.encrypt(cipher1, in.getChannel(), out1.getChannel(), chunkSize, null);
+				NoiseFileCipher.encrypt(cipher2, in.getChannel(), out2.getChannel(), chunkSize, pool);
+			} finally {
+				in.close();
+				out1.close();
+				out2.close();
+			}
+			assertEquals(cipher1.getNonce(), cipher2.getNonce());
+			byte[] expected = Files.readAllBytes(sequential.toPath());
+			assertArrayEquals(expected, Files.readAllBytes(parallel.toPath()));
+
+			// Decrypt in parallel.
+			CipherState receiver = createCipher(name, key);
+			receiver.setNonce(1000);
+			in = new RandomAccessFile(parallel, "r");
+			RandomAccessFile out = new RandomAccessFile(decrypted, "rw");
+			try {
+				assertEquals(size, NoiseFileCipher.decrypt(receiver, in.getChannel(), out.getChannel(), pool));
+			} finally {
+				in.close();
+				out.close();
+			}
+			assertEquals(cipher1.getNonce(), receiver.getNonce());
+			assertArrayEquals(data, Files.readAllBytes(decrypted.toPath()));
+
+			// Corrupt a chunk in the middle and decrypt in parallel again.
+			expected[expected.length / 2] ^= 0x01;
+			Files.write(parallel.toPath(), expected);
+			receiver = createCipher(name, key);
+			receiver.setNonce(1000);
+			in = new RandomAccessFile(parallel, "r");
+			out = new RandomAccessFile(decrypted, "rw");
+			try {
+				NoiseFileCipher.decrypt(receiver, in.getChannel(), out.getChannel(), pool);
+				fail("Corrupted file was accepted");
+			} catch (BadPaddingException e) {
+				// Success!
+			} finally {
+				in.close();
+				out.close();
+			}
+			assertEquals(0, decrypted.length());
+		} finally {
+			Noise.setForceFallbacks(false);
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void parallel() throws Exception {
+		parallel("ChaChaPoly", false, 1000000 + 17, 100);
+		parallel("AESGCM", false, 1000000, 100);
+		parallel("AESGCM", true, 1000000 + 99, 100);
+		parallel("ChaChaPoly", false, 20 * 1024 * 1024 + 1, Noise.MAX_PACKET_LEN - 16);
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.DHState;
+import com.southernstorm.noise.protocol.HandshakeState;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.NoiseServerSocket;
+import com.southernstorm.noise.protocol.NoiseSocket;
+
+/**
+ * Perform tests on Noise sockets over the loopback interface.
+ */
+public class NoiseSocketTests {
+
+	private static final String PROTOCOL = "Noise_NK_25519_AESGCM_SHA256";
+
+	private static final int CLIENTS = 4;
+
+	private static final int SIZE = 150000;
+
+	/**
+	 * Reads data from a stream until EOF.
+	 */
+	private static byte[] readAll(InputStream in, int size) throws IOException
+	{
+		byte[] data = new byte [size];
+		int posn = 0;
+		int len;
+		while (posn < size && (len = in.read(data, posn, size - posn)) > 0)
+			posn += len;
+		assertEquals(size, posn);
+		return data;
+	}
+
+	@Test
+	public void echo() throws Exception {
+		final DHState serverKey = Noise.createDH("25519");
+		serverKey.generateKeyPair();
+		final NoiseServerSocket server = new NoiseServerSocket(0, 50, InetAddress.getLoopbackAddress(), new NoiseServerSocket.HandshakeFactory() {
+			@Override
+			public HandshakeState createHandshake() throws IOException {
+				try {
+					HandshakeState handshake = new HandshakeState(PROTOCOL, HandshakeState.RESPONDER);
+					handshake.getLocalKeyPair().copyFrom(serverKey);
+					return handshake;
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+			}
+		});
+
+		// Echo everything back to each client from a separate thread.
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int index = 0; index < CLIENTS; ++index) {
+						final Socket socket = server.accept();
+						new Thread() {
+							@Override
+							public void run() {
+								try {
+									InputStream in = socket.getInputStream();
+									OutputStream out = socket.getOutputStream();
+									byte[] buf = new byte [1000];
+									int len;
+									while ((len = in.read(buf)) > 0) {
+										out.write(buf, 0, len);
+										out.flush();
+									}
+									socket.close();
+								} catch (IOException e) {
+									// Ignore errors on the server side.
+								}
+							}
+						}.start();
+					}
+				} catch (IOException e) {
+					// Server socket closed.
+				}
+			}
+		};
+		acceptor.start();
+
+		for (int index = 0; index < CLIENTS; ++index) {
+			HandshakeState handshake = new HandshakeState(PROTOCOL, HandshakeState.INITIATOR);
+			handshake.getRemotePublicKey().copyFrom(serverKey);
+			final NoiseSocket socket = new NoiseSocket(server.getInetAddress(), server.getLocalPort(), handshake);
+			assertFalse(socket.isHandshakeComplete());
+			final byte[] data = new byte [SIZE];
+			Noise.random(data);
+
+			// Write from another thread so that the echo does not deadlock.
+			final OutputStream out = socket.getOutputStream();
+			assertTrue(socket.isHandshakeComplete());
+			assertNotNull(socket.getHandshakeHash());
+			Thread writer = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int posn = 0; posn < SIZE; posn += 777) {
+							out.write(data, posn, Math.min(777, SIZE - posn));
+							if ((posn % 7) == 0)
+								out.flush();
+						}
+						out.flush();
+					} catch (IOException e) {
+						// Detected by the reader below.
+					}
+				}
+			};
+			writer.start();
+			assertArrayEquals(data, readAll(socket.getInputStream(), SIZE));
+			writer.join();
+			socket.close();
+		}
+		acceptor.join();
+		server.close();
+	}
+
+	@Test
+	public void wrongServerKey() throws Exception {
+		final DHState serverKey = Noise.createDH("25519");
+		serverKey.generateKeyPair();
+		DHState otherKey = Noise.createDH("25519");
+		otherKey.generateKeyPair();
+		final NoiseServerSocket server = new NoiseServerSocket(0, 50, InetAddress.getLoopbackAddress(), new NoiseServerSocket.HandshakeFactory() {
+			@Override
+			public HandshakeState createHandshake() throws IOException {
+				try {
+					HandshakeState handshake = new HandshakeState(PROTOCOL, HandshakeState.RESPONDER);
+					handshake.getLocalKeyPair().copyFrom(serverKey);
+					return handshake;
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+			}
+		});
+		final boolean[] serverFailed = new boolean [1];
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Socket socket = server.accept();
+					try {
+						socket.getInputStream();
+					} catch (IOException e) {
+						serverFailed[0] = socket.isClosed();
+					}
+				} catch (IOException e) {
+					// Server socket closed.
+				}
+			}
+		};
+		acceptor.start();
+
+		// The server cannot decrypt the first message, so it drops the connection.
+		HandshakeState handshake = new HandshakeState(PROTOCOL, HandshakeState.INITIATOR);
+		handshake.getRemotePublicKey().copyFrom(otherKey);
+		NoiseSocket socket = new NoiseSocket(server.getInetAddress(), server.getLocalPort(), handshake);
+		try {
+			socket.startHandshake();
+			fail("Handshake should have failed");
+		} catch (IOException e) {
+			// Success!
+		}
+		assertTrue(socket.isClosed());
+		assertFalse(socket.isHandshakeComplete());
+		acceptor.join();
+		assertTrue(serverFailed[0]);
+		server.close();
+	}
+
+	@Test
+	public void truncatedHandshake() throws Exception {
+		final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				try {
+					// Read the first handshake message and then send only
+					// the length prefix of a reply before closing.
+					Socket socket = server.accept();
+					InputStream in = socket.getInputStream();
+					int len = (in.read() << 8) | in.read();
+					for (int index = 0; index < len; ++index)
+						in.read();
+					OutputStream out = socket.getOutputStream();
+					out.write(new byte [] {0, 48});
+					out.flush();
+					socket.close();
+				} catch (IOException e) {
+					// Ignore.
+				}
+			}
+		};
+		acceptor.start();
+		DHState serverKey = Noise.createDH("25519");
+		serverKey.generateKeyPair();
+		HandshakeState handshake = new HandshakeState(PROTOCOL, HandshakeState.INITIATOR);
+		handshake.getRemotePublicKey().copyFrom(serverKey);
+		NoiseSocket socket = new NoiseSocket(server.getInetAddress(), server.getLocalPort(), handshake);
+		try {
+			socket.startHandshake();
+			fail("Handshake should have failed");
+		} catch (EOFException e) {
+			// Success!
+		}
+		assertTrue(socket.isClosed());
+		assertFalse(socket.isHandshakeComplete());
+		acceptor.join();
+		server.close();
+	}
+
+	@Test
+	public void connectFailure() throws Exception {
+		// Find a port that nothing is listening on.
+		ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		int port = server.getLocalPort();
+		server.close();
+
+		DHState serverKey = Noise.createDH("25519");
+		serverKey.generateKeyPair();
+		HandshakeState handshake = new HandshakeState(PROTOCOL, HandshakeState.INITIATOR);
+		handshake.getRemotePublicKey().copyFrom(serverKey);
+		try {
+			new NoiseSocket(InetAddress.getLoopbackAddress(), port, handshake);
+			fail("Connected to a closed port");
+		} catch (IOException e) {
+			// Success!
+		}
+		assertFalse(handshake.getRemotePublicKey().hasPublicKey());
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.NoiseInputStream;
+import com.southernstorm.noise.protocol.NoiseOutputStream;
+
+/**
+ * Perform tests on the Noise frame streams.
+ */
+public class NoiseStreamTests {
+
+	private CipherState createCipher(byte[] key) throws Exception
+	{
+		CipherState cipher = Noise.createCipher("ChaChaPoly");
+		cipher.initializeKey(key, 0);
+		return cipher;
+	}
+
+	/**
+	 * Counts the number of frames in a buffer of encrypted data.
+	 */
+	private int countFrames(byte[] data)
+	{
+		int frames = 0;
+		int posn = 0;
+		while (posn < data.length) {
+			posn += 2 + (((data[posn] & 0xFF) << 8) | (data[posn + 1] & 0xFF));
+			++frames;
+		}
+		assertEquals(data.length, posn);
+		return frames;
+	}
+
+	@Test
+	public void coalesce() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		byte[] data = new byte [10000];
+		Noise.random(data);
+
+		// Small writes should be combined into full frames.
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		NoiseOutputStream out = new NoiseOutputStream(bytes, createCipher(key), 1000);
+		assertEquals(1000, out.getFrameSize());
+		for (int posn = 0; posn < data.length; posn += 10)
+			out.write(data, posn, 10);
+		assertEquals(10 * (1000 + 16 + 2), bytes.size());
+		out.write(ByteBuffer.wrap(new byte [5]));
+		out.write(7);
+		out.close();
+		assertFalse(out.isOpen());
+		byte[] wire = bytes.toByteArray();
+		assertEquals(11, countFrames(wire));
+
+		// Read everything back with the stream and channel interfaces.
+		NoiseInputStream in = new NoiseInputStream(new ByteArrayInputStream(wire), createCipher(key));
+		byte[] received = new byte [data.length];
+		int posn = 0;
+		while (posn < 5000) {
+			int len = in.read(received, posn, Math.min(333, 5000 - posn));
+			assertTrue(len > 0);
+			posn += len;
+		}
+		ByteBuffer rest = ByteBuffer.wrap(received, posn, data.length - posn);
+		while (rest.hasRemaining())
+			assertTrue(in.read(rest) > 0);
+		assertArrayEquals(data, received);
+		for (int index = 0; index < 5; ++index)
+			assertEquals(0, in.read());
+		assertEquals(7, in.read());
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(ByteBuffer.allocate(10)));
+		in.close();
+		assertFalse(in.isOpen());
+	}
+
+	@Test
+	public void fullFrame() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+
+		// A frame that is exactly full goes out without a flush,
+		// whichever write method fills it.
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		NoiseOutputStream out = new NoiseOutputStream(bytes, createCipher(key), 1000);
+		out.write(new byte [1000]);
+		assertEquals(1000 + 16 + 2, bytes.size());
+		out.write(ByteBuffer.wrap(new byte [1000]));
+		assertEquals(2 * (1000 + 16 + 2), bytes.size());
+		out.write(new byte [999]);
+		assertEquals(2 * (1000 + 16 + 2), bytes.size());
+		out.write(7);
+		assertEquals(3 * (1000 + 16 + 2), bytes.size());
+		out.close();
+		assertEquals(3, countFrames(bytes.toByteArray()));
+	}
+
+	@Test
+	public void frameSize() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		try {
+			new NoiseOutputStream(new ByteArrayOutputStream(), createCipher(key), Noise.MAX_PACKET_LEN - 15);
+			fail("Frame size should be too large");
+		} catch (IllegalArgumentException e) {
+			// Success!
+		}
+		try {
+			new NoiseOutputStream(new ByteArrayOutputStream(), createCipher(key), 0);
+			fail("Frame size should be too small");
+		} catch (IllegalArgumentException e) {
+			// Success!
+		}
+		NoiseOutputStream out = new NoiseOutputStream(new ByteArrayOutputStream(), createCipher(key));
+		assertEquals(Noise.MAX_PACKET_LEN - 16, out.getFrameSize());
+		out.close();
+	}
+
+	@Test
+	public void deadline() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		NoiseOutputStream out = new NoiseOutputStream(bytes, createCipher(key), 1000);
+		out.setFlushDeadline(scheduler, 10, TimeUnit.MILLISECONDS);
+
+		// The buffered data should be sent without an explicit flush.
+		out.write(new byte [100]);
+		long end = System.currentTimeMillis() + 5000;
+		while (bytes.size() == 0 && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		assertEquals(100 + 16 + 2, bytes.size());
+
+		// A full frame is sent without waiting for the deadline.
+		out.setFlushDeadline(scheduler, 1, TimeUnit.HOURS);
+		out.write(new byte [1001]);
+		assertEquals(2 * (2 + 16) + 1100, bytes.size());
+		out.setFlushDeadline(null, 0, TimeUnit.MILLISECONDS);
+		out.close();
+		scheduler.shutdown();
+		assertEquals(3, countFrames(bytes.toByteArray()));
+	}
+
+	@Test
+	public void tampered() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		NoiseOutputStream out = new NoiseOutputStream(bytes, createCipher(key));
+		out.write(new byte [100]);
+		out.close();
+		byte[] wire = bytes.toByteArray();
+		wire[10] ^= 0x01;
+		NoiseInputStream in = new NoiseInputStream(new ByteArrayInputStream(wire), createCipher(key));
+		try {
+			in.read();
+			fail("Tampered frame was accepted");
+		} catch (IOException e) {
+			// Success!
+		}
+		in.close();
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.southernstorm.noise.crypto.SHA256MessageDigest;
+import com.southernstorm.noise.crypto.SHA512MessageDigest;
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.DHState;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.NoiseCryptoProvider;
+
+/**
+ * Perform tests on the pluggable crypto provider interface.
+ */
+public class ProviderTests {
+
+	/**
+	 * Provider that claims to have a hardware-accelerated SHA512.
+	 */
+	private static class FastProvider implements NoiseCryptoProvider {
+
+		private final int priority;
+
+		public FastProvider(int priority) {
+			this.priority = priority;
+		}
+
+		@Override
+		public String getName() {
+			return "Fast";
+		}
+
+		@Override
+		public int getPriority() {
+			return priority;
+		}
+
+		@Override
+		public int getCapabilities(String name) {
+			return name.equals("SHA512") ? HARDWARE_ACCELERATED : 0;
+		}
+
+		@Override
+		public DHState createDH(String name) {
+			return null;
+		}
+
+		@Override
+		public CipherState createCipher(String name) {
+			return null;
+		}
+
+		@Override
+		public MessageDigest createHash(String name) {
+			return name.equals("SHA512") ? new SHA512MessageDigest() : null;
+		}
+	}
+
+	@After
+	public void clear() {
+		Noise.setRequiredCapabilities(0);
+	}
+
+	@Test
+	public void serviceLoader() throws Exception {
+		List<NoiseCryptoProvider> providers = Noise.getProviders();
+		assertEquals(2, providers.size());
+		assertEquals("Test", providers.get(0).getName());
+		assertEquals(0, providers.get(1).getPriority());
+		assertTrue(Noise.createHash("TestHash") instanceof SHA256MessageDigest);
+
+		// Only the built-in provider is used when fallbacks are forced.
+		Noise.setForceFallbacks(true);
+		try {
+			Noise.createHash("TestHash");
+			fail("External provider was used with forced fallbacks");
+		} catch (NoSuchAlgorithmException e) {
+			// Success!
+		} finally {
+			Noise.setForceFallbacks(false);
+		}
+	}
+
+	@Test
+	public void priorities() throws Exception {
+		NoiseCryptoProvider fast = new FastProvider(5);
+		NoiseCryptoProvider slow = new FastProvider(-5);
+		assertFalse(Noise.createHash("SHA512") instanceof SHA512MessageDigest);
+		Noise.addProvider(slow);
+		try {
+			assertFalse(Noise.createHash("SHA512") instanceof SHA512MessageDigest);
+			Noise.addProvider(fast);
+			try {
+				assertEquals(4, Noise.getProviders().size());
+				assertSame(fast, Noise.getProviders().get(1));
+				assertTrue(Noise.createHash("SHA512") instanceof SHA512MessageDigest);
+				assertNotNull(Noise.createDH("25519"));
+				assertNotNull(Noise.createCipher("ChaChaPoly"));
+			} finally {
+				Noise.removeProvider(fast);
+			}
+			assertFalse(Noise.createHash("SHA512") instanceof SHA512MessageDigest);
+		} finally {
+			Noise.removeProvider(slow);
+		}
+		assertEquals(2, Noise.getProviders().size());
+	}
+
+	@Test
+	public void capabilities() throws Exception {
+		NoiseCryptoProvider slow = new FastProvider(-5);
+		Noise.addProvider(slow);
+		try {
+			// The low priority provider is chosen for its capability.
+			Noise.setRequiredCapabilities(NoiseCryptoProvider.HARDWARE_ACCELERATED);
+			assertTrue(Noise.createHash("SHA512") instanceof SHA512MessageDigest);
+			try {
+				Noise.createHash("SHA256");
+				fail("Provider without the required capabilities was used");
+			} catch (NoSuchAlgorithmException e) {
+				// Success!
+			}
+
+			// The built-in provider is constant-time for ChaChaPoly but
+			// does not promise that for the AESGCM fallback.
+			Noise.setRequiredCapabilities(NoiseCryptoProvider.CONSTANT_TIME);
+			assertNotNull(Noise.createCipher("ChaChaPoly"));
+			assertNotNull(Noise.createDH("25519"));
+			try {
+				Noise.createCipher("AESGCM");
+				fail("Provider without the required capabilities was used");
+			} catch (NoSuchAlgorithmException e) {
+				// Success!
+			}
+		} finally {
+			Noise.removeProvider(slow);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Measures the throughput of Noise.random() when called from many threads.
+ *
+ * Usage: RandomBenchmark [threads] [requests-per-thread]
+ */
+public class RandomBenchmark {
+
+	private static double run(final int threads, final int requests) throws InterruptedException
+	{
+		Thread[] workers = new Thread [threads];
+		for (int index = 0; index < threads; ++index) {
+			workers[index] = new Thread() {
+				@Override
+				public void run() {
+					// 32 bytes is the size of an ephemeral Curve25519 private key.
+					byte[] data = new byte [32];
+					for (int count = 0; count < requests; ++count)
+						Noise.random(data);
+				}
+			};
+		}
+		long start = System.nanoTime();
+		for (Thread worker : workers)
+			worker.start();
+		for (Thread worker : workers)
+			worker.join();
+		long elapsed = System.nanoTime() - start;
+		return ((double)threads) * requests * 1000000000.0 / elapsed;
+	}
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		for (int pass = 0; pass < 3; ++pass) {
+			Noise.setThreadLocalRandom(false);
+			double system = run(threads, requests);
+			Noise.setThreadLocalRandom(true);
+			double local = run(threads, requests);
+			System.out.printf("%d threads: SecureRandom %.0f req/s, per-thread ChaCha20 %.0f req/s%n",
+					threads, system, local);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.crypto.ChaChaDRBG;
+
+/**
+ * Perform tests on the ChaCha20 random bit generator.
+ */
+public class RandomTests {
+
+	/**
+	 * Seed source that always returns zeroes.
+	 */
+	private static class ZeroRandom extends SecureRandom {
+		private static final long serialVersionUID = 1L;
+		public int seeds = 0;
+
+		@Override
+		public void nextBytes(byte[] bytes) {
+			Arrays.fill(bytes, (byte)0);
+			++seeds;
+		}
+	}
+
+	@Test
+	public void chachaDRBG() {
+		// With an all-zero seed, the first request returns the second half
+		// of the first ChaCha20 block and the start of the second block.
+		// The blocks are from the test vectors in Appendix A.1 of RFC 7539.
+		ZeroRandom seeds = new ZeroRandom();
+		ChaChaDRBG drbg = new ChaChaDRBG(seeds, 96);
+		assertEquals(1, seeds.seeds);
+		byte[] output = new byte [64];
+		drbg.nextBytes(output);
+		assertArrayEquals(TestUtils.stringToData(
+				"0xda41597c5157488d7724e03fb8d84a376a43b8f41518a11cc387b669b2ee6586" +
+				  "9f07e7be5551387a98ba977c732d080dcb0f29a048e3656912c6533e32ee7aed"),
+				output);
+
+		// The key is replaced after each request, so the next request is different.
+		byte[] output2 = new byte [64];
+		drbg.nextBytes(output2);
+		assertFalse(Arrays.equals(output, output2));
+		assertEquals(1, seeds.seeds);
+
+		// The reseed interval has now been reached.
+		drbg.nextBytes(output2, 3, 5);
+		assertEquals(2, seeds.seeds);
+		drbg.destroy();
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.AutoRekeyCipherState;
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.Noise;
+
+/**
+ * Perform tests on REKEY and the automatic rekey wrapper.
+ */
+public class RekeyTests {
+
+	private static CipherState createCipher(String name, byte[] key) throws Exception
+	{
+		CipherState cipher = Noise.createCipher(name);
+		cipher.initializeKey(key, 0);
+		return cipher;
+	}
+
+	/**
+	 * Computes the expected REKEY result with the JCA:
+	 * the first 32 bytes of ENCRYPT(k, 2^64 - 1, zerolen, zeros).
+	 */
+	private static byte[] expectedRekey(String name, byte[] key) throws Exception
+	{
+		Cipher cipher;
+		byte[] iv = new byte [12];
+		Arrays.fill(iv, 4, 12, (byte)0xFF);
+		if (name.equals("ChaChaPoly")) {
+			try {
+				cipher = Cipher.getInstance("ChaCha20-Poly1305");
+			} catch (NoSuchAlgorithmException e) {
+				Assume.assumeNoException(e);
+				return null;
+			} catch (NoSuchPaddingException e) {
+				Assume.assumeNoException(e);
+				return null;
+			}
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "ChaCha20"), new IvParameterSpec(iv));
+		} else {
+			cipher = Cipher.getInstance("AES/GCM/NoPadding");
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+		}
+		return Arrays.copyOf(cipher.doFinal(new byte [32]), 32);
+	}
+
+	private void testRekey(String name) throws Exception
+	{
+		byte[] key = new byte [32];
+		Noise.random(key);
+		byte[] newKey = expectedRekey(name, key);
+		CipherState cipher = createCipher(name, key);
+		CipherState expected = createCipher(name, newKey);
+		byte[] plaintext = new byte [100];
+		byte[] ciphertext = new byte [116];
+		byte[] check = new byte [116];
+		Noise.random(plaintext);
+
+		// The nonce carries on across the rekey.
+		cipher.encryptWithAd(null, plaintext, 0, ciphertext, 0, 100);
+		cipher.rekey();
+		assertEquals(1, cipher.getNonce());
+		expected.setNonce(1);
+		cipher.encryptWithAd(null, plaintext, 0, ciphertext, 0, 100);
+		expected.encryptWithAd(null, plaintext, 0, check, 0, 100);
+		assertArrayEquals(check, ciphertext);
+		cipher.destroy();
+		expected.destroy();
+
+		// Cannot rekey without a key.
+		cipher = Noise.createCipher(name);
+		try {
+			cipher.rekey();
+			fail("Rekey without a key was accepted");
+		} catch (IllegalStateException e) {
+			// Success!
+		}
+		cipher.destroy();
+	}
+
+	@Test
+	public void chachapoly() throws Exception {
+		testRekey("ChaChaPoly");
+	}
+
+	@Test
+	public void aesgcm() throws Exception {
+		testRekey("AESGCM");
+	}
+
+	@Test
+	public void aesgcmFallback() throws Exception {
+		Noise.setForceFallbacks(true);
+		try {
+			testRekey("AESGCM");
+		} finally {
+			Noise.setForceFallbacks(false);
+		}
+	}
+
+	@Test
+	public void autoRekey() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		AutoRekeyCipherState sender = new AutoRekeyCipherState(createCipher("ChaChaPoly", key), 3, 250);
+		AutoRekeyCipherState receiver = new AutoRekeyCipherState(createCipher("ChaChaPoly", key), 3, 250);
+		byte[] plaintext = new byte [100];
+		byte[] ciphertext = new byte [116];
+		byte[] decrypted = new byte [100];
+		int[] sizes = {10, 10, 10, 100, 100, 100, 10, 10};
+		int[] rekeys = {0, 0, 0, 1, 1, 1, 2, 2};
+		for (int index = 0; index < sizes.length; ++index) {
+			Noise.random(plaintext);
+			assertEquals(sizes[index] + 16, sender.encryptWithAd(null, plaintext, 0, ciphertext, 0, sizes[index]));
+			assertEquals(rekeys[index], sender.getRekeyCount());
+			assertEquals(sizes[index], receiver.decryptWithAd(null, ciphertext, 0, decrypted, 0, sizes[index] + 16));
+			assertEquals(rekeys[index], receiver.getRekeyCount());
+			assertArrayEquals(Arrays.copyOf(plaintext, sizes[index]), Arrays.copyOf(decrypted, sizes[index]));
+		}
+
+		// Explicit rekey requests on both sides.
+		sender.requestRekey();
+		receiver.requestRekey();
+		sender.encryptWithAd(null, plaintext, 0, ciphertext, 0, 10);
+		assertEquals(10, receiver.decryptWithAd(null, ciphertext, 0, decrypted, 0, 26));
+		assertEquals(3, sender.getRekeyCount());
+		assertEquals(3, receiver.getRekeyCount());
+
+		// A request on only one side breaks the session.
+		sender.requestRekey();
+		sender.encryptWithAd(null, plaintext, 0, ciphertext, 0, 10);
+		try {
+			receiver.decryptWithAd(null, ciphertext, 0, decrypted, 0, 26);
+			fail("Mismatched rekey was accepted");
+		} catch (BadPaddingException e) {
+			// Success!
+		}
+		sender.destroy();
+		receiver.destroy();
+	}
+
+	@Test
+	public void autoRekeyBatch() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		AutoRekeyCipherState sender = new AutoRekeyCipherState(createCipher("AESGCM", key), 2, 0);
+		AutoRekeyCipherState receiver = new AutoRekeyCipherState(createCipher("AESGCM", key), 2, 0);
+		byte[] plaintext = new byte [50];
+		byte[] ciphertext = new byte [50 + 5 * 16];
+		byte[] decrypted = new byte [50];
+		Noise.random(plaintext);
+		int[] lengths = {10, 10, 10, 10, 10};
+		assertEquals(ciphertext.length, sender.encryptBatchWithAd(null, plaintext, 0, lengths, 5, ciphertext, 0));
+		assertEquals(2, sender.getRekeyCount());
+		int[] cipherLengths = {26, 26, 26, 26, 26};
+		assertEquals(50, receiver.decryptBatchWithAd(null, ciphertext, 0, cipherLengths, 5, decrypted, 0));
+		assertEquals(2, receiver.getRekeyCount());
+		assertArrayEquals(plaintext, decrypted);
+		sender.destroy();
+		receiver.destroy();
+	}
+}
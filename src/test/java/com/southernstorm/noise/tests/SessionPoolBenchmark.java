@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.CipherStatePair;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.SessionPool;
+
+/**
+ * Measures the memory used per session for live cipher pairs and for
+ * sessions that have been hibernated in a SessionPool.
+ *
+ * Usage: SessionPoolBenchmark [cipher] [sessions]
+ */
+public class SessionPoolBenchmark {
+
+	private static long usedHeap()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for (int count = 0; count < 5; ++count) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static CipherStatePair createPair(String name, byte[] key) throws Exception
+	{
+		CipherState sender = Noise.createCipher(name);
+		CipherState receiver = Noise.createCipher(name);
+		Noise.random(key);
+		sender.initializeKey(key, 0);
+		Noise.random(key);
+		receiver.initializeKey(key, 0);
+		return new CipherStatePair(sender, receiver);
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		String name = args.length > 0 ? args[0] : "ChaChaPoly";
+		int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		byte[] key = new byte [32];
+
+		// Live pairs held in a plain array.
+		long before = usedHeap();
+		CipherStatePair[] pairs = new CipherStatePair [sessions];
+		for (int index = 0; index < sessions; ++index)
+			pairs[index] = createPair(name, key);
+		long after = usedHeap();
+		System.out.printf("%s: live pairs use %.0f bytes of heap per session%n",
+				name, (after - before) / (double)sessions);
+		for (int index = 0; index < sessions; ++index) {
+			pairs[index].destroy();
+			pairs[index] = null;
+		}
+		pairs = null;
+
+		// Hibernated sessions in a pool with a small working set.
+		before = usedHeap();
+		SessionPool<Integer> pool = new SessionPool<Integer>(1000);
+		long start = System.nanoTime();
+		for (int index = 0; index < sessions; ++index)
+			pool.put(index, createPair(name, key));
+		long elapsed = System.nanoTime() - start;
+		after = usedHeap();
+		System.out.printf("%s: pooled sessions use %.0f bytes of heap and %.0f bytes off-heap per session%n",
+				name, (after - before) / (double)sessions, pool.getOffHeapSize() / (double)sessions);
+		System.out.printf("%s: %.0f ns per session to create and hibernate%n",
+				name, elapsed / (double)sessions);
+		start = System.nanoTime();
+		for (int index = 0; index < sessions; ++index)
+			pool.get(index);
+		elapsed = System.nanoTime() - start;
+		System.out.printf("%s: %.0f ns per rehydration%n", name, elapsed / (double)sessions);
+		pool.destroy();
+	}
+}
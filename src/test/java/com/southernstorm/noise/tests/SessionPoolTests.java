@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.AutoRekeyCipherState;
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.CipherStatePair;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.SessionPool;
+
+/**
+ * Perform tests on hibernating and rehydrating sessions in a SessionPool.
+ */
+public class SessionPoolTests {
+
+	@Test
+	public void hibernate() throws Exception {
+		final int count = 100;
+		SessionPool<Integer> pool = new SessionPool<Integer>(10);
+		CipherStatePair[] remotes = new CipherStatePair [count];
+		for (int index = 0; index < count; ++index) {
+			byte[] key1 = new byte [32];
+			byte[] key2 = new byte [32];
+			Noise.random(key1);
+			Noise.random(key2);
+			String name = (index % 2) == 0 ? "ChaChaPoly" : "AESGCM";
+			pool.put(index, TestUtils.createPair(name, key1, key2));
+			remotes[index] = TestUtils.createPair(name, key2, key1);
+		}
+		assertEquals(count, pool.size());
+		assertEquals(10, pool.getLiveCount());
+		assertEquals(count - 10, pool.getHibernationCount());
+		assertTrue(pool.getOffHeapSize() >= (count - 10) * CipherStatePair.EXPORT_LEN);
+
+		// Send traffic over every session several times in different orders.
+		int[] strides = {1, 3, 7};
+		for (int pass = 0; pass < strides.length; ++pass) {
+			for (int index = 0; index < count; ++index) {
+				int id = (index * strides[pass]) % count;
+				CipherStatePair pair = pool.get(id);
+				TestUtils.checkTraffic(pair.getSender(), remotes[id].getReceiver(), 20);
+				TestUtils.checkTraffic(remotes[id].getSender(), pair.getReceiver(), 20);
+				assertEquals(pass + 1, pair.getSender().getNonce());
+			}
+		}
+		assertEquals(count, pool.size());
+		assertEquals(10, pool.getLiveCount());
+		assertTrue(pool.getRehydrationCount() >= count * 2);
+
+		// Recently used sessions stay live.
+		long rehydrations = pool.getRehydrationCount();
+		for (int repeat = 0; repeat < 5; ++repeat) {
+			for (int id = 0; id < 10; ++id)
+				pool.get(id);
+		}
+		assertEquals(rehydrations + 10, pool.getRehydrationCount());
+
+		// Explicit hibernation and removal.
+		pool.hibernate(0);
+		assertEquals(9, pool.getLiveCount());
+		pool.remove(0);
+		pool.remove(50);
+		assertNull(pool.get(0));
+		assertNull(pool.get(50));
+		assertEquals(count - 2, pool.size());
+		CipherStatePair pair = pool.get(99);
+		TestUtils.checkTraffic(pair.getSender(), remotes[99].getReceiver(), 20);
+		pool.destroy();
+		assertEquals(0, pool.size());
+		for (CipherStatePair remote : remotes)
+			remote.destroy();
+	}
+
+	@Test
+	public void rejectsUnexportable() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		SessionPool<String> pool = new SessionPool<String>(1);
+		CipherStatePair pair = AutoRekeyCipherState.wrap(TestUtils.createPair("ChaChaPoly", key, key), 10, 0);
+		try {
+			pool.put("a", pair);
+			fail("Pool accepted a pair that cannot be hibernated");
+		} catch (IllegalArgumentException e) {
+			// Success!
+		}
+		assertEquals(0, pool.size());
+		pair.destroy();
+		pool.destroy();
+	}
+
+	@Test
+	public void leases() throws Exception {
+		byte[] key = new byte [32];
+		Noise.random(key);
+		SessionPool<Integer> pool = new SessionPool<Integer>(1);
+		CipherStatePair remote0 = TestUtils.createPair("ChaChaPoly", key, key);
+		pool.put(0, TestUtils.createPair("ChaChaPoly", key, key));
+		CipherStatePair pair = pool.acquire(0);
+		CipherState sender = pair.getSender();
+		TestUtils.checkTraffic(sender, remote0.getReceiver(), 20);
+
+		// An acquired session is not hibernated to make room for others.
+		pool.put(1, TestUtils.createPair("ChaChaPoly", key, key));
+		assertEquals(2, pool.getLiveCount());
+		assertNotNull(pool.get(1));
+		pool.hibernate(0);
+		assertEquals(2, pool.getLiveCount());
+		TestUtils.checkTraffic(sender, remote0.getReceiver(), 20);
+		try {
+			pool.remove(0);
+			fail("Removed a session that is in use");
+		} catch (IllegalStateException e) {
+			// Success!
+		}
+
+		// The deferred hibernation happens on release, after which the
+		// old pair can no longer be used.
+		pool.release(0);
+		assertEquals(1, pool.getLiveCount());
+		assertEquals(1, pool.getHibernationCount());
+		try {
+			TestUtils.checkTraffic(sender, remote0.getReceiver(), 20);
+			fail("Destroyed cipher was used");
+		} catch (IllegalStateException e) {
+			// Success!
+		}
+		try {
+			pool.release(0);
+			fail("Released a session that was not acquired");
+		} catch (IllegalStateException e) {
+			// Success!
+		}
+		pair = pool.acquire(0);
+		assertEquals(2, pair.getSender().getNonce());
+		pool.release(0);
+		remote0.destroy();
+		pool.destroy();
+	}
+
+	@Test
+	public void concurrentLeases() throws Exception {
+		final int threads = 4;
+		final int perThread = 4;
+		final int rounds = 2000;
+		final SessionPool<Integer> pool = new SessionPool<Integer>(2);
+		final CipherStatePair[] remotes = new CipherStatePair [threads * perThread];
+		for (int id = 0; id < remotes.length; ++id) {
+			byte[] key1 = new byte [32];
+			byte[] key2 = new byte [32];
+			Noise.random(key1);
+			Noise.random(key2);
+			pool.put(id, TestUtils.createPair("ChaChaPoly", key1, key2));
+			remotes[id] = TestUtils.createPair("ChaChaPoly", key2, key1);
+		}
+
+		// Each worker owns a few sessions and sends traffic on them while
+		// another thread keeps hibernating sessions underneath it.  Any
+		// nonce that was exported while in use would be reused after
+		// rehydration and the remote side would reject the packet.
+		final Throwable[] errors = new Throwable [threads + 1];
+		final boolean[] done = new boolean [1];
+		Thread[] workers = new Thread [threads + 1];
+		for (int thread = 0; thread < threads; ++thread) {
+			final int base = thread * perThread;
+			final int index = thread;
+			workers[thread] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int round = 0; round < rounds; ++round) {
+							int id = base + (round % perThread);
+							CipherStatePair pair = pool.acquire(id);
+							try {
+								assertEquals(round / perThread, pair.getSender().getNonce());
+								TestUtils.checkTraffic(pair.getSender(), remotes[id].getReceiver(), 20);
+								Thread.yield();
+								TestUtils.checkTraffic(remotes[id].getSender(), pair.getReceiver(), 20);
+							} finally {
+								pool.release(id);
+							}
+						}
+					} catch (Throwable e) {
+						errors[index] = e;
+					}
+				}
+			};
+		}
+		workers[threads] = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Random random = new Random(42);
+					while (!done[0]) {
+						pool.hibernate(random.nextInt(remotes.length));
+						Thread.yield();
+					}
+				} catch (Throwable e) {
+					errors[threads] = e;
+				}
+			}
+		};
+		for (Thread worker : workers)
+			worker.start();
+		for (int thread = 0; thread < threads; ++thread)
+			workers[thread].join();
+		done[0] = true;
+		workers[threads].join();
+		for (Throwable error : errors)
+			assertNull(error);
+		assertTrue(pool.getHibernationCount() > 0);
+		assertEquals(2, pool.getLiveCount());
+		pool.destroy();
+		for (CipherStatePair remote : remotes)
+			remote.destroy();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.southernstorm.noise.protocol.DHState;
+import com.southernstorm.noise.protocol.HandshakeState;
+import com.southernstorm.noise.protocol.Noise;
+import com.southernstorm.noise.protocol.StaticDHCache;
+
+/**
+ * Perform tests on the caching of static-static DH values.
+ */
+public class StaticDHCacheTests {
+
+	private static final String PROTOCOL = "Noise_KK_25519_ChaChaPoly_SHA256";
+
+	private void handshake(DHState initStatic, DHState respStatic, StaticDHCache initCache, StaticDHCache respCache) throws Exception
+	{
+		HandshakeState initiator = new HandshakeState(PROTOCOL, HandshakeState.INITIATOR);
+		HandshakeState responder = new HandshakeState(PROTOCOL, HandshakeState.RESPONDER);
+		initiator.getLocalKeyPair().copyFrom(initStatic);
+		initiator.getRemotePublicKey().copyFrom(respStatic);
+		responder.getLocalKeyPair().copyFrom(respStatic);
+		responder.getRemotePublicKey().copyFrom(initStatic);
+		initiator.setStaticDHCache(initCache);
+		responder.setStaticDHCache(respCache);
+		initiator.start();
+		responder.start();
+		byte[] message = new byte [1024];
+		byte[] payload = new byte [1024];
+		int len = initiator.writeMessage(message, 0, null, 0, 0);
+		assertEquals(0, responder.readMessage(message, 0, len, payload, 0));
+		len = responder.writeMessage(message, 0, null, 0, 0);
+		assertEquals(0, initiator.readMessage(message, 0, len, payload, 0));
+		assertEquals(HandshakeState.SPLIT, initiator.getAction());
+		assertEquals(HandshakeState.SPLIT, responder.getAction());
+		assertArrayEquals(initiator.getHandshakeHash(), responder.getHandshakeHash());
+		initiator.destroy();
+		responder.destroy();
+	}
+
+	private DHState generate() throws Exception
+	{
+		DHState dh = Noise.createDH("25519");
+		dh.generateKeyPair();
+		return dh;
+	}
+
+	@Test
+	public void cachedHandshakes() throws Exception {
+		DHState initStatic = generate();
+		DHState respStatic = generate();
+		DHState otherStatic = generate();
+		StaticDHCache initCache = new StaticDHCache(1);
+		StaticDHCache respCache = new StaticDHCache(2);
+
+		// Populate the caches, and then use the cached values.
+		handshake(initStatic, respStatic, initCache, null);
+		handshake(initStatic, respStatic, null, respCache);
+		assertEquals(1, initCache.size());
+		assertEquals(1, respCache.size());
+		handshake(initStatic, respStatic, initCache, respCache);
+		assertEquals(1, initCache.size());
+		assertEquals(1, respCache.size());
+
+		// Another initiator talking to the same responder.
+		handshake(otherStatic, respStatic, null, respCache);
+		assertEquals(2, respCache.size());
+		handshake(otherStatic, respStatic, null, respCache);
+		assertEquals(2, respCache.size());
+
+		// The initiator's cache only has space for one entry.
+		handshake(initStatic, otherStatic, initCache, null);
+		assertEquals(1, initCache.size());
+		handshake(initStatic, respStatic, initCache, respCache);
+		assertEquals(1, initCache.size());
+
+		// Explicit eviction.
+		byte[] key = new byte [32];
+		initStatic.getPublicKey(key, 0);
+		assertTrue(respCache.remove(key, 0, key.length));
+		assertFalse(respCache.remove(key, 0, key.length));
+		assertEquals(1, respCache.size());
+
+		// Rotating the responder's key invalidates the cache.
+		DHState rotated = generate();
+		handshake(initStatic, rotated, null, respCache);
+		assertEquals(1, respCache.size());
+		handshake(initStatic, rotated, null, respCache);
+		assertEquals(1, respCache.size());
+
+		respCache.clear();
+		assertEquals(0, respCache.size());
+		initCache.destroy();
+		assertEquals(0, initCache.size());
+	}
+
+	@Test
+	public void concurrentRebinding() throws Exception {
+		final DHState[] locals = new DHState [] {generate(), generate()};
+		final DHState remote = Noise.createDH("25519");
+		final byte[][] expected = new byte [2][32];
+		byte[] key = new byte [32];
+		generate().getPublicKey(key, 0);
+		remote.setPublicKey(key, 0);
+		for (int index = 0; index < 2; ++index)
+			locals[index].calculate(expected[index], 0, remote);
+
+		// Threads with different local keys keep re-binding the same cache.
+		// Every result must still be correct for the caller's local key.
+		final StaticDHCache cache = new StaticDHCache(4);
+		final Throwable[] failure = new Throwable [1];
+		Thread[] threads = new Thread [4];
+		for (int index = 0; index < threads.length; ++index) {
+			final int which = index % 2;
+			threads[index] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						byte[] shared = new byte [32];
+						for (int iter = 0; iter < 200; ++iter) {
+							cache.calculate(shared, 0, locals[which], remote);
+							assertArrayEquals(expected[which], shared);
+						}
+					} catch (Throwable e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			};
+			threads[index].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		if (failure[0] != null)
+			throw new AssertionError(failure[0]);
+		assertTrue(cache.size() <= 1);
+		cache.destroy();
+	}
+}
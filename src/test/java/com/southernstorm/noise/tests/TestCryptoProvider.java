@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Southern Storm Software, Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.southernstorm.noise.tests;
+
+import java.security.MessageDigest;
+
+import com.southernstorm.noise.crypto.SHA256MessageDigest;
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.DHState;
+import com.southernstorm.noise.protocol.NoiseCryptoProvider;
+
+/**
+ * Provider that is discovered through ServiceLoader during the tests.
+ * It provides a single hash algorithm that the built-in provider does
+ * not know about.
+ */
+public class TestCryptoProvider implements NoiseCryptoProvider {
+
+	@Override
+	public String getName() {
+		return "Test";
+	}
+
+	@Override
+	public int getPriority() {
+		return 10;
+	}
+
+	@Override
+	public int getCapabilities(String name) {
+		return name.equals("TestHash") ? ALLOCATION_FREE : 0;
+	}
+
+	@Override
+	public DHState createDH(String name) {
+		return null;
+	}
+
+	@Override
+	public CipherState createCipher(String name) {
+		return null;
+	}
+
+	@Override
+	public MessageDigest createHash(String name) {
+		return name.equals("TestHash") ? new SHA256MessageDigest() : null;
+	}
+}
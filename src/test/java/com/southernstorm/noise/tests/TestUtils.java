@@ -22,10 +22,17 @@
 
 package com.southernstorm.noise.tests;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
 import java.io.UnsupportedEncodingException;
 
 import javax.xml.bind.DatatypeConverter;
 
+import com.southernstorm.noise.protocol.CipherState;
+import com.southernstorm.noise.protocol.CipherStatePair;
+import com.southernstorm.noise.protocol.Noise;
+
 public class TestUtils {
 
 	/**
@@ -51,4 +58,38 @@ public class TestUtils {
 		}
 	}
 
+	/**
+	 * Creates a pair of keyed ciphers.
+	 * 
+	 * @param name The name of the cipher algorithm.
+	 * @param key1 The 32-byte key for the sending cipher.
+	 * @param key2 The 32-byte key for the receiving cipher.
+	 * @return The cipher pair.
+	 */
+	public static CipherStatePair createPair(String name, byte[] key1, byte[] key2) throws Exception
+	{
+		CipherState sender = Noise.createCipher(name);
+		CipherState receiver = Noise.createCipher(name);
+		sender.initializeKey(key1, 0);
+		receiver.initializeKey(key2, 0);
+		return new CipherStatePair(sender, receiver);
+	}
+
+	/**
+	 * Checks that a message encrypted by one cipher can be decrypted by another.
+	 * 
+	 * @param sender The cipher to encrypt with.
+	 * @param receiver The cipher to decrypt with.
+	 * @param length The length of the random message to send.
+	 */
+	public static void checkTraffic(CipherState sender, CipherState receiver, int length) throws Exception
+	{
+		byte[] plaintext = new byte [length];
+		byte[] ciphertext = new byte [length + 16];
+		byte[] decrypted = new byte [length];
+		Noise.random(plaintext);
+		assertEquals(length + 16, sender.encryptWithAd(null, plaintext, 0, ciphertext, 0, length));
+		assertEquals(length, receiver.decryptWithAd(null, ciphertext, 0, decrypted, 0, length + 16));
+		assertArrayEquals(plaintext, decrypted);
+	}
 }